@@ -10,15 +10,21 @@
 package org.weasis.acquire.explorer;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.swing.SwingWorker;
 import org.dcm4che3.util.UIDUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.acquire.explorer.dicom.Transform2Dicom;
 import org.weasis.core.api.gui.util.AppProperties;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.util.FileUtil;
 
 /**
@@ -26,12 +32,18 @@
  * the job is done outside the EDT instead of setting AcquireImageStatus change. But, full process
  * progression can still be listened with propertyChange notification of this workerTask.
  *
+ * <p>The images are dicomized concurrently by a bounded number of threads, the progression and
+ * the status are reported in the order of the collection.
+ *
  * @version $Rev$ $Date$
  */
 public class DicomizeTask extends SwingWorker<File, AcquireMediaInfo> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DicomizeTask.class);
 
+  public static final String PREF_MAX_THREADS = "weasis.acquire.dicomize.threads"; // NON-NLS
+  private static final int DEFAULT_MAX_THREADS = 4;
+
   private final Collection<AcquireMediaInfo> toDicomize;
 
   public DicomizeTask(Collection<AcquireMediaInfo> toDicomize) {
@@ -51,31 +63,69 @@ protected File doInBackground() {
     final int nbImageToProcess = toDicomize.size();
     int nbImageProcessed = 0;
 
+    ExecutorService executor = ThreadUtil.newFixedThreadPool(getNumberOfThreads(), "Dicomizer");
+    List<Future<Boolean>> futures = new ArrayList<>(nbImageToProcess);
     try {
       Transform2Dicom.buildStudySeriesDate(toDicomize, AcquireManager.GLOBAL);
 
       String seriesInstanceUID = UIDUtils.createUID(); // Global series for all PR
 
+      // Each image is decoded, processed, encoded and written by one of the threads
+      for (AcquireMediaInfo imageInfo : toDicomize) {
+        futures.add(
+            executor.submit(
+                () ->
+                    Transform2Dicom.dicomize(
+                        imageInfo, exportDirDicom, exportDirImage, seriesInstanceUID)));
+      }
+
+      // Report the progression in the order of the collection
+      Iterator<Future<Boolean>> it = futures.iterator();
       for (AcquireMediaInfo imageInfo : toDicomize) {
+        boolean dicomized = it.next().get();
         setProgress(++nbImageProcessed * 100 / nbImageToProcess);
-        if (!Transform2Dicom.dicomize(
-            imageInfo, exportDirDicom, exportDirImage, seriesInstanceUID)) {
+        if (!dicomized) {
           imageInfo.setStatus(AcquireImageStatus.FAILED);
           continue;
         }
         publish(imageInfo);
       }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Dicomize process has been interrupted");
+      cancelAll(executor, futures);
+      FileUtil.recursiveDelete(exportDirDicom);
+      return null;
     } catch (Exception ex) {
       LOGGER.error("Dicomize process", ex);
+      cancelAll(executor, futures);
       FileUtil.recursiveDelete(exportDirDicom);
       return null;
     } finally {
+      executor.close();
       FileUtil.recursiveDelete(exportDirImage);
     }
 
     return exportDirDicom;
   }
 
+  private static void cancelAll(ExecutorService executor, List<Future<Boolean>> futures) {
+    futures.forEach(f -> f.cancel(true));
+    executor.shutdownNow();
+  }
+
+  /**
+   * The number of images processed concurrently is limited as each thread holds a decoded image of
+   * the size of the photo.
+   */
+  private static int getNumberOfThreads() {
+    int max =
+        GuiUtils.getUICore()
+            .getSystemPreferences()
+            .getIntProperty(PREF_MAX_THREADS, DEFAULT_MAX_THREADS);
+    return Math.clamp(Runtime.getRuntime().availableProcessors(), 1, Math.max(1, max));
+  }
+
   @Override
   protected void process(List<AcquireMediaInfo> chunks) {
     chunks.stream().forEach(AcquireMediaInfo.changeStatus(AcquireImageStatus.SUBMITTED));
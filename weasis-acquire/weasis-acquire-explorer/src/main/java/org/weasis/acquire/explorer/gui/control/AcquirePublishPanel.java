@@ -135,6 +135,7 @@ public PublishDicomTask publishStow(
       }
     }
 
+    DicomProgress dicomProgress = new DicomProgress();
     Supplier<DicomState> publish =
         () -> {
           try (StowRS stowRS =
@@ -146,7 +147,10 @@ public PublishDicomTask publishStow(
 
             DicomState state =
                 stowRS.uploadDicom(
-                    Collections.singletonList(tempDirDicom.getAbsolutePath()), true, authMethod);
+                    Collections.singletonList(tempDirDicom.getAbsolutePath()),
+                    true,
+                    authMethod,
+                    dicomProgress);
             if (state.getStatus() == Status.Success) {
               toPublish.forEach(AcquireManager::updateFinalStatus);
             }
@@ -158,7 +162,7 @@ public PublishDicomTask publishStow(
             FileUtil.recursiveDelete(tempDirDicom);
           }
         };
-    return new PublishDicomTask(publish, new DicomProgress());
+    return new PublishDicomTask(publish, dicomProgress);
   }
 
   private void publishChanged(PropertyChangeEvent evt) {
@@ -13,13 +13,19 @@
 import java.io.File;
 import java.net.URI;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.base.explorer.list.ThumbnailList;
@@ -28,6 +34,7 @@
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.media.data.MediaElement;
 import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 import org.weasis.opencv.op.ImageConversion;
 import org.weasis.opencv.op.ImageProcessor;
@@ -35,36 +42,46 @@
 public final class JIThumbnailCache {
   private static final Logger LOGGER = LoggerFactory.getLogger(JIThumbnailCache.class);
 
-  private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
-  // Set only one concurrent thread. The time-consuming part is in loading image thread (see
-  // ImageElement)
+  private static final int MAX_ICONS = 500;
+  private static final int NB_THREADS =
+      Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+  // Each submission runs the most recent pending request, the thumbnails being painted are
+  // requested last
   private final ExecutorService qExecutor =
-      new ThreadPoolExecutor(
-          1, 1, 0L, TimeUnit.MILLISECONDS, queue, ThreadUtil.namedThreadFactory("ThumbnailCache"));
+      ThreadUtil.newFixedDaemonThreadPool(NB_THREADS, "ThumbnailCache");
+
+  // Guarded by this
+  private final LinkedHashMap<URI, ThumbnailRunnable> pending = new LinkedHashMap<>();
+  private final Map<ThumbnailList<?>, VisibleRange> visibleRanges = new WeakHashMap<>();
+  private final Set<URI> running = ConcurrentHashMap.newKeySet();
 
   private final Map<URI, ThumbnailIcon> cachedThumbnails =
       Collections.synchronizedMap(
-          new LinkedHashMap<>(80) {
+          new LinkedHashMap<>(MAX_ICONS, 0.75f, true) {
             @Override
             protected boolean removeEldestEntry(final Map.Entry eldest) {
-              return size() > 100;
+              return size() > MAX_ICONS;
             }
           });
 
+  /** Indexes of the items displayed by a list when the thumbnails have been requested. */
+  private record VisibleRange(int first, int last) {
+    boolean contains(int index) {
+      return index >= first && index <= last;
+    }
+  }
+
   public synchronized void invalidate() {
     this.cachedThumbnails.clear();
   }
 
   public void removeInQueue(ImageElement imgElement) {
-    Runnable r = null;
-    for (Runnable runnable : queue) {
-      if (Objects.equals(imgElement, ((ThumbnailRunnable) runnable).getDiskObject())) {
-        r = runnable;
+    if (imgElement != null) {
+      synchronized (this) {
+        pending.remove(imgElement.getMediaURI());
       }
     }
-    if (r != null && !queue.remove(r)) {
-      LOGGER.error("Cannot remove thumbnail from the queue");
-    }
   }
 
   public ThumbnailIcon getThumbnailFor(
@@ -90,28 +107,45 @@ private void loadThumbnail(
       final ImageElement diskObject,
       final ThumbnailList<? extends MediaElement> thumbnailList,
       final int index) {
-    if ((index > thumbnailList.getLastVisibleIndex())
-        || (index < thumbnailList.getFirstVisibleIndex())) {
+    VisibleRange range =
+        new VisibleRange(thumbnailList.getFirstVisibleIndex(), thumbnailList.getLastVisibleIndex());
+    if (!range.contains(index)) {
       return;
     }
-    for (Runnable runnable : queue) {
-      if (diskObject.equals(((ThumbnailRunnable) runnable).getDiskObject())) {
+    URI uri = diskObject.getMediaURI();
+    synchronized (this) {
+      // The pending requests out of this range are dropped when they are dequeued
+      visibleRanges.put(thumbnailList, range);
+      if (running.contains(uri)) {
         return;
       }
+      // Move the request at the end of the queue (the most recent)
+      pending.remove(uri);
+      pending.put(uri, new ThumbnailRunnable(diskObject, thumbnailList, index));
     }
-    cleanPending();
-    ThumbnailRunnable runnable = new ThumbnailRunnable(diskObject, thumbnailList, index);
-    qExecutor.execute(runnable);
+    qExecutor.execute(this::runNext);
   }
 
-  private void cleanPending() {
-    for (Runnable runnable : queue) {
-      ThumbnailRunnable r = (ThumbnailRunnable) runnable;
-      int index = r.getIndex();
-      if ((index > r.getThumbnailList().getLastVisibleIndex())
-          || (index < r.getThumbnailList().getFirstVisibleIndex())) {
-        removeInQueue(r.getDiskObject());
+  private void runNext() {
+    ThumbnailRunnable runnable = null;
+    synchronized (this) {
+      Iterator<ThumbnailRunnable> it = pending.sequencedValues().reversed().iterator();
+      while (runnable == null && it.hasNext()) {
+        ThumbnailRunnable r = it.next();
+        it.remove();
+        VisibleRange range = visibleRanges.get(r.getThumbnailList());
+        if (range == null || range.contains(r.getIndex())) {
+          runnable = r;
+        }
       }
+      if (runnable == null || !running.add(runnable.getDiskObject().getMediaURI())) {
+        return;
+      }
+    }
+    try {
+      runnable.run();
+    } finally {
+      running.remove(runnable.getDiskObject().getMediaURI());
     }
   }
 
@@ -142,6 +176,9 @@ public int getIndex() {
     @Override
     public void run() {
       PlanarImage img = null;
+      // The image is not shared with the cache of the image element
+      boolean release = true;
+      boolean fullImage = false;
 
       // Get the final that contain the thumbnail when the uncompressed mode is activated
       File file = diskObject.getFile();
@@ -153,16 +190,33 @@ public void run() {
       }
 
       if (img == null) {
-        img = diskObject.getRenderedImage(diskObject.getImage(null));
+        img = readReducedImage(file);
+      }
+
+      if (img == null) {
+        boolean inCache = diskObject.isImageInCache();
+        PlanarImage source = diskObject.getImage(null);
+        img = diskObject.getRenderedImage(source);
+        release = img != source;
+        // Do not keep in memory the full image of each item of the list
+        fullImage = !inCache;
       }
 
       if (img == null) {
         return;
       }
 
-      final BufferedImage tIcon =
-          ImageConversion.toBufferedImage(
-              (PlanarImage) ImageProcessor.buildThumbnail(img, ThumbnailRenderer.ICON_DIM, true));
+      PlanarImage thumb = ImageProcessor.buildThumbnail(img, ThumbnailRenderer.ICON_DIM, true);
+      final BufferedImage tIcon = ImageConversion.toBufferedImage(thumb);
+      if (thumb != img) {
+        ImageConversion.releasePlanarImage(thumb);
+      }
+      if (release) {
+        ImageConversion.releasePlanarImage(img);
+      }
+      if (fullImage) {
+        diskObject.removeImageFromCache();
+      }
 
       GuiExecutor.execute(
           () -> {
@@ -173,4 +227,65 @@ public void run() {
           });
     }
   }
+
+  /**
+   * Decodes a JPEG file at a reduced resolution (scaling of the DCT), which is much faster than
+   * decoding the full image when the image is much larger than the thumbnail.
+   *
+   * @return the reduced image or null if the file cannot be decoded at a reduced resolution
+   */
+  static PlanarImage readReducedImage(File file) {
+    if (file == null || !isJpeg(file.getName())) {
+      return null;
+    }
+    int scale = getReductionFactor(file);
+    if (scale <= 1) {
+      return null;
+    }
+    int flag =
+        switch (scale) {
+          case 2 -> Imgcodecs.IMREAD_REDUCED_COLOR_2;
+          case 4 -> Imgcodecs.IMREAD_REDUCED_COLOR_4;
+          default -> Imgcodecs.IMREAD_REDUCED_COLOR_8;
+        };
+    Mat mat = Imgcodecs.imread(file.getPath(), flag | Imgcodecs.IMREAD_IGNORE_ORIENTATION);
+    if (mat.empty()) {
+      mat.release();
+      return null;
+    }
+    return ImageCV.toImageCV(mat);
+  }
+
+  private static boolean isJpeg(String name) {
+    String n = name.toLowerCase(Locale.ROOT);
+    return n.endsWith(".jpg") || n.endsWith(".jpeg") || n.endsWith(".jpe"); // NON-NLS
+  }
+
+  // The largest factor (up to 8) keeping the reduced image larger than the thumbnail
+  private static int getReductionFactor(File file) {
+    try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+      Iterator<ImageReader> readers =
+          iis == null ? Collections.emptyIterator() : ImageIO.getImageReaders(iis);
+      if (!readers.hasNext()) {
+        return 1;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(iis, true, true);
+        // Read only the header of the image
+        int size = Math.min(reader.getWidth(0), reader.getHeight(0));
+        int minSize = Math.max(ThumbnailRenderer.ICON_DIM.width, ThumbnailRenderer.ICON_DIM.height);
+        int scale = 1;
+        while (scale < 8 && size / (scale * 2) >= minSize) {
+          scale *= 2;
+        }
+        return scale;
+      } finally {
+        reader.dispose();
+      }
+    } catch (Exception e) {
+      LOGGER.debug("Cannot read the image size of {}", file, e);
+      return 1;
+    }
+  }
 }
@@ -124,6 +124,8 @@ public JPanel getSlicePanel() {
               framePanel.add(
                   GuiUtils.getFlowLayoutPanel(
                       3, 3, speedLabel, speedSpinner, startButton, stopButton));
+              framePanel.add(
+                  GuiUtils.getFlowLayoutPanel(3, 3, sliderItem.createFramePolicyCheckBox()));
             });
     return framePanel;
   }
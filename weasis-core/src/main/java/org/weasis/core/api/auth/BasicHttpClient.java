@@ -26,8 +26,10 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.UnknownHostException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.channels.UnresolvedAddressException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,7 +37,10 @@
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import org.weasis.core.api.util.HttpStreamResponse;
+import org.weasis.core.api.util.HttpTransport;
 import org.weasis.core.api.util.NetworkUtil;
+import org.weasis.core.api.util.URLParameters;
 import org.weasis.core.util.FileUtil;
 
 public class BasicHttpClient implements HttpClient {
@@ -201,96 +206,70 @@ private Response doExecute(
       BodyType bodyType,
       Object bodyContents)
       throws IOException {
-    final URL url = new URL(completeUrl);
-    final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-    connection.setInstanceFollowRedirects(true);
-    connection.setRequestMethod(httpVerb.name());
-    connection.setConnectTimeout(NetworkUtil.getUrlConnectionTimeout());
-    connection.setReadTimeout(NetworkUtil.getUrlReadTimeout());
-    addHeaders(connection, headers, userAgent);
+    Map<String, String> requestHeaders = new HashMap<>(headers);
+    if (userAgent != null) {
+      requestHeaders.put(OAuthConstants.USER_AGENT_HEADER_NAME, userAgent);
+    }
+    BodyPublisher body = BodyPublishers.noBody();
     if (httpVerb.isPermitBody()) {
-      bodyType.setBody(connection, bodyContents, httpVerb.isRequiresBody());
+      body = bodyType.getBody(bodyContents, requestHeaders);
+      if (requestHeaders.keySet().stream().noneMatch(CONTENT_TYPE::equalsIgnoreCase)) {
+        requestHeaders.put(CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
+      }
     }
+    URLParameters params =
+        new URLParameters(
+            requestHeaders, NetworkUtil.getUrlConnectionTimeout(), NetworkUtil.getUrlReadTimeout());
 
     try {
-      connection.connect();
-      final int responseCode = connection.getResponseCode();
+      // Shares the connections of the node with the other requests
+      HttpStreamResponse response =
+          HttpTransport.getInstance().send(completeUrl, params, httpVerb.name(), body);
       return new Response(
-          responseCode,
-          connection.getResponseMessage(),
-          parseHeaders(connection),
-          responseCode >= 200 && responseCode < 400
-              ? connection.getInputStream()
-              : connection.getErrorStream());
-    } catch (UnknownHostException e) {
-      throw new OAuthException("The IP address of a host could not be determined.", e);
+          response.getResponseCode(),
+          response.getResponseMessage(),
+          response.getHeaders(),
+          response.getInputStream());
+    } catch (IOException e) {
+      if (isUnknownHost(e)) {
+        throw new OAuthException("The IP address of a host could not be determined.", e);
+      }
+      throw e;
+    }
+  }
+
+  private static boolean isUnknownHost(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof UnknownHostException || t instanceof UnresolvedAddressException) {
+        return true;
+      }
     }
+    return false;
   }
 
   private enum BodyType {
     BYTE_ARRAY {
       @Override
-      void setBody(HttpURLConnection connection, Object bodyContents, boolean requiresBody)
-          throws IOException {
-        addBody(connection, (byte[]) bodyContents, requiresBody);
+      BodyPublisher getBody(Object bodyContents, Map<String, String> headers) {
+        return BodyPublishers.ofByteArray((byte[]) bodyContents);
       }
     },
     MULTIPART {
       @Override
-      void setBody(HttpURLConnection connection, Object bodyContents, boolean requiresBody)
-          throws IOException {
-        addBody(connection, (MultipartPayload) bodyContents, requiresBody);
+      BodyPublisher getBody(Object bodyContents, Map<String, String> headers) {
+        MultipartPayload multipartPayload = (MultipartPayload) bodyContents;
+        headers.putAll(multipartPayload.getHeaders());
+        return HttpTransport.ofMultipart(multipartPayload);
       }
     },
     STRING {
       @Override
-      void setBody(HttpURLConnection connection, Object bodyContents, boolean requiresBody)
-          throws IOException {
-        addBody(connection, ((String) bodyContents).getBytes(StandardCharsets.UTF_8), requiresBody);
+      BodyPublisher getBody(Object bodyContents, Map<String, String> headers) {
+        return BodyPublishers.ofString((String) bodyContents, StandardCharsets.UTF_8);
       }
     };
 
-    abstract void setBody(HttpURLConnection connection, Object bodyContents, boolean requiresBody)
-        throws IOException;
-  }
-
-  private static Map<String, String> parseHeaders(HttpURLConnection conn) {
-    final Map<String, String> headers = new HashMap<>();
-
-    for (Map.Entry<String, List<String>> headerField : conn.getHeaderFields().entrySet()) {
-      final String key = headerField.getKey();
-      final String value = headerField.getValue().get(0);
-      if ("Content-Encoding".equalsIgnoreCase(key)) { // NON-NLS
-        headers.put("Content-Encoding", value); // NON-NLS
-      } else {
-        headers.put(key, value);
-      }
-    }
-    return headers;
-  }
-
-  private static void addHeaders(
-      HttpURLConnection connection, Map<String, String> headers, String userAgent) {
-    for (Map.Entry<String, String> header : headers.entrySet()) {
-      connection.setRequestProperty(header.getKey(), header.getValue());
-    }
-
-    if (userAgent != null) {
-      connection.setRequestProperty(OAuthConstants.USER_AGENT_HEADER_NAME, userAgent);
-    }
-  }
-
-  private static void addBody(HttpURLConnection connection, byte[] content, boolean requiresBody)
-      throws IOException {
-    final int contentLength = content.length;
-    if (requiresBody || contentLength > 0) {
-      final OutputStream outputStream =
-          prepareConnectionForBodyAndGetOutputStream(connection, contentLength);
-      if (contentLength > 0) {
-        outputStream.write(content);
-      }
-    }
+    abstract BodyPublisher getBody(Object bodyContents, Map<String, String> headers);
   }
 
   public static void addBody(
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.gui.util;
+
+import org.weasis.core.api.gui.util.SliderCineListener.FramePolicy;
+
+/**
+ * Presentation times of the cine frames. With {@link FramePolicy#DROP}, the frames which are late
+ * are skipped to keep the requested rate, but a frame is still presented after a few consecutive
+ * drops. With {@link FramePolicy#WAIT}, the cine waits for each frame and the next frames are
+ * scheduled from the time the frame is ready.
+ *
+ * <p>The times are in nanoseconds, the methods are called by the thread of the cine player.
+ */
+final class CineClock {
+  // Consecutive frames that can be dropped before waiting for a frame
+  static final int MAX_CONSECUTIVE_DROPS = 4;
+
+  private long next;
+  private int consecutiveDrops;
+  private volatile long dropped;
+
+  CineClock(long now) {
+    this.next = now;
+  }
+
+  /** Schedules the next frame now, e.g. when the speed or the position has changed. */
+  void reset(long now) {
+    next = now;
+    consecutiveDrops = 0;
+  }
+
+  /**
+   * @return the presentation time of the next frame
+   */
+  long nextFrame(long period) {
+    next += period;
+    return next;
+  }
+
+  /**
+   * Called when the frame is not decoded at its presentation time.
+   *
+   * @return true if the frame is dropped, false if the cine must wait for the frame
+   */
+  boolean dropNotDecoded(FramePolicy policy) {
+    if (policy == FramePolicy.DROP && consecutiveDrops < MAX_CONSECUTIVE_DROPS) {
+      consecutiveDrops++;
+      dropped++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Called when the cine has waited for a frame which was not decoded at its presentation time.
+   *
+   * @param waitStart the time when the cine started to wait
+   * @param now the time when the frame is decoded
+   */
+  void waited(FramePolicy policy, long waitStart, long now, long period) {
+    // Schedule the next frames from now when the cine cannot catch up
+    if (policy == FramePolicy.WAIT || waitStart - next > period) {
+      next = now;
+    }
+  }
+
+  /**
+   * Called after the presentation of a frame.
+   *
+   * @return the number of frames to skip to keep the requested rate
+   */
+  int presented(FramePolicy policy, long now, long period) {
+    consecutiveDrops = 0;
+    int skipped = 0;
+    if (policy == FramePolicy.DROP) {
+      // Skip the presentation times already passed
+      while (now - next > period) {
+        next += period;
+        skipped++;
+      }
+      dropped += skipped;
+    } else if (now - next > period) {
+      next = now;
+    }
+    return skipped;
+  }
+
+  long getNext() {
+    return next;
+  }
+
+  /**
+   * @return the number of frames skipped
+   */
+  long getDropped() {
+    return dropped;
+  }
+}
@@ -9,17 +9,37 @@
  */
 package org.weasis.core.api.gui.util;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.swing.DefaultBoundedRangeModel;
+import javax.swing.JCheckBox;
 import javax.swing.SpinnerNumberModel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.border.TitledBorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.weasis.core.Messages;
 import org.weasis.core.api.gui.util.GuiUtils.IconColor;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.util.MathUtil;
 import org.weasis.core.util.StringUtil;
 
 public abstract class SliderCineListener extends SliderChangeListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SliderCineListener.class);
 
   public enum TIME {
     SECOND,
@@ -27,53 +47,58 @@ public enum TIME {
     HOUR
   }
 
+  /** Behavior when a frame is not decoded at its presentation time. */
+  public enum FramePolicy {
+    /** Skips the frame to keep the requested rate. */
+    DROP,
+    /** Waits for the frame, the playback slows down when the decoding is slower than the rate. */
+    WAIT
+  }
+
+  /** Decodes the images displayed at a slider value, called outside the EDT. */
+  @FunctionalInterface
+  public interface CineFrameLoader {
+    void load(int sliderValue);
+
+    /**
+     * Decodes at once the images displayed at several slider values, called outside the EDT. By
+     * default, the values are loaded one after the other.
+     *
+     * @throws InterruptedException if the thread is interrupted, the decoding is cancelled
+     */
+    default void load(List<Integer> sliderValues) throws InterruptedException {
+      for (int value : sliderValues) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        load(value);
+      }
+    }
+  }
+
   private static final double DEFAULT_MIN = 0.01;
   private static final double DEFAULT_MAX = 90.0;
 
-  protected volatile boolean sweeping = false;
-  private volatile boolean backward = false;
+  private static final ExecutorService CINE_DECODER =
+      ThreadUtil.newManagedImageProcessingThreadPool("Cine Decoder"); // NON-NLS
+  private static final ThreadFactory CINE_PLAYER =
+      ThreadUtil.namedDaemonThreadFactory("Cine Player", true); // NON-NLS
 
-  private volatile long startTime;
-  private volatile long spentTime;
+  // Duration of the frames decoded ahead of the displayed frame
+  private static final double DECODE_AHEAD_SECONDS = 0.5;
+  private static final int MIN_DECODE_AHEAD = 4;
+  private static final int MAX_DECODE_AHEAD = 32;
+  // Maximum number of frames decoded at once by a task
+  private static final int DECODE_BATCH = 4;
 
-  private final AtomicInteger iteration = new AtomicInteger(0);
+  protected volatile boolean sweeping = false;
+  private volatile boolean backward = false;
+  private volatile FramePolicy framePolicy = FramePolicy.DROP;
+  private volatile CinePlayer player;
 
   private final TIME time;
   private final SpinnerNumberModel speedModel;
 
-  private final Timer timer =
-      new Timer(
-          1000 / 20,
-          _ -> {
-            int step = (int) (getSpeed() / 5);
-            if (step <= 0) {
-              step = 1;
-            }
-            if (iteration.getAndIncrement() % step == 0) {
-              long prevStartTime = startTime;
-              startTime = System.currentTimeMillis();
-              if (iteration.get() > step) {
-                spentTime = (System.currentTimeMillis() - prevStartTime) / 1000;
-              } else {
-                spentTime = 0;
-              }
-            }
-            int offset = backward ? -1 : 1;
-            int frameIndex = getSliderValue() + offset;
-            if (frameIndex > getSliderMax()) {
-              if (sweeping) {
-                backward = true;
-                frameIndex = frameIndex - 2;
-              } else {
-                frameIndex = getSliderMin();
-              }
-            } else if (frameIndex < getSliderMin()) {
-              backward = false;
-              frameIndex = getSliderMin();
-            }
-            setSliderValue(frameIndex);
-          });
-
   protected SliderCineListener(
       Feature<? extends ActionState> action,
       int min,
@@ -94,28 +119,68 @@ protected SliderCineListener(
     speedModel.addChangeListener(_ -> updateSpeed());
   }
 
-  public void start() {
-    if (!timer.isRunning() && getSliderMax() - getSliderMin() > 0) {
-      timer.setDelay((int) (1000 / getSpeed()));
-      iteration.set(0);
-      timer.start();
+  public synchronized void start() {
+    if (player == null && getSliderMax() - getSliderMin() > 0) {
+      player = new CinePlayer(getCineFrameLoader(), getSliderValue());
+      CINE_PLAYER.newThread(player).start();
     }
   }
 
-  public void stop() {
-    if (timer.isRunning()) {
-      timer.stop();
+  public synchronized void stop() {
+    if (player != null) {
+      player.stop();
+      player = null;
     }
   }
 
   public boolean isCining() {
-    return timer.isRunning();
+    return player != null;
   }
 
   public double getSpeed() {
     return (Double) speedModel.getValue();
   }
 
+  public FramePolicy getFramePolicy() {
+    return framePolicy;
+  }
+
+  public void setFramePolicy(FramePolicy framePolicy) {
+    this.framePolicy = Objects.requireNonNull(framePolicy);
+  }
+
+  /**
+   * @return a check box skipping the late frames when selected ({@link FramePolicy#DROP}) or
+   *     waiting for them ({@link FramePolicy#WAIT})
+   */
+  public JCheckBox createFramePolicyCheckBox() {
+    JCheckBox check =
+        new JCheckBox(
+            Messages.getString("SliderCineListener.drop"), framePolicy == FramePolicy.DROP);
+    check.setToolTipText(Messages.getString("SliderCineListener.drop.tip"));
+    check.addActionListener(
+        _ -> setFramePolicy(check.isSelected() ? FramePolicy.DROP : FramePolicy.WAIT));
+    return check;
+  }
+
+  /**
+   * Returns the loader decoding the frames ahead of the displayed frame. It is called on the EDT
+   * when the cine starts, so the loader can capture the state of the viewers.
+   *
+   * @return the frame loader or null when the frames cannot be decoded ahead
+   */
+  protected CineFrameLoader getCineFrameLoader() {
+    return null;
+  }
+
+  /**
+   * @return the number of frames skipped since the cine has started
+   */
+  public long getDroppedFrames() {
+    CinePlayer p = player;
+    return p == null ? 0 : p.clock.getDropped();
+  }
+
   @Override
   public void updateSliderProperties(JSliderW slider) {
     double rate = getCurrentCineRate();
@@ -141,21 +206,35 @@ public void updateSliderProperties(JSliderW slider) {
               ? IconColor.ACTIONS_RED.getColor()
               : UIManager.getColor("TitledBorder.titleColor"));
       titledBorder.setTitle(buffer.toString());
+      slider.setToolTipText(getCineStatistics());
       slider.repaint();
     } else {
       slider.setToolTipText(buffer.toString());
     }
   }
 
-  public double getCurrentCineRate() {
-    if (isCining()) {
-      double time = spentTime;
-      if (time == 0) {
-        return 1000.0 / timer.getDelay();
-      }
-      return spentTime;
+  /**
+   * @return the requested and the achieved rates and the number of skipped frames, or null when the
+   *     cine is stopped
+   */
+  public String getCineStatistics() {
+    CinePlayer p = player;
+    if (p == null || !TIME.SECOND.equals(time)) {
+      return null;
     }
-    return 0.0;
+    return String.format(
+        Messages.getString("SliderCineListener.stats"),
+        DecFormatter.twoDecimal(getSpeed()),
+        DecFormatter.twoDecimal(p.rate),
+        p.clock.getDropped());
+  }
+
+  /**
+   * @return the achieved rate of the cine in frames per second, or 0 when the cine is stopped
+   */
+  public double getCurrentCineRate() {
+    CinePlayer p = player;
+    return p == null ? 0.0 : p.rate;
   }
 
   public void setSpeed(double speed) {
@@ -163,9 +242,9 @@ public void setSpeed(double speed) {
   }
 
   protected void updateSpeed() {
-    if (timer.isRunning()) {
-      iteration.set(0);
-      timer.setDelay((int) (1000 / getSpeed()));
+    CinePlayer p = player;
+    if (p != null) {
+      p.resync = true;
     }
   }
 
@@ -176,4 +255,222 @@ public SpinnerNumberModel getSpeedModel() {
   public void setSweeping(boolean sweep) {
     this.sweeping = sweep;
   }
+
+  private record Frame(int value, boolean backward) {}
+
+  /** Returns the frame after the given one according to the direction and the sweep mode. */
+  private Frame nextFrame(Frame frame, int min, int max) {
+    boolean back = frame.backward();
+    int value = frame.value() + (back ? -1 : 1);
+    if (value > max) {
+      if (sweeping) {
+        back = true;
+        value = Math.max(min, max - 1);
+      } else {
+        value = min;
+      }
+    } else if (value < min) {
+      back = false;
+      value = sweeping ? Math.min(max, min + 1) : min;
+    }
+    return new Frame(value, back);
+  }
+
+  /**
+   * Plays the cine outside the EDT: the upcoming frames are decoded in a ring ahead of the
+   * displayed frame and each frame is presented on the EDT at its scheduled time. When the user
+   * moves the slider, the cine continues from the new position.
+   */
+  private final class CinePlayer implements Runnable {
+    private final CineFrameLoader loader;
+    private final Map<Integer, Future<?>> decoding = new HashMap<>();
+    private volatile boolean running = true;
+    private volatile Thread thread;
+    private volatile boolean resync;
+    private volatile double rate;
+    private final CineClock clock = new CineClock(System.nanoTime());
+    private Frame frame;
+    // Value of the slider after the last presentation, accessed on the EDT
+    private int presented;
+    // Value of the slider set by the user, read after the presentation
+    private Integer userValue;
+
+    CinePlayer(CineFrameLoader loader, int value) {
+      this.loader = loader;
+      this.frame = new Frame(value, backward);
+      this.presented = value;
+      this.rate = getSpeed();
+    }
+
+    void stop() {
+      running = false;
+      Thread t = thread;
+      if (t != null) {
+        t.interrupt();
+      }
+    }
+
+    @Override
+    public void run() {
+      thread = Thread.currentThread();
+      long lastPresentation = 0;
+      try {
+        while (running) {
+          int min = getSliderMin();
+          int max = getSliderMax();
+          if (max - min <= 0) {
+            break;
+          }
+          long period = (long) (1_000_000_000L / getSpeed());
+          if (resync) {
+            resync = false;
+            clock.reset(System.nanoTime());
+          }
+          frame = nextFrame(frame, min, max);
+          long next = clock.nextFrame(period);
+          Future<?> future = decodeAhead(min, max, period);
+
+          waitUntil(next);
+          if (!running) {
+            break;
+          }
+          FramePolicy policy = framePolicy;
+          if (future != null && !future.isDone()) {
+            if (clock.dropNotDecoded(policy)) {
+              continue;
+            }
+            long waitStart = System.nanoTime();
+            waitFor(future);
+            clock.waited(policy, waitStart, System.nanoTime(), period);
+          }
+          Integer moved = present(frame.value());
+          if (moved != null) {
+            // Continue from the position set by the user
+            frame = new Frame(moved, frame.backward());
+            clock.reset(System.nanoTime());
+            lastPresentation = 0;
+            continue;
+          }
+
+          long now = System.nanoTime();
+          if (lastPresentation > 0) {
+            // Exponential moving average of the achieved rate
+            rate = 0.9 * rate + 0.1 * (1_000_000_000.0 / Math.max(1, now - lastPresentation));
+          }
+          lastPresentation = now;
+          for (int i = clock.presented(policy, now, period); i > 0; i--) {
+            frame = nextFrame(frame, min, max);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        // Interrupt the decoding of the frames which will not be displayed
+        decoding.values().forEach(f -> f.cancel(true));
+        decoding.clear();
+        backward = frame.backward();
+        synchronized (SliderCineListener.this) {
+          if (player == this) {
+            player = null;
+          }
+        }
+      }
+    }
+
+    /**
+     * Submits the decoding of the upcoming frames which are not decoded yet. The frames are
+     * decoded by batches, so that the loader can decode several frames of a file at once.
+     *
+     * @return the decoding task of the next frame or null if there is no loader
+     */
+    private Future<?> decodeAhead(int min, int max, long period) {
+      if (loader == null) {
+        return null;
+      }
+      int ahead = (int) Math.ceil(DECODE_AHEAD_SECONDS * 1_000_000_000L / period);
+      ahead = Math.max(MIN_DECODE_AHEAD, Math.min(MAX_DECODE_AHEAD, ahead));
+      ahead = Math.min(ahead, max - min + 1);
+
+      Map<Integer, Future<?>> ring = new HashMap<>();
+      List<Integer> missing = new ArrayList<>();
+      Frame f = frame;
+      for (int i = 0; i < ahead; i++) {
+        int value = f.value();
+        if (!ring.containsKey(value) && !missing.contains(value)) {
+          Future<?> task = decoding.remove(value);
+          if (task == null) {
+            missing.add(value);
+          } else {
+            ring.put(value, task);
+          }
+        }
+        f = nextFrame(f, min, max);
+      }
+      int start = 0;
+      while (start < missing.size()) {
+        // The next frame is decoded alone, its presentation does not wait for the other frames
+        int end =
+            start == 0 && missing.getFirst() == frame.value()
+                ? 1
+                : Math.min(missing.size(), start + DECODE_BATCH);
+        List<Integer> batch = List.copyOf(missing.subList(start, end));
+        Future<?> task =
+            CINE_DECODER.submit(
+                () -> {
+                  loader.load(batch);
+                  return null;
+                });
+        batch.forEach(v -> ring.put(v, task));
+        start = end;
+      }
+      // The frames out of the ring are not required anymore (e.g. the speed has changed)
+      Set<Future<?>> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+      kept.addAll(ring.values());
+      decoding.values().stream().filter(t -> !kept.contains(t)).forEach(t -> t.cancel(false));
+      decoding.clear();
+      decoding.putAll(ring);
+      return decoding.get(frame.value());
+    }
+
+    private void waitUntil(long time) throws InterruptedException {
+      long delay;
+      while (running && (delay = time - System.nanoTime()) > 0) {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      }
+    }
+
+    private void waitFor(Future<?> future) throws InterruptedException {
+      try {
+        future.get();
+      } catch (ExecutionException | CancellationException e) {
+        // The frame is loaded again when displayed
+      }
+    }
+
+    /**
+     * @return the value of the slider when it has been moved by the user since the last
+     *     presentation (the frame is not presented), null otherwise
+     */
+    private Integer present(int value) throws InterruptedException {
+      userValue = null;
+      try {
+        // Wait for the EDT to display the frame, so the presentations cannot be queued
+        SwingUtilities.invokeAndWait(
+            () -> {
+              if (running) {
+                DefaultBoundedRangeModel model = getSliderModel();
+                if (model.getValueIsAdjusting() || model.getValue() != presented) {
+                  userValue = model.getValue();
+                } else {
+                  setSliderValue(value);
+                }
+                presented = model.getValue();
+              }
+            });
+      } catch (InvocationTargetException e) {
+        LOGGER.error("Cannot display the frame {}", value, e.getCause());
+      }
+      return userValue;
+    }
+  }
 }
@@ -38,6 +38,12 @@ public FilterOp copy() {
     return new FilterOp(this);
   }
 
+  @Override
+  public boolean isPointOperation() {
+    KernelData kernel = (KernelData) params.get(P_KERNEL_DATA);
+    return kernel == null || kernel.equals(KernelData.NONE);
+  }
+
   @Override
   public void process() throws Exception {
     PlanarImage source = (PlanarImage) params.get(Param.INPUT_IMG);
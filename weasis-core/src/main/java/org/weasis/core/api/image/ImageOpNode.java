@@ -49,4 +49,13 @@ private Param() {}
   void clearIOCache();
 
   void handleImageOpEvent(ImageOpEvent event);
+
+  /**
+   * @return true if, with the current parameters, each output pixel depends only on the input pixel
+   *     at the same location. The operation can then be applied to a region or to a resampled image
+   *     with the same result.
+   */
+  default boolean isPointOperation() {
+    return false;
+  }
 }
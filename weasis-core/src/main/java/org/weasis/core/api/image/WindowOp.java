@@ -42,6 +42,11 @@ public WindowOp copy() {
     return new WindowOp(this);
   }
 
+  @Override
+  public boolean isPointOperation() {
+    return true;
+  }
+
   @Override
   public void handleImageOpEvent(ImageOpEvent event) {
     OpEvent type = event.getEventType();
@@ -14,6 +14,10 @@
 import java.awt.image.IndexColorModel;
 import java.awt.image.RenderedImage;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -89,6 +93,78 @@ public static int getNumberOfImagesInCache() {
     return mCache.size();
   }
 
+  /**
+   * @return the maximum size in bytes of the native memory used by the image cache
+   */
+  public static long getCacheMaxMemory() {
+    return mCache.getMaxNativeMemory();
+  }
+
+  /**
+   * @return the size in bytes of the native memory currently used by the image cache
+   */
+  public static long getCacheUsedMemory() {
+    return mCache.getUseNativeMemory();
+  }
+
+  /**
+   * Prevents the images of an owner (e.g. the images displayed in a view) from being evicted from
+   * the cache. The images replace the ones previously pinned by the same owner.
+   *
+   * @param owner the owner of the images
+   * @param images the images to pin, null or empty to unpin the images of the owner
+   */
+  public static void pinInCache(Object owner, Collection<? extends ImageElement> images) {
+    mCache.pin(owner, images);
+  }
+
+  public static void unpinInCache(Object owner) {
+    mCache.unpin(owner);
+  }
+
+  /**
+   * Reads in the calling thread the images which are not in the cache and keeps them in the cache.
+   * The images of the same reader are read at once (see {@link
+   * MediaReader#getImageFragments(List)}), e.g. the frames of a multi-frame file are decoded in
+   * parallel.
+   *
+   * @param images the images to read, the null elements are ignored
+   * @throws InterruptedException if the calling thread is interrupted, the reading is cancelled
+   */
+  public static void preloadImages(Collection<? extends ImageElement> images)
+      throws InterruptedException {
+    Map<MediaReader<?>, List<ImageElement>> readers = new LinkedHashMap<>();
+    for (ImageElement image : images) {
+      if (image != null && image.readable && !image.isImageInCache()) {
+        List<ImageElement> list =
+            readers.computeIfAbsent(image.getMediaReader(), _ -> new ArrayList<>());
+        if (!list.contains(image)) {
+          list.add(image);
+        }
+      }
+    }
+    for (Map.Entry<MediaReader<?>, List<ImageElement>> entry : readers.entrySet()) {
+      List<ImageElement> list = entry.getValue();
+      if (list.size() == 1) {
+        list.getFirst().preloadImage();
+        continue;
+      }
+      List<PlanarImage> decoded;
+      try {
+        decoded = entry.getKey().getImageFragments(list);
+      } catch (InterruptedException e) {
+        throw e;
+      } catch (Exception e) {
+        // The images are read again one by one when displayed
+        LOGGER.debug("Cannot read the images of {}", entry.getKey().getUri(), e);
+        continue;
+      }
+      for (int i = 0; i < list.size(); i++) {
+        list.get(i).preloadImage(decoded.get(i));
+      }
+    }
+  }
+
   protected void findMinMaxValues(PlanarImage img, boolean exclude8bitImage)
       throws OutOfMemoryError {
     // This function can be called several times from the inner class Load.
@@ -246,7 +322,7 @@ public MeasurementsAdapter getMeasurementAdapter(Unit displayUnit, Point offset)
   }
 
   public boolean isImageInCache() {
-    return mCache.get(this) != null;
+    return mCache.containsKey(this);
   }
 
   public void removeImageFromCache() {
@@ -383,13 +459,13 @@ public String toString() {
 
   public synchronized PlanarImage getImage(OpManager manager, boolean findMinMax) {
     try {
-      return getCacheImage(startImageLoading(), manager, findMinMax);
+      return getCacheImage(startImageLoading(false), manager, findMinMax);
     } catch (OutOfMemoryError e1) {
       mCache.expungeStaleEntries();
       CvUtil.runGarbageCollectorAndWait(100);
 
       try {
-        return getCacheImage(startImageLoading(), manager, findMinMax);
+        return getCacheImage(startImageLoading(false), manager, findMinMax);
       } catch (OutOfMemoryError e) {
         LOGGER.warn("Reading image data: {}", this, e1);
       }
@@ -428,28 +504,68 @@ public PlanarImage getImage() {
     return getImage(null);
   }
 
-  private PlanarImage startImageLoading() throws OutOfMemoryError {
+  /**
+   * Reads the image in the calling thread and keeps it in the cache. The images are preloaded
+   * without occupying the threads of {@link #IMAGE_LOADER}, which read the displayed images.
+   */
+  public synchronized void preloadImage() throws OutOfMemoryError {
+    getCacheImage(startImageLoading(true), null, true);
+  }
+
+  // Keeps in the cache an image read by the reader, releases it when the image is already loaded
+  private synchronized void preloadImage(PlanarImage img) {
+    if (img == null) {
+      return;
+    }
+    if (mCache.get(this) == null && readable && setAsLoading()) {
+      readable = img.width() > 0;
+      if (readable) {
+        mCache.put(this, img);
+        this.setTag(TagW.ImageCache, true);
+        getCacheImage(img, null, true);
+      } else {
+        img.release();
+      }
+      setAsLoaded();
+    } else {
+      img.release();
+    }
+  }
+
+  private PlanarImage startImageLoading(boolean inCallingThread) throws OutOfMemoryError {
     PlanarImage cacheImage;
     if ((cacheImage = mCache.get(this)) == null && readable && setAsLoading()) {
       LOGGER.debug("Asking for reading image: {}", this);
       Load ref = new Load();
-      Future<PlanarImage> future = IMAGE_LOADER.submit(ref);
       PlanarImage img = null;
-      try {
-        img = future.get(45, TimeUnit.SECONDS);
-      } catch (InterruptedException | TimeoutException e) {
-        // Re-assert the thread's interrupted status
-        Thread.currentThread().interrupt();
-        // We don't need the result, so cancel the task too
-        future.cancel(true);
-      } catch (ExecutionException e) {
-        if (e.getCause() instanceof OutOfMemoryError memoryError) {
+      if (inCallingThread) {
+        try {
+          img = ref.call();
+        } catch (OutOfMemoryError e) {
           setAsLoaded();
-          throw memoryError;
-        } else {
+          throw e;
+        } catch (Exception e) {
           readable = false;
           LOGGER.error("Cannot read pixel data!: {}", this, e);
         }
+      } else {
+        Future<PlanarImage> future = IMAGE_LOADER.submit(ref);
+        try {
+          img = future.get(45, TimeUnit.SECONDS);
+        } catch (InterruptedException | TimeoutException e) {
+          // Re-assert the thread's interrupted status
+          Thread.currentThread().interrupt();
+          // We don't need the result, so cancel the task too
+          future.cancel(true);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof OutOfMemoryError memoryError) {
+            setAsLoaded();
+            throw memoryError;
+          } else {
+            readable = false;
+            LOGGER.error("Cannot read pixel data!: {}", this, e);
+          }
+        }
       }
       if (img != null) {
         readable = img.width() > 0;
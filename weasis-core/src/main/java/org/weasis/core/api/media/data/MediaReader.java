@@ -11,7 +11,10 @@
 
 import java.io.File;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import org.weasis.core.api.explorer.model.DataExplorerModel;
 import org.weasis.opencv.data.PlanarImage;
 
@@ -31,6 +34,27 @@
 
   PlanarImage getImageFragment(MediaElement media) throws Exception;
 
+  /**
+   * Reads the images of several media elements of this reader. By default, the images are read one
+   * after the other.
+   *
+   * @param medias the media elements of this reader
+   * @return the images in the order of the media elements, null when an image cannot be read
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  default List<PlanarImage> getImageFragments(List<? extends MediaElement> medias)
+      throws Exception {
+    List<PlanarImage> images = new ArrayList<>(medias.size());
+    for (MediaElement media : medias) {
+      if (Thread.interrupted()) {
+        images.stream().filter(Objects::nonNull).forEach(PlanarImage::release);
+        throw new InterruptedException();
+      }
+      images.add(getImageFragment(media));
+    }
+    return images;
+  }
+
   int getMediaElementNumber();
 
   String getMediaFragmentMimeType();
@@ -9,8 +9,8 @@
  */
 package org.weasis.core.api.media.data;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import org.weasis.core.Messages;
@@ -22,7 +22,7 @@ public class MediaSeriesGroupNode implements MediaSeriesGroup {
 
   private final TagW tagID;
   private final TagView displayTag;
-  private final HashMap<TagW, Object> tags = new HashMap<>();
+  private final Map<TagW, Object> tags = new TagMap();
 
   public MediaSeriesGroupNode(TagW tagID, Object identifier, TagView displayTag) {
     this.tagID = Objects.requireNonNull(tagID);
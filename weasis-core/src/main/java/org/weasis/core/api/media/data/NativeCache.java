@@ -10,57 +10,203 @@
 package org.weasis.core.api.media.data;
 
 import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 import org.weasis.opencv.data.PlanarImage;
 
+/**
+ * Cache of native images limited by the native memory size of its values.
+ *
+ * <p>The cache is a segmented LRU: a new entry is in the probationary segment and moves to the
+ * protected segment when it is read again. The eviction removes first the least recently used
+ * entries of the probationary segment, so that a one-off reading of many images (e.g. building a
+ * volume) does not evict the working set. The entries pinned by an owner (e.g. the displayed
+ * images) are never evicted.
+ *
+ * <p>Reading does not require a global lock: the reads are recorded and applied to the order of
+ * the segments by the next thread holding the lock. Adding an entry waits for the lock and evicts
+ * the entries in the order of the segments to make room for it.
+ */
 public abstract class NativeCache<K, V extends PlanarImage> extends AbstractMap<K, V> {
 
-  protected final Map<K, V> hash;
+  // Part of the max memory that can be used by the protected segment
+  private static final double PROTECTED_RATIO = 0.8;
+  // Reads waiting for the lock, the next reads do not change the order of eviction
+  private static final int MAX_PENDING_READS = 1024;
+
+  protected final Map<K, Node<V>> hash;
   private final long maxNativeMemory;
   private final AtomicLong useNativeMemory;
+  private final Map<Object, Set<K>> pinnedKeys = new ConcurrentHashMap<>();
+
+  // The segments are ordered from the least to the most recently used entry
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>();
+  private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>();
+  private long protectedBytes;
+  private final Queue<K> pendingReads = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingReadCount = new AtomicInteger();
 
   protected NativeCache(long maxNativeMemory) {
     this.maxNativeMemory = maxNativeMemory;
     this.useNativeMemory = new AtomicLong(0);
-    this.hash = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true));
+    this.hash = new ConcurrentHashMap<>(64);
   }
 
+  protected record Node<V>(V value, long bytes) {}
+
+  @SuppressWarnings("unchecked")
   @Override
   public V get(Object key) {
-    return hash.get(key);
+    Node<V> node = key == null ? null : hash.get(key);
+    if (node == null) {
+      return null;
+    }
+    recordRead((K) key);
+    return node.value();
+  }
+
+  private void recordRead(K key) {
+    if (pendingReadCount.incrementAndGet() <= MAX_PENDING_READS) {
+      pendingReads.add(key);
+    } else {
+      pendingReadCount.decrementAndGet();
+    }
+    if (lock.tryLock()) {
+      try {
+        applyPendingReads();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** Moves the entries read again to the protected segment. Must be called with the lock. */
+  private void applyPendingReads() {
+    K key;
+    while ((key = pendingReads.poll()) != null) {
+      pendingReadCount.decrementAndGet();
+      Node<V> node = probation.remove(key);
+      if (node != null) {
+        protectedBytes += node.bytes();
+      } else {
+        node = protectedSegment.remove(key);
+      }
+      if (node != null) {
+        protectedSegment.put(key, node);
+      }
+    }
+
+    // The least recently used entries exceeding the size of the protected segment are demoted
+    long protectedSize = (long) (maxNativeMemory * PROTECTED_RATIO);
+    Iterator<Map.Entry<K, Node<V>>> it = protectedSegment.entrySet().iterator();
+    while (protectedBytes > protectedSize && it.hasNext()) {
+      Map.Entry<K, Node<V>> e = it.next();
+      it.remove();
+      protectedBytes -= e.getValue().bytes();
+      probation.put(e.getKey(), e.getValue());
+    }
+  }
+
+  public long getMaxNativeMemory() {
+    return maxNativeMemory;
+  }
+
+  public long getUseNativeMemory() {
+    return useNativeMemory.get();
   }
 
   public boolean isMemoryAvailable() {
     return useNativeMemory.get() < maxNativeMemory;
   }
 
+  /**
+   * Pins the entries of an owner, they cannot be evicted until they are unpinned. The keys replace
+   * the ones previously pinned by the same owner.
+   *
+   * @param owner the owner of the pinned entries (e.g. a view)
+   * @param keys the keys to pin, null or empty to unpin all the entries of the owner
+   */
+  public void pin(Object owner, Collection<? extends K> keys) {
+    if (owner != null) {
+      if (keys == null || keys.isEmpty()) {
+        pinnedKeys.remove(owner);
+      } else {
+        pinnedKeys.put(owner, Set.copyOf(keys));
+      }
+    }
+  }
+
+  public void unpin(Object owner) {
+    if (owner != null) {
+      pinnedKeys.remove(owner);
+    }
+  }
+
   public void expungeStaleEntries() {
     if (!isMemoryAvailable()) {
-      synchronized (hash) {
-        List<K> remKeys = new ArrayList<>();
+      lock.lock();
+      try {
+        applyPendingReads();
         // 5% of max memory + diff
-        long maxfreeSize = maxNativeMemory / 20 + (useNativeMemory.get() - maxNativeMemory);
-        long freeSize = 0;
-
-        for (Map.Entry<K, V> e : hash.entrySet()) {
-          freeSize += physicalBytes(e.getValue());
-          if (freeSize > maxfreeSize) {
-            break;
-          }
-          remKeys.add(e.getKey());
-        }
+        evict(maxNativeMemory / 20 + useNativeMemory.get() - maxNativeMemory);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
 
-        for (K key : remKeys) {
-          V val = hash.remove(key);
-          useNativeMemory.addAndGet(-physicalBytes(val));
-          afterEntryRemove(key, val);
-        }
+  /**
+   * Evicts the least recently used entries of the probationary segment, then the ones of the
+   * protected segment. Must be called with the lock.
+   *
+   * @param maxfreeSize the size to free
+   */
+  private void evict(long maxfreeSize) {
+    Set<K> pinned = new HashSet<>();
+    pinnedKeys.values().forEach(pinned::addAll);
+
+    long freeSize = evict(probation, pinned, maxfreeSize);
+    if (freeSize <= maxfreeSize) {
+      protectedBytes -= evict(protectedSegment, pinned, maxfreeSize - freeSize);
+    }
+  }
+
+  private long evict(LinkedHashMap<K, Node<V>> segment, Set<K> pinned, long maxfreeSize) {
+    long freeSize = 0;
+    Iterator<Map.Entry<K, Node<V>>> it = segment.entrySet().iterator();
+    while (freeSize <= maxfreeSize && it.hasNext()) {
+      Map.Entry<K, Node<V>> e = it.next();
+      K key = e.getKey();
+      if (!pinned.contains(key)) {
+        Node<V> node = e.getValue();
+        it.remove();
+        hash.remove(key, node);
+        freeSize += node.bytes();
+        useNativeMemory.addAndGet(-node.bytes());
+        afterEntryRemove(key, node.value());
+      }
+    }
+    return freeSize;
+  }
+
+  /** Removes an entry from its segment. Must be called with the lock. */
+  private void unlink(K key) {
+    if (probation.remove(key) == null) {
+      Node<V> node = protectedSegment.remove(key);
+      if (node != null) {
+        protectedBytes -= node.bytes();
       }
     }
   }
@@ -76,26 +222,62 @@ private long physicalBytes(V val) {
 
   @Override
   public V put(K key, V value) {
-    expungeStaleEntries();
-    V result = hash.put(key, value);
-    useNativeMemory.addAndGet(physicalBytes(value));
-    useNativeMemory.addAndGet(-physicalBytes(result));
-    return result;
+    Node<V> node = new Node<>(value, physicalBytes(value));
+    Node<V> result;
+    lock.lock();
+    try {
+      applyPendingReads();
+      long excess = useNativeMemory.get() + node.bytes() - maxNativeMemory;
+      if (excess > 0) {
+        // Room for the new entry + 5% of max memory
+        evict(maxNativeMemory / 20 + excess);
+      }
+      result = hash.put(key, node);
+      if (result != null) {
+        unlink(key);
+        useNativeMemory.addAndGet(-result.bytes());
+      }
+      probation.put(key, node);
+      useNativeMemory.addAndGet(node.bytes());
+    } finally {
+      lock.unlock();
+    }
+    return result == null ? null : result.value();
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public V remove(Object key) {
-    V val = hash.remove(key);
-    useNativeMemory.addAndGet(-physicalBytes(val));
+    V val = null;
+    if (key != null) {
+      lock.lock();
+      try {
+        Node<V> node = hash.remove(key);
+        if (node != null) {
+          unlink((K) key);
+          useNativeMemory.addAndGet(-node.bytes());
+          val = node.value();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
     afterEntryRemove((K) key, val);
     return val;
   }
 
   @Override
   public void clear() {
-    hash.clear();
-    useNativeMemory.set(0);
+    lock.lock();
+    try {
+      hash.clear();
+      probation.clear();
+      protectedSegment.clear();
+      protectedBytes = 0;
+      useNativeMemory.set(0);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -105,17 +287,25 @@ public int size() {
 
   @Override
   public Set<Entry<K, V>> entrySet() {
-    return hash.entrySet();
+    return hash.entrySet().stream()
+        .map(e -> new SimpleImmutableEntry<>(e.getKey(), e.getValue().value()))
+        .collect(Collectors.toSet());
   }
 
+  /** Unlike {@link #get(Object)}, this method does not change the order of eviction. */
   @Override
   public boolean containsKey(Object key) {
-    return hash.containsKey(key);
+    return key != null && hash.containsKey(key);
   }
 
   @Override
   public boolean containsValue(Object value) {
-    return hash.containsValue(value);
+    for (Node<V> node : hash.values()) {
+      if (node.value().equals(value)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
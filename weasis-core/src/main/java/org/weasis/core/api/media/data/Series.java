@@ -25,6 +25,9 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.SwingUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,11 +50,18 @@
 
   private static final Random RANDOM = new SecureRandom();
   private static final DataFlavor[] flavors = {sequenceDataFlavor};
+  private static final int MAX_POSITION_INDEXES = 8;
 
   private PropertyChangeSupport propertyChange = null;
   protected final List<E> medias;
   protected final Map<Comparator<E>, List<E>> sortedMedias = new HashMap<>(6);
   protected final Comparator<E> mediaOrder;
+  // Values of the index tag, the medias are only removed all together
+  private final Set<Object> mediaIndex = ConcurrentHashMap.newKeySet();
+  // Slice position indexes by filter and order, rebuilt when the version of the medias changes
+  private final Map<IndexKey<E>, SlicePositionIndex<E>> positionIndexes =
+      new ConcurrentHashMap<>();
+  private final AtomicInteger mediaVersion = new AtomicInteger();
   protected SeriesImporter seriesLoader;
   private long fileSize;
 
@@ -79,6 +89,7 @@ protected Series(
       ls.sort(mediaOrder);
     }
     medias = Collections.synchronizedList(ls);
+    ls.forEach(this::indexMedia);
   }
 
   private static DataFlavor createConstant(String mt, String prn) {
@@ -90,10 +101,84 @@ private static DataFlavor createConstant(String mt, String prn) {
     }
   }
 
+  /**
+   * Returns the tag used to index the medias of the series. Querying this tag with {@link
+   * #hasMediaContains(TagW, Object)} does not require to iterate over all the medias.
+   *
+   * @return the indexed tag or null when the series has no index
+   */
+  public TagW getIndexTag() {
+    return null;
+  }
+
+  private void indexMedia(E media) {
+    Object key = getIndexKey(media);
+    if (key != null) {
+      mediaIndex.add(key);
+    }
+  }
+
+  private void indexMedias(Collection<? extends E> c) {
+    for (E media : c) {
+      indexMedia(media);
+    }
+  }
+
+  private Object getIndexKey(E media) {
+    TagW tag = getIndexTag();
+    return tag == null || media == null ? null : media.getTagValue(tag);
+  }
+
   protected void resetSortedMediasMap() {
     if (!sortedMedias.isEmpty()) {
       sortedMedias.clear();
     }
+    invalidateMediaIndexes();
+  }
+
+  /**
+   * Invalidates the indexes built from the order of the medias. This method must be called when
+   * the result of a filter has changed without changing the filter (e.g. the selection of a Key
+   * Object).
+   */
+  public void invalidateMediaIndexes() {
+    mediaVersion.incrementAndGet();
+    positionIndexes.clear();
+  }
+
+  /**
+   * @return the version of the medias, which changes each time the medias of the series change
+   */
+  public int getMediaVersion() {
+    return mediaVersion.get();
+  }
+
+  private record IndexKey<E>(Filter<E> filter, Comparator<E> sort) {}
+
+  /**
+   * Returns the index of the medias by slice position for a filter and an order. The index is
+   * built at the first call and shared until the medias of the series change.
+   *
+   * @param filter the filter of the medias, can be null
+   * @param sort the order of the medias, can be null
+   * @return the slice position index
+   */
+  public SlicePositionIndex<E> getSlicePositionIndex(Filter<E> filter, Comparator<E> sort) {
+    IndexKey<E> key = new IndexKey<>(filter, sort);
+    int version = mediaVersion.get();
+    SlicePositionIndex<E> index = positionIndexes.get(key);
+    if (index == null || index.version != version) {
+      Iterable<E> list = getMedias(filter, sort);
+      synchronized (medias) {
+        index = SlicePositionIndex.build(list, version);
+      }
+      if (positionIndexes.size() >= MAX_POSITION_INDEXES) {
+        // The filters are often created for a view, do not keep the old ones
+        positionIndexes.clear();
+      }
+      positionIndexes.put(key, index);
+    }
+    return index;
   }
 
   /**
@@ -101,7 +186,10 @@ protected void resetSortedMediasMap() {
    * dispose the media elements and removes images from the cache.
    */
   public void removeAllMedias() {
-    medias.clear();
+    synchronized (medias) {
+      medias.clear();
+      mediaIndex.clear();
+    }
     resetSortedMediasMap();
   }
 
@@ -123,24 +211,28 @@ public List<E> getSortedMedias(Comparator<E> comparator) {
   @Override
   public void add(E media) {
     medias.add(media);
+    indexMedia(media);
     resetSortedMediasMap();
   }
 
   @Override
   public void add(int index, E media) {
     medias.add(index, media);
+    indexMedia(media);
     resetSortedMediasMap();
   }
 
   @Override
   public void addAll(Collection<? extends E> c) {
     medias.addAll(c);
+    indexMedias(c);
     resetSortedMediasMap();
   }
 
   @Override
   public void addAll(int index, Collection<? extends E> c) {
     medias.addAll(index, c);
+    indexMedias(c);
     resetSortedMediasMap();
   }
 
@@ -408,6 +500,9 @@ public void setFocused(boolean focused) {
 
   public boolean hasMediaContains(TagW tag, Object val) {
     if (val != null) {
+      if (tag != null && tag.equals(getIndexTag())) {
+        return mediaIndex.contains(val);
+      }
       synchronized (medias) {
         for (E media : medias) {
           if (val.equals(media.getTagValue(tag))) {
@@ -125,6 +125,18 @@ protected void init(MediaElement media, boolean keepMediaCache, OpManager opMana
     setBorder(thumbnailBorder);
   }
 
+  @Override
+  protected ThumbnailStore.Key getStoreKey(MediaElement media) {
+    // Only the default rendering of the instances having a unique identifier is stored
+    if (series instanceof Series<?> s
+        && s.getIndexTag() != null
+        && media.getTagValue(s.getIndexTag()) instanceof String uid) {
+      int frame = media.getKey() instanceof Integer index ? index : 0;
+      return new ThumbnailStore.Key(uid, frame, ThumbnailStore.Rendering.DEFAULT);
+    }
+    return null;
+  }
+
   public JProgressBar getProgressBar() {
     return progressBar;
   }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable index of the medias of a series sorted by slice position (the sum of the coordinates
+ * of {@link TagW#SlicePosition}). The index is built for one order and one filter of the series,
+ * the index of a media is its position in this filtered and sorted list.
+ *
+ * <p>When several medias have the same distance to a location, the lookups return the first one in
+ * the list, like a linear scan of the list.
+ */
+public final class SlicePositionIndex<E extends MediaElement> {
+
+  private final List<E> medias;
+  // Slice positions in ascending order and the index of the media having this position
+  private final double[] positions;
+  private final int[] indexes;
+  final int version;
+
+  private SlicePositionIndex(List<E> medias, double[] positions, int[] indexes, int version) {
+    this.medias = medias;
+    this.positions = positions;
+    this.indexes = indexes;
+    this.version = version;
+  }
+
+  static <E extends MediaElement> SlicePositionIndex<E> build(Iterable<E> list, int version) {
+    List<E> medias = new ArrayList<>();
+    for (E media : list) {
+      medias.add(media);
+    }
+    double[] values = new double[medias.size()];
+    List<Integer> order = new ArrayList<>(medias.size());
+    for (int i = 0; i < medias.size(); i++) {
+      double[] val = (double[]) medias.get(i).getTagValue(TagW.SlicePosition);
+      if (val != null) {
+        values[i] = val[0] + val[1] + val[2];
+        order.add(i);
+      }
+    }
+    // Sort by position and then by index (the sort is stable)
+    order.sort(Comparator.comparingDouble(i -> values[i]));
+    int n = order.size();
+    double[] positions = new double[n];
+    int[] indexes = new int[n];
+    for (int i = 0; i < n; i++) {
+      indexes[i] = order.get(i);
+      positions[i] = values[indexes[i]];
+    }
+    return new SlicePositionIndex<>(medias, positions, indexes, version);
+  }
+
+  /**
+   * @return the number of medias in the filtered list, including the medias without position
+   */
+  public int size() {
+    return medias.size();
+  }
+
+  public E getMedia(int index) {
+    return index >= 0 && index < medias.size() ? medias.get(index) : null;
+  }
+
+  /**
+   * @param location the slice position
+   * @return the index of the nearest media or -1 if no media has a slice position
+   */
+  public int getNearestIndex(double location) {
+    int n = positions.length;
+    if (n == 0) {
+      return -1;
+    }
+    int upper = lowerBound(location);
+    if (upper == n) {
+      return indexes[lowerBound(positions[n - 1])];
+    }
+    if (upper == 0) {
+      return indexes[0];
+    }
+    int lower = lowerBound(positions[upper - 1]);
+    double diffLower = location - positions[lower];
+    double diffUpper = positions[upper] - location;
+    if (diffLower < diffUpper) {
+      return indexes[lower];
+    }
+    if (diffUpper < diffLower) {
+      return indexes[upper];
+    }
+    return Math.min(indexes[lower], indexes[upper]);
+  }
+
+  public E getNearestMedia(double location) {
+    return getMedia(getNearestIndex(location));
+  }
+
+  /**
+   * @return the media with the lowest slice position or null if no media has a slice position
+   */
+  public E getFirstMedia() {
+    return positions.length == 0 ? null : medias.get(indexes[0]);
+  }
+
+  /**
+   * @return the media with the highest slice position or null if no media has a slice position
+   */
+  public E getLastMedia() {
+    int n = positions.length;
+    return n == 0 ? null : medias.get(indexes[lowerBound(positions[n - 1])]);
+  }
+
+  // Returns the first position which is not lower than the location
+  private int lowerBound(double location) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (positions[mid] < location) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact map of the tags of a media or of a group. The tags are stored in two arrays sorted by
+ * the ordinal of {@link TagW}, without entry objects. The string values of a few tags having a
+ * small number of distinct values (e.g. Modality or PhotometricInterpretation) are shared between
+ * all the maps. The values of the tags which are the same for all the images of a series (e.g.
+ * FrameOfReferenceUID or PixelSpacing) are shared while the series is among the last ones read.
+ *
+ * <p>A derived map (see {@link #derive()}) reads the values of a frozen snapshot of its source and
+ * stores only the values that are overridden, like the per-frame tags of a multi-frame image.
+ * Writing to the source after the derivation does not change the derived maps.
+ *
+ * <p>The shared values must not be modified in place. The methods are synchronized, so the tags
+ * can be read while a loader thread writes them. The iterators work on a copy of the entries.
+ */
+public final class TagMap extends AbstractMap<TagW, Object> {
+
+  private static final TagW[] NO_KEYS = {};
+  private static final Object[] NO_VALUES = {};
+  // Value of a tag of the parent removed from the derived map
+  private static final Object REMOVED = new Object();
+
+  private static final int MAX_POOL_SIZE = 4096;
+  private static final int MAX_STRING_LENGTH = 64;
+  // Keywords of the tags with few distinct values
+  private static final Set<String> INTERNED_TAGS =
+      Set.of(
+          "Modality", // NON-NLS
+          "PhotometricInterpretation", // NON-NLS
+          "Units", // NON-NLS
+          "RescaleType", // NON-NLS
+          "BodyPartExamined", // NON-NLS
+          "PatientSex", // NON-NLS
+          "SpecificCharacterSet", // NON-NLS
+          "TransferSyntaxUID", // NON-NLS
+          "SOPClassUID", // NON-NLS
+          "Manufacturer", // NON-NLS
+          "ManufacturerModelName", // NON-NLS
+          "InstitutionName", // NON-NLS
+          "StationName", // NON-NLS
+          "PixelSpacingCalibrationType", // NON-NLS
+          "ConversionType"); // NON-NLS
+  private static final Map<String, String> POOL = new ConcurrentHashMap<>();
+
+  private static final int MAX_SERIES_POOL_SIZE = 1024;
+  private static final int MAX_ARRAY_LENGTH = 3;
+  // Keywords of the tags having the same value for all the images of a series
+  private static final Set<String> SERIES_TAGS =
+      Set.of(
+          "StudyInstanceUID", // NON-NLS
+          "SeriesInstanceUID", // NON-NLS
+          "FrameOfReferenceUID", // NON-NLS
+          "PixelSpacing", // NON-NLS
+          "ImagerPixelSpacing", // NON-NLS
+          "NominalScannedPixelSpacing"); // NON-NLS
+  // Least recently used values, the values of the previous series are not kept forever
+  private static final Map<Object, Object> SERIES_POOL =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+              return size() > MAX_SERIES_POOL_SIZE;
+            }
+          });
+
+  private TagMap parent;
+  private TagW[] keys;
+  private Object[] values;
+  private int size;
+  // The arrays are shared with a snapshot and must be copied before writing
+  private boolean shared;
+  private TagMap snapshot;
+
+  public TagMap() {
+    this(null, NO_KEYS, NO_VALUES, 0);
+  }
+
+  public TagMap(Map<TagW, ?> map) {
+    this();
+    if (map != null) {
+      map.forEach(this::put);
+    }
+  }
+
+  private TagMap(TagMap parent, TagW[] keys, Object[] values, int size) {
+    this.parent = parent;
+    this.keys = keys;
+    this.values = values;
+    this.size = size;
+  }
+
+  /**
+   * @return a new map containing the tags of this map, only the tags written to the new map are
+   *     stored in the new map
+   */
+  public synchronized TagMap derive() {
+    TagMap base = snapshot;
+    if (base == null) {
+      if (parent == null) {
+        base = new TagMap(null, keys, values, size);
+        base.shared = true;
+        shared = true;
+      } else {
+        base = new TagMap(this);
+      }
+      snapshot = base;
+    }
+    return new TagMap(base, NO_KEYS, NO_VALUES, 0);
+  }
+
+  @Override
+  public synchronized Object get(Object key) {
+    if (key instanceof TagW tag) {
+      int index = indexOf(tag);
+      if (index >= 0) {
+        Object val = values[index];
+        return val == REMOVED ? null : val;
+      }
+      if (parent != null) {
+        return parent.get(tag);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized boolean containsKey(Object key) {
+    if (key instanceof TagW tag) {
+      int index = indexOf(tag);
+      if (index >= 0) {
+        return values[index] != REMOVED;
+      }
+      return parent != null && parent.containsKey(tag);
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized Object put(TagW tag, Object value) {
+    Object old = get(tag);
+    set(tag, intern(tag, value));
+    return old;
+  }
+
+  @Override
+  public synchronized Object remove(Object key) {
+    if (!containsKey(key)) {
+      return null;
+    }
+    TagW tag = (TagW) key;
+    Object old = get(tag);
+    if (parent != null && parent.containsKey(tag)) {
+      set(tag, REMOVED);
+    } else {
+      beforeWrite();
+      int index = indexOf(tag);
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+      System.arraycopy(values, index + 1, values, index, size - index - 1);
+      size--;
+      keys[size] = null;
+      values[size] = null;
+    }
+    return old;
+  }
+
+  @Override
+  public synchronized void clear() {
+    parent = null;
+    keys = NO_KEYS;
+    values = NO_VALUES;
+    size = 0;
+    shared = false;
+    snapshot = null;
+  }
+
+  @Override
+  public synchronized int size() {
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (values[i] != REMOVED) {
+        count++;
+      }
+    }
+    if (parent != null) {
+      for (int i = 0; i < parent.size; i++) {
+        if (indexOf(parent.keys[i]) < 0) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return parent == null ? size == 0 : size() == 0;
+  }
+
+  @Override
+  public Set<Entry<TagW, Object>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<TagW, Object>> iterator() {
+        return new EntryIterator(entries());
+      }
+
+      @Override
+      public int size() {
+        return TagMap.this.size();
+      }
+    };
+  }
+
+  // The entries are copied, so the map can be modified while iterating
+  private synchronized Entry<TagW, Object>[] entries() {
+    @SuppressWarnings("unchecked")
+    Entry<TagW, Object>[] list = new Entry[size()];
+    int k = 0;
+    int j = 0;
+    int parentSize = parent == null ? 0 : parent.size;
+    for (int i = 0; i < size || j < parentSize; ) {
+      if (j >= parentSize || (i < size && keys[i].ordinal() <= parent.keys[j].ordinal())) {
+        if (j < parentSize && keys[i].ordinal() == parent.keys[j].ordinal()) {
+          j++;
+        }
+        if (values[i] != REMOVED) {
+          list[k++] = new SimpleImmutableEntry<>(keys[i], values[i]);
+        }
+        i++;
+      } else {
+        list[k++] = new SimpleImmutableEntry<>(parent.keys[j], parent.values[j]);
+        j++;
+      }
+    }
+    return list;
+  }
+
+  private void set(TagW tag, Object value) {
+    beforeWrite();
+    int index = indexOf(tag);
+    if (index >= 0) {
+      values[index] = value;
+      return;
+    }
+    index = -(index + 1);
+    if (size == keys.length) {
+      int capacity = Math.max(4, size + (size >> 1));
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(values, index, values, index + 1, size - index);
+    keys[index] = tag;
+    values[index] = value;
+    size++;
+  }
+
+  private void beforeWrite() {
+    snapshot = null;
+    if (shared) {
+      keys = Arrays.copyOf(keys, size);
+      values = Arrays.copyOf(values, size);
+      shared = false;
+    }
+  }
+
+  // Binary search of the tag, returns (-(insertion point) - 1) when the tag is not found
+  private int indexOf(TagW tag) {
+    int ordinal = tag.ordinal();
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int val = keys[mid].ordinal();
+      if (val < ordinal) {
+        low = mid + 1;
+      } else if (val > ordinal) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * @return the shared instance equal to the value when the tag has few distinct values or the
+   *     same value for a series, otherwise the value
+   */
+  static Object intern(TagW tag, Object value) {
+    if (tag == null) {
+      return value;
+    }
+    if (value instanceof String s && s.length() <= MAX_STRING_LENGTH) {
+      if (INTERNED_TAGS.contains(tag.getKeyword())) {
+        String val = POOL.get(s);
+        if (val != null) {
+          return val;
+        }
+        // Bounded, the unexpected values are not shared
+        if (POOL.size() < MAX_POOL_SIZE) {
+          val = POOL.putIfAbsent(s, s);
+          return val == null ? s : val;
+        }
+      } else if (SERIES_TAGS.contains(tag.getKeyword())) {
+        return SERIES_POOL.computeIfAbsent(s, k -> k);
+      }
+    } else if (value instanceof double[] array
+        && array.length <= MAX_ARRAY_LENGTH
+        && SERIES_TAGS.contains(tag.getKeyword())) {
+      return ((DoubleArray) SERIES_POOL.computeIfAbsent(new DoubleArray(array), k -> k)).array;
+    }
+    return value;
+  }
+
+  private record DoubleArray(double[] array) {
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof DoubleArray other && Arrays.equals(array, other.array);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(array);
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Entry<TagW, Object>> {
+    private final Entry<TagW, Object>[] list;
+    private int index;
+    private TagW last;
+
+    EntryIterator(Entry<TagW, Object>[] list) {
+      this.list = list;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < list.length;
+    }
+
+    @Override
+    public Entry<TagW, Object> next() {
+      if (index >= list.length) {
+        throw new NoSuchElementException();
+      }
+      Entry<TagW, Object> entry = list[index++];
+      last = entry.getKey();
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      TagMap.this.remove(last);
+      last = null;
+    }
+  }
+}
@@ -21,6 +21,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
@@ -41,6 +42,10 @@ public class TagW {
 
   private static final AtomicInteger idCounter = new AtomicInteger(Integer.MAX_VALUE);
 
+  // Dense ordinal of each distinct tag (equal tags share the same ordinal), used by TagMap
+  private static final Map<TagW, Integer> ordinals = new ConcurrentHashMap<>();
+  private static final AtomicInteger ordinalCounter = new AtomicInteger();
+
   protected static final Map<String, TagW> tags = Collections.synchronizedMap(new HashMap<>());
 
   public static final String NO_VALUE = "UNKNOWN";
@@ -237,6 +242,8 @@ public boolean isInstanceOf(Object value) {
   protected final int vmMin;
   protected final int vmMax;
   protected final transient Object defaultValue;
+  // Allocated on first use, when the fields of the subclasses used by equals() are set
+  private int ordinal = -1;
 
   public TagW(
       int id,
@@ -360,6 +367,16 @@ public String toString() {
     return getDisplayedName();
   }
 
+  final int ordinal() {
+    int val = ordinal;
+    if (val < 0) {
+      // Racy but idempotent: equal tags always get the same ordinal
+      val = ordinals.computeIfAbsent(this, _ -> ordinalCounter.getAndIncrement());
+      ordinal = val;
+    }
+    return val;
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
@@ -236,6 +236,15 @@ public File getThumbnailPath() {
     return thumbnailPath;
   }
 
+  /**
+   * @param media the media of the thumbnail
+   * @return the key of the thumbnail in the {@link ThumbnailStore} or null if the thumbnail must
+   *     not be stored
+   */
+  protected ThumbnailStore.Key getStoreKey(MediaElement media) {
+    return null;
+  }
+
   protected synchronized PlanarImage getImage(
       final MediaElement media, final boolean keepMediaCache, final OpManager opManager) {
     PlanarImage cacheImage;
@@ -278,13 +287,25 @@ private void loadThumbnail(
           }
         }
       }
+      ThumbnailStore.Key key = noPath && media != null ? getStoreKey(media) : null;
+      if (key != null) {
+        // Thumbnail built in a previous session or downloaded for the same instance
+        File storedFile = ThumbnailStore.getInstance().get(key, thumbnailSize);
+        if (storedFile != null) {
+          file = storedFile;
+          noPath = false;
+          thumbnailPath = file;
+        }
+      }
       if (noPath) {
         if (media instanceof final ImageElement image) {
           PlanarImage imgPl = image.getImage(opManager);
           if (imgPl != null) {
             PlanarImage img = image.getRenderedImage(imgPl);
             final PlanarImage thumb = createThumbnail(img);
-            if (thumb != null) {
+            file = thumb == null ? null : ThumbnailStore.getInstance().put(key, thumb);
+            boolean stored = file != null;
+            if (thumb != null && !stored) {
               try {
                 file =
                     File.createTempFile("tumb_", ".jpg", Thumbnail.THUMBNAIL_CACHE_DIR); // NON-NLS
@@ -295,7 +316,7 @@ private void loadThumbnail(
             try {
               if (thumb != null && file != null && thumb.width() > 0) {
                 MatOfInt map = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 80);
-                if (ImageProcessor.writeImage(thumb.toMat(), file, map)) {
+                if (stored || ImageProcessor.writeImage(thumb.toMat(), file, map)) {
                   /*
                    * Write the thumbnail in temp folder, better than handling the thumbnail in memory.
                    *
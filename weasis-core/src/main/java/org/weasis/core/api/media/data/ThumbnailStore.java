@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.AppProperties;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.core.util.FileUtil;
+import org.weasis.core.util.StringUtil;
+import org.weasis.opencv.data.PlanarImage;
+import org.weasis.opencv.op.ImageConversion;
+import org.weasis.opencv.op.ImageProcessor;
+
+/**
+ * Persistent store of the thumbnails shared between the sessions. A thumbnail is identified by the
+ * unique identifier of the instance (e.g. SOPInstanceUID), the frame and the origin of the
+ * rendering, so importing or downloading again the same study does not require to decode the
+ * images.
+ *
+ * <p>Each thumbnail is stored in several sizes up to {@link Thumbnail#MAX_SIZE}, the smaller sizes
+ * are built on demand from the largest one. The files are listed in a compact index file in the
+ * order of access, and the least recently used files are deleted when the size of the store exceeds
+ * the limit.
+ */
+public final class ThumbnailStore {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailStore.class);
+
+  public static final String PREF_ENABLE = "weasis.thumbnail.store"; // NON-NLS
+  public static final String PREF_MAX_SIZE = "weasis.thumbnail.store.max.mb"; // NON-NLS
+
+  static final int[] SIZES = {64, 96, Thumbnail.DEFAULT_SIZE, 192, Thumbnail.MAX_SIZE};
+
+  private static final String EXTENSION = ".jpg"; // NON-NLS
+  private static final String INDEX_FILE = "thumbnails.idx"; // NON-NLS
+  private static final int INDEX_MAGIC = 0x57544853;
+  private static final long DEFAULT_MAX_SIZE = 256;
+
+  private static final ThumbnailStore INSTANCE =
+      new ThumbnailStore(
+          new File(AppProperties.WEASIS_PATH, "cache" + File.separator + "thumbnails") // NON-NLS
+              .toPath());
+
+  /** Origin of the rendering of a thumbnail, the thumbnails of each rendering are stored apart. */
+  public enum Rendering {
+    /** Rendered by the application with the default window/level of the image */
+    DEFAULT,
+    /** Rendered by the server (e.g. WADO-URI JPEG), the window/level may differ from the default */
+    SERVER
+  }
+
+  /**
+   * @param uid the unique identifier of the instance
+   * @param frame the index of the frame in the instance
+   * @param rendering the origin of the rendering
+   */
+  public record Key(String uid, int frame, Rendering rendering) {
+    public Key {
+      Objects.requireNonNull(uid);
+      Objects.requireNonNull(rendering);
+    }
+
+    String getFileName(int size) {
+      String id = uid + "|" + frame + "|" + rendering;
+      return StringUtil.bytesToMD5(id.getBytes(StandardCharsets.UTF_8)) + "_" + size + EXTENSION;
+    }
+  }
+
+  private final Path directory;
+  private final ScheduledExecutorService indexWriter =
+      Executors.newSingleThreadScheduledExecutor(
+          ThreadUtil.namedDaemonThreadFactory("Thumbnail Store", true));
+  // File name and file size, in access order. Guarded by this
+  private final Map<String, Long> files = new LinkedHashMap<>(1024, 0.75f, true);
+  private long totalSize;
+  private boolean initialized;
+  private boolean indexScheduled;
+
+  ThumbnailStore(Path directory) {
+    this.directory = directory;
+  }
+
+  public static ThumbnailStore getInstance() {
+    return INSTANCE;
+  }
+
+  public boolean isEnabled() {
+    return GuiUtils.getUICore().getSystemPreferences().getBooleanProperty(PREF_ENABLE, true);
+  }
+
+  public long getMaxSize() {
+    long max =
+        GuiUtils.getUICore()
+            .getSystemPreferences()
+            .getLongProperty(PREF_MAX_SIZE, DEFAULT_MAX_SIZE);
+    return Math.max(0, max) * 1024 * 1024;
+  }
+
+  /**
+   * @param key the key of the thumbnail
+   * @param size the size of the displayed thumbnail
+   * @return the file of the thumbnail having the smallest stored size not lower than the requested
+   *     size, or null if the thumbnail is not in the store
+   */
+  public File get(Key key, int size) {
+    if (key == null || !isEnabled()) {
+      return null;
+    }
+    return find(key, size);
+  }
+
+  File find(Key key, int size) {
+    int variant = getVariantSize(size);
+    String name = key.getFileName(variant);
+    String largest = key.getFileName(Thumbnail.MAX_SIZE);
+    synchronized (this) {
+      init();
+      if (files.get(name) != null) {
+        return directory.resolve(name).toFile();
+      }
+      if (files.get(largest) == null) {
+        return null;
+      }
+    }
+    // Build the smaller size from the largest one, which is faster than reading the largest size
+    // each time the thumbnail is displayed
+    File file = directory.resolve(largest).toFile();
+    PlanarImage img = null;
+    try {
+      img = ImageProcessor.readImageWithCvException(file, null);
+      PlanarImage thumb =
+          ImageProcessor.buildThumbnail(img, new Dimension(variant, variant), true);
+      File variantFile = write(name, thumb);
+      if (thumb != img) {
+        ImageConversion.releasePlanarImage(thumb);
+      }
+      return variantFile == null ? file : variantFile;
+    } catch (Exception e) {
+      LOGGER.warn("Cannot read the thumbnail {}", file, e);
+      remove(largest);
+      return null;
+    } finally {
+      ImageConversion.releasePlanarImage(img);
+    }
+  }
+
+  /**
+   * Writes the thumbnail in the store. The image should have the maximum size of the thumbnails.
+   *
+   * @return the file of the thumbnail or null if it cannot be written
+   */
+  public File put(Key key, PlanarImage thumbnail) {
+    if (key == null || thumbnail == null || thumbnail.width() <= 0 || !isEnabled()) {
+      return null;
+    }
+    return write(key.getFileName(Thumbnail.MAX_SIZE), thumbnail);
+  }
+
+  /**
+   * Copies a thumbnail file (e.g. a thumbnail downloaded from a server) into the store. The file is
+   * reduced when it exceeds the maximum size of the thumbnails.
+   *
+   * @return the file of the thumbnail in the store or null if it is not a readable image
+   */
+  public File put(Key key, File thumbnail) {
+    if (key == null || thumbnail == null || !thumbnail.canRead() || !isEnabled()) {
+      return null;
+    }
+    String name = key.getFileName(Thumbnail.MAX_SIZE);
+    PlanarImage img = null;
+    try {
+      img = ImageProcessor.readImageWithCvException(thumbnail, null);
+      if (img == null || img.width() <= 0) {
+        return null;
+      }
+      if (Math.max(img.width(), img.height()) > Thumbnail.MAX_SIZE) {
+        PlanarImage thumb =
+            ImageProcessor.buildThumbnail(
+                img, new Dimension(Thumbnail.MAX_SIZE, Thumbnail.MAX_SIZE), true);
+        File file = write(name, thumb);
+        if (thumb != img) {
+          ImageConversion.releasePlanarImage(thumb);
+        }
+        return file;
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Cannot read the thumbnail {}", thumbnail, e);
+      return null;
+    } finally {
+      ImageConversion.releasePlanarImage(img);
+    }
+    return copy(name, thumbnail);
+  }
+
+  private File copy(String name, File thumbnail) {
+    long maxSize = getMaxSize();
+    if (maxSize <= 0) {
+      return null;
+    }
+    synchronized (this) {
+      init();
+    }
+    File tmpFile = null;
+    try {
+      tmpFile = File.createTempFile("thumb_", ".tmp", directory.toFile()); // NON-NLS
+      Files.copy(thumbnail.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return move(tmpFile, name, maxSize);
+    } catch (IOException e) {
+      LOGGER.warn("Cannot copy the thumbnail {}", thumbnail, e);
+      FileUtil.delete(tmpFile);
+      return null;
+    }
+  }
+
+  public synchronized long getSize() {
+    init();
+    return totalSize;
+  }
+
+  static int getVariantSize(int size) {
+    for (int s : SIZES) {
+      if (s >= size) {
+        return s;
+      }
+    }
+    return Thumbnail.MAX_SIZE;
+  }
+
+  private File write(String name, PlanarImage img) {
+    long maxSize = getMaxSize();
+    if (maxSize <= 0) {
+      return null;
+    }
+    synchronized (this) {
+      init();
+    }
+    File tmpFile = null;
+    try {
+      tmpFile = File.createTempFile("thumb_", ".tmp", directory.toFile()); // NON-NLS
+      MatOfInt map = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 80);
+      // Write to a temporary file with the jpg extension required by the encoder
+      File jpgFile = new File(tmpFile.getPath() + EXTENSION);
+      if (!tmpFile.renameTo(jpgFile) || !ImageProcessor.writeImage(img.toMat(), jpgFile, map)) {
+        FileUtil.delete(jpgFile);
+        FileUtil.delete(tmpFile);
+        return null;
+      }
+      return move(jpgFile, name, maxSize);
+    } catch (IOException e) {
+      LOGGER.warn("Cannot write the thumbnail {}", name, e);
+      FileUtil.delete(tmpFile);
+      return null;
+    }
+  }
+
+  private File move(File tmpFile, String name, long maxSize) throws IOException {
+    Path path = directory.resolve(name);
+    Files.move(
+        tmpFile.toPath(),
+        path,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    add(name, Files.size(path), maxSize);
+    return path.toFile();
+  }
+
+  synchronized void add(String name, long size, long maxSize) {
+    Long old = files.put(name, size);
+    totalSize += size - (old == null ? 0 : old);
+
+    Iterator<Entry<String, Long>> it = files.entrySet().iterator();
+    while (totalSize > maxSize && it.hasNext()) {
+      Entry<String, Long> eldest = it.next();
+      if (!eldest.getKey().equals(name)) {
+        FileUtil.delete(directory.resolve(eldest.getKey()).toFile());
+        totalSize -= eldest.getValue();
+        it.remove();
+      }
+    }
+    scheduleIndexWriting();
+  }
+
+  private synchronized void remove(String name) {
+    Long size = files.remove(name);
+    if (size != null) {
+      totalSize -= size;
+      FileUtil.delete(directory.resolve(name).toFile());
+      scheduleIndexWriting();
+    }
+  }
+
+  // The index is written after a delay to group the modifications
+  private void scheduleIndexWriting() {
+    if (!indexScheduled) {
+      indexScheduled = true;
+      indexWriter.schedule(this::writeIndex, 2, TimeUnit.SECONDS);
+    }
+  }
+
+  void writeIndex() {
+    List<Entry<String, Long>> list;
+    synchronized (this) {
+      indexScheduled = false;
+      list = new ArrayList<>(files.entrySet());
+    }
+    Path index = directory.resolve(INDEX_FILE);
+    Path tmp = directory.resolve(INDEX_FILE + ".tmp"); // NON-NLS
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(list.size());
+      for (Entry<String, Long> entry : list) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Cannot write the thumbnail index {}", index, e);
+      return;
+    }
+    try {
+      Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.warn("Cannot write the thumbnail index {}", index, e);
+    }
+  }
+
+  /**
+   * Restores the files of the previous sessions from the index, the least recently used first. The
+   * files missing from the index (e.g. when the application has been stopped before writing the
+   * index) are added as the least recently used.
+   */
+  private void init() {
+    if (initialized) {
+      return;
+    }
+    initialized = true;
+    try {
+      Files.createDirectories(directory);
+      Map<String, Long> index = readIndex();
+      List<Path> others = new ArrayList<>();
+      Map<String, Long> found = new LinkedHashMap<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+        for (Path path : stream) {
+          String name = path.getFileName().toString();
+          if (name.endsWith(EXTENSION) && !name.startsWith("thumb_")) {
+            Long size = index.get(name);
+            if (size == null) {
+              others.add(path);
+            } else {
+              found.put(name, size);
+            }
+          } else if (!name.equals(INDEX_FILE)) {
+            // Remove the temporary files of an interrupted writing
+            FileUtil.delete(path.toFile());
+          }
+        }
+      }
+      others.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+      for (Path path : others) {
+        addEntry(path.getFileName().toString(), Files.size(path));
+      }
+      for (String name : index.keySet()) {
+        Long size = found.get(name);
+        if (size != null) {
+          addEntry(name, size);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Cannot read the thumbnail store {}", directory, e);
+    }
+  }
+
+  private void addEntry(String name, long size) {
+    files.put(name, size);
+    totalSize += size;
+  }
+
+  private Map<String, Long> readIndex() {
+    Map<String, Long> index = new LinkedHashMap<>();
+    Path path = directory.resolve(INDEX_FILE);
+    if (Files.isReadable(path)) {
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+        if (in.readInt() == INDEX_MAGIC) {
+          int count = in.readInt();
+          for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            index.put(name, in.readLong());
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Cannot read the thumbnail index {}", path, e);
+      }
+    }
+    return index;
+  }
+}
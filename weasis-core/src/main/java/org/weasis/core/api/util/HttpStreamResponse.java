@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient.Version;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import org.weasis.core.util.FileUtil;
+
+/**
+ * Response of a request sent by {@link HttpTransport}. A gzip-encoded body is decoded
+ * transparently, so the Content-Encoding header is not exposed in this case.
+ */
+public class HttpStreamResponse implements HttpResponse {
+
+  private final java.net.http.HttpResponse<InputStream> response;
+  private final LongAdder bytesReceived;
+  private final boolean gzip;
+  private InputStream stream;
+
+  HttpStreamResponse(java.net.http.HttpResponse<InputStream> response, LongAdder bytesReceived) {
+    this.response = Objects.requireNonNull(response);
+    this.bytesReceived = Objects.requireNonNull(bytesReceived);
+    this.gzip =
+        response
+            .headers()
+            .firstValue("Content-Encoding") // NON-NLS
+            .map(v -> v.trim().equalsIgnoreCase("gzip")) // NON-NLS
+            .orElse(false);
+  }
+
+  @Override
+  public synchronized InputStream getInputStream() throws IOException {
+    if (stream == null) {
+      InputStream in = new CountingInputStream(response.body(), bytesReceived);
+      stream = gzip ? new GZIPInputStream(in, FileUtil.FILE_BUFFER) : in;
+    }
+    return stream;
+  }
+
+  @Override
+  public int getResponseCode() {
+    return response.statusCode();
+  }
+
+  @Override
+  public String getHeaderField(String key) {
+    if (gzip && isEncodingHeader(key)) {
+      return null;
+    }
+    return response.headers().firstValue(key).orElse(null);
+  }
+
+  /**
+   * @return the first value of each header, the names are case-insensitive
+   */
+  public Map<String, String> getHeaders() {
+    Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (Map.Entry<String, List<String>> entry : response.headers().map().entrySet()) {
+      String key = entry.getKey();
+      if (!entry.getValue().isEmpty() && !(gzip && isEncodingHeader(key))) {
+        headers.put(key, entry.getValue().getFirst());
+      }
+    }
+    return headers;
+  }
+
+  @Override
+  public String getResponseMessage() {
+    // HTTP/2 has no reason phrase
+    return "HTTP status " + response.statusCode(); // NON-NLS
+  }
+
+  public Version getVersion() {
+    return response.version();
+  }
+
+  public URI getUri() {
+    return response.uri();
+  }
+
+  /** Closes the body, the connection is given back to the pool when the body has been read. */
+  @Override
+  public void close() {
+    InputStream in;
+    synchronized (this) {
+      in = stream == null ? response.body() : stream;
+    }
+    FileUtil.safeClose(in);
+  }
+
+  private static boolean isEncodingHeader(String key) {
+    return "Content-Encoding".equalsIgnoreCase(key) // NON-NLS
+        || "Content-Length".equalsIgnoreCase(key); // NON-NLS
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+    private final LongAdder counter;
+
+    CountingInputStream(InputStream in, LongAdder counter) {
+      super(in);
+      this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        counter.increment();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        counter.add(n);
+      }
+      return n;
+    }
+  }
+}
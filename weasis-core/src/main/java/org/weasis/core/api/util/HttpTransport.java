@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.util;
+
+import com.github.scribejava.core.httpclient.multipart.MultipartPayload;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.CookieManager;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.auth.BasicHttpClient;
+import org.weasis.core.api.auth.BodySupplier;
+import org.weasis.core.util.StreamIOException;
+
+/**
+ * HTTP transport based on {@link HttpClient}. A client is shared by all the requests to the same
+ * node (scheme, host and port) with the same connection timeout, so the connections are kept alive
+ * and reused, and multiplexed with HTTP/2 when the server supports it over TLS. The responses
+ * encoded with gzip are decoded transparently. Reading the body fails when no data is received
+ * during the read timeout.
+ *
+ * <p>The number of requests, failures and received bytes are counted for each node, see {@link
+ * #getMetrics()}.
+ */
+public final class HttpTransport {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpTransport.class);
+
+  // Headers set by the HttpClient which cannot be set by the request
+  private static final Set<String> RESTRICTED_HEADERS =
+      Set.of("connection", "content-length", "expect", "host", "upgrade"); // NON-NLS
+
+  private static final HttpTransport INSTANCE = new HttpTransport();
+
+  /**
+   * Counters of a node since the start of the application.
+   *
+   * @param node the scheme, host and port of the node
+   * @param requests the number of requests sent
+   * @param failures the number of requests failed (network error or status code from 400)
+   * @param http2Responses the number of responses received with HTTP/2
+   * @param bytesReceived the number of bytes of the bodies read from the network
+   */
+  public record NodeMetrics(
+      String node, long requests, long failures, long http2Responses, long bytesReceived) {}
+
+  private static final class Node {
+    private final String origin;
+    private final boolean secure;
+    // Clients by connection timeout
+    private final Map<Integer, HttpClient> clients = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    // Keep the cookies set by the node, e.g. before a redirection
+    private final CookieManager cookieManager = new CookieManager();
+
+    Node(String origin, boolean secure) {
+      this.origin = origin;
+      this.secure = secure;
+    }
+
+    HttpClient getClient(int connectTimeout) {
+      int timeout = connectTimeout > 0 ? connectTimeout : NetworkUtil.getUrlConnectionTimeout();
+      return clients.computeIfAbsent(timeout, this::newClient);
+    }
+
+    private HttpClient newClient(int connectTimeout) {
+      return HttpClient.newBuilder()
+          // HTTP/2 is negotiated with TLS, the upgrade from HTTP/1.1 is not always supported
+          .version(secure ? Version.HTTP_2 : Version.HTTP_1_1)
+          .followRedirects(Redirect.NORMAL)
+          .connectTimeout(Duration.ofMillis(connectTimeout))
+          .cookieHandler(cookieManager)
+          .build();
+    }
+
+    NodeMetrics getMetrics() {
+      return new NodeMetrics(
+          origin,
+          requests.sum(),
+          failures.sum(),
+          http2Responses.sum(),
+          bytesReceived.sum());
+    }
+  }
+
+  private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+  private HttpTransport() {}
+
+  public static HttpTransport getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param url the URL
+   * @return the URI if the URL can be sent by this transport (http or https), otherwise null
+   */
+  public static URI getHttpUri(String url) {
+    if (url == null) {
+      return null;
+    }
+    try {
+      URI uri = new URL(url).toURI();
+      String scheme = uri.getScheme();
+      if (("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) // NON-NLS
+          && uri.getHost() != null) {
+        return uri;
+      }
+    } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+      LOGGER.trace("Not a valid http URL: {}", url, e);
+    }
+    return null;
+  }
+
+  /**
+   * Sends a GET request.
+   *
+   * @return the response, with a status code from 200 to 299
+   * @throws StreamIOException when the server rejects the request or on network errors
+   */
+  public HttpStreamResponse get(String url, URLParameters urlParameters) throws IOException {
+    HttpStreamResponse response =
+        send(url, urlParameters, "GET", BodyPublishers.noBody()); // NON-NLS
+    int code = response.getResponseCode();
+    if (code < HttpURLConnection.HTTP_OK || code >= HttpURLConnection.HTTP_MULT_CHOICE) {
+      LOGGER.warn("http Status {} - {}", code, response.getUri());
+      response.close();
+      throw new StreamIOException(response.getResponseMessage());
+    }
+    return response;
+  }
+
+  /**
+   * Sends a multipart payload with a POST request. The parts are read when they are sent.
+   *
+   * @return the response, whatever the status code
+   */
+  public HttpStreamResponse post(
+      String url, URLParameters urlParameters, MultipartPayload multipartPayload)
+      throws IOException {
+    Map<String, String> headers = new HashMap<>(urlParameters.getUnmodifiableHeaders());
+    headers.putAll(multipartPayload.getHeaders());
+    URLParameters params =
+        new URLParameters(
+            headers, urlParameters.getConnectTimeout(), urlParameters.getReadTimeout());
+    return send(url, params, "POST", ofMultipart(multipartPayload)); // NON-NLS
+  }
+
+  /**
+   * Sends a request, through the client shared by the node of the URL.
+   *
+   * @param url the http or https URL
+   * @param urlParameters the headers, the connection timeout and the read timeout, which is the
+   *     maximum time for receiving the response headers and then between two reads of the body
+   * @param method the HTTP method
+   * @param body the body of the request
+   * @return the response, whatever the status code
+   * @throws StreamIOException on network errors
+   */
+  public HttpStreamResponse send(
+      String url, URLParameters urlParameters, String method, BodyPublisher body)
+      throws IOException {
+    URI uri = getHttpUri(url);
+    if (uri == null) {
+      throw new IOException("Not a valid http URL: " + url);
+    }
+    HttpRequest.Builder builder = HttpRequest.newBuilder(uri).method(method, body);
+    int readTimeout = urlParameters.getReadTimeout();
+    if (readTimeout > 0) {
+      builder.timeout(Duration.ofMillis(readTimeout));
+    }
+    boolean acceptEncoding = false;
+    for (Entry<String, String> entry : urlParameters.getUnmodifiableHeaders().entrySet()) {
+      String key = entry.getKey();
+      if (key != null && entry.getValue() != null) {
+        String name = key.toLowerCase(Locale.ROOT);
+        if (RESTRICTED_HEADERS.contains(name)) {
+          continue;
+        }
+        acceptEncoding |= name.equals("accept-encoding"); // NON-NLS
+        builder.setHeader(key, entry.getValue());
+      }
+    }
+    if (!acceptEncoding) {
+      builder.setHeader("Accept-Encoding", "gzip"); // NON-NLS
+    }
+    if (urlParameters.getIfModifiedSince() > 0) {
+      builder.setHeader(
+          "If-Modified-Since", // NON-NLS
+          DateTimeFormatter.RFC_1123_DATE_TIME.format(
+              Instant.ofEpochMilli(urlParameters.getIfModifiedSince()).atOffset(ZoneOffset.UTC)));
+    }
+
+    Node node = getNode(uri);
+    node.requests.increment();
+    try {
+      java.net.http.HttpResponse<InputStream> response =
+          node.getClient(urlParameters.getConnectTimeout())
+              .send(builder.build(), _ -> new IdleTimeoutInputStream(readTimeout));
+      if (response.version() == Version.HTTP_2) {
+        node.http2Responses.increment();
+      }
+      if (response.statusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+        node.failures.increment();
+      }
+      return new HttpStreamResponse(response, node.bytesReceived);
+    } catch (InterruptedException e) {
+      node.failures.increment();
+      Thread.currentThread().interrupt();
+      throw new StreamIOException(e);
+    } catch (IOException e) {
+      node.failures.increment();
+      throw new StreamIOException(e);
+    }
+  }
+
+  /**
+   * @return the counters of all the nodes used since the start of the application
+   */
+  public List<NodeMetrics> getMetrics() {
+    List<NodeMetrics> list = new ArrayList<>();
+    for (Node node : nodes.values()) {
+      list.add(node.getMetrics());
+    }
+    return list;
+  }
+
+  /**
+   * @param url a URL of the node
+   * @return the counters of the node or null if no request has been sent to this node
+   */
+  public NodeMetrics getMetrics(String url) {
+    URI uri = getHttpUri(url);
+    Node node = uri == null ? null : nodes.get(getOrigin(uri));
+    return node == null ? null : node.getMetrics();
+  }
+
+  private Node getNode(URI uri) {
+    String origin = getOrigin(uri);
+    return nodes.computeIfAbsent(
+        origin,
+        key -> {
+          LOGGER.debug("New HTTP client for {}", key);
+          return new Node(key, "https".equalsIgnoreCase(uri.getScheme())); // NON-NLS
+        });
+  }
+
+  private static String getOrigin(URI uri) {
+    String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+    int port = uri.getPort();
+    if (port == -1) {
+      port = "https".equals(scheme) ? 443 : 80; // NON-NLS
+    }
+    return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+  }
+
+  /**
+   * Builds the body of a multipart payload. The files of the parts are opened one by one while the
+   * body is sent, so the payload is never entirely in memory.
+   *
+   * @param multipartPayload the payload
+   * @return the body, with the length of the payload
+   */
+  public static BodyPublisher ofMultipart(MultipartPayload multipartPayload) {
+    List<BodySupplier<InputStream>> bodySuppliers = new ArrayList<>();
+    BasicHttpClient.prepareMultipartPayload(bodySuppliers, multipartPayload);
+    long contentLength =
+        bodySuppliers.stream().mapToLong(BodySupplier::length).reduce(0L, Long::sum);
+    return BodyPublishers.fromPublisher(
+        BodyPublishers.ofInputStream(() -> new SupplierInputStream(bodySuppliers)), contentLength);
+  }
+
+  /**
+   * Body of a response, available before the body is received. A read waits at most the idle
+   * timeout for the next data of the server, then the request is cancelled.
+   */
+  static final class IdleTimeoutInputStream extends InputStream
+      implements BodySubscriber<InputStream> {
+    private static final List<ByteBuffer> LAST = List.of();
+
+    private final long idleTimeout;
+    private final BlockingQueue<List<ByteBuffer>> buffers = new LinkedBlockingQueue<>();
+    private final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private Iterator<ByteBuffer> currentList;
+    private ByteBuffer current;
+    private boolean eof;
+
+    /**
+     * @param idleTimeout the maximum time in milliseconds to wait for data, no limit when zero or
+     *     negative
+     */
+    IdleTimeoutInputStream(long idleTimeout) {
+      this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public CompletionStage<InputStream> getBody() {
+      return CompletableFuture.completedStage(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+      if (closed || !subscription.complete(s)) {
+        s.cancel();
+      } else {
+        s.request(1);
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      buffers.offer(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      failure = throwable;
+      buffers.offer(LAST);
+    }
+
+    @Override
+    public void onComplete() {
+      buffers.offer(LAST);
+    }
+
+    @Override
+    public int read() throws IOException {
+      ByteBuffer buffer = current();
+      return buffer == null ? -1 : buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      ByteBuffer buffer = current();
+      if (buffer == null) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return current == null ? 0 : current.remaining();
+    }
+
+    private ByteBuffer current() throws IOException {
+      while (current == null || !current.hasRemaining()) {
+        if (closed) {
+          throw new IOException("Stream closed");
+        }
+        if (currentList != null && currentList.hasNext()) {
+          current = currentList.next();
+          continue;
+        }
+        if (eof) {
+          return null;
+        }
+        List<ByteBuffer> list = take();
+        if (list == LAST) {
+          eof = true;
+          if (failure != null) {
+            throw new IOException(failure);
+          }
+          return null;
+        }
+        // Request the next buffers while this one is read
+        subscription.join().request(1);
+        currentList = list.iterator();
+        current = null;
+      }
+      return current;
+    }
+
+    private List<ByteBuffer> take() throws IOException {
+      try {
+        if (idleTimeout <= 0) {
+          return buffers.take();
+        }
+        List<ByteBuffer> list = buffers.poll(idleTimeout, TimeUnit.MILLISECONDS);
+        if (list == null) {
+          close();
+          throw new HttpTimeoutException("No data received for " + idleTimeout + " ms");
+        }
+        return list;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new InterruptedIOException();
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        Flow.Subscription s = subscription.getNow(null);
+        if (s != null) {
+          // Give the connection back to the pool or close it
+          s.cancel();
+        }
+        buffers.clear();
+      }
+    }
+  }
+
+  // Concatenates the streams of the suppliers, each stream is opened when the previous is read
+  private static final class SupplierInputStream extends InputStream {
+    private final Iterator<BodySupplier<InputStream>> suppliers;
+    private InputStream current;
+
+    SupplierInputStream(List<BodySupplier<InputStream>> suppliers) {
+      this.suppliers = suppliers.iterator();
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return n <= 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (true) {
+        if (current == null) {
+          if (!suppliers.hasNext()) {
+            return -1;
+          }
+          current = suppliers.next().get();
+        }
+        int n = current.read(b, off, len);
+        if (n > 0) {
+          return n;
+        }
+        if (n < 0) {
+          current.close();
+          current = null;
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+    }
+  }
+}
@@ -24,6 +24,7 @@
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -77,6 +78,9 @@ public static HttpResponse getHttpResponse(
       String url, URLParameters urlParameters, AuthMethod authMethod, OAuthRequest authRequest)
       throws IOException {
     if (authMethod == null || OAuth2ServiceFactory.noAuth.equals(authMethod)) {
+      if (!urlParameters.isHttpPost() && HttpTransport.getHttpUri(url) != null) {
+        return HttpTransport.getInstance().get(url, withAppHeaders(urlParameters));
+      }
       return prepareConnection(new URL(url).openConnection(), urlParameters);
     }
     OAuthRequest request;
@@ -97,6 +101,23 @@ public static ClosableURLConnection getUrlConnection(URL url, URLParameters urlP
     return prepareConnection(url.openConnection(), urlParameters);
   }
 
+  /**
+   * @return the parameters with the headers of the application (User-Agent and Weasis-User)
+   */
+  public static URLParameters withAppHeaders(URLParameters urlParameters) {
+    Map<String, String> headers = new HashMap<>(urlParameters.getUnmodifiableHeaders());
+    headers.put("User-Agent", AppProperties.WEASIS_USER_AGENT); // NON-NLS
+    headers.put("Weasis-User", AppProperties.WEASIS_USER); // NON-NLS
+    return new URLParameters(
+        headers,
+        urlParameters.getConnectTimeout(),
+        urlParameters.getReadTimeout(),
+        urlParameters.isHttpPost(),
+        urlParameters.isUseCaches(),
+        urlParameters.getIfModifiedSince(),
+        urlParameters.isAllowUserInteraction());
+  }
+
   private static void updateHeadersWithAppProperties(URLConnection urlConnection) {
     urlConnection.setRequestProperty("User-Agent", AppProperties.WEASIS_USER_AGENT);
     urlConnection.setRequestProperty("Weasis-User", AppProperties.WEASIS_USER);
@@ -496,6 +496,8 @@ public void updateCanvas(boolean triggerViewModelChangeListeners) {
   protected void setImage(E img) {
     boolean updateGraphics = false;
     imageLayer.setEnableDispOperations(false);
+    // Keep the displayed image in the cache
+    ImageElement.pinInCache(this, img == null ? null : List.of(img));
     if (img == null) {
       eventManager.getAction(ActionW.SCROLL_SERIES).ifPresent(SliderCineListener::stop);
       actionsInView.put(ActionW.SPATIAL_UNIT.cmd(), Unit.PIXEL);
@@ -871,6 +873,19 @@ protected void updateAffineTransform() {
     super.updateAffineTransform(this, node, imageLayer, 0.0);
   }
 
+  /**
+   * Renders the display image in background, except when the lens is displayed because it uses the
+   * intermediate images of the display operations.
+   */
+  @Override
+  protected void updateDisplayImage(RenderedImageLayer<?> imageLayer) {
+    if (lens == null) {
+      imageLayer.scheduleDisplayOperations();
+    } else {
+      imageLayer.updateDisplayOperations();
+    }
+  }
+
   @Override
   public void setDrawingsVisibility(Boolean visible) {
     if (!Objects.equals(actionsInView.get(ActionW.DRAWINGS.cmd()), visible)) {
@@ -1019,7 +1034,7 @@ private void propertyChange(final SynchEvent synch) {
       if (command.equals(ActionW.WINDOW.cmd()) || command.equals(ActionW.LEVEL.cmd())) {
         if (manager.setParamValue(
             WindowOp.OP_NAME, command, ((Number) entry.getValue()).doubleValue())) {
-          imageLayer.updateDisplayOperations();
+          updateDisplayImage(imageLayer);
         }
       } else if (command.equals(ActionW.ROTATION.cmd())) {
         Object old = actionsInView.put(ActionW.ROTATION.cmd(), entry.getValue());
@@ -1051,6 +1066,7 @@ private void propertyChange(final SynchEvent synch) {
         actionsInView.put(command, showLens);
         if (showLens) {
           if (lens == null) {
+            imageLayer.completeDisplayOperations();
             lens = new ZoomWin<>(this);
           }
           // resize if to big
@@ -1117,6 +1133,7 @@ public void disposeView() {
     if (series != null) {
       setSeries(null);
     }
+    ImageElement.unpinInCache(this);
     super.disposeView();
   }
 
@@ -343,7 +343,7 @@ protected void updateAffineTransform(
       node.setParam(AffineTransformOp.P_AFFINE_MATRIX, m);
 
       node.setParam(AffineTransformOp.P_DST_BOUNDS, dstBounds);
-      imageLayer.updateDisplayOperations();
+      updateDisplayImage(imageLayer);
     }
 
     // Keep the coordinates of the original image when cropping
@@ -359,6 +359,11 @@ protected void updateAffineTransform(
     }
   }
 
+  /** Updates the display image after a change of the parameters of the display operations. */
+  protected void updateDisplayImage(RenderedImageLayer<?> imageLayer) {
+    imageLayer.updateDisplayOperations();
+  }
+
   @Override
   protected void paintComponent(Graphics g) {
     // honor the opaque property
@@ -17,6 +17,7 @@
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
@@ -33,6 +34,7 @@
 import org.weasis.core.api.gui.util.Filter;
 import org.weasis.core.api.gui.util.SliderChangeListener;
 import org.weasis.core.api.gui.util.SliderCineListener;
+import org.weasis.core.api.gui.util.SliderCineListener.CineFrameLoader;
 import org.weasis.core.api.gui.util.SliderCineListener.TIME;
 import org.weasis.core.api.gui.util.ToggleButtonListener;
 import org.weasis.core.api.image.GridBagLayoutModel;
@@ -40,6 +42,7 @@
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.media.data.MediaSeries;
 import org.weasis.core.api.media.data.Series;
+import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.service.WProperties;
 import org.weasis.core.ui.editor.SeriesViewerEvent;
 import org.weasis.core.ui.editor.SeriesViewerEvent.EVENT;
@@ -53,6 +56,7 @@
 import org.weasis.core.ui.pref.ZoomSetting;
 import org.weasis.core.ui.util.ColorLayerUI;
 import org.weasis.core.ui.util.PrintDialog;
+import org.weasis.core.util.LangUtil;
 
 public abstract class ImageViewerEventManager<E extends ImageElement> implements KeyListener {
   public static final int WINDOW_SMALLEST = 0;
@@ -130,9 +134,102 @@ public void stateChanged(BoundedRangeModel model) {
       public void mouseWheelMoved(MouseWheelEvent e) {
         setSliderValue(getSliderValue() + e.getWheelRotation());
       }
+
+      @Override
+      protected CineFrameLoader getCineFrameLoader() {
+        return buildCineFrameLoader();
+      }
     };
   }
 
+  /**
+   * Builds the loader decoding the images of the cine ahead of the displayed image, in the
+   * selected view and in the views synchronized with it.
+   *
+   * @return the loader or null if there is no series in the selected view
+   */
+  protected CineFrameLoader buildCineFrameLoader() {
+    ImageViewerPlugin<E> container = selectedView2dContainer;
+    ViewCanvas<E> selected = container == null ? null : container.getSelectedImagePane();
+    if (selected == null || selected.getSeries() == null) {
+      return null;
+    }
+    CineView<E> main = new CineView<>(selected);
+    List<CineView<E>> synchViews = new ArrayList<>();
+    for (ViewCanvas<E> pane : container.getImagePanels()) {
+      if (pane != selected
+          && pane.getSeries() != null
+          && pane.getActionValue(ActionW.SYNCH_LINK.cmd()) instanceof SynchData synch
+          && synch.isActionEnable(ActionW.SCROLL_SERIES.cmd())
+          && !LangUtil.getNULLtoFalse(
+              (Boolean) pane.getActionValue(ActionW.SYNCH_CROSSLINE.cmd()))) {
+        synchViews.add(new CineView<>(pane));
+      }
+    }
+
+    return new CineFrameLoader() {
+      @Override
+      public void load(int sliderValue) {
+        for (ImageElement image : getImages(sliderValue)) {
+          if (image != null && !image.isImageInCache()) {
+            image.getImage();
+          }
+        }
+      }
+
+      @Override
+      public void load(List<Integer> sliderValues) throws InterruptedException {
+        List<ImageElement> images = new ArrayList<>();
+        for (int value : sliderValues) {
+          images.addAll(getImages(value));
+        }
+        // The frames of a multi-frame file are decoded in parallel
+        ImageElement.preloadImages(images);
+      }
+
+      private List<ImageElement> getImages(int sliderValue) {
+        // Slider value-1 is the index value of a sequence
+        int index = sliderValue - 1;
+        E image = main.getMedia(index);
+        List<ImageElement> images = new ArrayList<>();
+        if (image != null) {
+          images.add(image);
+          double[] val = (double[]) image.getTagValue(TagW.SlicePosition);
+          Double location = val == null ? null : val[0] + val[1] + val[2];
+          for (CineView<E> view : synchViews) {
+            images.add(view.getSynchMedia(index, location));
+          }
+        }
+        return images;
+      }
+    };
+  }
+
+  /** State of a view captured on the EDT, to find its images outside the EDT. */
+  private record CineView<E extends ImageElement>(
+      MediaSeries<E> series, Filter<E> filter, Comparator<E> sort, int tileOffset) {
+
+    @SuppressWarnings("unchecked")
+    CineView(ViewCanvas<E> view) {
+      this(
+          view.getSeries(),
+          (Filter<E>) view.getActionValue(ActionW.FILTERED_SERIES.cmd()),
+          view.getCurrentSortComparator(),
+          view.getTileOffset());
+    }
+
+    E getMedia(int index) {
+      return series.getMedia(index + tileOffset, filter, sort);
+    }
+
+    E getSynchMedia(int index, Double location) {
+      if (location == null) {
+        return getMedia(index);
+      }
+      return series.getNearestImage(location, tileOffset, filter, sort);
+    }
+  }
+
   protected ToggleButtonListener newLoopSweepAction() {
     return new ToggleButtonListener(ActionW.CINE_SWEEP, false) {
 
@@ -14,12 +14,28 @@
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiExecutor;
 import org.weasis.core.api.image.AffineTransformOp;
 import org.weasis.core.api.image.ImageOpEvent;
 import org.weasis.core.api.image.ImageOpNode;
@@ -34,6 +50,7 @@
 import org.weasis.core.api.image.util.Unit;
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.editor.image.Canvas;
 import org.weasis.core.ui.model.layer.Layer;
 import org.weasis.core.ui.model.layer.LayerType;
@@ -53,17 +70,45 @@
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RenderedImageLayer.class);
 
+  // Number of AWT images kept for recycling (e.g. the frames of a cine loop have the same size)
+  private static final int MAX_POOLED_FRAMES = 2;
+
+  private static final ExecutorService RENDERER =
+      ThreadUtil.newManagedImageProcessingThreadPool("Display Renderer"); // NON-NLS
+
   private final SimpleOpManager disOpManager;
   private final List<ImageLayerChangeListener<E>> listenerList;
   private final List<OpEventListener> opListeners;
 
   private OpManager preprocessing;
   private E sourceImage;
-  private PlanarImage displayImage;
+  private volatile PlanarImage displayImage;
   private Boolean visible = true;
   private boolean enableDispOperations = true;
   private Point offset;
 
+  // AWT image of the display image, drawn again until the display operations are updated
+  private final Object frameLock = new Object();
+  private final Deque<BufferedImage> framePool = new ArrayDeque<>(MAX_POOLED_FRAMES);
+  private PlanarImage frameSource;
+  private BufferedImage frame;
+
+  // Rendering in background: the last request is rendered, the older ones are dropped
+  private final AtomicLong renderCount = new AtomicLong();
+  private final AtomicReference<RenderRequest> pendingRender = new AtomicReference<>();
+  private volatile long displayedRender;
+  // Affine matrix of the display operations when the display image has been rendered
+  private List<Double> displayMatrix;
+  private boolean backgroundFrame;
+
+  private final LongAdder paints = new LongAdder();
+  private final LongAdder paintTime = new LongAdder();
+  private final LongAccumulator maxPaintTime = new LongAccumulator(Long::max, 0);
+  private final LongAdder conversions = new LongAdder();
+  private final LongAdder conversionTime = new LongAdder();
+
+  private record RenderRequest(long id, SimpleOpManager manager, List<Double> matrix) {}
+
   public RenderedImageLayer() {
     this(null);
   }
@@ -215,10 +260,11 @@ public void drawImage(Graphics2D g2d) {
       return;
     }
 
+    // The geometry has changed since the display image has been rendered in background
+    AffineTransform transform = getFrameTransform();
     Shape clip = g2d.getClip();
     if (clip instanceof Rectangle2D) {
-      Rectangle2D rect =
-          new Rectangle2D.Double(0, 0, displayImage.width() - 1.0, displayImage.height() - 1.0);
+      Rectangle2D rect = getDisplayBounds(transform != null);
       rect = rect.createIntersection((Rectangle2D) clip);
       if (rect.isEmpty()) {
         return;
@@ -230,11 +276,23 @@ public void drawImage(Graphics2D g2d) {
     }
 
     try {
-      if (g2d.getDeviceConfiguration().getDefaultTransform().getScaleX() > 1.0) {
+      if (transform != null
+          || g2d.getDeviceConfiguration().getDefaultTransform().getScaleX() > 1.0) {
         g2d.setRenderingHint(
             RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
       }
-      g2d.drawImage(ImageConversion.toBufferedImage(displayImage), 0, 0, null);
+      long start = System.nanoTime();
+      synchronized (frameLock) {
+        if (transform == null) {
+          g2d.drawImage(getFrame(displayImage), 0, 0, null);
+        } else {
+          g2d.drawImage(getFrame(displayImage), transform, null);
+        }
+      }
+      long time = System.nanoTime() - start;
+      paints.increment();
+      paintTime.add(time);
+      maxPaintTime.accumulate(time);
     } catch (Exception e) {
       LOGGER.error("Cannot draw the image", e);
       if ("java.io.IOException: closed".equals(e.getMessage())) { // NON-NLS
@@ -255,6 +313,7 @@ public void drawImage(Graphics2D g2d) {
   }
 
   public void drawImageForPrinter(Graphics2D g2d, double viewScale, Canvas canvas) {
+    completeDisplayOperations();
     // Get the clipping rectangle
     if (!visible || displayImage == null) {
       return;
@@ -387,15 +446,130 @@ public void drawImageForPrinter(Graphics2D g2d, double viewScale, Canvas canvas)
       g2d.setRenderingHint(
           RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
     }
-    g2d.drawImage(
-        ImageConversion.toBufferedImage(displayImage),
-        AffineTransform.getScaleInstance(rx, ry),
-        null);
+    synchronized (frameLock) {
+      g2d.drawImage(getFrame(displayImage), AffineTransform.getScaleInstance(rx, ry), null);
+    }
 
     g2d.setClip(clip);
   }
 
+  /**
+   * Returns the AWT image of the display image. The conversion is done only when the display image
+   * has changed and the raster of a previous frame with the same layout is reused when possible.
+   */
+  private BufferedImage getFrame(PlanarImage img) {
+    if (frame == null || frameSource != img) {
+      long start = System.nanoTime();
+      BufferedImage previous = frame;
+      frame = null;
+      if (previous != null && framePool.size() < MAX_POOLED_FRAMES) {
+        framePool.push(previous);
+      }
+      frame = toBufferedImage(img);
+      frameSource = img;
+      conversions.increment();
+      conversionTime.add(System.nanoTime() - start);
+    }
+    return frame;
+  }
+
+  private BufferedImage toBufferedImage(PlanarImage img) {
+    Mat mat = img.toMat();
+    Iterator<BufferedImage> it = framePool.iterator();
+    while (it.hasNext()) {
+      BufferedImage buffer = it.next();
+      if (isReusable(buffer, mat)) {
+        it.remove();
+        // Same layout as the one built by ImageConversion for this type of image
+        mat.get(0, 0, ((DataBufferByte) buffer.getRaster().getDataBuffer()).getData());
+        return buffer;
+      }
+    }
+    return ImageConversion.toBufferedImage(img);
+  }
+
+  private static boolean isReusable(BufferedImage buffer, Mat mat) {
+    WritableRaster raster = buffer.getRaster();
+    return buffer.getWidth() == mat.width()
+        && buffer.getHeight() == mat.height()
+        && CvType.depth(mat.type()) == CvType.CV_8U
+        && raster.getNumBands() == mat.channels()
+        && raster.getSampleModel() instanceof PixelInterleavedSampleModel
+        && raster.getDataBuffer() instanceof DataBufferByte data
+        && data.getNumBanks() == 1
+        && data.getData().length == mat.total() * mat.channels();
+  }
+
+  private List<Double> getAffineMatrix() {
+    return (List<Double>)
+        disOpManager.getParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_AFFINE_MATRIX);
+  }
+
+  // Area of the view covered by the display image
+  private Rectangle2D getDisplayBounds(boolean currentGeometry) {
+    if (currentGeometry) {
+      Rectangle2D bound =
+          (Rectangle2D)
+              disOpManager.getParamValue(
+                  AffineTransformOp.OP_NAME, AffineTransformOp.P_DST_BOUNDS);
+      if (bound != null) {
+        return new Rectangle2D.Double(0, 0, bound.getWidth() - 1.0, bound.getHeight() - 1.0);
+      }
+    }
+    return new Rectangle2D.Double(0, 0, displayImage.width() - 1.0, displayImage.height() - 1.0);
+  }
+
+  /**
+   * Returns the transformation from the display image to its position with the current geometry,
+   * or null when the geometry has not changed since the display image has been rendered.
+   */
+  private AffineTransform getFrameTransform() {
+    List<Double> matrix = getAffineMatrix();
+    if (displayMatrix == null || matrix == null || displayMatrix.equals(matrix)) {
+      return null;
+    }
+    try {
+      AffineTransform transform = toAffineTransform(matrix);
+      transform.concatenate(toAffineTransform(displayMatrix).createInverse());
+      return transform;
+    } catch (NoninvertibleTransformException e) {
+      return null;
+    }
+  }
+
+  private static AffineTransform toAffineTransform(List<Double> m) {
+    // OpenCV matrix: m00, m01, m02, m10, m11, m12
+    return new AffineTransform(m.get(0), m.get(3), m.get(1), m.get(4), m.get(2), m.get(5));
+  }
+
+  private void invalidateFrame() {
+    synchronized (frameLock) {
+      frameSource = null;
+    }
+  }
+
   public void dispose() {
+    long paintCount = paints.sum();
+    if (LOGGER.isDebugEnabled() && paintCount > 0) {
+      long conversionCount = conversions.sum();
+      double meanConversion =
+          conversionCount == 0 ? 0.0 : conversionTime.sum() / (conversionCount * 1_000_000.0);
+      LOGGER.debug(
+          "Image layer: {} paints (mean {} ms, max {} ms), {} conversions (mean {} ms)", // NON-NLS
+          paintCount,
+          String.format("%.2f", paintTime.sum() / (paintCount * 1_000_000.0)), // NON-NLS
+          String.format("%.2f", maxPaintTime.get() / 1_000_000.0), // NON-NLS
+          conversionCount,
+          String.format("%.2f", meanConversion)); // NON-NLS
+    }
+    // Drop the renderings in progress
+    displayedRender = renderCount.incrementAndGet();
+    pendingRender.set(null);
+    synchronized (frameLock) {
+      frame = null;
+      frameSource = null;
+      framePool.clear();
+    }
     sourceImage = null;
     displayImage = null;
     listenerList.clear();
@@ -455,7 +629,86 @@ public void updateDisplayOperations() {
       if (source != null && source.width() < 1) {
         disOpManager.setFirstNode(getSourceRenderedImage());
       }
+      displayedRender = renderCount.incrementAndGet();
       displayImage = disOpManager.process();
+      displayMatrix = getAffineMatrix();
+      backgroundFrame = false;
+      invalidateFrame();
+      fireImageChanged();
+    }
+  }
+
+  /**
+   * Updates the display image in background. The changes of parameters received while rendering
+   * are coalesced, only the latest state is rendered and the display image is replaced in the EDT
+   * when it is ready. Meanwhile, the previous display image is drawn with the current geometry.
+   *
+   * <p>Only the visible part of the image is processed (see {@link ViewportRenderer}) and the
+   * intermediate images of the display operations are not updated, see {@link
+   * #completeDisplayOperations()}.
+   */
+  public void scheduleDisplayOperations() {
+    if (!isEnableDispOperations()) {
+      return;
+    }
+    PlanarImage source = disOpManager.getFirstNodeInputImage();
+    if (source == null || source.width() < 1) {
+      updateDisplayOperations();
+      return;
+    }
+    // The operations are copied, so the parameters can be changed while rendering
+    SimpleOpManager manager = new SimpleOpManager(disOpManager.getName());
+    for (ImageOpNode op : disOpManager.getOperations()) {
+      manager.addImageOperationAction(op.copy());
+    }
+    manager.setFirstNode(source);
+    RenderRequest request =
+        new RenderRequest(renderCount.incrementAndGet(), manager, getAffineMatrix());
+    if (pendingRender.getAndSet(request) == null) {
+      RENDERER.execute(this::render);
+    }
+  }
+
+  /**
+   * Processes the display operations again when the display image has been rendered in background,
+   * so the intermediate images of the operations are up to date (e.g. for the lens).
+   */
+  public void completeDisplayOperations() {
+    if (backgroundFrame || pendingRender.get() != null) {
+      updateDisplayOperations();
+    }
+  }
+
+  private void render() {
+    RenderRequest request = pendingRender.get();
+    if (request == null) {
+      return;
+    }
+    // Skip when a more recent image has been displayed in the meantime
+    if (request.id() > displayedRender) {
+      try {
+        PlanarImage img = ViewportRenderer.process(request.manager());
+        GuiExecutor.execute(() -> setRenderedImage(request, img));
+      } catch (Exception e) {
+        LOGGER.error("Cannot render the display image", e);
+      } catch (OutOfMemoryError e) {
+        LOGGER.error("Cannot render the display image", e);
+        CvUtil.runGarbageCollectorAndWait(100);
+      }
+    }
+    // Render the request received while rendering
+    if (!pendingRender.compareAndSet(request, null)) {
+      RENDERER.execute(this::render);
+    }
+  }
+
+  private void setRenderedImage(RenderRequest request, PlanarImage img) {
+    if (request.id() > displayedRender) {
+      displayedRender = request.id();
+      displayImage = img;
+      displayMatrix = request.matrix();
+      backgroundFrame = true;
+      invalidateFrame();
       fireImageChanged();
     }
   }
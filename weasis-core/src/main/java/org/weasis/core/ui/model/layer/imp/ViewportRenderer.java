@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.ui.model.layer.imp;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import org.opencv.imgproc.Imgproc;
+import org.weasis.core.api.image.AffineTransformOp;
+import org.weasis.core.api.image.ImageOpNode;
+import org.weasis.core.api.image.ImageOpNode.Param;
+import org.weasis.core.api.image.SimpleOpManager;
+import org.weasis.opencv.data.PlanarImage;
+import org.weasis.opencv.op.ImageProcessor;
+
+/**
+ * Processes the display operations only on the part of the source image that is visible.
+ *
+ * <p>When all the operations before the final {@link AffineTransformOp} are point operations (see
+ * {@link ImageOpNode#isPointOperation()}), the source is first cropped to the region drawn in the
+ * destination bounds and reduced to the display resolution when zoomed out. The lookup tables are
+ * then applied to the displayed pixels instead of the whole image. The reduction keeps the nearest
+ * pixels, so the non-linear lookup tables and the padding get the original pixel values.
+ */
+final class ViewportRenderer {
+
+  // Pixels kept around the visible region for the interpolation
+  private static final int MARGIN = 4;
+  // Minimal reduction of the number of pixels to process
+  private static final double MIN_GAIN = 0.8;
+
+  private ViewportRenderer() {}
+
+  /**
+   * @param manager the display operations, their parameters are modified
+   * @return the display image
+   */
+  static PlanarImage process(SimpleOpManager manager) {
+    PlanarImage source = manager.getFirstNodeInputImage();
+    ImageOpNode node = manager.getLastNode();
+    if (source == null
+        || source.width() < 1
+        || node == null
+        || !AffineTransformOp.OP_NAME.equals(node.getName())
+        || !node.isEnabled()
+        || !isPointOperations(manager.getOperations())) {
+      return manager.process();
+    }
+
+    List<Double> matrix = (List<Double>) node.getParam(AffineTransformOp.P_AFFINE_MATRIX);
+    Rectangle2D bound = (Rectangle2D) node.getParam(AffineTransformOp.P_DST_BOUNDS);
+    if (matrix == null || matrix.size() != 6 || bound == null || bound.isEmpty()) {
+      return manager.process();
+    }
+
+    AffineTransform transform =
+        new AffineTransform(
+            matrix.get(0),
+            matrix.get(3),
+            matrix.get(1),
+            matrix.get(4),
+            matrix.get(2),
+            matrix.get(5));
+    Viewport viewport = getViewport(transform, bound, source.width(), source.height());
+    if (viewport == null) {
+      return manager.process();
+    }
+
+    Rectangle area = viewport.area();
+    PlanarImage region = source;
+    if (area.width != source.width() || area.height != source.height()) {
+      region = ImageProcessor.crop(source.toMat(), area);
+    }
+    Dimension size = viewport.size();
+    if (size.width != area.width || size.height != area.height) {
+      // Keep the values of the pixels, the lookup tables and the padding are not linear. Sample
+      // the source pixel at the center of each reduced pixel, like the transform of the viewport.
+      region = ImageProcessor.scale(region.toMat(), size, Imgproc.INTER_NEAREST_EXACT);
+    }
+
+    AffineTransform t = viewport.transform();
+    node.setParam(
+        AffineTransformOp.P_AFFINE_MATRIX,
+        List.of(
+            t.getScaleX(),
+            t.getShearX(),
+            t.getTranslateX(),
+            t.getShearY(),
+            t.getScaleY(),
+            t.getTranslateY()));
+    manager.getFirstNode().setParam(Param.INPUT_IMG, region);
+    return manager.process();
+  }
+
+  /**
+   * Part of the source image to process.
+   *
+   * @param area the region of the source image
+   * @param size the size of the region once reduced to the display resolution
+   * @param transform the transformation from the reduced region to the destination
+   */
+  record Viewport(Rectangle area, Dimension size, AffineTransform transform) {}
+
+  /**
+   * @param transform the transformation from the source image to the destination
+   * @param bound the destination bounds
+   * @param width the width of the source image
+   * @param height the height of the source image
+   * @return the part of the source image to process or null when it does not reduce enough the
+   *     number of pixels
+   */
+  static Viewport getViewport(AffineTransform transform, Rectangle2D bound, int width, int height) {
+    Rectangle2D visible;
+    try {
+      visible =
+          transform
+              .createInverse()
+              .createTransformedShape(
+                  new Rectangle2D.Double(0, 0, bound.getWidth(), bound.getHeight()))
+              .getBounds2D();
+    } catch (NoninvertibleTransformException e) {
+      return null;
+    }
+
+    int x = Math.max(0, (int) Math.floor(visible.getMinX()) - MARGIN);
+    int y = Math.max(0, (int) Math.floor(visible.getMinY()) - MARGIN);
+    int w = Math.min(width, (int) Math.ceil(visible.getMaxX()) + MARGIN) - x;
+    int h = Math.min(height, (int) Math.ceil(visible.getMaxY()) + MARGIN) - y;
+    if (w < 1 || h < 1) {
+      return null;
+    }
+
+    double scaleX = Math.min(1.0, Math.hypot(transform.getScaleX(), transform.getShearY()));
+    double scaleY = Math.min(1.0, Math.hypot(transform.getShearX(), transform.getScaleY()));
+    int dstWidth = Math.max(1, (int) Math.ceil(w * scaleX));
+    int dstHeight = Math.max(1, (int) Math.ceil(h * scaleY));
+    if ((double) dstWidth * dstHeight > MIN_GAIN * width * height) {
+      return null;
+    }
+
+    // Map the pixel centers of the reduced region to the source image
+    double rx = w / (double) dstWidth;
+    double ry = h / (double) dstHeight;
+    AffineTransform t = new AffineTransform(transform);
+    t.concatenate(
+        new AffineTransform(rx, 0.0, 0.0, ry, x + (rx - 1.0) / 2.0, y + (ry - 1.0) / 2.0));
+    return new Viewport(new Rectangle(x, y, w, h), new Dimension(dstWidth, dstHeight), t);
+  }
+
+  private static boolean isPointOperations(List<ImageOpNode> operations) {
+    for (int i = 0; i < operations.size() - 1; i++) {
+      ImageOpNode op = operations.get(i);
+      if (op.isEnabled() && !op.isPointOperation()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.gui.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.weasis.core.api.gui.util.SliderCineListener.FramePolicy;
+
+class CineClockTest {
+  private static final long PERIOD = 10;
+
+  @Test
+  void test_drop_skips_the_frames_not_decoded() {
+    CineClock clock = new CineClock(0);
+    for (int i = 0; i < CineClock.MAX_CONSECUTIVE_DROPS; i++) {
+      clock.nextFrame(PERIOD);
+      assertTrue(clock.dropNotDecoded(FramePolicy.DROP));
+    }
+    // A frame is still presented after a few consecutive drops
+    clock.nextFrame(PERIOD);
+    assertFalse(clock.dropNotDecoded(FramePolicy.DROP));
+    assertEquals(CineClock.MAX_CONSECUTIVE_DROPS, clock.getDropped());
+
+    assertEquals(0, clock.presented(FramePolicy.DROP, 50, PERIOD));
+    clock.nextFrame(PERIOD);
+    assertTrue(clock.dropNotDecoded(FramePolicy.DROP));
+  }
+
+  @Test
+  void test_drop_keeps_the_requested_rate() {
+    CineClock clock = new CineClock(0);
+    assertEquals(10, clock.nextFrame(PERIOD));
+    // The presentation of the frame of 10 ended at 45, the frames of 20, 30 and 40 are skipped
+    assertEquals(3, clock.presented(FramePolicy.DROP, 45, PERIOD));
+    assertEquals(40, clock.getNext());
+    assertEquals(3, clock.getDropped());
+    assertEquals(50, clock.nextFrame(PERIOD));
+
+    // Waiting for a frame a little late keeps the schedule
+    clock.waited(FramePolicy.DROP, 55, 58, PERIOD);
+    assertEquals(50, clock.getNext());
+    // The schedule restarts when the frame is too late
+    clock.waited(FramePolicy.DROP, 65, 70, PERIOD);
+    assertEquals(70, clock.getNext());
+  }
+
+  @Test
+  void test_wait_presents_every_frame() {
+    CineClock clock = new CineClock(0);
+    for (int i = 0; i < 2 * CineClock.MAX_CONSECUTIVE_DROPS; i++) {
+      clock.nextFrame(PERIOD);
+      assertFalse(clock.dropNotDecoded(FramePolicy.WAIT));
+    }
+    clock.reset(0);
+    assertEquals(10, clock.nextFrame(PERIOD));
+    // The next frames are scheduled from the time the frame is ready
+    clock.waited(FramePolicy.WAIT, 12, 15, PERIOD);
+    assertEquals(15, clock.getNext());
+    assertEquals(25, clock.nextFrame(PERIOD));
+
+    assertEquals(0, clock.presented(FramePolicy.WAIT, 60, PERIOD));
+    assertEquals(60, clock.getNext());
+    assertEquals(0, clock.presented(FramePolicy.WAIT, 65, PERIOD));
+    assertEquals(60, clock.getNext());
+    assertEquals(0, clock.getDropped());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weasis.opencv.data.PlanarImage;
+
+class NativeCacheTest {
+
+  static class TestCache extends NativeCache<Integer, PlanarImage> {
+    final List<Integer> removed = new ArrayList<>();
+
+    TestCache(long maxNativeMemory) {
+      super(maxNativeMemory);
+    }
+
+    @Override
+    protected void afterEntryRemove(Integer key, PlanarImage val) {
+      removed.add(key);
+    }
+  }
+
+  private static PlanarImage image(long bytes) {
+    PlanarImage img = Mockito.mock(PlanarImage.class);
+    Mockito.when(img.physicalBytes()).thenReturn(bytes);
+    return img;
+  }
+
+  @Test
+  void test_probation_entries_are_evicted_first() {
+    TestCache cache = new TestCache(1000);
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, image(200));
+    }
+    // Entries 0 and 1 are read again and move to the protected segment
+    assertNotNull(cache.get(0));
+    assertNotNull(cache.get(1));
+
+    cache.put(5, image(200));
+    cache.put(6, image(200));
+
+    assertTrue(cache.containsKey(0));
+    assertTrue(cache.containsKey(1));
+    assertTrue(cache.removed.containsAll(Set.of(2, 3)));
+    assertFalse(cache.removed.contains(5));
+    assertTrue(cache.getUseNativeMemory() <= 1000);
+  }
+
+  @Test
+  void test_pinned_entries_are_not_evicted() {
+    TestCache cache = new TestCache(1000);
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, image(200));
+    }
+    Object owner = new Object();
+    cache.pin(owner, List.of(0));
+    cache.put(5, image(200));
+    cache.put(6, image(200));
+    assertTrue(cache.containsKey(0));
+    assertFalse(cache.removed.contains(0));
+
+    cache.unpin(owner);
+    for (int i = 7; i < 12; i++) {
+      cache.put(i, image(200));
+    }
+    assertFalse(cache.containsKey(0));
+  }
+
+  @Test
+  void test_protected_entries_are_evicted_in_access_order() {
+    TestCache cache = new TestCache(1000);
+    for (int i = 0; i < 4; i++) {
+      cache.put(i, image(200));
+      cache.get(i);
+    }
+    // The protected segment is full, the least recently read entry is demoted
+    cache.put(4, image(200));
+    cache.get(4);
+    assertTrue(cache.removed.isEmpty());
+    cache.get(0);
+
+    cache.put(5, image(200));
+    // The demoted entry 1 is evicted first, then the least recently read entry 2
+    assertEquals(List.of(1, 2), cache.removed);
+    assertTrue(cache.containsKey(0));
+    assertTrue(cache.containsKey(5));
+  }
+
+  @Test
+  void test_memory_limit_when_adding_from_several_threads() throws InterruptedException {
+    TestCache cache = new TestCache(10_000);
+    PlanarImage img = image(100);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      int offset = t * 1000;
+      threads[t] =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 1000; i++) {
+                  cache.put(offset + i, img);
+                  cache.get(offset + i / 2);
+                }
+              });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join(10_000);
+    }
+    assertTrue(cache.getUseNativeMemory() <= 10_000);
+    assertEquals(cache.size() * 100L, cache.getUseNativeMemory());
+  }
+
+  @Test
+  void test_remove() {
+    TestCache cache = new TestCache(1000);
+    cache.put(1, image(100));
+    assertNotNull(cache.get(1));
+    assertNull(cache.get(2));
+    assertFalse(cache.containsKey(2));
+    assertEquals(100, cache.getUseNativeMemory());
+    assertEquals(1, cache.size());
+
+    cache.remove(1);
+    assertEquals(0, cache.getUseNativeMemory());
+    assertEquals(List.of(1), cache.removed);
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.media.data.TagW.TagType;
+
+class SeriesTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SeriesTest.class);
+
+  static final TagW INSTANCE_UID = new TagW("TestInstanceUID", TagType.STRING);
+  static final TagW NOT_INDEXED_UID = new TagW("TestNotIndexedUID", TagType.STRING);
+
+  static class IndexedSeries extends Series<MediaElement> {
+
+    IndexedSeries() {
+      super(TagW.SubseriesInstanceUID, "1.2.3", new TagView(TagW.SubseriesInstanceUID));
+    }
+
+    @Override
+    public TagW getIndexTag() {
+      return INSTANCE_UID;
+    }
+
+    @Override
+    public void addMedia(MediaElement media) {
+      add(media);
+    }
+
+    @Override
+    public MediaElement getFirstSpecialElement() {
+      return null;
+    }
+
+    @Override
+    public String getMimeType() {
+      return "test/series"; // NON-NLS
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<MediaElement> buildMedias(int size) {
+    MediaReader<MediaElement> reader = Mockito.mock(MediaReader.class);
+    List<MediaElement> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      MediaElement media = new MediaElement(reader, i);
+      String uid = "1.2.3." + i;
+      media.setTag(INSTANCE_UID, uid);
+      media.setTag(NOT_INDEXED_UID, uid);
+      list.add(media);
+    }
+    return list;
+  }
+
+  @Test
+  void test_index_follows_series_content() {
+    IndexedSeries series = new IndexedSeries();
+    List<MediaElement> medias = buildMedias(4);
+
+    series.add(medias.get(0));
+    series.add(0, medias.get(1));
+    series.addAll(medias.subList(2, 4));
+    for (int i = 0; i < 4; i++) {
+      assertTrue(series.hasMediaContains(INSTANCE_UID, "1.2.3." + i));
+      assertTrue(series.hasMediaContains(NOT_INDEXED_UID, "1.2.3." + i));
+    }
+    assertFalse(series.hasMediaContains(INSTANCE_UID, "1.2.3.4"));
+    assertFalse(series.hasMediaContains(INSTANCE_UID, null));
+
+    series.removeAllMedias();
+    assertFalse(series.hasMediaContains(INSTANCE_UID, "1.2.3.0"));
+    assertEquals(0, series.size(null));
+  }
+
+  private static int nearestByScan(List<MediaElement> medias, double location) {
+    int bestIndex = -1;
+    double bestDiff = Double.MAX_VALUE;
+    for (int i = 0; i < medias.size(); i++) {
+      double[] val = (double[]) medias.get(i).getTagValue(TagW.SlicePosition);
+      if (val != null && Math.abs(location - (val[0] + val[1] + val[2])) < bestDiff) {
+        bestDiff = Math.abs(location - (val[0] + val[1] + val[2]));
+        bestIndex = i;
+      }
+    }
+    return bestIndex;
+  }
+
+  @Test
+  void test_slice_position_index() {
+    IndexedSeries series = new IndexedSeries();
+    assertEquals(-1, series.getSlicePositionIndex(null, null).getNearestIndex(1.0));
+
+    List<MediaElement> medias = buildMedias(6);
+    double[] positions = {4.0, -2.0, 4.0, 10.0, 1.0};
+    for (int i = 0; i < positions.length; i++) {
+      medias.get(i).setTag(TagW.SlicePosition, new double[] {0.0, 1.0, positions[i] - 1.0});
+    }
+    // The last media has no position
+    series.addAll(medias);
+
+    SlicePositionIndex<MediaElement> index = series.getSlicePositionIndex(null, null);
+    assertSame(index, series.getSlicePositionIndex(null, null));
+    for (double location = -5.0; location <= 13.0; location += 0.25) {
+      assertEquals(nearestByScan(medias, location), index.getNearestIndex(location));
+    }
+    assertSame(medias.get(1), index.getFirstMedia());
+    assertSame(medias.get(3), index.getLastMedia());
+
+    // Same distance to 4.0 (index 0 and 2) and to 10.0: the first in the list
+    assertEquals(0, index.getNearestIndex(7.0));
+
+    MediaElement extra = buildMedias(1).getFirst();
+    extra.setTag(TagW.SlicePosition, new double[] {0.0, 0.0, 20.0});
+    series.add(extra);
+    index = series.getSlicePositionIndex(null, null);
+    assertSame(extra, index.getNearestMedia(18.0));
+    assertSame(extra, index.getLastMedia());
+  }
+
+  /**
+   * Compares the time for loading a series with a duplicate check before adding each instance. Run
+   * with -Dweasis.benchmark=true.
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {5_000, 20_000})
+  @EnabledIfSystemProperty(named = "weasis.benchmark", matches = "true")
+  void benchmark_duplicate_check_when_loading(int size) {
+    List<MediaElement> medias = buildMedias(size);
+    // Warm up
+    load(medias, INSTANCE_UID);
+    load(medias, NOT_INDEXED_UID);
+
+    long linear = load(medias, NOT_INDEXED_UID);
+    long indexed = load(medias, INSTANCE_UID);
+    LOGGER.info(
+        "Loading {} instances: linear scan {} ms, indexed {} ms", // NON-NLS
+        size,
+        linear / 1_000_000,
+        indexed / 1_000_000);
+    assertTrue(indexed < linear);
+  }
+
+  private static long load(List<MediaElement> medias, TagW tag) {
+    IndexedSeries series = new IndexedSeries();
+    long start = System.nanoTime();
+    for (MediaElement media : medias) {
+      if (!series.hasMediaContains(tag, media.getTagValue(tag))) {
+        series.add(media);
+      }
+    }
+    long time = System.nanoTime() - start;
+    assertEquals(medias.size(), series.size(null));
+    return time;
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.media.data.TagW.TagType;
+
+class TagMapTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TagMapTest.class);
+
+  private static final TagW TAG_1 = new TagW("TagMapTest1", TagType.STRING); // NON-NLS
+  private static final TagW TAG_2 = new TagW("TagMapTest2", TagType.DOUBLE, 2, 2); // NON-NLS
+  private static final TagW TAG_3 = new TagW("TagMapTest3", TagType.INTEGER); // NON-NLS
+
+  @Test
+  void test_map_operations() {
+    TagMap map = new TagMap();
+    assertTrue(map.isEmpty());
+    map.put(TAG_3, 3);
+    map.put(TAG_1, "value"); // NON-NLS
+    map.put(TAG_2, null);
+    assertEquals(3, map.size());
+    assertTrue(map.containsKey(TAG_2));
+    assertEquals("value", map.get(TAG_1)); // NON-NLS
+    assertEquals(3, map.put(TAG_3, 4));
+    assertEquals(4, map.remove(TAG_3));
+    assertFalse(map.containsKey(TAG_3));
+
+    Map<TagW, Object> expected = new HashMap<>();
+    expected.put(TAG_1, "value"); // NON-NLS
+    expected.put(TAG_2, null);
+    assertEquals(expected, map);
+    assertEquals(map, new TagMap(expected));
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(TAG_1));
+  }
+
+  @Test
+  void test_interned_values() {
+    TagW modality = new TagW("Modality", TagType.STRING); // NON-NLS
+    TagMap map1 = new TagMap();
+    TagMap map2 = new TagMap();
+    map1.put(modality, new String("CT")); // NON-NLS
+    map2.put(modality, new String("CT")); // NON-NLS
+    assertSame(map1.get(modality), map2.get(modality));
+
+    // Only the values of the tags with few distinct values are shared
+    map1.put(TAG_1, new String("1.2.3")); // NON-NLS
+    map2.put(TAG_1, new String("1.2.3")); // NON-NLS
+    assertNotSame(map1.get(TAG_1), map2.get(TAG_1));
+    map1.put(TAG_2, new double[] {0.5, 0.5});
+    map2.put(TAG_2, new double[] {0.5, 0.5});
+    assertNotSame(map1.get(TAG_2), map2.get(TAG_2));
+
+    // The values which are the same for all the images of a series are shared
+    TagW frameOfReference = new TagW("FrameOfReferenceUID", TagType.STRING); // NON-NLS
+    TagW pixelSpacing = new TagW("PixelSpacing", TagType.DOUBLE, 2, 2); // NON-NLS
+    map1.put(frameOfReference, new String("1.2.3.4")); // NON-NLS
+    map2.put(frameOfReference, new String("1.2.3.4")); // NON-NLS
+    assertSame(map1.get(frameOfReference), map2.get(frameOfReference));
+    map1.put(pixelSpacing, new double[] {0.7, 0.7});
+    map2.put(pixelSpacing, new double[] {0.7, 0.7});
+    assertSame(map1.get(pixelSpacing), map2.get(pixelSpacing));
+    map2.put(pixelSpacing, new double[] {0.7, 0.8});
+    assertArrayEquals(new double[] {0.7, 0.7}, (double[]) map1.get(pixelSpacing));
+    assertArrayEquals(new double[] {0.7, 0.8}, (double[]) map2.get(pixelSpacing));
+  }
+
+  @Test
+  void test_concurrent_read() throws InterruptedException {
+    TagW[] tags = new TagW[64];
+    for (int i = 0; i < tags.length; i++) {
+      tags[i] = new TagW("TagMapConcurrent" + i, TagType.INTEGER); // NON-NLS
+    }
+    TagMap map = new TagMap();
+    map.put(tags[tags.length - 1], -1);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread reader =
+        new Thread(
+            () -> {
+              try {
+                for (int k = 0; k < 20_000; k++) {
+                  assertEquals(-1, map.get(tags[tags.length - 1]));
+                }
+              } catch (Throwable t) {
+                error.set(t);
+              }
+            });
+    reader.start();
+    for (int k = 0; k < 200; k++) {
+      for (int i = 0; i < tags.length - 1; i++) {
+        map.put(tags[i], i);
+      }
+      for (int i = 0; i < tags.length - 1; i++) {
+        map.remove(tags[i]);
+      }
+    }
+    reader.join();
+    assertNull(error.get());
+  }
+
+  @Test
+  void test_derived_map() {
+    TagMap base = new TagMap();
+    base.put(TAG_1, "base"); // NON-NLS
+    base.put(TAG_2, new double[] {1.0, 1.0});
+
+    TagMap frame = base.derive();
+    frame.put(TAG_3, 7);
+    frame.remove(TAG_2);
+    assertEquals("base", frame.get(TAG_1)); // NON-NLS
+    assertFalse(frame.containsKey(TAG_2));
+    assertEquals(2, frame.size());
+    assertEquals(Map.of(TAG_1, "base", TAG_3, 7), frame); // NON-NLS
+
+    // Copy-on-write: the source and the derived maps are independent
+    base.put(TAG_1, "modified"); // NON-NLS
+    base.remove(TAG_2);
+    assertEquals("base", frame.get(TAG_1)); // NON-NLS
+    assertEquals(Map.of(TAG_1, "modified"), base.derive().derive()); // NON-NLS
+    frame.put(TAG_1, "frame"); // NON-NLS
+    assertEquals("modified", base.get(TAG_1)); // NON-NLS
+    assertFalse(base.containsKey(TAG_3));
+  }
+
+  /**
+   * Compares the heap used by the tags of 200k instances stored in hash maps and in tag maps. Run
+   * with -Dweasis.benchmark=true.
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "weasis.benchmark", matches = "true")
+  void benchmark_heap_footprint() {
+    int instances = 200_000;
+    long hashMapSize = measureHeap(instances, HashMap::new);
+    long tagMapSize = measureHeap(instances, TagMap::new);
+    LOGGER.info(
+        "Tags of {} instances: HashMap {} MB, TagMap {} MB", // NON-NLS
+        instances,
+        hashMapSize >> 20,
+        tagMapSize >> 20);
+    assertTrue(tagMapSize < hashMapSize);
+  }
+
+  private static long measureHeap(int instances, Supplier<Map<TagW, Object>> factory) {
+    TagW[] tags = new TagW[12];
+    for (int i = 0; i < tags.length; i++) {
+      tags[i] = new TagW("TagMapBenchmark" + i, TagType.STRING); // NON-NLS
+    }
+    TagW modality = new TagW("Modality", TagType.STRING); // NON-NLS
+    TagW frameOfReference = new TagW("FrameOfReferenceUID", TagType.STRING); // NON-NLS
+    TagW pixelSpacing = new TagW("PixelSpacing", TagType.DOUBLE, 2, 2); // NON-NLS
+    long before = usedMemory();
+    List<Map<TagW, Object>> model = new ArrayList<>(instances);
+    for (int i = 0; i < instances; i++) {
+      // 100 series of 2000 instances, the values are new instances like after parsing a file
+      int series = i / 2000;
+      Map<TagW, Object> map = factory.get();
+      map.put(modality, new String("CT")); // NON-NLS
+      map.put(frameOfReference, new String("1.2.840.10008.5." + series)); // NON-NLS
+      map.put(pixelSpacing, new double[] {0.7, 0.7});
+      map.put(tags[0], new String("1.2.840.10008.7." + i)); // NON-NLS
+      for (int k = 1; k < tags.length; k++) {
+        map.put(tags[k], (double) (i % 2000) * k);
+      }
+      model.add(map);
+    }
+    long size = usedMemory() - before;
+    assertEquals(instances, model.size());
+    return size;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.media.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.weasis.core.api.media.data.ThumbnailStore.Key;
+import org.weasis.core.api.media.data.ThumbnailStore.Rendering;
+
+class ThumbnailStoreTest {
+  private static final long MAX_SIZE = 30;
+
+  @TempDir Path directory;
+
+  private static Key key(String uid) {
+    return new Key(uid, 0, Rendering.DEFAULT);
+  }
+
+  private String store(ThumbnailStore store, Key key, int bytes) throws IOException {
+    String name = key.getFileName(Thumbnail.MAX_SIZE);
+    Files.write(directory.resolve(name), new byte[bytes]);
+    store.add(name, bytes, MAX_SIZE);
+    return name;
+  }
+
+  @Test
+  void test_file_name_depends_on_rendering() {
+    Key key = key("1.2.3"); // NON-NLS
+    assertEquals(key.getFileName(96), key("1.2.3").getFileName(96)); // NON-NLS
+    assertNotEquals(key.getFileName(96), key.getFileName(Thumbnail.MAX_SIZE));
+    assertNotEquals(
+        key.getFileName(Thumbnail.MAX_SIZE),
+        new Key("1.2.3", 0, Rendering.SERVER).getFileName(Thumbnail.MAX_SIZE)); // NON-NLS
+    assertNotEquals(
+        key.getFileName(Thumbnail.MAX_SIZE),
+        new Key("1.2.3", 1, Rendering.DEFAULT).getFileName(Thumbnail.MAX_SIZE)); // NON-NLS
+  }
+
+  @Test
+  void test_variant_size() {
+    assertEquals(64, ThumbnailStore.getVariantSize(10));
+    assertEquals(Thumbnail.DEFAULT_SIZE, ThumbnailStore.getVariantSize(Thumbnail.DEFAULT_SIZE));
+    assertEquals(Thumbnail.MAX_SIZE, ThumbnailStore.getVariantSize(Thumbnail.MAX_SIZE + 100));
+  }
+
+  @Test
+  void test_least_recently_used_files_are_evicted() throws IOException {
+    ThumbnailStore store = new ThumbnailStore(directory);
+    assertEquals(0, store.getSize());
+    String a = store(store, key("a"), 10); // NON-NLS
+    String b = store(store, key("b"), 10); // NON-NLS
+    String c = store(store, key("c"), 10); // NON-NLS
+    assertEquals(30, store.getSize());
+
+    // Reading "a" makes "b" the least recently used
+    assertEquals(directory.resolve(a).toFile(), store.find(key("a"), Thumbnail.MAX_SIZE));
+    store(store, key("d"), 10); // NON-NLS
+
+    assertEquals(30, store.getSize());
+    assertTrue(Files.exists(directory.resolve(a)));
+    assertFalse(Files.exists(directory.resolve(b)));
+    assertTrue(Files.exists(directory.resolve(c)));
+    assertNull(store.find(key("b"), Thumbnail.MAX_SIZE)); // NON-NLS
+  }
+
+  @Test
+  void test_new_file_larger_than_the_limit_is_kept() throws IOException {
+    ThumbnailStore store = new ThumbnailStore(directory);
+    store.getSize();
+    String a = store(store, key("a"), 10); // NON-NLS
+    String big = store(store, key("big"), 40); // NON-NLS
+
+    assertEquals(40, store.getSize());
+    assertFalse(Files.exists(directory.resolve(a)));
+    assertTrue(Files.exists(directory.resolve(big)));
+  }
+
+  @Test
+  void test_index_restores_the_access_order() throws IOException {
+    ThumbnailStore store = new ThumbnailStore(directory);
+    store.getSize();
+    String a = store(store, key("a"), 10); // NON-NLS
+    String b = store(store, key("b"), 10); // NON-NLS
+    store.find(key("a"), Thumbnail.MAX_SIZE); // NON-NLS
+    store.writeIndex();
+
+    // File written after the index and temporary file of an interrupted writing
+    String c = key("c").getFileName(Thumbnail.MAX_SIZE); // NON-NLS
+    Files.write(directory.resolve(c), new byte[5]);
+    Path tmp = Files.write(directory.resolve("thumb_123.tmp"), new byte[5]); // NON-NLS
+
+    ThumbnailStore restored = new ThumbnailStore(directory);
+    assertEquals(25, restored.getSize());
+    assertFalse(Files.exists(tmp));
+
+    // Order restored: c (not indexed), b, a. Adding 10 bytes evicts c then b.
+    store(restored, key("d"), 10); // NON-NLS
+    assertEquals(30, restored.getSize());
+    assertFalse(Files.exists(directory.resolve(c)));
+    assertTrue(Files.exists(directory.resolve(b)));
+    assertTrue(Files.exists(directory.resolve(a)));
+
+    store(restored, key("e"), 10); // NON-NLS
+    assertFalse(Files.exists(directory.resolve(b)));
+    assertTrue(Files.exists(directory.resolve(a)));
+  }
+}
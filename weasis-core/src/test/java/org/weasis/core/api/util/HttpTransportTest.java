@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.api.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.scribejava.core.httpclient.multipart.MultipartPayload;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.weasis.core.api.auth.BodySupplier;
+import org.weasis.core.api.auth.FileBodyPartPayload;
+import org.weasis.core.api.util.HttpTransport.NodeMetrics;
+import org.weasis.core.util.StreamIOException;
+
+/** Requests to a local server standing in for a DICOMweb node. */
+class HttpTransportTest {
+  private static final String CONTENT = "{\"00100020\":{\"vr\":\"LO\"}}"; // NON-NLS
+
+  private static final CountDownLatch STALLED = new CountDownLatch(1);
+
+  private static HttpServer server;
+  private static String baseUrl;
+
+  @BeforeAll
+  static void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0); // NON-NLS
+    server.createContext(
+        "/qido", // NON-NLS
+        exchange -> {
+          String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding"); // NON-NLS
+          byte[] body = CONTENT.getBytes(StandardCharsets.UTF_8);
+          if (encoding != null && encoding.contains("gzip")) { // NON-NLS
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+              gzip.write(body);
+            }
+            body = out.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip"); // NON-NLS
+          }
+          reply(exchange, 200, body);
+        });
+    server.createContext(
+        "/moved", // NON-NLS
+        exchange -> {
+          exchange.getResponseHeaders().set("Location", "/qido"); // NON-NLS
+          reply(exchange, 302, new byte[0]);
+        });
+    server.createContext(
+        "/missing", exchange -> reply(exchange, 404, new byte[0])); // NON-NLS
+    server.createContext(
+        "/stow", // NON-NLS
+        exchange -> {
+          byte[] body;
+          try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+          }
+          reply(exchange, 200, body);
+        });
+    server.createContext(
+        "/stalled", // NON-NLS
+        exchange -> {
+          exchange.sendResponseHeaders(200, 100);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(new byte[10]);
+            out.flush();
+            // Send the rest of the body only when the test is finished
+            STALLED.await(10, TimeUnit.SECONDS);
+            out.write(new byte[90]);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort(); // NON-NLS
+  }
+
+  @AfterAll
+  static void stopServer() {
+    STALLED.countDown();
+    server.stop(0);
+  }
+
+  private static void reply(HttpExchange exchange, int code, byte[] body) throws IOException {
+    exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static String read(HttpResponse response) throws IOException {
+    try (InputStream in = response.getInputStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  void getDecodesGzip() throws IOException {
+    HttpTransport transport = HttpTransport.getInstance();
+    try (HttpStreamResponse response = transport.get(baseUrl + "/qido", new URLParameters())) {
+      assertEquals(200, response.getResponseCode());
+      assertEquals(CONTENT, read(response));
+      assertNull(response.getHeaderField("Content-Encoding")); // NON-NLS
+      assertFalse(response.getHeaders().containsKey("content-encoding")); // NON-NLS
+    }
+    NodeMetrics metrics = transport.getMetrics(baseUrl + "/other"); // NON-NLS
+    assertNotNull(metrics);
+    assertTrue(metrics.requests() >= 1);
+    assertTrue(metrics.bytesReceived() > 0);
+  }
+
+  @Test
+  void getFollowsRedirection() throws IOException {
+    try (HttpStreamResponse response =
+        HttpTransport.getInstance().get(baseUrl + "/moved", new URLParameters())) {
+      assertEquals(CONTENT, read(response));
+      assertTrue(response.getUri().getPath().endsWith("/qido")); // NON-NLS
+    }
+  }
+
+  @Test
+  void getRejectedRequest() {
+    HttpTransport transport = HttpTransport.getInstance();
+    assertThrows(
+        StreamIOException.class, () -> transport.get(baseUrl + "/missing", new URLParameters()));
+    assertTrue(transport.getMetrics(baseUrl).failures() >= 1);
+  }
+
+  @Test
+  void postMultipart() throws IOException {
+    byte[] part = "DICM".getBytes(StandardCharsets.US_ASCII); // NON-NLS
+    MultipartPayload payload = new MultipartPayload("test-boundary", Map.of()); // NON-NLS
+    payload.addBodyPart(
+        new FileBodyPartPayload(
+            "application/dicom", // NON-NLS
+            new BodySupplier<>() {
+              @Override
+              public InputStream get() {
+                return new ByteArrayInputStream(part);
+              }
+
+              @Override
+              public long length() {
+                return part.length;
+              }
+            },
+            null));
+
+    try (HttpStreamResponse response =
+        HttpTransport.getInstance().post(baseUrl + "/stow", new URLParameters(), payload)) {
+      assertEquals(200, response.getResponseCode());
+      String body = read(response);
+      assertTrue(body.contains("--test-boundary")); // NON-NLS
+      assertTrue(body.contains("DICM")); // NON-NLS
+      assertTrue(body.endsWith("--test-boundary--")); // NON-NLS
+    }
+  }
+
+  @Test
+  void readTimeoutOnStalledBody() throws IOException {
+    URLParameters params = new URLParameters(Map.of(), 5000, 300);
+    try (HttpStreamResponse response =
+        HttpTransport.getInstance().get(baseUrl + "/stalled", params)) { // NON-NLS
+      InputStream in = response.getInputStream();
+      assertEquals(10, in.readNBytes(10).length);
+      long start = System.nanoTime();
+      assertThrows(HttpTimeoutException.class, in::read);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+    } finally {
+      STALLED.countDown();
+    }
+  }
+
+  @Test
+  void connectTimeoutOfParameters() throws IOException {
+    HttpTransport transport = HttpTransport.getInstance();
+    String url = baseUrl + "/qido"; // NON-NLS
+    try (HttpStreamResponse response = transport.get(url, new URLParameters(Map.of(), 1000, 0))) {
+      assertEquals(CONTENT, read(response));
+    }
+    long requests = transport.getMetrics(url).requests();
+    try (HttpStreamResponse response = transport.get(url, new URLParameters(Map.of(), 2000, 0))) {
+      assertEquals(CONTENT, read(response));
+    }
+    // The clients with different timeouts share the counters of the node
+    assertEquals(requests + 1, transport.getMetrics(url).requests());
+  }
+
+  @Test
+  void onlyHttpUrls() {
+    assertNotNull(HttpTransport.getHttpUri("https://dicomweb.org/rs/studies")); // NON-NLS
+    assertNull(HttpTransport.getHttpUri("file:/tmp/image.dcm")); // NON-NLS
+    assertNull(HttpTransport.getHttpUri("not a url")); // NON-NLS
+    assertNull(HttpTransport.getHttpUri(null));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.core.ui.model.layer.imp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import org.junit.jupiter.api.Test;
+import org.weasis.core.ui.model.layer.imp.ViewportRenderer.Viewport;
+
+class ViewportRendererTest {
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void test_zoom_out_reduces_the_image() {
+    AffineTransform transform = AffineTransform.getScaleInstance(0.25, 0.25);
+    Viewport viewport =
+        ViewportRenderer.getViewport(transform, new Rectangle2D.Double(0, 0, 500, 250), 2000, 1000);
+
+    assertNotNull(viewport);
+    assertEquals(new Rectangle(0, 0, 2000, 1000), viewport.area());
+    assertEquals(new Dimension(500, 250), viewport.size());
+    assertEquals(1.0, viewport.transform().getScaleX(), EPSILON);
+    assertEquals(1.0, viewport.transform().getScaleY(), EPSILON);
+    assertSampledPixelsAligned(transform, viewport);
+    // The source transform is not modified
+    assertEquals(0.25, transform.getScaleX(), EPSILON);
+  }
+
+  @Test
+  void test_sampled_pixels_are_aligned_with_the_transform() {
+    // Odd, even and non-integer reduction ratios in a cropped region
+    for (double scale : new double[] {1.0 / 3.0, 0.25, 0.3}) {
+      AffineTransform transform = new AffineTransform(scale, 0.0, 0.0, scale, -20.0, -10.0);
+      Viewport viewport =
+          ViewportRenderer.getViewport(
+              transform, new Rectangle2D.Double(0, 0, 200, 150), 3000, 3000);
+      assertNotNull(viewport);
+      assertSampledPixelsAligned(transform, viewport);
+    }
+  }
+
+  /**
+   * Checks that the source pixel sampled for each reduced pixel by the nearest neighbor resizing
+   * of OpenCV (INTER_NEAREST_EXACT samples the center of the reduced pixel) is the source pixel
+   * mapped by the transform of the viewport. The pixel centers are at the integer coordinates.
+   */
+  private static void assertSampledPixelsAligned(AffineTransform transform, Viewport viewport) {
+    Rectangle area = viewport.area();
+    double rx = area.width / (double) viewport.size().width;
+    double ry = area.height / (double) viewport.size().height;
+    for (int i = 0; i < viewport.size().width; i += 7) {
+      for (int j = 0; j < viewport.size().height; j += 7) {
+        int sampledX = area.x + (int) Math.floor((i + 0.5) * rx);
+        int sampledY = area.y + (int) Math.floor((j + 0.5) * ry);
+        Point2D dst = viewport.transform().transform(new Point2D.Double(i, j), null);
+        Point2D src;
+        try {
+          src = transform.inverseTransform(dst, null);
+        } catch (NoninvertibleTransformException e) {
+          throw new AssertionError(e);
+        }
+        assertEquals(sampledX, src.getX(), 0.5 + EPSILON);
+        assertEquals(sampledY, src.getY(), 0.5 + EPSILON);
+      }
+    }
+  }
+
+  @Test
+  void test_zoom_in_crops_the_visible_region() {
+    AffineTransform transform = new AffineTransform(2.0, 0.0, 0.0, 2.0, -200.0, -100.0);
+    Viewport viewport =
+        ViewportRenderer.getViewport(transform, new Rectangle2D.Double(0, 0, 400, 300), 1000, 1000);
+
+    assertNotNull(viewport);
+    // Visible region (100, 50) to (300, 200) with a margin of 4 pixels
+    assertEquals(new Rectangle(96, 46, 208, 158), viewport.area());
+    assertEquals(new Dimension(208, 158), viewport.size());
+    // A pixel of the region is drawn at the same place as in the whole image
+    Point2D expected = transform.transform(new Point2D.Double(150, 120), null);
+    Point2D actual = viewport.transform().transform(new Point2D.Double(150 - 96, 120 - 46), null);
+    assertEquals(expected.getX(), actual.getX(), EPSILON);
+    assertEquals(expected.getY(), actual.getY(), EPSILON);
+  }
+
+  @Test
+  void test_rotation_keeps_the_bounds_of_the_visible_region() {
+    AffineTransform transform = AffineTransform.getQuadrantRotateInstance(1);
+    transform.preConcatenate(AffineTransform.getTranslateInstance(100, 0));
+    transform.concatenate(AffineTransform.getScaleInstance(0.5, 0.5));
+    Viewport viewport =
+        ViewportRenderer.getViewport(transform, new Rectangle2D.Double(0, 0, 100, 100), 400, 400);
+
+    assertNotNull(viewport);
+    assertEquals(new Rectangle(0, 0, 204, 204), viewport.area());
+    assertEquals(new Dimension(102, 102), viewport.size());
+  }
+
+  @Test
+  void test_no_viewport_without_gain() {
+    Rectangle2D bound = new Rectangle2D.Double(0, 0, 512, 512);
+    assertNull(ViewportRenderer.getViewport(new AffineTransform(), bound, 512, 512));
+    // Outside the image
+    assertNull(
+        ViewportRenderer.getViewport(
+            AffineTransform.getTranslateInstance(-2000, 0), bound, 512, 512));
+    // Not invertible
+    assertNull(
+        ViewportRenderer.getViewport(AffineTransform.getScaleInstance(0, 1), bound, 512, 512));
+  }
+}
@@ -139,13 +139,31 @@ protected List<DicomImageElement> adjustSliceList(List<DicomImageElement> inputL
   }
 
   public PlanarImage getModalityLutImage(DicomImageElement image) {
+    return getModalityLutImage(image, null);
+  }
+
+  /**
+   * @param image the image of the volume
+   * @param source the decoded image, or null for getting it from the image
+   * @return the image after the modality LUT, resized to the size of the texture
+   */
+  public PlanarImage getModalityLutImage(DicomImageElement image, PlanarImage source) {
     PlanarImage output = null;
     if (image != null) {
-      output = image.getModalityLutImage(null, null);
+      output =
+          source == null
+              ? image.getModalityLutImage(null, null)
+              : image.applyModalityLut(source, null);
+      if (output == null) {
+        return null;
+      }
       if (manager != null) {
-        manager.setFirstNode(output);
-        output = manager.process();
-        manager.clearNodeIOCache();
+        // The slices of the volume can be built concurrently
+        synchronized (manager) {
+          manager.setFirstNode(output);
+          output = manager.process();
+          manager.clearNodeIOCache();
+        }
       } else {
         if (width != output.width() || height != output.height()) {
           output = ImageCV.toImageCV(output.toMat().submat(new Rect(0, 0, width, height)));
@@ -16,10 +16,8 @@
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
-import java.util.List;
 import java.util.Objects;
 import org.opencv.core.CvType;
-import org.opencv.core.Mat;
 import org.weasis.opencv.data.PlanarImage;
 
 public record TextureSliceDataBuffer(Buffer buffer, Arena scope) {
@@ -77,56 +75,4 @@ public static TextureSliceDataBuffer toImageData(PlanarImage image) {
       throw new IllegalArgumentException("Not supported dataType for LUT transformation:" + image);
     }
   }
-
-  public static TextureSliceDataBuffer toImageData(List<Mat> slices) {
-    if (slices.isEmpty()) {
-      throw new IllegalStateException("Cannot process when no slice!");
-    }
-    Mat image = slices.getFirst();
-    int channels = CvType.channels(image.type());
-    int cvType = CvType.depth(image.type());
-    long depth = slices.size();
-    int size = image.height() * image.width();
-
-    if (cvType == CvType.CV_8U) {
-      byte[] bSrcData = new byte[size * channels];
-      Arena arena = Arena.ofShared();
-      MemorySegment bufferSegment = arena.allocate(bSrcData.length * depth);
-      ByteBuffer buf = bufferSegment.asByteBuffer().order(ByteOrder.nativeOrder());
-
-      for (Mat slice : slices) {
-        slice.get(0, 0, bSrcData);
-        buf.put(bSrcData);
-      }
-      buf.rewind();
-      return new TextureSliceDataBuffer(buf, arena);
-    } else if (cvType == CvType.CV_16U || cvType == CvType.CV_16S) {
-      short[] sSrcData = new short[size * channels];
-      Arena arena = Arena.ofShared();
-      MemorySegment bufferSegment = arena.allocate(sSrcData.length * depth * 2L);
-      ShortBuffer buf = bufferSegment.asByteBuffer().order(ByteOrder.nativeOrder()).asShortBuffer();
-
-      for (Mat slice : slices) {
-        slice.get(0, 0, sSrcData);
-        buf.put(sSrcData);
-      }
-      buf.rewind();
-
-      return new TextureSliceDataBuffer(buf, arena);
-    } else if (cvType == CvType.CV_32F) {
-      float[] fSrcData = new float[size * channels];
-      Arena arena = Arena.ofShared();
-      MemorySegment bufferSegment = arena.allocate(fSrcData.length * depth * 4L);
-      FloatBuffer buf = bufferSegment.asByteBuffer().order(ByteOrder.nativeOrder()).asFloatBuffer();
-      for (Mat slice : slices) {
-        slice.get(0, 0, fSrcData);
-        buf.put(fSrcData);
-      }
-      buf.rewind();
-
-      return new TextureSliceDataBuffer(buf, arena);
-    } else {
-      throw new IllegalArgumentException("Not supported dataType for LUT transformation:" + image);
-    }
-  }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.viewer3d.vr;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.weasis.dicom.viewer3d.vr.TextureData.PixelFormat;
+
+/**
+ * Native buffer of a stack of slices, filled before being uploaded to a 3D texture. The slices are
+ * written directly from the memory of the {@link Mat} at their offset in the buffer, including the
+ * conversions required by OpenGL (signed to unsigned short, BGR to RGB), so several threads can
+ * fill the buffer concurrently without intermediate Java arrays.
+ *
+ * <p>This class does not require an OpenGL context.
+ */
+public final class TextureStaging implements AutoCloseable {
+
+  private final int width;
+  private final int height;
+  private final int depth;
+  private final int cvType;
+  private final long sliceBytes;
+  private final Arena arena;
+  private final MemorySegment segment;
+
+  /**
+   * @param width the width of the slices
+   * @param height the height of the slices
+   * @param cvType the OpenCV type of the data of the texture
+   * @param depth the maximum number of slices
+   */
+  public TextureStaging(int width, int height, int cvType, int depth) {
+    if (width <= 0 || height <= 0 || depth <= 0) {
+      throw new IllegalArgumentException("Invalid staging size");
+    }
+    this.width = width;
+    this.height = height;
+    this.depth = depth;
+    this.cvType = cvType;
+    this.sliceBytes = (long) width * height * CvType.ELEM_SIZE(cvType);
+    // Allow to be filled and closed by other threads
+    this.arena = Arena.ofShared();
+    this.segment = arena.allocate(sliceBytes * depth, 8);
+  }
+
+  /**
+   * @param sliceBytes the size of a slice in bytes
+   * @param nbSlices the number of slices of the volume
+   * @param maxMemory the maximum size of a chunk in bytes
+   * @return the number of slices of a chunk, at least one
+   */
+  static int getChunkSize(long sliceBytes, int nbSlices, long maxMemory) {
+    long max = Math.min(maxMemory, Integer.MAX_VALUE);
+    return (int) Math.max(1, Math.min(nbSlices, max / Math.max(1, sliceBytes)));
+  }
+
+  public static int getCvType(PixelFormat pixelFormat) {
+    return switch (pixelFormat) {
+      case BYTE -> CvType.CV_8UC1;
+      case UNSIGNED_SHORT, SIGNED_SHORT -> CvType.CV_16UC1;
+      case FLOAT -> CvType.CV_32FC1;
+      case RGB8 -> CvType.CV_8UC3;
+      case RGBA8 -> CvType.CV_8UC4;
+      case RGBA32F -> CvType.CV_32FC4;
+    };
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public long getSliceBytes() {
+    return sliceBytes;
+  }
+
+  public int getCvType() {
+    return cvType;
+  }
+
+  /**
+   * Writes a slice at its index. This method can be called concurrently for different indexes.
+   *
+   * @param index the index of the slice in the buffer
+   * @param slice the slice, with the same size and number of channels as the texture
+   */
+  public void stage(int index, Mat slice) {
+    Objects.checkIndex(index, depth);
+    int channels = CvType.channels(cvType);
+    if (slice.width() != width || slice.height() != height || slice.channels() != channels) {
+      throw new IllegalArgumentException("The slice does not match the texture: " + slice);
+    }
+    ByteBuffer data = segment.asSlice(index * sliceBytes, sliceBytes).asByteBuffer();
+    // Header of the native memory of the slice (the data are not owned by the Mat)
+    Mat dst = new Mat(height, width, cvType, data);
+    try {
+      int srcDepth = CvType.depth(slice.type());
+      int dstDepth = CvType.depth(cvType);
+      if (srcDepth == CvType.CV_16S && dstDepth == CvType.CV_16U) {
+        // glTexSubImage3D doesn't support signed short, the values are shifted back in the shader
+        slice.convertTo(dst, cvType, 1.0, 32768);
+      } else if (srcDepth == CvType.CV_8U && dstDepth == CvType.CV_8U && channels > 1) {
+        Imgproc.cvtColor(
+            slice, dst, channels == 4 ? Imgproc.COLOR_BGRA2RGBA : Imgproc.COLOR_BGR2RGB);
+      } else if (slice.type() == cvType) {
+        slice.copyTo(dst);
+      } else {
+        slice.convertTo(dst, cvType);
+      }
+    } finally {
+      dst.release();
+    }
+  }
+
+  /**
+   * @param count the number of slices from the beginning of the buffer
+   * @return the data of the slices, in native order, for uploading to OpenGL
+   */
+  public Buffer getBuffer(int count) {
+    if (count < 0 || count > depth) {
+      throw new IndexOutOfBoundsException(count);
+    }
+    ByteBuffer buf = segment.asSlice(0, sliceBytes * count).asByteBuffer();
+    buf.order(ByteOrder.nativeOrder());
+    return switch (CvType.depth(cvType)) {
+      case CvType.CV_16U, CvType.CV_16S -> buf.asShortBuffer();
+      case CvType.CV_32F -> buf.asFloatBuffer();
+      default -> buf;
+    };
+  }
+
+  /** Reads back a slice, mainly for checking the content of the buffer. */
+  public Mat getSlice(int index) {
+    Objects.checkIndex(index, depth);
+    ByteBuffer data = segment.asSlice(index * sliceBytes, sliceBytes).asByteBuffer();
+    Mat header = new Mat(height, width, cvType, data);
+    Mat copy = header.clone();
+    header.release();
+    return copy;
+  }
+
+  /** Frees the native memory. No slice can be written or uploaded after closing. */
+  @Override
+  public void close() {
+    arena.close();
+  }
+
+  /**
+   * Two staging buffers used alternately by the chunks of a volume: a chunk is uploaded to OpenGL
+   * while the next one is written into the other buffer.
+   */
+  static final class DoubleBuffer implements AutoCloseable {
+    private final TextureStaging[] stagings = new TextureStaging[2];
+    private final int width;
+    private final int height;
+    private final int cvType;
+    private final int chunkSize;
+
+    DoubleBuffer(int width, int height, int cvType, int chunkSize) {
+      this.width = width;
+      this.height = height;
+      this.cvType = cvType;
+      this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param chunkIndex the index of the chunk in the volume
+     * @return the staging buffer of the chunk, allocated when first used
+     */
+    TextureStaging get(int chunkIndex) {
+      int k = chunkIndex % stagings.length;
+      if (stagings[k] == null) {
+        stagings[k] = new TextureStaging(width, height, cvType, chunkSize);
+      }
+      return stagings[k];
+    }
+
+    @Override
+    public void close() {
+      for (int i = 0; i < stagings.length; i++) {
+        if (stagings[i] != null) {
+          stagings[i].close();
+          stagings[i] = null;
+        }
+      }
+    }
+  }
+}
@@ -14,6 +14,7 @@
 import com.jogamp.opengl.GLContext;
 import com.jogamp.opengl.util.GLPixelStorageModes;
 import java.awt.Dimension;
+import java.nio.Buffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -21,10 +22,13 @@
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.swing.JProgressBar;
 import jogamp.opengl.glu.error.Error;
 import org.dcm4che3.data.Tag;
-import org.dcm4che3.img.DicomImageUtils;
 import org.joml.Vector3d;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
@@ -34,10 +38,12 @@
 import org.weasis.core.api.gui.util.GuiExecutor;
 import org.weasis.core.api.gui.util.GuiUtils;
 import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.editor.image.ViewCanvas;
 import org.weasis.core.ui.model.graphic.imp.seg.SegContour;
 import org.weasis.core.ui.model.graphic.imp.seg.SegGraphic;
 import org.weasis.dicom.codec.*;
+import org.weasis.dicom.viewer2d.mpr.VolumeCache;
 import org.weasis.dicom.viewer3d.ActionVol;
 import org.weasis.dicom.viewer3d.EventManager;
 import org.weasis.dicom.viewer3d.dockable.SegmentationTool.Type;
@@ -60,24 +66,6 @@ public VolumeBuilder(DicomVolTexture volTexture) {
     this.hasError = false;
   }
 
-  public static PlanarImage getSuitableImage(PlanarImage img) {
-    int channels = CvType.channels(img.type());
-    int type = CvType.depth(img.type());
-    PlanarImage unsignedImage;
-    if (type == CvType.CV_8U && channels > 1) {
-      unsignedImage = DicomImageUtils.bgr2rgb(img);
-    } else if (type == CvType.CV_16S) {
-      ImageCV dstImg = new ImageCV();
-      // Fix issue: glTexSubImage3D doesn't support signed short.
-      // So it is set as unsigned short and shift later in shader
-      img.toImageCV().convertTo(dstImg, CvType.CV_16UC(img.channels()), 1.0, 32768);
-      unsignedImage = dstImg;
-    } else {
-      unsignedImage = img;
-    }
-    return unsignedImage;
-  }
-
   public DicomVolTexture getVolTexture() {
     return volTexture;
   }
@@ -120,7 +108,44 @@ public void reset() {
     completed = false;
   }
 
+  /** Slices of the volume built concurrently into a staging buffer before the upload. */
+  private static final class Chunk {
+    private final int offset;
+    private final int size;
+    private final TextureStaging staging;
+    private final List<Future<int[]>> futures = new ArrayList<>();
+    private final CountDownLatch done;
+    private volatile boolean cancelled;
+
+    Chunk(int offset, int size, TextureStaging staging) {
+      this.offset = offset;
+      this.size = size;
+      this.staging = staging;
+      this.done = new CountDownLatch(size);
+    }
+
+    /** Stops the building and waits for the tasks writing into the staging buffer. */
+    void cancel() {
+      // The tasks not started return immediately, the running ones finish their native copy
+      cancelled = true;
+      boolean interrupted = false;
+      while (done.getCount() > 0) {
+        try {
+          done.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   private static class TextureLoader extends Thread {
+    private static final ExecutorService SLICE_BUILDER =
+        ThreadUtil.newManagedImageProcessingThreadPool("Texture Slice Builder");
+
     private final VolumeBuilder volumeBuilder;
 
     public TextureLoader(VolumeBuilder volumeBuilder) {
@@ -128,8 +153,8 @@ public TextureLoader(VolumeBuilder volumeBuilder) {
       this.volumeBuilder = volumeBuilder;
     }
 
-    public void publishVolumeInOpenGL(List<Mat> slices, int offset) {
-      if (!slices.isEmpty()) {
+    public void publishVolumeInOpenGL(TextureStaging staging, int nbSlices, int offset) {
+      if (nbSlices > 0) {
         GLContext glContext = OpenglUtils.getDefaultGlContext();
         glContext.makeCurrent();
         GL4 gl4 = glContext.getGL().getGL4();
@@ -137,8 +162,7 @@ public void publishVolumeInOpenGL(List<Mat> slices, int offset) {
         GLPixelStorageModes storageModes = new GLPixelStorageModes();
         storageModes.setPackAlignment(gl4, 1); // buffer has not ending row space
 
-        TextureSliceDataBuffer textureSliceData = setTexImage3DBuffer(gl4, slices, offset);
-        textureSliceData.releaseMemory();
+        setTexImage3DBuffer(gl4, staging.getBuffer(nbSlices), nbSlices, offset);
 
         storageModes.restore(gl4);
         gl4.glFinish();
@@ -146,9 +170,8 @@ public void publishVolumeInOpenGL(List<Mat> slices, int offset) {
       }
     }
 
-    private TextureSliceDataBuffer setTexImage3DBuffer(GL4 gl4, List<Mat> slices, int offset) {
+    private void setTexImage3DBuffer(GL4 gl4, Buffer buffer, int nbSlices, int offset) {
       DicomVolTexture volTexture = volumeBuilder.volTexture;
-      TextureSliceDataBuffer textureSliceData = TextureSliceDataBuffer.toImageData(slices);
       if (volTexture.getId() <= 0) {
         volTexture.init(gl4);
       }
@@ -161,10 +184,10 @@ private TextureSliceDataBuffer setTexImage3DBuffer(GL4 gl4, List<Mat> slices, in
           offset,
           volTexture.getWidth(),
           volTexture.getHeight(),
-          slices.size(),
+          nbSlices,
           volTexture.getFormat(),
           volTexture.getType(),
-          textureSliceData.buffer());
+          buffer);
       int error;
       if ((error = gl4.glGetError()) != 0) {
         LOGGER.error(
@@ -174,7 +197,6 @@ private TextureSliceDataBuffer setTexImage3DBuffer(GL4 gl4, List<Mat> slices, in
         volumeBuilder.hasError = true;
         volumeBuilder.stop();
       }
-      return textureSliceData;
     }
 
     @Override
@@ -208,40 +230,80 @@ public void run() {
         bar = null;
       }
 
-      int sliceOffset = 0;
-      long maxMemory = Runtime.getRuntime().maxMemory() / 3;
-      long sumMemory = 0L;
-
-      ArrayList<Mat> slices = new ArrayList<>(size);
-
       Instant timeStarted = Instant.now();
-      double lastPos = 0;
-
       List<DicomImageElement> list = volTexture.getVolumeImages();
-      for (int i = 0; i < list.size(); i++) {
-        if (isInterrupted()) {
-          return;
+      setGeometry(list);
+
+      int cvType = TextureStaging.getCvType(volTexture.getPixelFormat());
+      long sliceBytes =
+          (long) volTexture.getWidth() * volTexture.getHeight() * CvType.ELEM_SIZE(cvType);
+      // Two staging buffers: one is uploaded while the next one is built
+      long maxMemory = Runtime.getRuntime().maxMemory() / 6;
+      int chunkSize = TextureStaging.getChunkSize(sliceBytes, list.size(), maxMemory);
+      TextureStaging.DoubleBuffer stagings =
+          new TextureStaging.DoubleBuffer(
+              volTexture.getWidth(), volTexture.getHeight(), cvType, chunkSize);
+      Chunk current = null;
+      Chunk next = null;
+      try {
+        current = buildChunk(list, 0, stagings.get(0), segList, bar, view);
+        int k = 0;
+        while (current != null) {
+          int nextOffset = current.offset + current.size;
+          k++;
+          if (nextOffset < list.size()) {
+            next = buildChunk(list, nextOffset, stagings.get(k), segList, bar, view);
+          }
+          if (!waitForChunk(current)) {
+            return;
+          }
+          Instant start = Instant.now();
+          publishVolumeInOpenGL(current.staging, current.size, current.offset);
+          LOGGER.debug(
+              "Time to load volume ({} to {}) in OpenGL: {} ms",
+              current.offset,
+              nextOffset - 1,
+              Duration.between(start, Instant.now()).toMillis());
+          if (volumeBuilder.hasError) {
+            return;
+          }
+          if (next != null) {
+            volTexture.notifyPartiallyLoaded();
+          }
+          current = next;
+          next = null;
         }
-        DicomImageElement imageElement = list.get(i);
-        Instant start = Instant.now();
-
-        // Force to get min/max values.
-        if (!imageElement.isImageAvailable()) {
-          imageElement.getImage();
+      } catch (RuntimeException e) {
+        LOGGER.error("Building the 3D texture", e);
+        volumeBuilder.hasError = true;
+        return;
+      } finally {
+        if (current != null) {
+          current.cancel();
+        }
+        if (next != null) {
+          next.cancel();
         }
+        stagings.close();
+      }
 
-        int minValue = (int) imageElement.getMinValue(null);
-        int maxValue = (int) imageElement.getMaxValue(null);
+      LOGGER.info(
+          "Loading 3D texture time: {} ms",
+          Duration.between(timeStarted, Instant.now()).toMillis());
+      volumeBuilder.completed = true;
 
-        int minInValue = Math.min(maxValue, minValue);
-        int maxInValue = Math.max(maxValue, minValue);
-        if (minInValue < volTexture.getLevelMin()) {
-          volTexture.setLevelMin(minInValue);
-        }
-        if (maxInValue > volTexture.getLevelMax()) {
-          volTexture.setLevelMax(maxInValue);
-        }
+      if (view instanceof View3d view3d) {
+        view3d.setProgressBar(null);
+        volTexture.notifyFullyLoaded();
+      }
+    }
 
+    /** Sets the spacing and the orientation of the volume from the attributes of the slices. */
+    private void setGeometry(List<DicomImageElement> list) {
+      DicomVolTexture volTexture = volumeBuilder.volTexture;
+      double lastPos = 0;
+      for (int i = 0; i < list.size(); i++) {
+        DicomImageElement imageElement = list.get(i);
         double[] sp = (double[]) imageElement.getTagValue(TagW.SlicePosition);
         if (sp != null) {
           Vector3d scale = volTexture.getScale();
@@ -267,101 +329,146 @@ public void run() {
           volTexture.setPixelSpacingUnit(imageElement.getPixelSpacingUnit());
           volTexture.getVolumeGeometry().setOrientationPatient(or);
         }
+      }
+    }
 
-        LOGGER.debug(
-            "Time preparation of {}: {} ms", i, Duration.between(start, Instant.now()).toMillis());
+    private Chunk buildChunk(
+        List<DicomImageElement> list,
+        int offset,
+        TextureStaging staging,
+        List<SpecialElementRegion> segList,
+        JProgressBar bar,
+        ViewCanvas<DicomImageElement> view) {
+      int size = Math.min(staging.getDepth(), list.size() - offset);
+      Chunk chunk = new Chunk(offset, size, staging);
+      for (int i = 0; i < size; i++) {
+        DicomImageElement imageElement = list.get(offset + i);
+        int sliceIndex = i;
+        chunk.futures.add(
+            SLICE_BUILDER.submit(
+                () -> {
+                  try {
+                    if (chunk.cancelled) {
+                      return null;
+                    }
+                    int[] minMax = buildSlice(imageElement, segList, chunk, sliceIndex);
+                    if (bar != null) {
+                      GuiExecutor.execute(
+                          () -> {
+                            bar.setValue(bar.getValue() + 1);
+                            view.getJComponent().repaint();
+                          });
+                    }
+                    return minMax;
+                  } finally {
+                    chunk.done.countDown();
+                  }
+                }));
+      }
+      return chunk;
+    }
 
-        PlanarImage imageMLUT;
+    /**
+     * Decodes the image, applies the modality LUT and writes the slice into the staging buffer.
+     *
+     * @return the min and max values of the image
+     */
+    private int[] buildSlice(
+        DicomImageElement imageElement,
+        List<SpecialElementRegion> segList,
+        Chunk chunk,
+        int sliceIndex) {
+      DicomVolTexture volTexture = volumeBuilder.volTexture;
+      // Force to get min/max values.
+      if (!imageElement.isImageAvailable()) {
+        imageElement.getImage();
+      }
+      int minValue = (int) imageElement.getMinValue(null);
+      int maxValue = (int) imageElement.getMaxValue(null);
 
-        if (segList != null && !segList.isEmpty()) {
-          Mat mask = volTexture.getEmptyImage();
+      if (segList != null && !segList.isEmpty()) {
+        Mat mask = volTexture.getEmptyImage();
+        try {
           for (SpecialElementRegion seg : segList) {
             if (seg.isVisible() && seg.containsSopInstanceUIDReference(imageElement)) {
-              Set<LazyContourLoader> loaders = seg.getContours(imageElement);
-              if (loaders == null || loaders.isEmpty()) {
-                continue;
-              }
-              for (LazyContourLoader loader : loaders) {
-                Collection<SegContour> contours = loader.getLazyContours();
-                if (!contours.isEmpty()) {
-                  for (SegContour c : contours) {
-                    SegGraphic graphic = c.getSegGraphic();
-                    if (graphic != null) {
-                      List<MatOfPoint> pts =
-                          ImageProcessor.transformShapeToContour(graphic.getShape(), true);
-                      // TODO check the limit value
-                      int density = c.getAttributes().getId();
-                      Imgproc.fillPoly(mask, pts, new Scalar(density));
-                    }
-                  }
-                }
-              }
+              fillSegmentation(mask, seg.getContours(imageElement));
             }
           }
-          int nbPixels = Core.countNonZero(mask);
-          imageMLUT = ImageCV.toImageCV(mask);
-          //          PlanarImage src = volTexture.getModalityLutImage(imageElement);
-          //          imageMLUT = new ImageCV();
-          //          Core.bitwise_and(src.toImageCV(), mask, imageMLUT.toImageCV());
-        } else {
-          start = Instant.now();
-          imageMLUT = volTexture.getModalityLutImage(imageElement);
-          LOGGER.debug(
-              "Time to get Modality LUT image  {}: {} ms",
-              i,
-              Duration.between(start, Instant.now()).toMillis());
+          if (!chunk.cancelled) {
+            chunk.staging.stage(sliceIndex, mask);
+          }
+        } finally {
+          mask.release();
         }
+      } else {
+        // Read the image from an MPR volume of the series instead of decoding it again
+        ImageCV source = VolumeCache.getInstance().getSourceImage(imageElement);
+        PlanarImage imageMLUT = volTexture.getModalityLutImage(imageElement, source);
+        try {
+          if (imageMLUT != null && !chunk.cancelled) {
+            chunk.staging.stage(sliceIndex, imageMLUT.toMat());
+          }
+        } finally {
+          if (source != null) {
+            if (imageMLUT != null && imageMLUT != source) {
+              imageMLUT.release();
+            }
+            source.release();
+          }
+        }
+      }
+      return new int[] {Math.min(maxValue, minValue), Math.max(maxValue, minValue)};
+    }
 
-        start = Instant.now();
-        imageMLUT = getSuitableImage(imageMLUT);
-        LOGGER.debug(
-            "Time to get suitable image  {}: {} ms",
-            i,
-            Duration.between(start, Instant.now()).toMillis());
-
-        sumMemory += imageMLUT.physicalBytes();
-        if (sumMemory > maxMemory) {
-          start = Instant.now();
-          publishVolumeInOpenGL(slices, sliceOffset);
-          LOGGER.debug(
-              "Time to load volume ({} to {}) in OpenGL: {} ms",
-              sliceOffset,
-              sliceOffset + slices.size() - 1,
-              Duration.between(start, Instant.now()).toMillis());
-
-          sliceOffset += slices.size();
-          slices.clear();
-          sumMemory = imageMLUT.physicalBytes();
-
-          volTexture.notifyPartiallyLoaded();
+    private static void fillSegmentation(Mat mask, Set<LazyContourLoader> loaders) {
+      if (loaders == null || loaders.isEmpty()) {
+        return;
+      }
+      for (LazyContourLoader loader : loaders) {
+        Collection<SegContour> contours;
+        // The contours are loaded lazily and can be shared by several slices
+        synchronized (loader) {
+          contours = loader.getLazyContours();
         }
-        slices.add(imageMLUT.toMat());
-        if (bar != null) {
-          GuiExecutor.execute(
-              () -> {
-                bar.setValue(bar.getValue() + 1);
-                view.getJComponent().repaint();
-              });
+        for (SegContour c : contours) {
+          SegGraphic graphic = c.getSegGraphic();
+          if (graphic != null) {
+            List<MatOfPoint> pts = ImageProcessor.transformShapeToContour(graphic.getShape(), true);
+            // TODO check the limit value
+            int density = c.getAttributes().getId();
+            Imgproc.fillPoly(mask, pts, new Scalar(density));
+          }
         }
       }
+    }
 
-      Instant start = Instant.now();
-      publishVolumeInOpenGL(slices, sliceOffset);
-      LOGGER.debug(
-          "Time to load volume ({} to {}) in OpenGL: {} ms",
-          sliceOffset,
-          sliceOffset + slices.size() - 1,
-          Duration.between(start, Instant.now()).toMillis());
-
-      LOGGER.info(
-          "Loading 3D texture time: {} ms",
-          Duration.between(timeStarted, Instant.now()).toMillis());
-      volumeBuilder.completed = true;
-
-      if (view instanceof View3d view3d) {
-        view3d.setProgressBar(null);
-        volTexture.notifyFullyLoaded();
+    /**
+     * Waits for the slices of the chunk and updates the range of values of the volume.
+     *
+     * @return false if the building has been interrupted or has failed
+     */
+    private boolean waitForChunk(Chunk chunk) {
+      DicomVolTexture volTexture = volumeBuilder.volTexture;
+      try {
+        for (Future<int[]> future : chunk.futures) {
+          int[] minMax = future.get();
+          if (minMax != null) {
+            if (minMax[0] < volTexture.getLevelMin()) {
+              volTexture.setLevelMin(minMax[0]);
+            }
+            if (minMax[1] > volTexture.getLevelMax()) {
+              volTexture.setLevelMax(minMax[1]);
+            }
+          }
+        }
+        return !isInterrupted();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOGGER.error("Building the slices of the 3D texture", e.getCause());
+        volumeBuilder.hasError = true;
       }
+      return false;
     }
   }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.viewer3d.vr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.MockedConstruction;
+import org.mockito.Mockito;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.weasis.dicom.viewer3d.vr.TextureStaging.DoubleBuffer;
+
+class TextureStagingTest {
+
+  private static Mat slice(int width, int height, int type) {
+    Mat mat = Mockito.mock(Mat.class);
+    Mockito.when(mat.width()).thenReturn(width);
+    Mockito.when(mat.height()).thenReturn(height);
+    Mockito.when(mat.channels()).thenReturn(CvType.channels(type));
+    Mockito.when(mat.type()).thenReturn(type);
+    return mat;
+  }
+
+  @Test
+  void test_chunk_size() {
+    assertEquals(10, TextureStaging.getChunkSize(100, 10, 10_000));
+    assertEquals(4, TextureStaging.getChunkSize(100, 10, 450));
+    assertEquals(1, TextureStaging.getChunkSize(1000, 10, 10));
+
+    // A chunk must fit in a ByteBuffer
+    long sliceBytes = 512L * 512 * 4;
+    int chunkSize = TextureStaging.getChunkSize(sliceBytes, 100_000, Long.MAX_VALUE);
+    assertTrue(chunkSize * sliceBytes <= Integer.MAX_VALUE);
+  }
+
+  @Test
+  void test_double_buffer_alternates_the_stagings() {
+    DoubleBuffer buffers = new DoubleBuffer(4, 3, CvType.CV_16UC1, 5);
+    TextureStaging first = buffers.get(0);
+    TextureStaging second = buffers.get(1);
+    assertNotSame(first, second);
+    assertSame(first, buffers.get(2));
+    assertSame(second, buffers.get(3));
+    assertEquals(5, first.getDepth());
+    assertEquals(4 * 3 * 2, first.getSliceBytes());
+
+    buffers.close();
+    ShortBuffer closed = (ShortBuffer) first.getBuffer(1);
+    assertThrows(IllegalStateException.class, () -> closed.get(0));
+    // The stagings are allocated again after closing
+    assertNotSame(first, buffers.get(0));
+    buffers.close();
+  }
+
+  @Test
+  void test_buffer_type_and_size() {
+    try (TextureStaging staging = new TextureStaging(4, 3, CvType.CV_16UC1, 5)) {
+      assertEquals(4 * 3 * 2, ((ShortBuffer) staging.getBuffer(2)).capacity());
+      assertThrows(IndexOutOfBoundsException.class, () -> staging.getBuffer(6));
+    }
+    try (TextureStaging staging = new TextureStaging(4, 3, CvType.CV_32FC1, 2)) {
+      assertEquals(4 * 3 * 2, ((FloatBuffer) staging.getBuffer(2)).capacity());
+    }
+    try (TextureStaging staging = new TextureStaging(4, 3, CvType.CV_8UC3, 2)) {
+      assertEquals(4 * 3 * 3, ((ByteBuffer) staging.getBuffer(1)).capacity());
+    }
+  }
+
+  @Test
+  void test_slice_not_matching_the_texture() {
+    try (TextureStaging staging = new TextureStaging(4, 3, CvType.CV_16UC1, 2)) {
+      assertThrows(
+          IllegalArgumentException.class, () -> staging.stage(0, slice(3, 3, CvType.CV_16UC1)));
+      assertThrows(
+          IllegalArgumentException.class, () -> staging.stage(0, slice(4, 3, CvType.CV_16UC3)));
+      assertThrows(
+          IndexOutOfBoundsException.class, () -> staging.stage(2, slice(4, 3, CvType.CV_16UC1)));
+    }
+  }
+
+  @Test
+  void test_signed_short_slice_is_shifted() {
+    Mat slice = slice(4, 3, CvType.CV_16SC1);
+    try (TextureStaging staging = new TextureStaging(4, 3, CvType.CV_16UC1, 2);
+        MockedConstruction<Mat> headers = Mockito.mockConstruction(Mat.class)) {
+      staging.stage(1, slice);
+
+      assertEquals(1, headers.constructed().size());
+      Mat dst = headers.constructed().getFirst();
+      Mockito.verify(slice).convertTo(dst, CvType.CV_16UC1, 1.0, 32768);
+      Mockito.verify(dst).release();
+    }
+  }
+
+  @Test
+  void test_slices_are_written_at_their_offset() {
+    List<ByteBuffer> targets = new ArrayList<>();
+    try (TextureStaging staging = new TextureStaging(2, 2, CvType.CV_8UC1, 3);
+        MockedConstruction<Mat> headers =
+            Mockito.mockConstruction(
+                Mat.class, (_, context) -> targets.add((ByteBuffer) context.arguments().get(3)))) {
+      for (int i = 0; i < 3; i++) {
+        Mat slice = slice(2, 2, CvType.CV_8UC1);
+        byte value = (byte) (i + 1);
+        Mockito.doAnswer(
+                _ -> {
+                  ByteBuffer target = targets.getLast();
+                  while (target.hasRemaining()) {
+                    target.put(value);
+                  }
+                  return null;
+                })
+            .when(slice)
+            .copyTo(ArgumentMatchers.any(Mat.class));
+        staging.stage(i, slice);
+      }
+      assertEquals(3, headers.constructed().size());
+
+      ByteBuffer buf = (ByteBuffer) staging.getBuffer(3);
+      byte[] data = new byte[buf.capacity()];
+      buf.get(data);
+      assertArrayEquals(new byte[] {1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3}, data);
+    }
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+import org.dcm4che3.img.util.DicomUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.util.FileUtil;
+import org.weasis.core.util.StringUtil;
+import org.weasis.opencv.data.FileRawImage;
+import org.weasis.opencv.data.PlanarImage;
+
+/**
+ * Second-level cache of the decoded frames of compressed DICOM images. When an image is evicted
+ * from the memory cache, reading it again from the raw file avoids decoding the compressed
+ * transfer syntax (JPEG 2000, JPEG-LS, RLE...).
+ *
+ * <p>The files are keyed by the frame number and by the source of the frame (SOPInstanceUID,
+ * transfer syntax, size and modification date of the DICOM file), so a new version of an instance
+ * is decoded again. The least recently used files are deleted when the size of the cache exceeds
+ * the limit.
+ */
+public final class DecodedFrameCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DecodedFrameCache.class);
+
+  public static final String PREF_ENABLE = "weasis.dicom.decoded.cache"; // NON-NLS
+  public static final String PREF_MAX_SIZE = "weasis.dicom.decoded.cache.max.mb"; // NON-NLS
+
+  private static final String PREFIX = "dfc-"; // NON-NLS
+  private static final String EXTENSION = ".wcv"; // NON-NLS
+  private static final String TMP_EXTENSION = ".tmp"; // NON-NLS
+  // Only the files created by this cache are indexed and deleted
+  private static final Pattern FILE_PATTERN =
+      Pattern.compile(Pattern.quote(PREFIX) + "[0-9a-fA-F]+-\\d+" + Pattern.quote(EXTENSION));
+  private static final Pattern TMP_PATTERN =
+      Pattern.compile(Pattern.quote(PREFIX) + ".*" + Pattern.quote(TMP_EXTENSION));
+  private static final long DEFAULT_MAX_SIZE = 2048;
+
+  private static final DecodedFrameCache INSTANCE =
+      new DecodedFrameCache(DicomMediaIO.CACHE_UNCOMPRESSED_DIR.toPath());
+
+  private final Path directory;
+  // File name and file size, in access order. Guarded by this
+  private final Map<String, Long> files = new LinkedHashMap<>(256, 0.75f, true);
+  private long totalSize;
+  private boolean initialized;
+
+  /**
+   * Source of the decoded frames.
+   *
+   * @param sopUID the SOPInstanceUID of the image
+   * @param tsuid the transfer syntax of the image
+   * @param fileSize the size of the DICOM file
+   * @param lastModified the modification date of the DICOM file
+   */
+  public record FrameSource(String sopUID, String tsuid, long fileSize, long lastModified) {
+
+    public static FrameSource of(String sopUID, String tsuid, File file) {
+      return new FrameSource(sopUID, tsuid, file.length(), file.lastModified());
+    }
+
+    String getKey() {
+      String key = sopUID + "|" + tsuid + "|" + fileSize + "|" + lastModified;
+      return StringUtil.bytesToMD5(key.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private DecodedFrameCache(Path directory) {
+    this.directory = directory;
+  }
+
+  public static DecodedFrameCache getInstance() {
+    return INSTANCE;
+  }
+
+  public boolean isEnabled() {
+    return GuiUtils.getUICore().getSystemPreferences().getBooleanProperty(PREF_ENABLE, true);
+  }
+
+  public long getMaxSize() {
+    long max =
+        GuiUtils.getUICore()
+            .getSystemPreferences()
+            .getLongProperty(PREF_MAX_SIZE, DEFAULT_MAX_SIZE);
+    return Math.max(0, max) * 1024 * 1024;
+  }
+
+  /**
+   * @param sopUID the SOPInstanceUID of the image
+   * @param tsuid the transfer syntax of the image
+   * @return true if the decoded frames of the image can be stored in the cache
+   */
+  public boolean isCacheable(String sopUID, String tsuid) {
+    return StringUtil.hasText(sopUID)
+        && StringUtil.hasText(tsuid)
+        && !DicomUtils.isNative(tsuid)
+        && isEnabled();
+  }
+
+  /**
+   * Reads a decoded frame from the cache.
+   *
+   * @return the decoded image or null if the frame is not in the cache
+   */
+  public PlanarImage get(FrameSource source, int frame) {
+    String name = getFileName(source, frame);
+    synchronized (this) {
+      init();
+      if (files.get(name) == null) {
+        return null;
+      }
+    }
+    Path path = directory.resolve(name);
+    try {
+      PlanarImage img = new FileRawImage(path.toFile()).read();
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+      return img;
+    } catch (Exception e) {
+      LOGGER.warn("Cannot read the decoded frame {}", path, e);
+      remove(name);
+      return null;
+    }
+  }
+
+  /**
+   * Writes a decoded frame into the cache. The file is written in a temporary file and then moved,
+   * so a partial file cannot be read by another thread.
+   */
+  public void put(FrameSource source, int frame, PlanarImage img) {
+    long maxSize = getMaxSize();
+    if (img == null || maxSize <= 0) {
+      return;
+    }
+    String name = getFileName(source, frame);
+    synchronized (this) {
+      init();
+      if (files.containsKey(name)) {
+        return;
+      }
+    }
+    File tmpFile = null;
+    try {
+      tmpFile = File.createTempFile(PREFIX, TMP_EXTENSION, directory.toFile());
+      if (!new FileRawImage(tmpFile).write(img)) {
+        FileUtil.delete(tmpFile);
+        return;
+      }
+      Path path = directory.resolve(name);
+      Files.move(
+          tmpFile.toPath(),
+          path,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      add(name, Files.size(path), maxSize);
+    } catch (Exception e) {
+      LOGGER.warn("Cannot write the decoded frame {} of {}", frame, source.sopUID(), e);
+      if (tmpFile != null) {
+        FileUtil.delete(tmpFile);
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    for (String name : files.keySet()) {
+      FileUtil.delete(directory.resolve(name).toFile());
+    }
+    files.clear();
+    totalSize = 0;
+  }
+
+  public synchronized long getSize() {
+    return totalSize;
+  }
+
+  private synchronized void add(String name, long size, long maxSize) {
+    Long old = files.put(name, size);
+    totalSize += size - (old == null ? 0 : old);
+
+    Iterator<Entry<String, Long>> it = files.entrySet().iterator();
+    while (totalSize > maxSize && it.hasNext()) {
+      Entry<String, Long> eldest = it.next();
+      if (!eldest.getKey().equals(name)) {
+        FileUtil.delete(directory.resolve(eldest.getKey()).toFile());
+        totalSize -= eldest.getValue();
+        it.remove();
+      }
+    }
+  }
+
+  private synchronized void remove(String name) {
+    Long size = files.remove(name);
+    if (size != null) {
+      totalSize -= size;
+    }
+    FileUtil.delete(directory.resolve(name).toFile());
+  }
+
+  /** Restores the files of the previous sessions, the least recently used first. */
+  private void init() {
+    if (initialized) {
+      return;
+    }
+    initialized = true;
+    List<Path> list = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        if (FILE_PATTERN.matcher(name).matches()) {
+          list.add(path);
+        } else if (TMP_PATTERN.matcher(name).matches()) {
+          // Remove the temporary files of an interrupted writing
+          FileUtil.delete(path.toFile());
+        }
+      }
+      list.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+      for (Path path : list) {
+        long size = Files.size(path);
+        files.put(path.getFileName().toString(), size);
+        totalSize += size;
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Cannot read the decoded frame cache {}", directory, e);
+    }
+  }
+
+  static String getFileName(FrameSource source, int frame) {
+    return PREFIX + source.getKey() + "-" + frame + EXTENSION;
+  }
+}
@@ -195,8 +195,8 @@ private double[] getMagnifiedPixelSpacing(boolean useMagnificationFactor) {
         }
       }
       if (estimatedFactor != null && estimatedFactor > 0) {
-        val[0] = val[0] / estimatedFactor;
-        val[1] = val[1] / estimatedFactor;
+        // The value of the tag can be shared with the other images and must not be modified
+        val = new double[] {val[0] / estimatedFactor, val[1] / estimatedFactor};
         pixelSizeCalibrationDescription = "Magnified"; // NON-NLS
       }
     }
@@ -272,6 +272,15 @@ public DcmMediaReader getMediaReader() {
     return (DcmMediaReader) super.getMediaReader();
   }
 
+  @Override
+  public void dispose() {
+    // The file is released, close the readers even when other frames are still in the cache
+    if (mediaIO instanceof DicomMediaIO dicomReader) {
+      dicomReader.releaseFrameReaders();
+    }
+    super.dispose();
+  }
+
   @Override
   public Number pixelToRealValue(Number pixelValue, WlPresentation wlp) {
     if (pixelValue != null && isImageInitialized()) {
@@ -306,6 +315,18 @@ public PlanarImage getModalityLutImage(OpManager manager, DicomImageReadParam pa
     return ImageRendering.getModalityLutImage(image, adapter, params);
   }
 
+  /**
+   * @param image a decoded image of this element, e.g. read from a volume
+   * @param params the read parameters, can be null
+   * @return the image after the modality pixel transformation
+   */
+  public PlanarImage applyModalityLut(PlanarImage image, DicomImageReadParam params) {
+    if (image == null || !isImageInitialized()) {
+      return null;
+    }
+    return ImageRendering.getModalityLutImage(image, adapter, params);
+  }
+
   public LutParameters getModalityLutParameters(
       boolean pixelPadding, LookupTableCV mLUTSeq, boolean inversePaddingMLUT, PrDicomObject pr) {
     if (isImageInitialized()) {
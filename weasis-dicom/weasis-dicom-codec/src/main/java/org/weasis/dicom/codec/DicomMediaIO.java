@@ -17,13 +17,15 @@
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -33,7 +35,6 @@
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
 import org.dcm4che3.data.VR;
-import org.dcm4che3.img.DicomImageReadParam;
 import org.dcm4che3.img.DicomImageReader;
 import org.dcm4che3.img.DicomMetaData;
 import org.dcm4che3.img.ImageRendering;
@@ -54,6 +55,7 @@
 import org.weasis.core.api.media.data.FileCache;
 import org.weasis.core.api.media.data.MediaElement;
 import org.weasis.core.api.media.data.SimpleTaggable;
+import org.weasis.core.api.media.data.TagMap;
 import org.weasis.core.api.media.data.TagView;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.service.BundleTools;
@@ -298,17 +300,18 @@ public void removeElement(Reference<? extends DicomMetaData> soft) {
 
   private URI uri;
   private int numberOfFrame;
-  private final Map<TagW, Object> tags;
+  private final TagMap tags;
   private DicomImageElement[] image = null;
   private String mimeType;
   private boolean hasPixel = false;
+  private FrameReaderPool framePool;
 
   private final FileCache fileCache;
 
   public DicomMediaIO(URI uri) {
     this.uri = Objects.requireNonNull(uri);
     this.numberOfFrame = 0;
-    this.tags = new HashMap<>();
+    this.tags = new TagMap();
     this.mimeType = DICOM_MIMETYPE;
     this.fileCache = new FileCache(this);
   }
@@ -321,6 +324,18 @@ public DicomMediaIO(Path path) {
     this(Objects.requireNonNull(path).toUri());
   }
 
+  /**
+   * @param source the DICOM file
+   * @param metaData the header of the file when it has already been read, e.g. while the file was
+   *     written, or null to read it from the file
+   */
+  public DicomMediaIO(File source, DicomMetaData metaData) {
+    this(source);
+    if (metaData != null) {
+      setMetaData(metaData);
+    }
+  }
+
   public DicomMediaIO(Attributes dcmItems) throws URISyntaxException {
     this(
         new URI(
@@ -657,28 +672,33 @@ public PlanarImage getImageFragment(MediaElement media, int frame, boolean noEmb
       FileCache cache = media.getFileCache();
       Optional<File> original = cache.getOriginalFile();
       if (original.isPresent()) {
-        LOGGER.debug(
-            "Start reading dicom image frame: {} sopUID: {}",
-            frame,
-            TagD.getTagValue(this, Tag.SOPInstanceUID));
-        DicomImageReader reader = new DicomImageReader(Transcoder.dicomImageReaderSpi);
-        try (DicomFileInputStream inputStream = new DicomFileInputStream(original.get().toPath())) {
-          reader.setInput(inputStream);
-          ImageDescriptor desc = reader.getImageDescriptor();
-          DicomImageReadParam param = new DicomImageReadParam();
-          param.setAllowFloatImageConversion(true);
-          PlanarImage img = reader.getPlanarImage(frame, param);
-          if (img.width() != desc.getColumns() || img.height() != desc.getRows()) {
-            LOGGER.error(
-                "The native image size ({}x{}) does not match with the DICOM attributes({}x{})",
-                img.width(),
-                img.height(),
-                desc.getColumns(),
-                desc.getRows());
+        String sopUID = TagD.getTagValue(this, Tag.SOPInstanceUID, String.class);
+        String tsuid = TagD.getTagValue(this, Tag.TransferSyntaxUID, String.class);
+        DecodedFrameCache frameCache = DecodedFrameCache.getInstance();
+        DecodedFrameCache.FrameSource source =
+            frameCache.isCacheable(sopUID, tsuid)
+                ? DecodedFrameCache.FrameSource.of(sopUID, tsuid, original.get())
+                : null;
+        if (source != null) {
+          PlanarImage img = frameCache.get(source, frame);
+          DicomMetaData md = img == null ? null : getDicomMetaData();
+          if (md != null) {
+            LOGGER.debug("Read decoded dicom image frame: {} sopUID: {}", frame, sopUID);
+            return noEmbeddedOverlay
+                ? ImageRendering.getImageWithoutEmbeddedOverlay(img, md.getImageDescriptor(), frame)
+                : img;
           }
-          return noEmbeddedOverlay
-              ? ImageRendering.getImageWithoutEmbeddedOverlay(img, desc, frame)
-              : img;
+        }
+        LOGGER.debug("Start reading dicom image frame: {} sopUID: {}", frame, sopUID);
+        Path path = original.get().toPath();
+        if (numberOfFrame > 1) {
+          // Keep the readers open to avoid parsing the header and the offset table for each frame
+          return getFrameReaderPool(path)
+              .execute(r -> readFrame(r, frame, noEmbeddedOverlay, source));
+        }
+        FrameReaderPool.OpenReader reader = FrameReaderPool.open(path);
+        try {
+          return readFrame(reader, frame, noEmbeddedOverlay, source);
         } finally {
           reader.dispose();
         }
@@ -687,6 +707,92 @@ public PlanarImage getImageFragment(MediaElement media, int frame, boolean noEmb
     return null;
   }
 
+  /**
+   * Decodes the images of several frames of this file in parallel.
+   *
+   * @param medias the media elements of the frames
+   * @return the images in the order of the media elements, null when a frame has no image
+   * @throws InterruptedException if the calling thread is interrupted, the decoding tasks are
+   *     cancelled
+   */
+  @Override
+  public List<PlanarImage> getImageFragments(List<? extends MediaElement> medias) throws Exception {
+    List<Callable<PlanarImage>> tasks = new ArrayList<>(medias.size());
+    for (MediaElement media : medias) {
+      tasks.add(() -> getImageFragment(media));
+    }
+    return FrameReaderPool.decodeInParallel(tasks);
+  }
+
+  /**
+   * Decodes a range of frames in parallel.
+   *
+   * @param media the media element of the file
+   * @param firstFrame the index of the first frame
+   * @param lastFrame the index of the last frame (inclusive)
+   * @param noEmbeddedOverlay true to remove the overlays embedded in the pixel data
+   * @return the decoded frames in the frame order
+   * @throws InterruptedException if the calling thread is interrupted, the decoding tasks are
+   *     cancelled
+   */
+  public List<PlanarImage> getImageFragments(
+      MediaElement media, int firstFrame, int lastFrame, boolean noEmbeddedOverlay)
+      throws Exception {
+    int first = Math.max(0, firstFrame);
+    int last = Math.min(numberOfFrame - 1, lastFrame);
+    List<Callable<PlanarImage>> tasks = new ArrayList<>(Math.max(0, last - first + 1));
+    for (int i = first; i <= last; i++) {
+      final int frame = i;
+      tasks.add(() -> getImageFragment(media, frame, noEmbeddedOverlay));
+    }
+    return FrameReaderPool.decodeInParallel(tasks);
+  }
+
+  private synchronized FrameReaderPool getFrameReaderPool(Path path) {
+    if (framePool == null || framePool.isClosed()) {
+      framePool = new FrameReaderPool(path);
+    }
+    return framePool;
+  }
+
+  private synchronized void closeFrameReaders() {
+    // Keep the file open while a frame is still in the image cache
+    if (image == null || Arrays.stream(image).noneMatch(DicomImageElement::isImageInCache)) {
+      releaseFrameReaders();
+    }
+  }
+
+  /** Closes the readers of the frames, when the media is released. */
+  synchronized void releaseFrameReaders() {
+    if (framePool != null) {
+      framePool.close();
+      framePool = null;
+    }
+  }
+
+  private PlanarImage readFrame(
+      FrameReaderPool.OpenReader reader,
+      int frame,
+      boolean noEmbeddedOverlay,
+      DecodedFrameCache.FrameSource source)
+      throws IOException {
+    ImageDescriptor desc = reader.getImageDescriptor();
+    PlanarImage img = reader.getPlanarImage(frame);
+    if (img.width() != desc.getColumns() || img.height() != desc.getRows()) {
+      LOGGER.error(
+          "The native image size ({}x{}) does not match with the DICOM attributes({}x{})",
+          img.width(),
+          img.height(),
+          desc.getColumns(),
+          desc.getRows());
+    }
+    if (source != null) {
+      // Avoid decoding the compressed frame again when the image is evicted from memory
+      DecodedFrameCache.getInstance().put(source, frame, img);
+    }
+    return noEmbeddedOverlay ? ImageRendering.getImageWithoutEmbeddedOverlay(img, desc, frame) : img;
+  }
+
   private static Mat getMatBuffer(ExtendSegmentedInputImageStream extParams) throws IOException {
     try (RandomAccessFile raf = new RandomAccessFile(extParams.getFile(), "r")) {
 
@@ -848,8 +954,8 @@ public String getMediaFragmentMimeType() {
   @Override
   public Map<TagW, Object> getMediaFragmentTags(Object key) {
     if (key instanceof Integer val && val > 0) {
-      // Clone the shared tag
-      Map<TagW, Object> tagList = new HashMap<>(tags);
+      // Share the tags of the file and store only the tags of the frame
+      Map<TagW, Object> tagList = tags.derive();
       SimpleTaggable taggable = new SimpleTaggable(tagList);
       if (DicomMediaUtils.writePerFrameFunctionalGroupsSequence(
           taggable, getDicomMetaData(), val)) {
@@ -863,6 +969,7 @@ taggable, getDicomMetaData(), val)) {
   @Override
   public void close() {
     HEADER_CACHE.remove(this);
+    closeFrameReaders();
   }
 
   @Override
@@ -942,31 +1049,35 @@ private synchronized DicomMetaData readMetaData() throws IOException {
     try (DicomFileInputStream inputStream = new DicomFileInputStream(path)) {
       reader.setInput(inputStream);
       DicomMetaData dicomMetaData = reader.getStreamMetadata();
-      Attributes dcm = dicomMetaData.getDicomObject();
-      this.numberOfFrame = dcm.getInt(Tag.NumberOfFrames, 0);
-      VR.Holder pixelatedVR = new VR.Holder();
-      Object pixelData = dcm.getValue(Tag.PixelData, pixelatedVR);
-      if (pixelData == null) {
-        pixelData = dcm.getValue(Tag.FloatPixelData, pixelatedVR);
-      }
-      if (pixelData == null) {
-        pixelData = dcm.getValue(Tag.DoubleFloatPixelData, pixelatedVR);
-      }
-
-      if (pixelData != null) {
-        hasPixel = true;
-      }
-
-      if (numberOfFrame <= 0 && hasPixel) {
-        this.numberOfFrame = 1;
-      }
-      HEADER_CACHE.put(this, dicomMetaData);
+      setMetaData(dicomMetaData);
       return dicomMetaData;
     } finally {
       reader.dispose();
     }
   }
 
+  private synchronized void setMetaData(DicomMetaData dicomMetaData) {
+    Attributes dcm = dicomMetaData.getDicomObject();
+    this.numberOfFrame = dcm.getInt(Tag.NumberOfFrames, 0);
+    VR.Holder pixelatedVR = new VR.Holder();
+    Object pixelData = dcm.getValue(Tag.PixelData, pixelatedVR);
+    if (pixelData == null) {
+      pixelData = dcm.getValue(Tag.FloatPixelData, pixelatedVR);
+    }
+    if (pixelData == null) {
+      pixelData = dcm.getValue(Tag.DoubleFloatPixelData, pixelatedVR);
+    }
+
+    if (pixelData != null) {
+      hasPixel = true;
+    }
+
+    if (numberOfFrame <= 0 && hasPixel) {
+      this.numberOfFrame = 1;
+    }
+    HEADER_CACHE.put(this, dicomMetaData);
+  }
+
   public static boolean isHiddenModality(String modality) {
     if (modality != null) {
       DicomSpecialElementFactory factory = DCM_ELEMENT_FACTORIES.get(modality);
@@ -14,33 +14,33 @@
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.img.DicomImageReader;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.weasis.core.api.explorer.ObservableEvent;
 import org.weasis.core.api.explorer.model.DataExplorerModel;
 import org.weasis.core.api.gui.util.Filter;
 import org.weasis.core.api.gui.util.GuiUtils;
-import org.weasis.core.api.image.cv.CvUtil;
 import org.weasis.core.api.media.data.Series;
 import org.weasis.core.api.media.data.SeriesEvent;
+import org.weasis.core.api.media.data.SlicePositionIndex;
 import org.weasis.core.api.media.data.TagView;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.ui.editor.image.DefaultView2d;
 import org.weasis.core.util.FileUtil;
-import org.weasis.core.util.MathUtil;
 import org.weasis.core.util.StringUtil;
 import org.weasis.dicom.codec.TagD.Level;
 import org.weasis.dicom.codec.utils.SeriesInstanceList;
 
 public class DicomSeries extends Series<DicomImageElement> {
-  private static final Logger LOGGER = LoggerFactory.getLogger(DicomSeries.class);
-
   static final TagView defaultTagView =
       new TagView(TagD.getTagFromIDs(Tag.SeriesDescription, Tag.SeriesNumber, Tag.SeriesTime));
 
-  private static PreloadingTask preloadingTask;
+  // Series having the same SeriesInstanceUID after splitting (including this series)
+  private Set<DicomSeries> splitGroup;
+  // Index by Image Position (Patient) and the version of the medias when built. Guarded by this
+  private ImagePositionIndex<DicomImageElement> positionIndex;
+  private int positionIndexVersion;
 
   public DicomSeries(String subseriesInstanceUID) {
     this(subseriesInstanceUID, null, defaultTagView);
@@ -55,6 +55,74 @@ public DicomSeries(String subseriesInstanceUID, List<DicomImageElement> c, TagVi
         SortSeriesStack.instanceNumber);
   }
 
+  @Override
+  public TagW getIndexTag() {
+    return TagD.getUID(Level.INSTANCE);
+  }
+
+  private synchronized Set<DicomSeries> getSplitGroup() {
+    if (splitGroup == null) {
+      splitGroup = new CopyOnWriteArraySet<>();
+      splitGroup.add(this);
+    }
+    return splitGroup;
+  }
+
+  /**
+   * Registers a series split from this one. Both series share the same group, which allows
+   * checking the existence of an instance without iterating over the series of the study.
+   *
+   * @param series the new series having the same SeriesInstanceUID
+   */
+  public void addSplitSeries(DicomSeries series) {
+    if (series != null && series != this) {
+      Set<DicomSeries> group = getSplitGroup();
+      synchronized (series) {
+        series.splitGroup = group;
+      }
+      group.add(series);
+    }
+  }
+
+  /**
+   * @param sopUID the SOPInstanceUID
+   * @return true if the instance belongs to this series or to a series split from the same
+   *     original series
+   */
+  public boolean containsSopInstance(String sopUID) {
+    if (sopUID == null) {
+      return false;
+    }
+    TagW sopTag = getIndexTag();
+    for (DicomSeries s : getSplitGroup()) {
+      if (s.hasMediaContains(sopTag, sopUID)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the index of the images by Image Position (Patient). The index is built at the first call
+   * and shared until the medias of the series change.
+   *
+   * @return the index of the images (the frames for multi-frame images)
+   */
+  public synchronized ImagePositionIndex<DicomImageElement> getImagePositionIndex() {
+    int version = getMediaVersion();
+    if (positionIndex == null || positionIndexVersion != version) {
+      List<DicomImageElement> list;
+      synchronized (medias) {
+        list = new ArrayList<>(medias);
+      }
+      positionIndex =
+          ImagePositionIndex.of(
+              list, img -> TagD.getTagValue(img, Tag.ImagePositionPatient, double[].class));
+      positionIndexVersion = version;
+    }
+    return positionIndex;
+  }
+
   public boolean[] getImageInMemoryList() {
     boolean[] list;
     synchronized (this) {
@@ -159,6 +227,10 @@ public String getMimeType() {
   @Override
   public synchronized void dispose() {
     stopPreloading(this);
+    positionIndex = null;
+    if (splitGroup != null) {
+      splitGroup.remove(this);
+    }
     String seriesUID = (String) getTagValue(getTagID());
     DicomImageReader.removeSeriesToFloatImages(seriesUID);
     String modality = TagD.getTagValue(this, Tag.Modality, String.class);
@@ -211,32 +283,9 @@ public DicomImageElement getNearestImage(
       int offset,
       Filter<DicomImageElement> filter,
       Comparator<DicomImageElement> sort) {
-    Iterable<DicomImageElement> mediaList = getMedias(filter, sort);
-    DicomImageElement nearest = null;
-    int index = 0;
-    int bestIndex = -1;
-    synchronized (this) {
-      double bestDiff = Double.MAX_VALUE;
-      for (DicomImageElement dcm : mediaList) {
-        double[] val = (double[]) dcm.getTagValue(TagW.SlicePosition);
-        if (val != null) {
-          double diff = Math.abs(location - (val[0] + val[1] + val[2]));
-          if (diff < bestDiff) {
-            bestDiff = diff;
-            nearest = dcm;
-            bestIndex = index;
-            if (MathUtil.isEqualToZero(diff)) {
-              break;
-            }
-          }
-        }
-        index++;
-      }
-    }
-    if (offset > 0) {
-      return getMedia(bestIndex + offset, filter, sort);
-    }
-    return nearest;
+    SlicePositionIndex<DicomImageElement> index = getSlicePositionIndex(filter, sort);
+    int bestIndex = index.getNearestIndex(location);
+    return index.getMedia(offset > 0 ? bestIndex + offset : bestIndex);
   }
 
   @Override
@@ -245,40 +294,15 @@ public int getNearestImageIndex(
       int offset,
       Filter<DicomImageElement> filter,
       Comparator<DicomImageElement> sort) {
-    Iterable<DicomImageElement> mediaList = getMedias(filter, sort);
-    int index = 0;
-    int bestIndex = -1;
-    synchronized (this) {
-      double bestDiff = Double.MAX_VALUE;
-      for (DicomImageElement dcm : mediaList) {
-        double[] val = (double[]) dcm.getTagValue(TagW.SlicePosition);
-        if (val != null) {
-          double diff = Math.abs(location - (val[0] + val[1] + val[2]));
-          if (diff < bestDiff) {
-            bestDiff = diff;
-            bestIndex = index;
-            if (MathUtil.isEqualToZero(diff)) {
-              break;
-            }
-          }
-        }
-        index++;
-      }
-    }
-
+    int bestIndex = getSlicePositionIndex(filter, sort).getNearestIndex(location);
     return (offset > 0) ? (bestIndex + offset) : bestIndex;
   }
 
   @Override
   public boolean hasMediaContains(TagW tag, Object val) {
     if (val != null) {
-      synchronized (this) {
-        for (DicomImageElement media : medias) {
-          Object val2 = media.getTagValue(tag);
-          if (val.equals(val2)) {
-            return true;
-          }
-        }
+      if (super.hasMediaContains(tag, val)) {
+        return true;
       }
       if (medias.isEmpty()) {
         List<? extends DicomSpecialElement> list = getAllDicomSpecialElement();
@@ -332,132 +356,17 @@ public boolean isSuitableFor3d() {
     return size >= DefaultView2d.MINIMAL_IMAGES_FOR_3D;
   }
 
-  public static synchronized void startPreloading(
+  /**
+   * Starts preloading the images of the series.
+   *
+   * @see SeriesPreloader#preload(DicomSeries, List, int)
+   */
+  public static void startPreloading(
       DicomSeries series, List<DicomImageElement> imageList, int currentIndex) {
-    if (series != null && imageList != null) {
-      if (preloadingTask != null) {
-        if (preloadingTask.getSeries() == series) {
-          return;
-        }
-        stopPreloading(preloadingTask.getSeries());
-      }
-      preloadingTask = new PreloadingTask(series, imageList, currentIndex);
-      preloadingTask.start();
-    }
-  }
-
-  public static synchronized void stopPreloading(DicomSeries series) {
-    if (preloadingTask != null && preloadingTask.getSeries() == series) {
-      PreloadingTask moribund = preloadingTask;
-      preloadingTask = null;
-      moribund.setPreloading(false);
-      moribund.interrupt();
-    }
+    SeriesPreloader.getInstance().preload(series, imageList, currentIndex);
   }
 
-  static class PreloadingTask extends Thread {
-    private volatile boolean preloading = true;
-    private final int index;
-    private final List<DicomImageElement> imageList;
-    private final DicomSeries series;
-
-    public PreloadingTask(DicomSeries series, List<DicomImageElement> imageList, int currentIndex) {
-      this.series = series;
-      this.imageList = imageList;
-      this.index = currentIndex;
-    }
-
-    public synchronized boolean isPreloading() {
-      return preloading;
-    }
-
-    public DicomSeries getSeries() {
-      return series;
-    }
-
-    public List<DicomImageElement> getImageList() {
-      return imageList;
-    }
-
-    public synchronized void setPreloading(boolean preloading) {
-      this.preloading = preloading;
-    }
-
-    private static long evaluateImageSize(DicomImageElement image) {
-      Integer allocated = TagD.getTagValue(image, Tag.BitsAllocated, Integer.class);
-      Integer sample = TagD.getTagValue(image, Tag.SamplesPerPixel, Integer.class);
-      Integer rows = TagD.getTagValue(image, Tag.Rows, Integer.class);
-      Integer columns = TagD.getTagValue(image, Tag.Columns, Integer.class);
-      if (allocated != null && sample != null && rows != null && columns != null) {
-        return ((long) rows * columns * sample * allocated) / 8L;
-      }
-      return 0L;
-    }
-
-    private void loadArrays(DicomImageElement img, DataExplorerModel model) {
-      // Do not load an image if another process already loading it
-      if (preloading && !img.isLoading()) {
-        Boolean cache = (Boolean) img.getTagValue(TagW.ImageCache);
-        if (cache == null || !cache) {
-          long start = System.currentTimeMillis();
-          try {
-            img.getImage();
-          } catch (OutOfMemoryError e) {
-            LOGGER.error("Out of memory when loading image: {}", img, e);
-            CvUtil.runGarbageCollectorAndWait(50);
-            return;
-          }
-          long stop = System.currentTimeMillis();
-          LOGGER.debug("Reading time: {} ms of image: {}", stop - start, img);
-          if (model != null) {
-            model.firePropertyChange(
-                new ObservableEvent(
-                    ObservableEvent.BasicAction.ADD,
-                    model,
-                    null,
-                    new SeriesEvent(SeriesEvent.Action.PRELOADING, series, img)));
-          }
-        }
-      }
-    }
-
-    @Override
-    public void run() {
-      if (imageList != null) {
-        DataExplorerModel model = (DataExplorerModel) series.getTagValue(TagW.ExplorerModel);
-        int size = imageList.size();
-        if (model == null || index < 0 || index >= size) {
-          return;
-        }
-        long imgSize = evaluateImageSize(imageList.get(index)) * size + 5000;
-        long heapSize = Runtime.getRuntime().totalMemory();
-        long heapFreeSize = Runtime.getRuntime().freeMemory();
-        if (imgSize > heapSize / 3) {
-          if (imgSize > heapFreeSize) {
-            CvUtil.runGarbageCollectorAndWait(50);
-          }
-          double val = (double) heapFreeSize / imgSize;
-          int adjustSize = (int) (size * val) / 2;
-          int start = index - adjustSize;
-          if (start < 0) {
-            adjustSize -= start;
-            start = 0;
-          }
-          if (adjustSize > size) {
-            adjustSize = size;
-          }
-          for (int i = start; i < adjustSize; i++) {
-            loadArrays(imageList.get(i), model);
-          }
-        } else {
-          if (imgSize > heapFreeSize) {
-            CvUtil.runGarbageCollectorAndWait(50);
-          }
-          for (DicomImageElement img : imageList) {
-            loadArrays(img, model);
-          }
-        }
-      }
-    }
+  public static void stopPreloading(DicomSeries series) {
+    SeriesPreloader.getInstance().stop(series);
   }
 }
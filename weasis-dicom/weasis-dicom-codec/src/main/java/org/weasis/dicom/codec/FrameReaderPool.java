@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.dcm4che3.img.DicomImageReadParam;
+import org.dcm4che3.img.DicomImageReader;
+import org.dcm4che3.img.Transcoder;
+import org.dcm4che3.img.stream.DicomFileInputStream;
+import org.dcm4che3.img.stream.ImageDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.opencv.data.PlanarImage;
+
+/**
+ * Keeps the readers of a multi-frame DICOM file open, so that the header and the offset table of
+ * the pixel data are parsed only once and not for each frame. A reader cannot be shared between
+ * threads, so several readers are opened to read frames concurrently. The readers not used for a
+ * while are closed and opened again on demand.
+ */
+final class FrameReaderPool {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FrameReaderPool.class);
+
+  static final ExecutorService FRAME_DECODER =
+      ThreadUtil.newManagedImageProcessingThreadPool("Frame Decoder"); // NON-NLS
+
+  // Result of a frame whose decoding has been cancelled
+  private static final Object CANCELLED_FRAME = new Object();
+
+  private static final ScheduledExecutorService IDLE_CLOSER =
+      Executors.newSingleThreadScheduledExecutor(
+          ThreadUtil.namedDaemonThreadFactory("Frame Reader Closer", true));
+  private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+
+  private static final int MAX_READERS =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  private final Path path;
+  private final LinkedBlockingDeque<OpenReader> idleReaders = new LinkedBlockingDeque<>();
+  // Guarded by this
+  private int openReaders;
+  private long lastUse;
+  private boolean idleCheckScheduled;
+  private volatile boolean closed;
+
+  record OpenReader(DicomImageReader reader, DicomFileInputStream stream) {
+
+    ImageDescriptor getImageDescriptor() throws IOException {
+      return reader.getImageDescriptor();
+    }
+
+    PlanarImage getPlanarImage(int frame) throws IOException {
+      DicomImageReadParam param = new DicomImageReadParam();
+      param.setAllowFloatImageConversion(true);
+      return reader.getPlanarImage(frame, param);
+    }
+
+    void dispose() {
+      reader.dispose();
+      try {
+        stream.close();
+      } catch (IOException e) {
+        LOGGER.debug("Cannot close the dicom stream", e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  interface FrameTask<T> {
+    T apply(OpenReader reader) throws Exception;
+  }
+
+  FrameReaderPool(Path path) {
+    this.path = path;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  /** Executes the task with a reader that is not used by another thread. */
+  <T> T execute(FrameTask<T> task) throws Exception {
+    OpenReader reader = acquire();
+    boolean valid = false;
+    try {
+      T result = task.apply(reader);
+      valid = true;
+      return result;
+    } finally {
+      release(reader, valid);
+    }
+  }
+
+  private OpenReader acquire() throws IOException, InterruptedException {
+    while (!closed) {
+      OpenReader reader = idleReaders.pollFirst();
+      if (reader != null) {
+        return reader;
+      }
+      boolean canOpen;
+      synchronized (this) {
+        canOpen = openReaders < MAX_READERS;
+        if (canOpen) {
+          openReaders++;
+        }
+      }
+      if (canOpen) {
+        try {
+          return open(path);
+        } catch (IOException | RuntimeException e) {
+          synchronized (this) {
+            openReaders--;
+          }
+          throw e;
+        }
+      }
+      // Wait for a reader released by another thread (or disposed after an error)
+      reader = idleReaders.pollFirst(50, TimeUnit.MILLISECONDS);
+      if (reader != null) {
+        return reader;
+      }
+    }
+    throw new IOException("The frame reader is closed: " + path);
+  }
+
+  static OpenReader open(Path path) throws IOException {
+    DicomImageReader reader = new DicomImageReader(Transcoder.dicomImageReaderSpi);
+    DicomFileInputStream stream = new DicomFileInputStream(path);
+    OpenReader openReader = new OpenReader(reader, stream);
+    try {
+      reader.setInput(stream);
+      // Parse the header and the offset table of the pixel data once
+      reader.getImageDescriptor();
+    } catch (IOException | RuntimeException e) {
+      openReader.dispose();
+      throw e;
+    }
+    return openReader;
+  }
+
+  private void release(OpenReader reader, boolean valid) {
+    if (valid && !closed) {
+      idleReaders.offerFirst(reader);
+      if (closed && idleReaders.remove(reader)) {
+        dispose(reader);
+      } else {
+        scheduleIdleCheck();
+      }
+    } else {
+      dispose(reader);
+    }
+  }
+
+  private synchronized void scheduleIdleCheck() {
+    lastUse = System.nanoTime();
+    if (!idleCheckScheduled) {
+      idleCheckScheduled = true;
+      IDLE_CLOSER.schedule(this::closeIdleReaders, IDLE_TIMEOUT, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void closeIdleReaders() {
+    synchronized (this) {
+      long delay = lastUse + IDLE_TIMEOUT - System.nanoTime();
+      if (delay > 0 && !closed) {
+        IDLE_CLOSER.schedule(this::closeIdleReaders, delay, TimeUnit.NANOSECONDS);
+        return;
+      }
+      idleCheckScheduled = false;
+    }
+    OpenReader reader;
+    while ((reader = idleReaders.pollFirst()) != null) {
+      dispose(reader);
+    }
+  }
+
+  private void dispose(OpenReader reader) {
+    synchronized (this) {
+      openReaders--;
+    }
+    reader.dispose();
+  }
+
+  /** Closes the idle readers, the readers in use are closed when they are released. */
+  void close() {
+    closed = true;
+    OpenReader reader;
+    while ((reader = idleReaders.pollFirst()) != null) {
+      dispose(reader);
+    }
+  }
+
+  /**
+   * Runs the decoding tasks in parallel. When the calling thread is interrupted or when a task
+   * fails, the tasks not started are cancelled and the decoded images are released.
+   *
+   * @return the images in the order of the tasks
+   */
+  static List<PlanarImage> decodeInParallel(List<Callable<PlanarImage>> tasks) throws Exception {
+    int size = tasks.size();
+    // A slot is marked as cancelled when the decoding stops, the frames decoded later are released
+    AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(size);
+    List<Future<?>> futures = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int index = i;
+      Callable<PlanarImage> task = tasks.get(i);
+      futures.add(
+          FRAME_DECODER.submit(
+              () -> {
+                if (results.get(index) == null) {
+                  PlanarImage img = task.call();
+                  if (img != null && !results.compareAndSet(index, null, img)) {
+                    img.release();
+                  }
+                }
+                return null;
+              }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      futures.forEach(f -> f.cancel(false));
+      for (int i = 0; i < size; i++) {
+        if (results.getAndSet(i, CANCELLED_FRAME) instanceof PlanarImage img) {
+          img.release();
+        }
+      }
+      if (e instanceof InterruptedException) {
+        throw e;
+      }
+      throw e.getCause() instanceof Exception ex ? ex : e;
+    }
+    List<PlanarImage> images = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      images.add((PlanarImage) results.get(i));
+    }
+    return images;
+  }
+}
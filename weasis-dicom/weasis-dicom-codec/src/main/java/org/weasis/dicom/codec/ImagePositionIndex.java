@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Index of elements by their position in the patient coordinate system (e.g. Image Position
+ * (Patient)). The elements are sorted along the axis on which their positions vary the most, so
+ * finding the elements at a position takes O(log n) instead of comparing all the elements.
+ *
+ * <p>This class is immutable and thread-safe.
+ */
+public final class ImagePositionIndex<E> {
+
+  private record Item<E>(double[] position, E value) {}
+
+  private final List<Item<E>> items;
+  private final int axis;
+
+  private ImagePositionIndex(List<Item<E>> items, int axis) {
+    this.items = items;
+    this.axis = axis;
+  }
+
+  /**
+   * @param elements the elements to index
+   * @param position gets the position of an element, the elements without position (null or not
+   *     having 3 values) are not indexed
+   * @return the new index
+   */
+  public static <E> ImagePositionIndex<E> of(
+      Collection<E> elements, Function<E, double[]> position) {
+    List<Item<E>> list = new ArrayList<>(elements.size());
+    double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+    double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+    for (E e : elements) {
+      double[] p = position.apply(e);
+      if (p != null && p.length == 3) {
+        list.add(new Item<>(p, e));
+        for (int i = 0; i < 3; i++) {
+          min[i] = Math.min(min[i], p[i]);
+          max[i] = Math.max(max[i], p[i]);
+        }
+      }
+    }
+
+    // Sort along the axis with the largest extent (z for axial slices, x for sagittal...)
+    int axis = 2;
+    if (!list.isEmpty()) {
+      for (int i = 0; i < 3; i++) {
+        if (max[i] - min[i] > max[axis] - min[axis]) {
+          axis = i;
+        }
+      }
+    }
+    int sortAxis = axis;
+    list.sort(Comparator.comparingDouble(item -> item.position()[sortAxis]));
+    return new ImagePositionIndex<>(List.copyOf(list), axis);
+  }
+
+  public boolean isEmpty() {
+    return items.isEmpty();
+  }
+
+  /**
+   * @param position the position to find
+   * @param tolerance the maximum difference for each coordinate
+   * @return the elements at this position, in the order of the sorting axis
+   */
+  public List<E> find(double[] position, double tolerance) {
+    if (position == null || position.length != 3 || items.isEmpty()) {
+      return List.of();
+    }
+    double start = position[axis] - tolerance;
+    double end = position[axis] + tolerance;
+
+    // Index of the first item from start
+    int low = 0;
+    int high = items.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (items.get(mid).position()[axis] < start) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    List<E> result = new ArrayList<>(1);
+    for (int i = low; i < items.size(); i++) {
+      Item<E> item = items.get(i);
+      double[] p = item.position();
+      if (p[axis] > end) {
+        break;
+      }
+      if (Math.abs(p[0] - position[0]) <= tolerance
+          && Math.abs(p[1] - position[1]) <= tolerance
+          && Math.abs(p[2] - position[2]) <= tolerance) {
+        result.add(item.value());
+      }
+    }
+    return result;
+  }
+}
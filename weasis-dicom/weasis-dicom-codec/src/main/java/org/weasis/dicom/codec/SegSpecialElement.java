@@ -332,28 +332,25 @@ private void associateContours(
       if (planePosition != null) {
         double[] imagePositionPatient = planePosition.getDoubles(Tag.ImagePositionPatient);
         if (imagePositionPatient != null) {
-          refSeriesList.forEach(
-              refSeries -> {
-                for (DicomImageElement dcm : refSeries.getMedias(null, null)) {
-                  double[] imagePosition =
-                      TagD.getTagValue(dcm, Tag.ImagePositionPatient, double[].class);
-                  if (isWithinTolerance(imagePosition, imagePositionPatient, 0.01)) {
-                    String sopUID = TagD.getTagValue(dcm, Tag.SOPInstanceUID, String.class);
-                    if (sopUID != null) {
-                      int frames = dcm.getMediaReader().getMediaElementNumber();
-                      if (frames > 1 && dcm.getKey() instanceof Integer intVal) {
-                        List<Integer> frameList =
-                            sopUIDToFramesMap.computeIfAbsent(sopUID, _ -> new ArrayList<>());
-                        if (!frameList.contains(intVal)) {
-                          frameList.add(intVal);
-                        }
-                      } else {
-                        sopUIDToFramesMap.putIfAbsent(sopUID, Collections.emptyList());
-                      }
-                    }
+          for (DicomSeries refSeries : refSeriesList) {
+            List<DicomImageElement> images =
+                refSeries.getImagePositionIndex().find(imagePositionPatient, 0.01);
+            for (DicomImageElement dcm : images) {
+              String sopUID = TagD.getTagValue(dcm, Tag.SOPInstanceUID, String.class);
+              if (sopUID != null) {
+                int frames = dcm.getMediaReader().getMediaElementNumber();
+                if (frames > 1 && dcm.getKey() instanceof Integer intVal) {
+                  List<Integer> frameList =
+                      sopUIDToFramesMap.computeIfAbsent(sopUID, _ -> new ArrayList<>());
+                  if (!frameList.contains(intVal)) {
+                    frameList.add(intVal);
                   }
+                } else {
+                  sopUIDToFramesMap.putIfAbsent(sopUID, Collections.emptyList());
                 }
-              });
+              }
+            }
+          }
         }
       }
     }
@@ -389,18 +386,6 @@ private void associateContours(
     }
   }
 
-  private static boolean isWithinTolerance(double[] array1, double[] array2, double tolerance) {
-    if (array1 == null || array2 == null || array1.length != array2.length) {
-      return false;
-    }
-    for (int i = 0; i < array1.length; i++) {
-      if (Math.abs(array1[i] - array2[i]) > tolerance) {
-        return false;
-      }
-    }
-    return true;
-  }
-
   private void addPositionMap(Attributes frame, LazyContourLoader loader) {
     Attributes refPos = frame.getNestedDataset(Tag.PlanePositionSequence);
     if (refPos != null) {
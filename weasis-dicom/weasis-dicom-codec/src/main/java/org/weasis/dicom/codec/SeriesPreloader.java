@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.dcm4che3.data.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.explorer.ObservableEvent;
+import org.weasis.core.api.explorer.model.DataExplorerModel;
+import org.weasis.core.api.image.cv.CvUtil;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.SeriesEvent;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.api.util.ThreadUtil;
+
+/**
+ * Preloads the images of the series displayed in the viewers. Several series can be preloaded at
+ * the same time and the images are decoded in parallel, from the current image outward with a
+ * priority in the scrolling direction. The number of preloaded images is limited by the native
+ * memory of the image cache, shared between the preloaded series, and the preloading stops when
+ * the cache is filled by the other images. The images are read by low priority threads, apart
+ * from the threads reading the displayed images.
+ */
+public final class SeriesPreloader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SeriesPreloader.class);
+
+  // Part of the image cache that can be filled by preloading
+  private static final double CACHE_RATIO = 0.75;
+
+  private static final SeriesPreloader INSTANCE = new SeriesPreloader();
+
+  private final Map<DicomSeries, Session> sessions = new ConcurrentHashMap<>();
+  // Series displayed by each owner (e.g. a viewer). Guarded by itself
+  private final Map<Object, Set<DicomSeries>> owners = new IdentityHashMap<>();
+  private final AtomicInteger workers = new AtomicInteger();
+  private final AtomicInteger nextSession = new AtomicInteger();
+  private final int maxWorkers;
+  private final ExecutorService executor;
+
+  private SeriesPreloader() {
+    // Keep one core for the rendering
+    this.maxWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    ThreadFactory factory = ThreadUtil.namedDaemonThreadFactory("Series Preloader", true);
+    this.executor =
+        Executors.newFixedThreadPool(
+            maxWorkers,
+            r -> {
+              Thread thread = factory.newThread(r);
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            });
+  }
+
+  public static SeriesPreloader getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Starts or updates the preloading of a series.
+   *
+   * @param series the series to preload
+   * @param images the images of the series in the order of the view (filter and sorting)
+   * @param currentIndex the index of the displayed image
+   */
+  public void preload(DicomSeries series, List<DicomImageElement> images, int currentIndex) {
+    if (series == null || images == null || currentIndex < 0 || currentIndex >= images.size()) {
+      return;
+    }
+    Session session = sessions.get(series);
+    if (session != null && session.hasSameImages(images)) {
+      session.setCurrentIndex(currentIndex);
+    } else {
+      Session old = sessions.put(series, new Session(series, images, currentIndex));
+      if (old != null) {
+        old.stop();
+      }
+    }
+    startWorkers();
+  }
+
+  /**
+   * Updates the position of the preloading when the displayed image changes. The preloading
+   * follows the direction of the scrolling.
+   *
+   * @param series the preloaded series
+   * @param image the displayed image
+   */
+  public void setCurrentImage(DicomSeries series, DicomImageElement image) {
+    Session session = series == null ? null : sessions.get(series);
+    if (session != null && session.setCurrentImage(image)) {
+      startWorkers();
+    }
+  }
+
+  /**
+   * Stops the preloading of the series that are not displayed by any owner. The series replace the
+   * ones previously retained by the same owner.
+   *
+   * @param owner the owner of the series (e.g. a viewer)
+   * @param series the series to keep preloading, empty when the owner is closed
+   */
+  public void retain(Object owner, Collection<DicomSeries> series) {
+    Set<DicomSeries> displayed = new HashSet<>();
+    synchronized (owners) {
+      if (series == null || series.isEmpty()) {
+        owners.remove(owner);
+      } else {
+        owners.put(owner, new HashSet<>(series));
+      }
+      owners.values().forEach(displayed::addAll);
+    }
+    sessions
+        .entrySet()
+        .removeIf(
+            e -> {
+              if (displayed.contains(e.getKey())) {
+                return false;
+              }
+              e.getValue().stop();
+              return true;
+            });
+  }
+
+  public void stop(DicomSeries series) {
+    Session session = series == null ? null : sessions.remove(series);
+    if (session != null) {
+      session.stop();
+    }
+  }
+
+  public boolean isPreloading(DicomSeries series) {
+    return series != null && sessions.containsKey(series);
+  }
+
+  private void startWorkers() {
+    int n;
+    while ((n = workers.get()) < maxWorkers) {
+      if (workers.compareAndSet(n, n + 1)) {
+        executor.execute(this::work);
+      }
+    }
+  }
+
+  private void work() {
+    try {
+      Job job;
+      while ((job = nextJob()) != null) {
+        job.session().load(job.image());
+      }
+    } finally {
+      workers.decrementAndGet();
+    }
+    // A session may have been updated between the last request and the end of this worker
+    if (hasPendingJob()) {
+      startWorkers();
+    }
+  }
+
+  private Job nextJob() {
+    List<Session> list = new ArrayList<>(sessions.values());
+    int size = list.size();
+    if (size == 0) {
+      return null;
+    }
+    long maxMemory = (long) (ImageElement.getCacheMaxMemory() * CACHE_RATIO);
+    long budget = maxMemory / size;
+    // Memory left for preloading, including the images already preloaded
+    long free = maxMemory - ImageElement.getCacheUsedMemory();
+    // Round-robin between the series to preload the visible viewers at the same time
+    int start = Math.floorMod(nextSession.getAndIncrement(), size);
+    for (int i = 0; i < size; i++) {
+      Session session = list.get((start + i) % size);
+      DicomImageElement image = session.next(budget, free);
+      if (image != null) {
+        return new Job(session, image);
+      }
+    }
+    return null;
+  }
+
+  private boolean hasPendingJob() {
+    for (Session session : sessions.values()) {
+      if (session.hasPending()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private record Job(Session session, DicomImageElement image) {}
+
+  private static final class Session {
+    private final DicomSeries series;
+    private final List<DicomImageElement> images;
+    private final Map<DicomImageElement, Integer> positions;
+    private final boolean[] requested;
+    private final long imageSize;
+    private volatile boolean active = true;
+
+    // Guarded by this
+    private int index;
+    private int direction = 1;
+    private int step;
+
+    Session(DicomSeries series, List<DicomImageElement> images, int currentIndex) {
+      this.series = series;
+      this.images = images;
+      this.positions = new IdentityHashMap<>(images.size());
+      for (int i = 0; i < images.size(); i++) {
+        positions.put(images.get(i), i);
+      }
+      this.requested = new boolean[images.size()];
+      this.imageSize = evaluateImageSize(images.get(currentIndex));
+      this.index = currentIndex;
+    }
+
+    boolean hasSameImages(List<DicomImageElement> list) {
+      if (list.size() != images.size()) {
+        return false;
+      }
+      for (int i = 0; i < list.size(); i++) {
+        if (list.get(i) != images.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void stop() {
+      active = false;
+    }
+
+    boolean setCurrentImage(DicomImageElement image) {
+      Integer pos = image == null ? null : positions.get(image);
+      return pos != null && setCurrentIndex(pos);
+    }
+
+    synchronized boolean setCurrentIndex(int currentIndex) {
+      if (currentIndex == index) {
+        return false;
+      }
+      direction = currentIndex > index ? 1 : -1;
+      index = currentIndex;
+      step = 0;
+      // Images evicted from the cache can be requested again
+      Arrays.fill(requested, false);
+      return true;
+    }
+
+    synchronized boolean hasPending() {
+      return active && step <= 3 * images.size();
+    }
+
+    /**
+     * Returns the next image to load, ordered outward from the current index with two images in
+     * the scrolling direction for one in the opposite direction.
+     *
+     * @param budget the memory of the images of this series around the current index
+     * @param free the memory which can still be filled by preloading
+     */
+    synchronized DicomImageElement next(long budget, long free) {
+      if (!active) {
+        return null;
+      }
+      int size = images.size();
+      if (imageSize > free) {
+        // Do not evict the other images, start again when the current image changes
+        step = 3 * size + 1;
+        return null;
+      }
+      int window = imageSize <= 0 ? size : (int) Math.min(size, budget / imageSize);
+      int forwardWindow = Math.max(1, window * 2 / 3);
+      int backwardWindow = Math.max(0, window - forwardWindow);
+      int maxStep = 3 * Math.max(forwardWindow, backwardWindow);
+      while (step <= maxStep) {
+        int offset = getOffset(step++);
+        if (offset > forwardWindow || -offset > backwardWindow) {
+          continue;
+        }
+        int i = index + direction * offset;
+        if (i >= 0 && i < size && !requested[i]) {
+          requested[i] = true;
+          DicomImageElement image = images.get(i);
+          if (!image.isLoading() && !image.isImageInCache()) {
+            return image;
+          }
+        }
+      }
+      step = 3 * size + 1;
+      return null;
+    }
+
+    private static int getOffset(int step) {
+      if (step == 0) {
+        return 0;
+      }
+      int t = step - 1;
+      int cycle = t / 3;
+      return switch (t % 3) {
+        case 0 -> 2 * cycle + 1;
+        case 1 -> 2 * cycle + 2;
+        default -> -(cycle + 1);
+      };
+    }
+
+    void load(DicomImageElement img) {
+      // Do not load an image if another process already loading it
+      if (!active || img.isLoading()) {
+        return;
+      }
+      long start = System.currentTimeMillis();
+      try {
+        img.preloadImage();
+      } catch (OutOfMemoryError e) {
+        LOGGER.error("Out of memory when loading image: {}", img, e);
+        CvUtil.runGarbageCollectorAndWait(50);
+        return;
+      }
+      LOGGER.debug("Reading time: {} ms of image: {}", System.currentTimeMillis() - start, img);
+      DataExplorerModel model = (DataExplorerModel) series.getTagValue(TagW.ExplorerModel);
+      if (model != null) {
+        model.firePropertyChange(
+            new ObservableEvent(
+                ObservableEvent.BasicAction.ADD,
+                model,
+                null,
+                new SeriesEvent(SeriesEvent.Action.PRELOADING, series, img)));
+      }
+    }
+
+    private static long evaluateImageSize(DicomImageElement image) {
+      Integer allocated = TagD.getTagValue(image, Tag.BitsAllocated, Integer.class);
+      Integer sample = TagD.getTagValue(image, Tag.SamplesPerPixel, Integer.class);
+      Integer rows = TagD.getTagValue(image, Tag.Rows, Integer.class);
+      Integer columns = TagD.getTagValue(image, Tag.Columns, Integer.class);
+      if (allocated != null && sample != null && rows != null && columns != null) {
+        return ((long) rows * columns * sample * allocated) / 8L;
+      }
+      return 0L;
+    }
+  }
+}
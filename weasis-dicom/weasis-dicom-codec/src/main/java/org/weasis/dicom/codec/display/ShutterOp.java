@@ -64,6 +64,11 @@ public ShutterOp copy() {
     return new ShutterOp(this);
   }
 
+  @Override
+  public boolean isPointOperation() {
+    return !LangUtil.getNULLtoFalse((Boolean) params.get(P_SHOW));
+  }
+
   @Override
   public void handleImageOpEvent(ImageOpEvent event) {
     OpEvent type = event.getEventType();
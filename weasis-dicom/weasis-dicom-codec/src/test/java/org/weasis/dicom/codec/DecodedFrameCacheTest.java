@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.weasis.dicom.codec.DecodedFrameCache.FrameSource;
+
+class DecodedFrameCacheTest {
+  private static final String UID = "1.2.3.4"; // NON-NLS
+  private static final String TSUID = "1.2.840.10008.1.2.4.90"; // NON-NLS
+
+  @Test
+  void test_file_name_depends_on_source() {
+    String name = DecodedFrameCache.getFileName(new FrameSource(UID, TSUID, 100, 10), 0);
+    assertEquals(name, DecodedFrameCache.getFileName(new FrameSource(UID, TSUID, 100, 10), 0));
+    assertTrue(name.startsWith("dfc-")); // NON-NLS
+    assertTrue(name.endsWith("-0.wcv")); // NON-NLS
+
+    assertNotEquals(name, DecodedFrameCache.getFileName(new FrameSource(UID, TSUID, 100, 10), 1));
+    assertNotEquals(
+        name, DecodedFrameCache.getFileName(new FrameSource("1.2.3.5", TSUID, 100, 10), 0));
+    FrameSource otherTsuid = new FrameSource(UID, "1.2.840.10008.1.2.4.50", 100, 10);
+    assertNotEquals(name, DecodedFrameCache.getFileName(otherTsuid, 0));
+    assertNotEquals(name, DecodedFrameCache.getFileName(new FrameSource(UID, TSUID, 101, 10), 0));
+    assertNotEquals(name, DecodedFrameCache.getFileName(new FrameSource(UID, TSUID, 100, 11), 0));
+  }
+}
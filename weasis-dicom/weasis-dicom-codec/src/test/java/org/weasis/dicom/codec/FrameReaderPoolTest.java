@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weasis.opencv.data.PlanarImage;
+
+class FrameReaderPoolTest {
+
+  @Test
+  void test_frames_in_task_order() throws Exception {
+    PlanarImage img0 = Mockito.mock(PlanarImage.class);
+    PlanarImage img1 = Mockito.mock(PlanarImage.class);
+    List<Callable<PlanarImage>> tasks =
+        List.of(
+            () -> {
+              TimeUnit.MILLISECONDS.sleep(50);
+              return img0;
+            },
+            () -> null,
+            () -> img1);
+
+    List<PlanarImage> images = FrameReaderPool.decodeInParallel(tasks);
+    assertEquals(3, images.size());
+    assertSame(img0, images.get(0));
+    assertNull(images.get(1));
+    assertSame(img1, images.get(2));
+    Mockito.verify(img0, Mockito.never()).release();
+  }
+
+  @Test
+  void test_failure_releases_the_decoded_frames() {
+    PlanarImage img0 = Mockito.mock(PlanarImage.class);
+    List<Callable<PlanarImage>> tasks =
+        List.of(
+            () -> img0,
+            () -> {
+              throw new IOException("Corrupted frame"); // NON-NLS
+            });
+
+    assertThrows(IOException.class, () -> FrameReaderPool.decodeInParallel(tasks));
+    Mockito.verify(img0).release();
+  }
+
+  @Test
+  void test_interrupt_cancels_the_decoding() throws InterruptedException {
+    PlanarImage img0 = Mockito.mock(PlanarImage.class);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch decoded = new CountDownLatch(1);
+    List<Callable<PlanarImage>> tasks =
+        List.of(
+            () -> {
+              started.countDown();
+              decoded.await();
+              return img0;
+            });
+
+    AtomicReference<Exception> error = new AtomicReference<>();
+    Thread caller =
+        new Thread(
+            () -> {
+              try {
+                FrameReaderPool.decodeInParallel(tasks);
+              } catch (Exception e) {
+                error.set(e);
+              }
+            });
+    caller.start();
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    caller.interrupt();
+    caller.join(5000);
+    assertInstanceOf(InterruptedException.class, error.get());
+
+    // The frame decoded after the cancellation is released
+    decoded.countDown();
+    Mockito.verify(img0, Mockito.timeout(5000)).release();
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ImagePositionIndexTest {
+
+  @Test
+  void findAxialPositions() {
+    List<double[]> positions = new ArrayList<>();
+    for (int i = 9; i >= 0; i--) {
+      positions.add(new double[] {-120.5, -98.2, i * 2.5});
+    }
+    positions.add(null);
+    ImagePositionIndex<double[]> index = ImagePositionIndex.of(positions, p -> p);
+
+    assertFalse(index.isEmpty());
+    List<double[]> found = index.find(new double[] {-120.5, -98.2, 5.005}, 0.01);
+    assertEquals(1, found.size());
+    assertSame(positions.get(7), found.getFirst());
+    assertTrue(index.find(new double[] {-120.5, -98.2, 5.02}, 0.01).isEmpty());
+    assertTrue(index.find(new double[] {-120.0, -98.2, 5.0}, 0.01).isEmpty());
+    assertTrue(index.find(new double[] {5.0}, 0.01).isEmpty());
+    assertTrue(index.find(null, 0.01).isEmpty());
+  }
+
+  @Test
+  void findSagittalPositions() {
+    Map<String, double[]> images =
+        Map.of(
+            "1", new double[] {10.0, -50.0, 80.0}, // NON-NLS
+            "2", new double[] {11.0, -50.0, 80.0}, // NON-NLS
+            "3", new double[] {12.0, -50.0, 80.0}, // NON-NLS
+            "3b", new double[] {12.0, -50.0, 80.0}); // NON-NLS
+    ImagePositionIndex<String> index = ImagePositionIndex.of(images.keySet(), images::get);
+
+    assertEquals(List.of("2"), index.find(new double[] {11.0, -50.0, 80.0}, 0.01)); // NON-NLS
+    List<String> found = index.find(new double[] {12.0, -50.0, 80.0}, 0.01);
+    assertEquals(2, found.size());
+    assertTrue(found.containsAll(List.of("3", "3b"))); // NON-NLS
+  }
+
+  @Test
+  void emptyIndex() {
+    ImagePositionIndex<double[]> index = ImagePositionIndex.of(List.of(), p -> p);
+    assertTrue(index.isEmpty());
+    assertTrue(index.find(new double[] {0.0, 0.0, 0.0}, 0.01).isEmpty());
+  }
+}
@@ -20,9 +20,11 @@
 import java.util.Date;
 import org.dcm4che3.data.DatePrecision;
 import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.VR;
 import org.dcm4che3.util.DateUtils;
 import org.junit.jupiter.api.Test;
 import org.weasis.core.Messages;
+import org.weasis.core.api.media.data.TagMap;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.dicom.codec.TagD.Level;
 
@@ -245,4 +247,24 @@ void getUID() {
     uid = TagD.getUID(Level.FRAME);
     assertEquals(TagD.get(Tag.SOPInstanceUID), uid);
   }
+
+  @Test
+  void test_private_tags_in_tag_map() {
+    int tagID = 0x00091010;
+    TagD creatorA = new TagD(tagID, "Private", null, "CREATOR_A", VR.LO, 1, 1, null, false);
+    TagD creatorB = new TagD(tagID, "Private", null, "CREATOR_B", VR.LO, 1, 1, null, false);
+    TagD otherVr = new TagD(tagID, "Private", null, "CREATOR_A", VR.SH, 1, 1, null, false);
+
+    TagMap map = new TagMap();
+    map.put(creatorA, "A"); // NON-NLS
+    map.put(creatorB, "B"); // NON-NLS
+    map.put(otherVr, "SH"); // NON-NLS
+    assertEquals(3, map.size());
+    assertEquals("A", map.get(creatorA)); // NON-NLS
+    assertEquals("B", map.get(creatorB)); // NON-NLS
+    assertEquals("SH", map.get(otherVr)); // NON-NLS
+    assertEquals(
+        "A", // NON-NLS
+        map.get(new TagD(tagID, "Private", null, "CREATOR_A", VR.LO, 1, 1, null, false)));
+  }
 }
@@ -739,6 +739,7 @@ private DicomSeries createSplitOrReplaceSeries(
     s.setTag(TagW.SplitSeriesNumber, isSplit ? idx + 1 : idx);
     s.setTag(TagW.ExplorerModel, this);
     s.setTag(TagW.WadoParameters, original.getTagValue(TagW.WadoParameters));
+    original.addSplitSeries(s);
     addHierarchyNode(study, s);
     LOGGER.info("{} of the series: {}", isSplit ? "Splitting" : "Replacement", s);
     return s;
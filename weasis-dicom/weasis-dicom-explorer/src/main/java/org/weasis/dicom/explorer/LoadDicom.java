@@ -223,6 +223,10 @@ private DicomImageElement[] getDicomImageElements(
 
   protected boolean isSOPInstanceUIDExist(
       MediaSeriesGroup study, Series<?> dicomSeries, Object sopUID) {
+    if (dicomSeries instanceof DicomSeries series) {
+      // Indexed lookup in the series and in the series split from the same original series
+      return sopUID instanceof String uid && series.containsSopInstance(uid);
+    }
     TagW sopTag = TagD.getUID(Level.INSTANCE);
     if (dicomSeries.hasMediaContains(sopTag, sopUID)) {
       return true;
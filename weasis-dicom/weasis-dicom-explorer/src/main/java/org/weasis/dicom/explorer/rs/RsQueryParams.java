@@ -16,7 +16,9 @@
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.JOptionPane;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +57,8 @@ public class RsQueryParams extends ExplorerTask<Boolean, String> {
 
   private final DicomModel dicomModel;
   private final Map<String, LoadSeries> seriesMap;
+  private final Set<LoadSeries> loadingSeries;
+  private WadoParameters thumbnailParameters;
   private final Properties properties;
   private final Map<String, String> queryHeaders;
   private final Map<String, String> retrieveHeaders;
@@ -82,7 +86,8 @@ public RsQueryParams(
       throw new IllegalArgumentException("DICOMWeb URL cannot be null");
     }
 
-    this.seriesMap = new HashMap<>();
+    this.seriesMap = new ConcurrentHashMap<>();
+    this.loadingSeries = ConcurrentHashMap.newKeySet();
     this.queryHeaders = queryHeaders == null ? Collections.emptyMap() : queryHeaders;
     this.retrieveHeaders = retrieveHeaders == null ? Collections.emptyMap() : retrieveHeaders;
     String uid = properties.getProperty(RsQueryParams.P_AUTH_UID);
@@ -165,28 +170,46 @@ protected Boolean doInBackground() throws Exception {
     fillPatientList();
 
     if (!seriesMap.isEmpty()) {
-      openingStrategy.prepareImport();
-      WadoParameters wp = new WadoParameters("", true, true);
-      getRetrieveHeaders().forEach(wp::addHttpTag);
-      wp.addHttpTag("Accept", "image/jpeg"); // NON-NLS
-
+      // Load the series which have not been loaded when their query was complete
       for (final LoadSeries loadSeries : seriesMap.values()) {
-        if (!DicomModel.isHiddenModality(loadSeries.getDicomSeries())) {
-          loadSeries.startDownloadImageReference(wp);
-        }
-        loadSeries.setPOpeningStrategy(openingStrategy);
-        DownloadManager.addLoadSeries(loadSeries, dicomModel, loadSeries.isStartDownloading());
+        startLoading(loadSeries);
       }
 
       // Sort tasks from the download priority order (low number has a higher priority), TASKS
-      // is sorted from low to high priority.
-      DownloadManager.getTasks().sort(Collections.reverseOrder(new PriorityTaskComparator()));
-
-      DownloadManager.CONCURRENT_EXECUTOR.prestartAllCoreThreads();
+      // is sorted from low to high priority. The series already loading are added or removed
+      // concurrently under the lock of DownloadManager.
+      synchronized (DownloadManager.class) {
+        DownloadManager.getTasks().sort(Collections.reverseOrder(new PriorityTaskComparator()));
+      }
     }
     return true;
   }
 
+  /**
+   * Adds a series to the download queue, so it can start loading while the other series are
+   * still being queried. A series is added only once.
+   *
+   * @param loadSeries the series with its complete list of instances
+   */
+  synchronized void startLoading(LoadSeries loadSeries) {
+    if (!loadingSeries.add(loadSeries)) {
+      return;
+    }
+    if (thumbnailParameters == null) {
+      openingStrategy.prepareImport();
+      thumbnailParameters = new WadoParameters("", true, true);
+      getRetrieveHeaders().forEach(thumbnailParameters::addHttpTag);
+      thumbnailParameters.addHttpTag("Accept", "image/jpeg"); // NON-NLS
+    }
+
+    if (!DicomModel.isHiddenModality(loadSeries.getDicomSeries())) {
+      loadSeries.startDownloadImageReference(thumbnailParameters);
+    }
+    loadSeries.setPOpeningStrategy(openingStrategy);
+    DownloadManager.addLoadSeries(loadSeries, dicomModel, loadSeries.isStartDownloading());
+    DownloadManager.CONCURRENT_EXECUTOR.prestartAllCoreThreads();
+  }
+
   private void fillPatientList() {
     try {
       String requestType = getRequestType();
@@ -20,6 +20,10 @@
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.img.util.DateTimeUtils;
@@ -36,6 +40,7 @@
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.util.HttpResponse;
 import org.weasis.core.api.util.NetworkUtil;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.api.util.URLParameters;
 import org.weasis.core.util.LangUtil;
 import org.weasis.core.util.StringUtil;
@@ -65,11 +70,21 @@ public class RsQueryResult extends AbstractQueryResult {
       multiParams("0008103E,00080060,0020000E,00200011,00081190"); // NON-NLS
   public static final String INSTANCE_QUERY = multiParams("00080018,00200013,00081190");
   public static final String QIDO_REQUEST = "QIDO-RS request: {}"; // NON-NLS
+  public static final String CONCURRENT_QUERIES = "dicom.qido.concurrent.requests";
+
+  // Bounded number of QIDO-RS requests sent in parallel (studies, series and instances)
+  private static final ExecutorService QUERY_EXECUTOR =
+      ThreadUtil.newFixedDaemonThreadPool(
+          Math.max(
+              1, GuiUtils.getUICore().getSystemPreferences().getIntProperty(CONCURRENT_QUERIES, 4)),
+          "QIDO-RS Query"); // NON-NLS
 
   private final RsQueryParams rsQueryParams;
   private final WadoParameters wadoParameters;
   private final boolean defaultStartDownloading;
   private final AuthMethod authMethod;
+  // Series whose instances are queried, each series is queried only once
+  private final Set<String> queriedSeries = ConcurrentHashMap.newKeySet();
 
   public RsQueryResult(RsQueryParams rsQueryParams, AuthMethod authMethod) {
     this.rsQueryParams = rsQueryParams;
@@ -100,6 +115,7 @@ public WadoParameters getWadoParameters() {
   }
 
   public void buildFromPatientID(List<String> patientIDs) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
     for (String patientID : LangUtil.emptyIfNull(patientIDs)) {
       if (!StringUtil.hasText(patientID)) {
         continue;
@@ -111,26 +127,60 @@ public void buildFromPatientID(List<String> patientIDs) {
       StringBuilder buf = new StringBuilder(rsQueryParams.getBaseUrl());
       buf.append("/studies?00100020="); // NON-NLS
       String patientVal = beginIndex <= 0 ? patientID : patientID.substring(0, beginIndex);
-      try {
-        buf.append(URLEncoder.encode(patientVal, StandardCharsets.UTF_8));
-        if (beginIndex > 0) {
-          buf.append("&00100021=");
-          buf.append(patientID.substring(beginIndex + 3));
-        }
-        buf.append(STUDY_QUERY);
-        buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
-
-        LOGGER.debug(QIDO_REQUEST, buf);
-        List<Attributes> studies =
-            parseJSON(
-                buf.toString(), authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
-        if (!studies.isEmpty()) {
-          studies.sort(getStudyComparator());
-          applyAllFilters(studies);
-        }
-      } catch (Exception e) {
-        LOGGER.error("QIDO-RS with PatientID {}", patientID, e);
+      buf.append(URLEncoder.encode(patientVal, StandardCharsets.UTF_8));
+      if (beginIndex > 0) {
+        buf.append("&00100021=");
+        buf.append(patientID.substring(beginIndex + 3));
       }
+      buf.append(STUDY_QUERY);
+      buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
+
+      tasks.add(
+          query(buf.toString(), "QIDO-RS with PatientID {}", patientID)
+              .thenCompose(
+                  studies -> {
+                    if (studies.isEmpty()) {
+                      return CompletableFuture.completedFuture(null);
+                    }
+                    studies.sort(getStudyComparator());
+                    return applyAllFilters(studies);
+                  }));
+    }
+    await(tasks);
+  }
+
+  /**
+   * Sends a QIDO-RS request with {@link #QUERY_EXECUTOR}.
+   *
+   * @param url the QIDO-RS URL
+   * @param errorMessage the message logged when the request fails, with the queried value
+   * @param value the queried value
+   * @return the future results, an empty list when the request fails
+   */
+  private CompletableFuture<List<Attributes>> query(String url, String errorMessage, String value) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            LOGGER.debug(QIDO_REQUEST, url);
+            return parseJSON(url, authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
+          } catch (Exception e) {
+            LOGGER.error(errorMessage, value, e);
+            return new ArrayList<>();
+          }
+        },
+        QUERY_EXECUTOR);
+  }
+
+  private static CompletableFuture<Void> allOf(List<? extends CompletableFuture<?>> tasks) {
+    return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+  }
+
+  // Waits for the queries and for the queries they have started
+  private static void await(List<? extends CompletableFuture<?>> tasks) {
+    try {
+      allOf(tasks).join();
+    } catch (CompletionException e) {
+      LOGGER.error("QIDO-RS query", e.getCause());
     }
   }
 
@@ -157,7 +207,7 @@ public static List<Attributes> parseJSON(
     return items;
   }
 
-  private void applyAllFilters(List<Attributes> studies) {
+  private CompletableFuture<Void> applyAllFilters(List<Attributes> studies) {
     if (StringUtil.hasText(rsQueryParams.getLowerDateTime())) {
       Date lowerDateTime = null;
       try {
@@ -247,9 +297,11 @@ private void applyAllFilters(List<Attributes> studies) {
       }
     }
 
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
     for (Attributes studyDataSet : studies) {
-      fillSeries(studyDataSet, defaultStartDownloading);
+      tasks.add(fillSeries(studyDataSet, defaultStartDownloading));
     }
+    return allOf(tasks);
   }
 
   private static Comparator<Attributes> getStudyComparator() {
@@ -290,6 +342,7 @@ public void buildFromStudyInstanceUID(List<String> studyInstanceUIDs) {
   }
 
   public void buildFromStudyInstanceUID(List<String> studyInstanceUIDs, boolean startDownloading) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
     for (String studyInstanceUID : LangUtil.emptyIfNull(studyInstanceUIDs)) {
       if (!StringUtil.hasText(studyInstanceUID)) {
         continue;
@@ -300,21 +353,15 @@ public void buildFromStudyInstanceUID(List<String> studyInstanceUIDs, boolean st
       buf.append(STUDY_QUERY);
       buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
 
-      try {
-        LOGGER.debug(QIDO_REQUEST, buf);
-        List<Attributes> studies =
-            parseJSON(
-                buf.toString(), authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
-        for (Attributes studyDataSet : studies) {
-          fillSeries(studyDataSet, startDownloading);
-        }
-      } catch (Exception e) {
-        LOGGER.error("QIDO-RS with studyUID {}", studyInstanceUID, e);
-      }
+      tasks.add(
+          query(buf.toString(), "QIDO-RS with studyUID {}", studyInstanceUID)
+              .thenCompose(studies -> fillSeries(studies, startDownloading)));
     }
+    await(tasks);
   }
 
   public void buildFromStudyAccessionNumber(List<String> accessionNumbers) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
     for (String accessionNumber : LangUtil.emptyIfNull(accessionNumbers)) {
       if (!StringUtil.hasText(accessionNumber)) {
         continue;
@@ -325,25 +372,18 @@ public void buildFromStudyAccessionNumber(List<String> accessionNumbers) {
       buf.append(STUDY_QUERY);
       buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
 
-      try {
-        LOGGER.debug(QIDO_REQUEST, buf);
-        List<Attributes> studies =
-            parseJSON(
-                buf.toString(), authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
-        for (Attributes studyDataSet : studies) {
-          fillSeries(studyDataSet, defaultStartDownloading);
-        }
-      } catch (Exception e) {
-        LOGGER.error("QIDO-RS with AccessionNumber {}", accessionNumber, e);
-      }
+      tasks.add(
+          query(buf.toString(), "QIDO-RS with AccessionNumber {}", accessionNumber)
+              .thenCompose(studies -> fillSeries(studies, defaultStartDownloading)));
     }
+    await(tasks);
   }
 
   public void buildFromSeriesInstanceUID(List<String> seriesInstanceUIDs) {
     boolean wholeStudy =
         LangUtil.getEmptytoFalse(
             rsQueryParams.getProperties().getProperty(RsQueryParams.P_SHOW_WHOLE_STUDY));
-    Set<String> studyHashSet = new LinkedHashSet<>();
+    List<CompletableFuture<String>> tasks = new ArrayList<>();
 
     for (String seriesInstanceUID : LangUtil.emptyIfNull(seriesInstanceUIDs)) {
       if (!StringUtil.hasText(seriesInstanceUID)) {
@@ -357,32 +397,40 @@ public void buildFromSeriesInstanceUID(List<String> seriesInstanceUIDs) {
       buf.append(",0008103E,00080060,00081190,00200011"); // NON-NLS
       buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
 
-      try {
-        LOGGER.debug(QIDO_REQUEST, buf);
-        List<Attributes> series =
-            parseJSON(
-                buf.toString(), authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
-        if (!series.isEmpty()) {
-          Attributes dataset = series.getFirst();
-          MediaSeriesGroup patient = getPatient(dataset, rsQueryParams.getDicomModel());
-          MediaSeriesGroup study = getStudy(patient, dataset, rsQueryParams.getDicomModel());
-          for (Attributes seriesDataset : series) {
-            Series<?> dicomSeries = getSeries(study, seriesDataset, defaultStartDownloading);
-            fillInstance(seriesDataset, dicomSeries);
-          }
-          studyHashSet.add(dataset.getString(Tag.StudyInstanceUID));
-        }
-      } catch (Exception e) {
-        LOGGER.error("QIDO-RS with seriesUID {}", seriesInstanceUID, e);
-      }
+      tasks.add(
+          query(buf.toString(), "QIDO-RS with seriesUID {}", seriesInstanceUID)
+              .thenCompose(
+                  series -> {
+                    if (series.isEmpty()) {
+                      return CompletableFuture.completedFuture(null);
+                    }
+                    Attributes dataset = series.getFirst();
+                    MediaSeriesGroup study = getStudyNode(dataset);
+                    List<CompletableFuture<Void>> fills = new ArrayList<>();
+                    for (Attributes seriesDataset : series) {
+                      fills.add(fillInstance(study, seriesDataset, defaultStartDownloading));
+                    }
+                    return allOf(fills)
+                        .thenApply(v -> dataset.getString(Tag.StudyInstanceUID));
+                  }));
     }
+    await(tasks);
 
     if (wholeStudy) {
+      // Keep the order of the requests
+      Set<String> studyHashSet = new LinkedHashSet<>();
+      for (CompletableFuture<String> task : tasks) {
+        String studyUID = task.isCompletedExceptionally() ? null : task.join();
+        if (studyUID != null) {
+          studyHashSet.add(studyUID);
+        }
+      }
       buildFromStudyInstanceUID(new ArrayList<>(studyHashSet), false);
     }
   }
 
   public void buildFromSopInstanceUID(List<String> sopInstanceUIDs) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
     for (String sopInstanceUID : LangUtil.emptyIfNull(sopInstanceUIDs)) {
       if (!StringUtil.hasText(sopInstanceUID)) {
         continue;
@@ -396,59 +444,99 @@ public void buildFromSopInstanceUID(List<String> sopInstanceUIDs) {
       buf.append(",00200013,00081190");
       buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
 
-      try {
-        LOGGER.debug(QIDO_REQUEST, buf);
-        List<Attributes> instances =
-            parseJSON(
-                buf.toString(), authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
-        if (!instances.isEmpty()) {
-          Attributes dataset = instances.get(0);
-          MediaSeriesGroup patient = getPatient(dataset, rsQueryParams.getDicomModel());
-          MediaSeriesGroup study = getStudy(patient, dataset, rsQueryParams.getDicomModel());
-          Series<?> dicomSeries = getSeries(study, dataset, defaultStartDownloading);
-          String seriesRetrieveURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
-          SeriesInstanceList seriesInstanceList =
-              (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
-          if (seriesInstanceList != null) {
-            for (Attributes instanceDataSet : instances) {
-              addSopInstance(instanceDataSet, seriesInstanceList, seriesRetrieveURL);
-            }
-          }
+      // The series are not complete, they are loaded when all the queries are done
+      tasks.add(
+          query(buf.toString(), "QIDO-RS with sopInstanceUID {}", sopInstanceUID)
+              .thenAccept(
+                  instances -> {
+                    if (!instances.isEmpty()) {
+                      Attributes dataset = instances.getFirst();
+                      MediaSeriesGroup study = getStudyNode(dataset);
+                      Series<?> dicomSeries = getSeries(study, dataset, defaultStartDownloading);
+                      addSopInstances(instances, dicomSeries);
+                    }
+                  }));
+    }
+    await(tasks);
+  }
+
+  private void addSopInstances(List<Attributes> instances, Series<?> dicomSeries) {
+    String seriesRetrieveURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
+    SeriesInstanceList seriesInstanceList =
+        (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
+    if (seriesInstanceList != null) {
+      synchronized (seriesInstanceList) {
+        for (Attributes instanceDataSet : instances) {
+          addSopInstance(instanceDataSet, seriesInstanceList, seriesRetrieveURL);
         }
-      } catch (Exception e) {
-        LOGGER.error("QIDO-RS with sopInstanceUID {}", sopInstanceUID, e);
       }
     }
   }
 
-  private void fillSeries(Attributes studyDataSet, boolean startDownloading) {
+  private synchronized MediaSeriesGroup getStudyNode(Attributes dataset) {
+    MediaSeriesGroup patient = getPatient(dataset, rsQueryParams.getDicomModel());
+    return getStudy(patient, dataset, rsQueryParams.getDicomModel());
+  }
+
+  private CompletableFuture<Void> fillSeries(List<Attributes> studies, boolean startDownloading) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    for (Attributes studyDataSet : studies) {
+      tasks.add(fillSeries(studyDataSet, startDownloading));
+    }
+    return allOf(tasks);
+  }
+
+  private CompletableFuture<Void> fillSeries(Attributes studyDataSet, boolean startDownloading) {
     String studyInstanceUID = studyDataSet.getString(Tag.StudyInstanceUID);
-    if (StringUtil.hasText(studyInstanceUID)) {
-      StringBuilder buf = new StringBuilder(rsQueryParams.getBaseUrl());
-      buf.append("/studies/"); // NON-NLS
-      buf.append(studyInstanceUID);
-      buf.append("/series?includefield="); // NON-NLS
-      buf.append(SERIES_QUERY);
-      buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
+    if (!StringUtil.hasText(studyInstanceUID)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    StringBuilder buf = new StringBuilder(rsQueryParams.getBaseUrl());
+    buf.append("/studies/"); // NON-NLS
+    buf.append(studyInstanceUID);
+    buf.append("/series?includefield="); // NON-NLS
+    buf.append(SERIES_QUERY);
+    buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, ""));
+
+    return query(buf.toString(), "QIDO-RS all series with studyUID {}", studyInstanceUID)
+        .thenCompose(
+            series -> {
+              if (series.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+              }
+              // Get patient from each study in case IssuerOfPatientID is different
+              MediaSeriesGroup study = getStudyNode(studyDataSet);
+              List<CompletableFuture<Void>> tasks = new ArrayList<>();
+              for (Attributes seriesDataset : series) {
+                tasks.add(fillInstance(study, seriesDataset, startDownloading));
+              }
+              return allOf(tasks);
+            });
+  }
 
-      try {
-        LOGGER.debug(QIDO_REQUEST, buf);
-        List<Attributes> series =
-            parseJSON(
-                buf.toString(), authMethod, new URLParameters(rsQueryParams.getQueryHeaders()));
-        if (!series.isEmpty()) {
-          // Get patient from each study in case IssuerOfPatientID is different
-          MediaSeriesGroup patient = getPatient(studyDataSet, rsQueryParams.getDicomModel());
-          MediaSeriesGroup study = getStudy(patient, studyDataSet, rsQueryParams.getDicomModel());
-          for (Attributes seriesDataset : series) {
-            Series<?> dicomSeries = getSeries(study, seriesDataset, startDownloading);
-            fillInstance(seriesDataset, dicomSeries);
-          }
-        }
-      } catch (Exception e) {
-        LOGGER.error("QIDO-RS all series with studyUID {}", studyInstanceUID, e);
-      }
+  /**
+   * Queries all the instances of a series with {@link #QUERY_EXECUTOR}. The series starts loading
+   * as soon as its instance list is complete, while the other series are still being queried.
+   */
+  private CompletableFuture<Void> fillInstance(
+      MediaSeriesGroup study, Attributes seriesDataset, boolean startDownloading) {
+    String seriesUID = seriesDataset.getString(Tag.SeriesInstanceUID);
+    if (!StringUtil.hasText(seriesUID)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    DicomSeries dicomSeries = getSeries(study, seriesDataset, startDownloading);
+    if (!queriedSeries.add(seriesUID)) {
+      return CompletableFuture.completedFuture(null);
     }
+    return CompletableFuture.runAsync(
+        () -> {
+          fillInstance(seriesDataset, dicomSeries);
+          LoadSeries loadSeries = rsQueryParams.getSeriesMap().get(seriesUID);
+          if (loadSeries != null) {
+            rsQueryParams.startLoading(loadSeries);
+          }
+        },
+        QUERY_EXECUTOR);
   }
 
   private void fillInstance(Attributes seriesDataset, Series<?> dicomSeries) {
@@ -477,13 +565,7 @@ private void fillInstance(Attributes seriesDataset, Series<?> dicomSeries) {
             break;
           }
 
-          SeriesInstanceList seriesInstanceList =
-              (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
-          if (seriesInstanceList != null) {
-            for (Attributes instanceDataSet : instances) {
-              addSopInstance(instanceDataSet, seriesInstanceList, seriesRetrieveURL);
-            }
-          }
+          addSopInstances(instances, dicomSeries);
           offset += instances.size();
           if (instances.size() < limit) {
             break;
@@ -570,7 +652,7 @@ public static MediaSeriesGroup getStudy(
     return study;
   }
 
-  private DicomSeries getSeries(
+  private synchronized DicomSeries getSeries(
       MediaSeriesGroup study, final Attributes seriesDataset, boolean startDownloading) {
     if (seriesDataset == null) {
       throw new IllegalArgumentException("seriesDataset cannot be null");
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.explorer.wado;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.BulkData;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.img.DicomMetaData;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.io.DicomInputStream.IncludeBulkData;
+import org.dcm4che3.io.DicomOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.util.FileUtil;
+import org.weasis.core.util.StreamIOException;
+
+/**
+ * Writes a DICOM instance received from a stream in a file and reads its header in the same pass,
+ * so the file is written once and is not read again to build the {@link
+ * org.weasis.dicom.codec.DicomMediaIO}.
+ *
+ * <p>Without editor, the bytes of the stream are written unchanged while they are parsed. With an
+ * editor, the attributes are modified before being written and the pixel data are copied without
+ * being decoded.
+ */
+final class DicomStreamWriter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DicomStreamWriter.class);
+  private static final int FILE_BUFFER = FileUtil.FILE_BUFFER;
+
+  private final File file;
+  private final File location;
+  private final Consumer<Attributes> editor;
+  private DicomMetaData metaData;
+
+  /**
+   * @param file the file to write
+   * @param location the file where the written file will be when the header is used (the bulk
+   *     data of the header refer to this file)
+   * @param editor modifies the attributes before writing them, or null to write the stream as is
+   */
+  DicomStreamWriter(File file, File location, Consumer<Attributes> editor) {
+    this.file = Objects.requireNonNull(file);
+    this.location = Objects.requireNonNull(location);
+    this.editor = editor;
+  }
+
+  /**
+   * @param in the DICOM stream, which is not closed
+   * @return bytes transferred. 0 = error, -1 = all bytes has been transferred, other = bytes
+   *     transferred before interruption
+   * @throws StreamIOException reading or writing error
+   */
+  int write(InputStream in) throws StreamIOException {
+    metaData = null;
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), FILE_BUFFER)) {
+      if (editor == null) {
+        copy(in, out);
+      } else {
+        edit(in, out);
+      }
+      return -1;
+    } catch (InterruptedIOException e) {
+      FileUtil.delete(file);
+      metaData = null;
+      LOGGER.error("Interruption when writing file: {}", e.getMessage());
+      return e.bytesTransferred;
+    } catch (IOException e) {
+      FileUtil.delete(file);
+      metaData = null;
+      throw new StreamIOException(e);
+    } catch (Exception e) {
+      FileUtil.delete(file);
+      metaData = null;
+      LOGGER.error("Writing DICOM temp file", e);
+      return 0;
+    }
+  }
+
+  /**
+   * @param current the current location of the written file
+   * @return the header read while writing the file, or null when it must be read from the file
+   */
+  DicomMetaData getMetaData(File current) {
+    return location.equals(current) ? metaData : null;
+  }
+
+  private void copy(InputStream in, OutputStream out) throws IOException {
+    TeeInputStream tee = new TeeInputStream(in, out);
+    DicomInputStream dis = new DicomInputStream(tee);
+    try {
+      Attributes fmi = dis.readFileMetaInformation();
+      String tsuid = dis.getTransferSyntax();
+      // The bulk data of a deflated dataset cannot refer to the file
+      if (!isDeflated(tsuid) && !isMediaStorageDirectory(fmi)) {
+        dis.setIncludeBulkData(IncludeBulkData.URI);
+        dis.setURI(location.toURI().toString());
+        Attributes dataset = dis.readDataset();
+        if (isBulkDataInFile(dis)) {
+          metaData = new DicomMetaData(dataset, tsuid);
+        }
+      }
+    } catch (InterruptedIOException e) {
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      // The file is written anyway, the reader will report the error
+      LOGGER.debug("Cannot read the header of {}: {}", location, e.getMessage());
+    }
+    // Write the remaining bytes, e.g. after an unreadable attribute or a trailing padding
+    tee.transferTo(OutputStream.nullOutputStream());
+  }
+
+  private void edit(InputStream in, OutputStream out) throws IOException {
+    DicomInputStream dis = new DicomInputStream(in);
+    dis.readFileMetaInformation();
+    String tsuid = dis.getTransferSyntax();
+    if (isDeflated(tsuid)) {
+      dis.setIncludeBulkData(IncludeBulkData.YES);
+      Attributes dataset = dis.readDataset();
+      editor.accept(dataset);
+      try (DicomOutputStream dos = new DicomOutputStream(out, UID.ExplicitVRLittleEndian)) {
+        dos.writeDataset(dataset.createFileMetaInformation(tsuid), dataset);
+        dos.finish();
+      }
+      return;
+    }
+
+    Attributes dataset = dis.readDatasetUntilPixelData();
+    editor.accept(dataset);
+    boolean pixelData = dis.tag() == Tag.PixelData && !dataset.contains(Tag.PixelData);
+    CountingOutputStream counter = new CountingOutputStream(out);
+    DicomOutputStream dos = new DicomOutputStream(counter, UID.ExplicitVRLittleEndian);
+    dos.writeDataset(dataset.createFileMetaInformation(tsuid), dataset);
+    if (pixelData) {
+      dos.writeHeader(Tag.PixelData, dis.vr(), dis.length());
+    }
+    dos.flush();
+    long offset = counter.count;
+    // Copy the pixel data and the following attributes in the same transfer syntax
+    dis.transferTo(counter);
+
+    if (pixelData && dis.length() >= 0) {
+      dataset.setValue(
+          Tag.PixelData,
+          dis.vr(),
+          new BulkData(location.toURI().toString(), offset, dis.length(), dis.bigEndian()));
+      metaData = new DicomMetaData(dataset, tsuid);
+    }
+    // Otherwise the offsets of the encapsulated fragments are read from the file
+  }
+
+  private static boolean isDeflated(String tsuid) {
+    return UID.DeflatedExplicitVRLittleEndian.equals(tsuid)
+        || UID.JPIPReferencedDeflate.equals(tsuid);
+  }
+
+  private static boolean isMediaStorageDirectory(Attributes fmi) {
+    return fmi != null
+        && UID.MediaStorageDirectoryStorage.equals(fmi.getString(Tag.MediaStorageSOPClassUID));
+  }
+
+  private static boolean isBulkDataInFile(DicomInputStream dis) {
+    List<File> blkFiles = dis.getBulkDataFiles();
+    if (blkFiles == null || blkFiles.isEmpty()) {
+      return true;
+    }
+    for (File f : blkFiles) {
+      FileUtil.delete(f);
+    }
+    return false;
+  }
+
+  // Writes in the file all the bytes read or skipped by the parser
+  private static final class TeeInputStream extends FilterInputStream {
+    private final OutputStream out;
+    private final byte[] skipBuffer = new byte[FILE_BUFFER];
+
+    TeeInputStream(InputStream in, OutputStream out) {
+      super(in);
+      this.out = out;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        out.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        out.write(b, off, n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long remaining = n;
+      while (remaining > 0) {
+        int nr = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+        if (nr < 0) {
+          break;
+        }
+        remaining -= nr;
+      }
+      return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+      // The stream is closed by the caller
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
@@ -40,16 +40,14 @@
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.swing.JProgressBar;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.ElementDictionary;
 import org.dcm4che3.data.Tag;
-import org.dcm4che3.io.DicomInputStream;
-import org.dcm4che3.io.DicomInputStream.IncludeBulkData;
-import org.dcm4che3.io.DicomOutputStream;
-import org.dcm4che3.util.SafeClose;
+import org.dcm4che3.img.DicomMetaData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.auth.AuthMethod;
@@ -66,6 +64,7 @@
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.media.data.TagW.TagType;
 import org.weasis.core.api.media.data.Thumbnail;
+import org.weasis.core.api.media.data.ThumbnailStore;
 import org.weasis.core.api.model.PerformanceModel;
 import org.weasis.core.api.service.AuditLog;
 import org.weasis.core.api.util.AuthResponse;
@@ -83,7 +82,6 @@
 import org.weasis.core.util.StringUtil;
 import org.weasis.dicom.codec.*;
 import org.weasis.dicom.codec.DicomMediaIO.Reading;
-import org.weasis.dicom.codec.TagD.Level;
 import org.weasis.dicom.codec.utils.DicomMediaUtils;
 import org.weasis.dicom.codec.utils.SeriesInstanceList;
 import org.weasis.dicom.explorer.*;
@@ -97,6 +95,7 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LoadSeries.class);
   public static final String CONCURRENT_DOWNLOADS_IN_SERIES = "download.concurrent.series.images";
+  public static final String SERIES_BULK_RETRIEVAL = "download.wadors.series.bulk";
 
   public static final File DICOM_TMP_DIR =
       AppProperties.buildAccessibleTempDirectory("downloading"); // NON-NLS
@@ -441,28 +440,40 @@ private String getDownloadRate(long time) {
     return time <= 0 ? "0" : format.format((double) dicomSeries.getFileSize() / time);
   }
 
-  private boolean isSOPInstanceUIDExist(
-      MediaSeriesGroup study, Series<?> dicomSeries, String sopUID) {
-    TagW sopTag = TagD.getUID(Level.INSTANCE);
-    if (dicomSeries.hasMediaContains(sopTag, sopUID)) {
-      return true;
+  private boolean isSOPInstanceUIDExist(String sopUID) {
+    // Search also in split Series, cannot use "has this series a SplitNumber" because splitting
+    // can be executed later for Dicom Video and other special Dicom
+    return dicomSeries.containsSopInstance(sopUID);
+  }
+
+  private boolean isSeriesBulkRetrieval(WadoParameters wado, List<SopInstance> sopList) {
+    if (!wado.isWadoRS()
+        || sopList.size() < 2
+        || !GuiUtils.getUICore()
+            .getSystemPreferences()
+            .getBooleanProperty(SERIES_BULK_RETRIEVAL, true)) {
+      return false;
     }
-    // Search in split Series, cannot use "has this series a SplitNumber" because splitting can be
-    // executed later
-    // for Dicom Video and other special Dicom
-    String uid = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
-    if (study != null && uid != null) {
-      for (MediaSeriesGroup group : dicomModel.getChildren(study)) {
-        if (dicomSeries != group
-            && group instanceof Series<?> s
-            && uid.equals(TagD.getTagValue(group, Tag.SeriesInstanceUID))
-            && s.hasMediaContains(sopTag, sopUID)) {
-          return true;
-        }
+    String seriesURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
+    if (!StringUtil.hasText(seriesURL)) {
+      return false;
+    }
+    // The series response contains all the instances, use it only when none has been loaded
+    for (SopInstance instance : sopList) {
+      if (isSOPInstanceUIDExist(instance.getSopInstanceUID())) {
+        return false;
       }
     }
+    return true;
+  }
 
-    return false;
+  private static String getContentType(HttpResponse response) {
+    if (response instanceof ClosableURLConnection urlConnection) {
+      return urlConnection.getUrlConnection().getContentType();
+    } else if (response instanceof AuthResponse authResponse) {
+      return authResponse.getResponse().getHeader("Content-Type"); // NON-NLS
+    }
+    return response.getHeaderField("Content-Type"); // NON-NLS
   }
 
   private void incrementProgressBarValue() {
@@ -481,6 +492,23 @@ private Boolean startDownload() {
     }
 
     List<SopInstance> sopList = seriesInstanceList.getSortedList();
+    dicomSeries.setTag(DOWNLOAD_START_TIME, System.currentTimeMillis());
+
+    if (isSeriesBulkRetrieval(wado, sopList)) {
+      String seriesURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
+      GuiExecutor.execute(
+          () -> {
+            progressBar.setMaximum(sopList.size());
+            progressBar.setValue(0);
+          });
+      LOGGER.debug("Download DICOM series {} in a single request.", seriesURL);
+      // When the series-level request is rejected or interrupted, the missing instances are
+      // downloaded individually below
+      new SeriesDownload(seriesURL).call();
+      if (isCancelled()) {
+        return true;
+      }
+    }
 
     try (ExecutorService imageDownloader =
         ThreadUtil.newFixedThreadPool(concurrentDownloads, "Image Downloader")) {
@@ -504,7 +532,7 @@ private Boolean startDownload() {
         }
 
         // Test if SOPInstanceUID already exists
-        if (isSOPInstanceUIDExist(study, dicomSeries, instance.getSopInstanceUID())) {
+        if (isSOPInstanceUIDExist(instance.getSopInstanceUID())) {
           incrementProgressBarValue();
           LOGGER.debug("DICOM instance {} already exists, skip.", instance.getSopInstanceUID());
           continue;
@@ -549,7 +577,6 @@ private Boolean startDownload() {
       }
 
       try {
-        dicomSeries.setTag(DOWNLOAD_START_TIME, System.currentTimeMillis());
         imageDownloader.invokeAll(tasks);
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
@@ -731,6 +758,12 @@ public DicomSeries getDicomSeries() {
   public File getJpegThumbnails(
       WadoParameters wadoParameters, String studyUID, String seriesUID, String sopInstanceUID)
       throws Exception {
+    ThumbnailStore.Key key =
+        new ThumbnailStore.Key(sopInstanceUID, 0, ThumbnailStore.Rendering.SERVER);
+    File storedFile = ThumbnailStore.getInstance().get(key, Thumbnail.MAX_SIZE);
+    if (storedFile != null) {
+      return storedFile;
+    }
     String addParams = wadoParameters.getAdditionnalParameters();
     if (StringUtil.hasText(addParams)) {
       addParams =
@@ -774,6 +807,11 @@ public File getJpegThumbnails(
         FileUtil.delete(outFile);
       }
     }
+    storedFile = ThumbnailStore.getInstance().put(key, outFile);
+    if (storedFile != null) {
+      FileUtil.delete(outFile);
+      return storedFile;
+    }
     return outFile;
   }
 
@@ -816,7 +854,7 @@ private int[] generateDownloadOrder(final int size) {
 
   class Download implements Callable<Boolean> {
 
-    private final String url; // download URL
+    final String url; // download URL
     private Status status; // current status of download
 
     public Download(String url) {
@@ -873,13 +911,14 @@ private File getDicomTmpDir() {
     }
 
     /** Download file. */
-    private boolean process() throws IOException, URISyntaxException {
+    boolean process() throws IOException, URISyntaxException {
       boolean firstImage =
           dicomSeries != null
               && dicomSeries.size(null) == 0
               && seriesInitialized.compareAndSet(false, true);
       boolean cache = true;
       File tempFile = null;
+      DicomMetaData metaData = null;
       DicomMediaIO dicomReader = null;
       HttpResponse urlcon = NetworkUtil.getHttpResponse(url, urlParams, authMethod);
       int code = urlcon.getResponseCode();
@@ -906,46 +945,23 @@ private boolean process() throws IOException, URISyntaxException {
         if (dicomSeries != null) {
           if (cache) {
             LOGGER.debug("Start to download DICOM instance {} to {}.", url, tempFile.getName());
-            int bytesTransferred = downloadInFileCache(urlcon, tempFile);
+            DicomStreamWriter writer = newStreamWriter(tempFile);
+            int bytesTransferred = downloadInFileCache(urlcon, writer);
             if (bytesTransferred == -1) {
               LOGGER.info("End of downloading {} ", url);
             } else if (bytesTransferred >= 0) {
               return false;
             }
 
-            File renameFile = new File(DicomMediaIO.DICOM_EXPORT_DIR, tempFile.getName());
-            if (tempFile.renameTo(renameFile)) {
-              tempFile = renameFile;
-            }
+            tempFile = moveToExportDir(tempFile);
+            metaData = writer.getMetaData(tempFile);
           } else {
             tempFile = new File(NetworkUtil.getURI(url));
           }
           // Ensure the stream is closed if image is not written in cache
           FileUtil.safeClose(stream);
 
-          dicomReader = new DicomMediaIO(tempFile);
-          if (dicomReader.isReadableDicom() && firstImage) {
-            // Override the group (patient, study and series) by the dicom fields except the UID of
-            // the group
-            MediaSeriesGroup patient = dicomModel.getParent(dicomSeries, DicomModel.patient);
-            dicomReader.writeMetaData(patient);
-            MediaSeriesGroup study = dicomModel.getParent(dicomSeries, DicomModel.study);
-            dicomReader.writeMetaData(study);
-            dicomReader.writeMetaData(dicomSeries);
-            GuiExecutor.invokeAndWait(
-                () -> {
-                  Thumbnail thumb = (Thumbnail) dicomSeries.getTagValue(TagW.Thumbnail);
-                  if (thumb != null) {
-                    thumb.repaint();
-                  }
-                  dicomModel.firePropertyChange(
-                      new ObservableEvent(
-                          ObservableEvent.BasicAction.UPDATE_PARENT,
-                          dicomModel,
-                          null,
-                          dicomSeries));
-                });
-          }
+          dicomReader = readInstance(tempFile, metaData, firstImage);
         }
       }
 
@@ -953,15 +969,7 @@ private boolean process() throws IOException, URISyntaxException {
       if (status == Status.DOWNLOADING) {
         status = Status.COMPLETE;
         if (tempFile != null && dicomSeries != null) {
-          Reading reading = dicomReader.getReadingStatus();
-          if (reading == Reading.READABLE) {
-            if (tempFile.getPath().startsWith(AppProperties.APP_TEMP_DIR.getPath())) {
-              dicomReader.getFileCache().setOriginalTempFile(tempFile);
-            }
-            updateUI(dicomReader, firstImage);
-          } else if (reading == Reading.ERROR) {
-            errors.incrementAndGet();
-          }
+          addInstance(tempFile, dicomReader, firstImage);
         }
       }
       // Increment progress bar in EDT and repaint when downloaded
@@ -969,149 +977,127 @@ private boolean process() throws IOException, URISyntaxException {
       return true;
     }
 
-    private int downloadInFileCache(HttpResponse response, File tempFile) throws IOException {
-      final WadoParameters wadoParams =
-          (WadoParameters) dicomSeries.getTagValue(TagW.WadoParameters);
+    File moveToExportDir(File tempFile) {
+      File renameFile = getExportFile(tempFile);
+      if (tempFile.renameTo(renameFile)) {
+        return renameFile;
+      }
+      return tempFile;
+    }
+
+    private File getExportFile(File tempFile) {
+      return new File(DicomMediaIO.DICOM_EXPORT_DIR, tempFile.getName());
+    }
+
+    /**
+     * @param tempFile the file where the instance is downloaded before being moved with {@link
+     *     #moveToExportDir(File)}
+     * @return the writer applying the tags to override of the WADO parameters
+     */
+    DicomStreamWriter newStreamWriter(File tempFile) {
+      WadoParameters wadoParams = (WadoParameters) dicomSeries.getTagValue(TagW.WadoParameters);
       int[] overrideList =
           Optional.ofNullable(wadoParams)
               .map(WadoParameters::getOverrideDicomTagIDList)
               .orElse(null);
+      Consumer<Attributes> editor =
+          overrideList == null ? null : dataset -> overrideTags(dataset, overrideList);
+      return new DicomStreamWriter(tempFile, getExportFile(tempFile), editor);
+    }
 
-      int bytesTransferred;
-      if (overrideList == null) {
-        if (wadoParams != null && wadoParams.isWadoRS()) {
-
-          int[] readBytes = {0};
-          Multipart.Handler handler =
-              (multipartReader, partNumber, headers) -> {
-                // At sop instance level must have only one part
-                try (InputStream in = multipartReader.newPartInputStream()) {
-                  readBytes[0] =
-                      FileUtil.writeStream(
-                          new SeriesProgressMonitor(dicomSeries, in), tempFile, false);
-                }
-              };
+    /**
+     * @param file the DICOM file
+     * @param metaData the header of the file read while downloading, or null to read it from the
+     *     file
+     * @param firstImage true to update the patient, the study and the series from the header
+     */
+    DicomMediaIO readInstance(File file, DicomMetaData metaData, boolean firstImage) {
+      DicomMediaIO dicomReader = new DicomMediaIO(file, metaData);
+      if (dicomReader.isReadableDicom() && firstImage) {
+        // Override the group (patient, study and series) by the dicom fields except the UID of
+        // the group
+        MediaSeriesGroup patient = dicomModel.getParent(dicomSeries, DicomModel.patient);
+        dicomReader.writeMetaData(patient);
+        MediaSeriesGroup study = dicomModel.getParent(dicomSeries, DicomModel.study);
+        dicomReader.writeMetaData(study);
+        dicomReader.writeMetaData(dicomSeries);
+        GuiExecutor.invokeAndWait(
+            () -> {
+              Thumbnail thumb = (Thumbnail) dicomSeries.getTagValue(TagW.Thumbnail);
+              if (thumb != null) {
+                thumb.repaint();
+              }
+              dicomModel.firePropertyChange(
+                  new ObservableEvent(
+                      ObservableEvent.BasicAction.UPDATE_PARENT, dicomModel, null, dicomSeries));
+            });
+      }
+      return dicomReader;
+    }
 
-          if (response instanceof ClosableURLConnection urlConnection) {
-            Multipart.parseMultipartRelated(
-                urlConnection.getUrlConnection().getContentType(),
-                response.getInputStream(),
-                handler);
-          } else {
-            AuthResponse authResponse = (AuthResponse) response;
-            Multipart.parseMultipartRelated(
-                authResponse.getResponse().getHeader("Content-Type"), // NON-NLS
-                response.getInputStream(),
-                handler);
-          }
-          bytesTransferred = readBytes[0];
-        } else {
-          bytesTransferred =
-              FileUtil.writeStream(
-                  new DicomSeriesProgressMonitor(dicomSeries, response.getInputStream(), false),
-                  tempFile);
+    void addInstance(File file, DicomMediaIO dicomReader, boolean firstImage) {
+      Reading reading = dicomReader.getReadingStatus();
+      if (reading == Reading.READABLE) {
+        if (file.getPath().startsWith(AppProperties.APP_TEMP_DIR.getPath())) {
+          dicomReader.getFileCache().setOriginalTempFile(file);
         }
+        updateUI(dicomReader, firstImage);
+      } else if (reading == Reading.ERROR) {
+        errors.incrementAndGet();
+      }
+    }
+
+    private int downloadInFileCache(HttpResponse response, DicomStreamWriter writer)
+        throws IOException {
+      final WadoParameters wadoParams =
+          (WadoParameters) dicomSeries.getTagValue(TagW.WadoParameters);
+
+      int bytesTransferred;
+      if (wadoParams != null && wadoParams.isWadoRS()) {
+        int[] readBytes = {0};
+        Multipart.Handler handler =
+            (multipartReader, partNumber, headers) -> {
+              // At sop instance level must have only one part
+              try (InputStream in = multipartReader.newPartInputStream()) {
+                readBytes[0] = writer.write(new SeriesProgressMonitor(dicomSeries, in));
+              }
+            };
+
+        Multipart.parseMultipartRelated(
+            getContentType(response), response.getInputStream(), handler);
+        bytesTransferred = readBytes[0];
       } else {
         bytesTransferred =
-            writFile(
-                new DicomSeriesProgressMonitor(dicomSeries, response.getInputStream(), false),
-                tempFile,
-                overrideList);
+            writer.write(
+                new DicomSeriesProgressMonitor(dicomSeries, response.getInputStream(), false));
       }
 
       if (bytesTransferred == Integer.MIN_VALUE) {
         LOGGER.warn("Stop downloading unsupported TSUID, retry to download non compressed TSUID");
         try (InputStream stream2 = replaceToDefaultTSUID().getInputStream()) {
-          if (overrideList == null) {
-            bytesTransferred =
-                FileUtil.writeStream(
-                    new DicomSeriesProgressMonitor(dicomSeries, stream2, false), tempFile);
-          } else {
-            bytesTransferred =
-                writFile(
-                    new DicomSeriesProgressMonitor(dicomSeries, stream2, false),
-                    tempFile,
-                    overrideList);
-          }
+          bytesTransferred =
+              writer.write(new DicomSeriesProgressMonitor(dicomSeries, stream2, false));
         }
       }
       return bytesTransferred;
     }
 
-    /**
-     * @param in the InputStream value
-     * @param tempFile the file path
-     * @param overrideList the list of the DICOM tags to modify when writing
-     * @return bytes transferred. O = error, -1 = all bytes has been transferred, other = bytes
-     *     transferred before interruption
-     * @throws StreamIOException reading or writing error
-     */
-    public int writFile(InputStream in, File tempFile, int[] overrideList)
-        throws StreamIOException {
-      if (in == null || tempFile == null) {
-        return 0;
-      }
-
-      DicomInputStream dis = null;
-      DicomOutputStream dos = null;
-
-      try {
-        String tsuid;
-        Attributes dataset;
-        dis = new DicomInputStream(in);
-        try {
-          dis.setIncludeBulkData(IncludeBulkData.URI);
-          dataset = dis.readDataset();
-          tsuid = dis.getTransferSyntax();
-        } finally {
-          dis.close();
+    private void overrideTags(Attributes dataset, int[] overrideList) {
+      MediaSeriesGroup study = dicomModel.getParent(dicomSeries, DicomModel.study);
+      MediaSeriesGroup patient = dicomModel.getParent(dicomSeries, DicomModel.patient);
+      ElementDictionary dic = ElementDictionary.getStandardElementDictionary();
+
+      for (int tag : overrideList) {
+        TagW tagElement = patient.getTagElement(tag);
+        Object value;
+        if (tagElement == null) {
+          tagElement = study.getTagElement(tag);
+          value = study.getTagValue(tagElement);
+        } else {
+          value = patient.getTagValue(tagElement);
         }
 
-        dos = new DicomOutputStream(tempFile);
-
-        if (overrideList != null) {
-          MediaSeriesGroup study = dicomModel.getParent(dicomSeries, DicomModel.study);
-          MediaSeriesGroup patient = dicomModel.getParent(dicomSeries, DicomModel.patient);
-          ElementDictionary dic = ElementDictionary.getStandardElementDictionary();
-
-          for (int tag : overrideList) {
-            TagW tagElement = patient.getTagElement(tag);
-            Object value;
-            if (tagElement == null) {
-              tagElement = study.getTagElement(tag);
-              value = study.getTagValue(tagElement);
-            } else {
-              value = patient.getTagValue(tagElement);
-            }
-
-            DicomMediaUtils.fillAttributes(dataset, tagElement, value, dic);
-          }
-        }
-        dos.writeDataset(dataset.createFileMetaInformation(tsuid), dataset);
-        dos.finish();
-        dos.flush();
-        return -1;
-      } catch (InterruptedIOException e) {
-        FileUtil.delete(tempFile);
-        LOGGER.error("Interruption when writing file: {}", e.getMessage());
-        return e.bytesTransferred;
-      } catch (IOException e) {
-        FileUtil.delete(tempFile);
-        throw new StreamIOException(e);
-      } catch (Exception e) {
-        FileUtil.delete(tempFile);
-        LOGGER.error("Writing DICOM temp file", e);
-        return 0;
-      } finally {
-        SafeClose.close(dos);
-        if (dis != null) {
-          List<File> blkFiles = dis.getBulkDataFiles();
-          if (blkFiles != null) {
-            for (File file : blkFiles) {
-              FileUtil.delete(file);
-            }
-          }
-        }
+        DicomMediaUtils.fillAttributes(dataset, tagElement, value, dic);
       }
     }
 
@@ -1171,6 +1157,78 @@ private void updateUI(final DicomMediaIO reader, boolean firstImageToDisplay) {
     }
   }
 
+  /**
+   * Retrieves all the instances of the series with a single WADO-RS request. Each part of the
+   * multipart/related response is written in the cache and added to the series as soon as it has
+   * been fully received.
+   */
+  class SeriesDownload extends Download {
+
+    public SeriesDownload(String url) {
+      super(url);
+    }
+
+    /**
+     * @return true when the whole multipart response has been read, false when the server rejects
+     *     the series-level request or when the transfer has been interrupted
+     */
+    @Override
+    public Boolean call() {
+      // Non-authenticated requests throw an exception when the server rejects the request
+      try (HttpResponse response = NetworkUtil.getHttpResponse(url, urlParams, authMethod)) {
+        return readSeries(response);
+      } catch (Exception e) {
+        LOGGER.warn("Cannot download the series {} in a single request: {}", url, e.getMessage());
+        return Boolean.FALSE;
+      }
+    }
+
+    private boolean readSeries(HttpResponse response) throws IOException {
+      int code = response.getResponseCode();
+      if (code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+        if (authMethod != null && code == HttpURLConnection.HTTP_UNAUTHORIZED) {
+          authMethod.resetToken();
+          authMethod.getToken();
+        }
+        LOGGER.info("Series-level retrieve rejected by the server (code {}): {}", code, url);
+        return false;
+      }
+      String contentType = getContentType(response);
+      if (contentType == null || !contentType.startsWith(Multipart.MULTIPART_RELATED)) {
+        LOGGER.info("Series-level retrieve returns an unsupported content type: {}", contentType);
+        return false;
+      }
+
+      GuiExecutor.execute(() -> progressBar.setIndeterminate(false));
+      Multipart.Handler handler =
+          (multipartReader, partNumber, headers) -> {
+            if (isCancelled()) {
+              throw new InterruptedIOException("Series download has been cancelled");
+            }
+            boolean firstImage =
+                dicomSeries.size(null) == 0 && seriesInitialized.compareAndSet(false, true);
+            File tempFile = File.createTempFile("image_", ".dcm", getDicomTmpDir());
+            DicomStreamWriter writer = newStreamWriter(tempFile);
+            int bytesTransferred;
+            try (InputStream in = multipartReader.newPartInputStream()) {
+              bytesTransferred = writer.write(new SeriesProgressMonitor(dicomSeries, in));
+            }
+            if (bytesTransferred != -1) {
+              FileUtil.delete(tempFile);
+              throw new InterruptedIOException("Incomplete part " + partNumber);
+            }
+            File file = moveToExportDir(tempFile);
+            DicomMetaData metaData = writer.getMetaData(file);
+            addInstance(file, readInstance(file, metaData, firstImage), firstImage);
+            incrementProgressBarValue();
+          };
+      try (InputStream in = response.getInputStream()) {
+        Multipart.parseMultipartRelated(contentType, in, handler);
+      }
+      return true;
+    }
+  }
+
   private void applyPresentationModel(DicomImageElement media) {
     String sopUID = TagD.getTagValue(media, Tag.SOPInstanceUID, String.class);
 
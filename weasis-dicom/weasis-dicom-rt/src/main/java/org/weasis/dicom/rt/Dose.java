@@ -17,6 +17,9 @@
 import java.awt.geom.Point2D;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.DoubleStream;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Sequence;
@@ -31,7 +34,9 @@
 import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiUtils;
 import org.weasis.core.api.media.data.MediaElement;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.model.graphic.imp.seg.SegContour;
 import org.weasis.dicom.codec.*;
 import org.weasis.dicom.codec.geometry.GeometryOfSlice;
@@ -45,6 +50,20 @@
  */
 public class Dose extends RtSpecialElement implements SpecialElementRegion {
   private static final Logger LOGGER = LoggerFactory.getLogger(Dose.class);
+
+  public static final String PREF_ISODOSE_CACHE_SIZE = "weasis.rt.isodose.cache.slices"; // NON-NLS
+
+  // Number of slices built in background on each side of the displayed slice
+  private static final int PRECOMPUTE_RANGE = 4;
+  private static final ExecutorService CONTOUR_BUILDER =
+      ThreadUtil.newFixedDaemonThreadPool(
+          Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+          "Isodose Contours"); // NON-NLS
+  // Counts the pixels of all the slices in background, after the slices requested by the views
+  private static final ExecutorService PIXEL_COUNTER =
+      ThreadUtil.newSingleThreadDaemonExecutor("Isodose Pixel Count"); // NON-NLS
+  private static final long YIELD_DELAY_MS = 20;
+
   private final Map<String, Map<String, Set<LazyContourLoader>>> refMap = new HashMap<>();
 
   private volatile float opacity = 1.0f;
@@ -66,6 +85,13 @@ public class Dose extends RtSpecialElement implements SpecialElementRegion {
 
   private final Map<Integer, Dvh> dvhMap = new HashMap<>();
 
+  // Slices of the image grid sorted by position
+  private final List<IsoDoseContourLoader> doseSlices = new ArrayList<>();
+  // Slices having their contours in memory, the least recently used first. Guarded by itself
+  private final Set<IsoDoseContourLoader> loadedSlices = new LinkedHashSet<>();
+  private final Set<IsoDoseContourLoader> pendingSlices = ConcurrentHashMap.newKeySet();
+  private volatile int currentSlice;
+
   // Dose LUTs
   private AbstractMap.SimpleImmutableEntry<double[], double[]> doseMmLUT;
   private AbstractMap.SimpleImmutableEntry<double[], double[]> dosePixLUT;
@@ -363,38 +389,148 @@ public void initDoseSet(double rxDose, RtSet rtSet) {
       // 111/255f,
       //           opacity), "", rxDose)));
       Map<String, Set<LazyContourLoader>> map =
-          refMap.computeIfAbsent(seriesUID, _ -> new HashMap<>());
+          refMap.computeIfAbsent(seriesUID, _ -> new ConcurrentHashMap<>());
       Set<KeyDouble> zSet = new LinkedHashSet<>();
-      // Go through whole imaging grid (CT)
+      Map<IsoDoseContourLoader, String> sopUIDs = new HashMap<>();
+      List<IsoDoseRegion> reverseValues = new ArrayList<>(isoDoseSet.values());
+      Collections.reverse(reverseValues);
+      // Go through whole imaging grid (CT), the contours are built when the slice is displayed
       for (DicomImageElement image : rtSet.getSeries().getMedias(null, null)) {
-        PlaneContourLoader contours = new PlaneContourLoader();
         // Image slice UID and position
         String sopUID = TagD.getTagValue(image, Tag.SOPInstanceUID, String.class);
         KeyDouble z = new KeyDouble(image.getRawSliceGeometry().getTLHC().z);
-
-        List<IsoDoseRegion> reverseValues = new ArrayList<>(isoDoseSet.values());
-        Collections.reverse(reverseValues);
-        for (IsoDoseRegion doseRegion : reverseValues) {
-          zSet.add(z);
-          double isoDoseThreshold = doseRegion.getAbsoluteDose();
-
-          StructContour isoContour = getIsoDoseContour(z, isoDoseThreshold, doseRegion, rtSet);
-          if (isoContour == null) {
-            continue;
-          }
-          contours.addContour(isoContour);
-        }
-        if (contours.getLazyContours().isEmpty()) {
-          map.remove(sopUID);
-        } else {
+        zSet.add(z);
+        if (isInDoseGrid(z.getValue())) {
+          IsoDoseContourLoader contours = new IsoDoseContourLoader(this, rtSet, z, reverseValues);
+          doseSlices.add(contours);
+          sopUIDs.put(contours, sopUID);
           map.computeIfAbsent(sopUID, _ -> new LinkedHashSet<>()).add(contours);
+        } else {
+          map.remove(sopUID);
         }
       }
+      doseSlices.sort(Comparator.comparingDouble(l -> l.getSlicePosition().getValue()));
+      for (int i = 0; i < doseSlices.size(); i++) {
+        doseSlices.get(i).setIndex(i);
+      }
 
-      // When finished creation of iso contours plane data calculate the plane thickness
+      // Calculate the plane thickness from the positions of the image grid
       for (IsoDoseRegion isoDoseLayer : isoDoseSet.values()) {
         isoDoseLayer.setThickness(RtSet.calculatePlaneThickness(zSet));
       }
+      countPixels(map, sopUIDs);
+    }
+  }
+
+  /**
+   * Builds once in background all the slices to compute the number of pixels of the isodose
+   * regions, then removes the references to the slices without contour. The slices are built one
+   * by one on a single thread, which waits while the neighbours of a displayed slice are built.
+   */
+  private void countPixels(
+      Map<String, Set<LazyContourLoader>> map, Map<IsoDoseContourLoader, String> sopUIDs) {
+    PIXEL_COUNTER.execute(
+        () -> {
+          try {
+            for (IsoDoseContourLoader slice : doseSlices) {
+              while (!pendingSlices.isEmpty()) {
+                TimeUnit.MILLISECONDS.sleep(YIELD_DELAY_MS);
+              }
+              try {
+                slice.countPixels();
+              } catch (Exception e) {
+                LOGGER.warn("Cannot build the isodose contours", e);
+              }
+            }
+            removeEmptySlices(map, sopUIDs);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+  }
+
+  /**
+   * Removes the slices without contour. The sets of loaders are iterated by other threads (e.g.
+   * when building a volume), so they are replaced by new sets instead of being modified.
+   */
+  static void removeEmptySlices(
+      Map<String, Set<LazyContourLoader>> map, Map<IsoDoseContourLoader, String> sopUIDs) {
+    sopUIDs.forEach(
+        (slice, sopUID) -> {
+          if (slice.isEmpty()) {
+            map.computeIfPresent(
+                sopUID,
+                (_, loaders) -> {
+                  Set<LazyContourLoader> set = new LinkedHashSet<>(loaders);
+                  set.remove(slice);
+                  return set.isEmpty() ? null : set;
+                });
+          }
+        });
+  }
+
+  public int getIsoDoseCacheSize() {
+    int size =
+        GuiUtils.getUICore().getSystemPreferences().getIntProperty(PREF_ISODOSE_CACHE_SIZE, 128);
+    // Keep at least the displayed slice and its neighbours
+    return Math.max(size, 2 * PRECOMPUTE_RANGE + 1);
+  }
+
+  private boolean isInDoseGrid(double slicePosition) {
+    if (gridFrameOffsetVector == null
+        || gridFrameOffsetVector.length == 0
+        || imagePositionPatient == null) {
+      return false;
+    }
+    double min = Double.MAX_VALUE;
+    double max = -Double.MAX_VALUE;
+    for (double offset : gridFrameOffsetVector) {
+      double z = offset + imagePositionPatient[2];
+      min = Math.min(min, z);
+      max = Math.max(max, z);
+    }
+    return min <= slicePosition && slicePosition <= max;
+  }
+
+  /** Marks the slice as the most recently used and releases the oldest slices. */
+  void cacheSlice(IsoDoseContourLoader slice) {
+    List<IsoDoseContourLoader> evicted = new ArrayList<>();
+    int maxSize = getIsoDoseCacheSize();
+    synchronized (loadedSlices) {
+      loadedSlices.remove(slice);
+      loadedSlices.add(slice);
+      Iterator<IsoDoseContourLoader> it = loadedSlices.iterator();
+      while (loadedSlices.size() - evicted.size() > maxSize && it.hasNext()) {
+        evicted.add(it.next());
+        it.remove();
+      }
+    }
+    evicted.forEach(IsoDoseContourLoader::unload);
+  }
+
+  /** Builds in background the contours of the slices next to the displayed slice. */
+  void precomputeNeighbours(IsoDoseContourLoader slice) {
+    int index = slice.getIndex();
+    currentSlice = index;
+    int start = Math.max(0, index - PRECOMPUTE_RANGE);
+    int end = Math.min(doseSlices.size() - 1, index + PRECOMPUTE_RANGE);
+    for (int i = start; i <= end; i++) {
+      IsoDoseContourLoader neighbour = doseSlices.get(i);
+      if (!neighbour.isLoaded() && pendingSlices.add(neighbour)) {
+        CONTOUR_BUILDER.execute(
+            () -> {
+              try {
+                // Skip the slices which are no longer close to the displayed slice
+                if (Math.abs(neighbour.getIndex() - currentSlice) <= PRECOMPUTE_RANGE) {
+                  neighbour.load();
+                }
+              } catch (Exception e) {
+                LOGGER.warn("Cannot build the isodose contours", e);
+              } finally {
+                pendingSlices.remove(neighbour);
+              }
+            });
+      }
     }
   }
 
@@ -544,6 +680,15 @@ public Mat getMaskedDosePlaneHist(double slicePosition, Mat mask, int maxDose) {
 
   public StructContour getIsoDoseContour(
       KeyDouble slicePosition, double isoDoseThreshold, IsoDoseRegion region, RtSet rtSet) {
+    return getIsoDoseContour(slicePosition, isoDoseThreshold, region, rtSet, true);
+  }
+
+  StructContour getIsoDoseContour(
+      KeyDouble slicePosition,
+      double isoDoseThreshold,
+      IsoDoseRegion region,
+      RtSet rtSet,
+      boolean countPixels) {
     if (region.getMeasurableLayer() == null) {
       //  region.setMeasurableLayer(getMeasurableLayer(img, contour));
     }
@@ -552,6 +697,9 @@ public StructContour getIsoDoseContour(
     double rawThreshold = (isoDoseThreshold / 100) / this.doseGridScaling;
     DicomImageElement dosePlane =
         (DicomImageElement) this.getDosePlaneBySlice(slicePosition.getValue());
+    if (dosePlane == null) {
+      return null;
+    }
 
     int rows = dosePlane.getImage().toMat().rows();
     int cols = dosePlane.getImage().toMat().cols();
@@ -588,7 +736,12 @@ public StructContour getIsoDoseContour(
     StructContour segContour =
         new StructContour(String.valueOf(slicePosition.getKey()), segmentList, nbPixels);
     segContour.setPositionZ(z);
-    region.addPixels(segContour);
+    if (countPixels) {
+      // The contours of the slices can be built concurrently
+      synchronized (region) {
+        region.addPixels(segContour);
+      }
+    }
     segContour.setAttributes(region);
     return segContour;
   }
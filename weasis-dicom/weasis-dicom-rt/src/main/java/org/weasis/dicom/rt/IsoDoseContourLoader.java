@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.rt;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.weasis.core.ui.model.graphic.imp.seg.SegContour;
+import org.weasis.dicom.codec.LazyContourLoader;
+import org.weasis.opencv.seg.RegionAttributes;
+
+/**
+ * Isodose contours of one slice of the image grid, built the first time the slice is displayed.
+ * The contours can be released by {@link Dose} when too many slices are in memory, they are built
+ * again on the next call.
+ */
+final class IsoDoseContourLoader implements LazyContourLoader {
+
+  private final Dose dose;
+  private final RtSet rtSet;
+  private final KeyDouble slicePosition;
+  private final List<IsoDoseRegion> regions;
+  private int index;
+
+  private volatile Set<SegContour> contours;
+  // Number of pixels of each region in this slice, null until the slice has been built once
+  private volatile long[] pixels;
+
+  IsoDoseContourLoader(
+      Dose dose, RtSet rtSet, KeyDouble slicePosition, List<IsoDoseRegion> regions) {
+    this.dose = dose;
+    this.rtSet = rtSet;
+    this.slicePosition = slicePosition;
+    this.regions = regions;
+  }
+
+  KeyDouble getSlicePosition() {
+    return slicePosition;
+  }
+
+  int getIndex() {
+    return index;
+  }
+
+  void setIndex(int index) {
+    this.index = index;
+  }
+
+  @Override
+  public Set<SegContour> getLazyContours() {
+    Set<SegContour> result = load();
+    dose.precomputeNeighbours(this);
+    return result;
+  }
+
+  /**
+   * Builds the contours if they are not in memory, without building the neighbouring slices.
+   *
+   * @return the contours of all the isodose levels of this slice
+   */
+  Set<SegContour> load() {
+    Set<SegContour> result = contours;
+    if (result == null) {
+      synchronized (this) {
+        result = contours;
+        if (result == null) {
+          result = build();
+          contours = result;
+        }
+      }
+    }
+    // Outside the lock of this loader, the cache releases the other loaders
+    dose.cacheSlice(this);
+    return result;
+  }
+
+  /**
+   * Adds the pixels of this slice to the total of the regions if it has not been done yet. The
+   * contours are not kept in memory.
+   */
+  synchronized void countPixels() {
+    if (pixels == null) {
+      build();
+    }
+  }
+
+  /**
+   * @param attributes the attributes of an isodose region
+   * @return the number of pixels of the region in this slice or -1 when the slice has not been
+   *     built yet
+   */
+  long getNumberOfPixels(RegionAttributes attributes) {
+    long[] counts = pixels;
+    if (counts != null) {
+      for (int i = 0; i < regions.size(); i++) {
+        if (regions.get(i).equals(attributes)) {
+          return counts[i];
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return true when the slice has been built and has no contour
+   */
+  boolean isEmpty() {
+    long[] counts = pixels;
+    return counts != null && Arrays.stream(counts).allMatch(c -> c < 0);
+  }
+
+  boolean isLoaded() {
+    return contours != null;
+  }
+
+  /** Releases the contours. The callers which have got the contours can still use them. */
+  void unload() {
+    contours = null;
+  }
+
+  // Guarded by this
+  private Set<SegContour> build() {
+    // The pixels of the regions are counted only the first time
+    boolean countPixels = pixels == null;
+    long[] counts = new long[regions.size()];
+    Set<SegContour> set = new LinkedHashSet<>();
+    for (int i = 0; i < regions.size(); i++) {
+      IsoDoseRegion region = regions.get(i);
+      StructContour contour =
+          dose.getIsoDoseContour(
+              slicePosition, region.getAbsoluteDose(), region, rtSet, countPixels);
+      if (contour == null) {
+        counts[i] = -1;
+      } else {
+        counts[i] = contour.getNumberOfPixels();
+        set.add(contour);
+      }
+    }
+    pixels = counts;
+    return Collections.unmodifiableSet(set);
+  }
+}
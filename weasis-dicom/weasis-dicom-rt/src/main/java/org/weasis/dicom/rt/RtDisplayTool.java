@@ -874,19 +874,42 @@ public void show(SegRegion<?> region) {
   }
 
   private DicomImageElement findBestImageForRegion(DicomSeries series, SegRegion<?> region) {
-    long maxPixels = Long.MIN_VALUE;
-    DicomImageElement bestImage = null;
+    SpecialElementRegion selected = getSelectedRegion();
+    if (selected == null) return null;
 
+    long maxPixels = -1;
+    DicomImageElement bestImage = null;
     for (DicomImageElement dcm : series.getMedias(null, null)) {
-      SegContour contour = getContour(dcm, region);
-      if (contour != null && contour.getNumberOfPixels() > maxPixels) {
-        maxPixels = contour.getNumberOfPixels();
-        bestImage = dcm;
+      Set<LazyContourLoader> loaders = selected.getContours(dcm);
+      if (loaders != null) {
+        long nbPixels = getNumberOfPixels(loaders, region);
+        if (nbPixels > maxPixels) {
+          maxPixels = nbPixels;
+          bestImage = dcm;
+        }
       }
     }
     return bestImage;
   }
 
+  private static long getNumberOfPixels(
+      Set<LazyContourLoader> loaders, RegionAttributes attributes) {
+    long nbPixels = -1;
+    for (LazyContourLoader loader : loaders) {
+      if (loader instanceof IsoDoseContourLoader isoDose) {
+        // Do not build the isodoses, their pixels are counted in background
+        nbPixels = Math.max(nbPixels, isoDose.getNumberOfPixels(attributes));
+      } else {
+        for (SegContour c : loader.getLazyContours()) {
+          if (c.getAttributes().equals(attributes)) {
+            nbPixels = Math.max(nbPixels, c.getNumberOfPixels());
+          }
+        }
+      }
+    }
+    return nbPixels;
+  }
+
   private void navigateToImage(
       ViewCanvas<DicomImageElement> view, DicomSeries series, DicomImageElement image) {
     Optional<SliderCineListener> action =
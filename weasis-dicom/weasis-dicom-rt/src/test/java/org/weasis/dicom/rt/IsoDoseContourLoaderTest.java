@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.rt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.weasis.dicom.codec.LazyContourLoader;
+
+class IsoDoseContourLoaderTest {
+  private static final KeyDouble Z = new KeyDouble(12.5);
+
+  private Dose dose;
+  private IsoDoseRegion high;
+  private IsoDoseRegion low;
+
+  @BeforeEach
+  void setUp() {
+    dose = mock(Dose.class);
+    high = new IsoDoseRegion(95, Color.RED, "", 100.0);
+    low = new IsoDoseRegion(30, Color.BLUE, "", 100.0);
+  }
+
+  private IsoDoseContourLoader newLoader(StructContour highContour, StructContour lowContour) {
+    when(dose.getIsoDoseContour(eq(Z), anyDouble(), eq(high), any(), anyBoolean()))
+        .thenReturn(highContour);
+    when(dose.getIsoDoseContour(eq(Z), anyDouble(), eq(low), any(), anyBoolean()))
+        .thenReturn(lowContour);
+    return new IsoDoseContourLoader(dose, null, Z, List.of(high, low));
+  }
+
+  private static StructContour contour(int nbPixels) {
+    return new StructContour(String.valueOf(nbPixels), List.of(), nbPixels);
+  }
+
+  @Test
+  void test_pixels_counted_once() {
+    IsoDoseContourLoader loader = newLoader(contour(10), contour(40));
+    assertEquals(-1, loader.getNumberOfPixels(high));
+
+    assertEquals(2, loader.load().size());
+    assertTrue(loader.isLoaded());
+    loader.unload();
+    assertFalse(loader.isLoaded());
+    assertEquals(2, loader.load().size());
+    loader.countPixels();
+
+    verify(dose, times(1)).getIsoDoseContour(eq(Z), anyDouble(), eq(high), any(), eq(true));
+    verify(dose, times(1)).getIsoDoseContour(eq(Z), anyDouble(), eq(high), any(), eq(false));
+    assertEquals(10, loader.getNumberOfPixels(high));
+    assertEquals(40, loader.getNumberOfPixels(low));
+  }
+
+  @Test
+  void test_count_pixels_without_keeping_contours() {
+    IsoDoseContourLoader loader = newLoader(null, contour(40));
+    loader.countPixels();
+    loader.countPixels();
+
+    assertFalse(loader.isLoaded());
+    assertFalse(loader.isEmpty());
+    assertEquals(-1, loader.getNumberOfPixels(high));
+    assertEquals(40, loader.getNumberOfPixels(low));
+    verify(dose, times(1)).getIsoDoseContour(eq(Z), anyDouble(), eq(low), any(), eq(true));
+  }
+
+  @Test
+  void test_remove_empty_slices() {
+    IsoDoseContourLoader empty = newLoader(null, null);
+    IsoDoseContourLoader notBuilt = new IsoDoseContourLoader(dose, null, Z, List.of(high, low));
+    IsoDoseContourLoader otherEmpty = new IsoDoseContourLoader(dose, null, Z, List.of(high, low));
+    empty.countPixels();
+    otherEmpty.countPixels();
+    assertTrue(empty.isEmpty());
+    assertTrue(otherEmpty.isEmpty());
+    assertFalse(notBuilt.isEmpty());
+
+    Map<String, Set<LazyContourLoader>> map = new HashMap<>();
+    map.put("1.1", new LinkedHashSet<>(Set.of(empty))); // NON-NLS
+    map.put("1.2", new LinkedHashSet<>(Set.of(notBuilt))); // NON-NLS
+    map.put("1.3", new LinkedHashSet<>(List.of(otherEmpty, notBuilt))); // NON-NLS
+    Set<LazyContourLoader> published = map.get("1.3"); // NON-NLS
+    Dose.removeEmptySlices(
+        map, Map.of(empty, "1.1", notBuilt, "1.2", otherEmpty, "1.3")); // NON-NLS
+
+    assertFalse(map.containsKey("1.1")); // NON-NLS
+    assertEquals(Set.of(notBuilt), map.get("1.2")); // NON-NLS
+    assertEquals(Set.of(notBuilt), map.get("1.3")); // NON-NLS
+    // The set which can be iterated by another thread is replaced, not modified
+    assertEquals(Set.of(otherEmpty, notBuilt), published);
+  }
+}
@@ -10,12 +10,30 @@
 package org.weasis.dicom.send;
 
 public class HttpServerErrorException extends RuntimeException {
+  private final int statusCode;
 
   public HttpServerErrorException(String message) {
+    this(message, 0);
+  }
+
+  /**
+   * @param message the detail message
+   * @param statusCode the HTTP status code of the response
+   */
+  public HttpServerErrorException(String message, int statusCode) {
     super(message);
+    this.statusCode = statusCode;
   }
 
   public HttpServerErrorException(String message, Throwable cause) {
     super(message, cause);
+    this.statusCode = 0;
+  }
+
+  /**
+   * @return the HTTP status code of the response, or 0 when unknown
+   */
+  public int getStatusCode() {
+    return statusCode;
   }
 }
@@ -10,6 +10,7 @@
 package org.weasis.dicom.send;
 
 import com.github.scribejava.core.httpclient.multipart.MultipartPayload;
+import com.github.scribejava.core.model.OAuth2AccessToken;
 import com.github.scribejava.core.model.OAuthRequest;
 import com.github.scribejava.core.model.Verb;
 import java.io.File;
@@ -21,25 +22,34 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.xml.parsers.ParserConfigurationException;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Sequence;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomInputStream;
 import org.dcm4che3.io.SAXReader;
 import org.dcm4che3.net.Status;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.auth.AuthMethod;
-import org.weasis.core.api.auth.BasicHttpClient;
 import org.weasis.core.api.auth.BodySupplier;
 import org.weasis.core.api.auth.FileBodyPartPayload;
 import org.weasis.core.api.auth.OAuth2ServiceFactory;
-import org.weasis.core.api.util.ClosableURLConnection;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.api.service.WProperties;
 import org.weasis.core.api.util.HttpResponse;
+import org.weasis.core.api.util.HttpTransport;
 import org.weasis.core.api.util.NetworkUtil;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.api.util.URLParameters;
 import org.weasis.core.util.FileUtil;
 import org.weasis.dicom.param.DicomProgress;
@@ -52,6 +62,24 @@
 public class StowRS extends DicomStowRS {
   private static final Logger LOGGER = LoggerFactory.getLogger(StowRS.class);
 
+  /** Maximum size in MB of the instances sent in one request */
+  public static final String BATCH_SIZE = "dicom.stow.batch.size";
+
+  public static final String CONCURRENT_REQUESTS = "dicom.stow.concurrent.requests";
+  public static final String MAX_ATTEMPTS = "dicom.stow.max.attempts";
+
+  private static final int MAX_INSTANCES_PER_BATCH = 1000;
+  private static final long RETRY_DELAY = 1000L;
+
+  // Failure reasons which do not change when the instance is sent again
+  private static final Set<Integer> PERMANENT_FAILURES =
+      Set.of(
+          Status.SOPclassNotSupported,
+          Status.NotAuthorized,
+          Status.DataSetDoesNotMatchSOPClassError,
+          Status.CannotUnderstand,
+          0xC122); // Referenced Transfer Syntax not supported
+
   /**
    * @param requestURL the URL of the STOW service
    * @param contentType the value of the type in the Content-Type HTTP property
@@ -63,14 +91,7 @@ public StowRS(
     super(requestURL, contentType, agentName, headers);
   }
 
-  private OAuthRequest prepareAuthConnection(List<String> filesOrFolders, boolean recursive) {
-    OAuthRequest authRequest = new OAuthRequest(Verb.POST, getRequestURL());
-    MultipartPayload multipart = getMultipartPayload(filesOrFolders, recursive);
-    authRequest.setMultipartPayload(multipart);
-    return authRequest;
-  }
-
-  private MultipartPayload getMultipartPayload(List<String> filesOrFolders, boolean recursive) {
+  private MultipartPayload getMultipartPayload(List<File> files) {
     Map<String, String> headers = new HashMap<>();
     headers.put(
         "Content-Type", // NON-NLS
@@ -81,20 +102,51 @@ private MultipartPayload getMultipartPayload(List<String> filesOrFolders, boolea
     headers.put("Accept", Multipart.ContentType.XML.toString()); // NON-NLS
 
     MultipartPayload multipart = new MultipartPayload(MULTIPART_BOUNDARY, headers);
+    for (File file : files) {
+      addMultipartFile(multipart, file);
+    }
+    return multipart;
+  }
 
+  private static List<File> getFiles(List<String> filesOrFolders, boolean recursive) {
+    List<File> files = new ArrayList<>();
     for (String entry : filesOrFolders) {
       File file = new File(entry);
       if (file.isDirectory()) {
-        List<File> fileList = new ArrayList<>();
-        FileUtil.getAllFilesInDirectory(file, fileList, recursive);
-        for (File f : fileList) {
-          addMultipartFile(multipart, f);
-        }
+        FileUtil.getAllFilesInDirectory(file, files, recursive);
       } else {
-        addMultipartFile(multipart, file);
+        files.add(file);
       }
     }
-    return multipart;
+    return files;
+  }
+
+  /**
+   * Splits the files in batches sent with one request each.
+   *
+   * @param files the files to send
+   * @param maxBytes the maximum size of a batch, a larger file is sent alone
+   * @return the batches, in the order of the files
+   */
+  static List<List<File>> getBatches(List<File> files, long maxBytes) {
+    List<List<File>> batches = new ArrayList<>();
+    List<File> batch = new ArrayList<>();
+    long batchSize = 0;
+    for (File file : files) {
+      long length = file.length();
+      if (!batch.isEmpty()
+          && (batchSize + length > maxBytes || batch.size() >= MAX_INSTANCES_PER_BATCH)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        batchSize = 0;
+      }
+      batch.add(file);
+      batchSize += length;
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
   }
 
   private void addMultipartFile(MultipartPayload multipart, File file) {
@@ -117,82 +169,252 @@ public long length() {
 
   public DicomState uploadDicom(
       List<String> filesOrFolders, boolean recursive, AuthMethod authMethod) {
-    DicomState state = new DicomState(new DicomProgress());
-    Attributes error = null;
-    int nbFile = 0;
+    return uploadDicom(filesOrFolders, recursive, authMethod, new DicomProgress());
+  }
+
+  /**
+   * Uploads the files in batches of bounded size, several batches are sent concurrently and the
+   * files are read when they are sent. The instances rejected by the server with a transient
+   * failure, and the batches which could not be sent, are sent again.
+   *
+   * @param filesOrFolders the DICOM files or the folders containing them
+   * @param recursive true to include the files of the subfolders
+   * @param authMethod the authentication method, or null
+   * @param progress the progress updated after each request
+   * @return the state of the upload with the instances which have not been stored
+   */
+  public DicomState uploadDicom(
+      List<String> filesOrFolders,
+      boolean recursive,
+      AuthMethod authMethod,
+      DicomProgress progress) {
+    WProperties prefs = GuiUtils.getUICore().getSystemPreferences();
+    long batchSize = Math.max(1, prefs.getIntProperty(BATCH_SIZE, 100)) * 1024L * 1024L;
+    return upload(
+        getFiles(filesOrFolders, recursive),
+        authMethod,
+        progress,
+        batchSize,
+        prefs.getIntProperty(CONCURRENT_REQUESTS, 3),
+        prefs.getIntProperty(MAX_ATTEMPTS, 3));
+  }
+
+  /**
+   * @param files the DICOM files
+   * @param authMethod the authentication method, or null
+   * @param progress the progress updated after each request
+   * @param batchSize the maximum size in bytes of the instances sent in one request
+   * @param concurrentRequests the maximum number of requests sent concurrently
+   * @param maxAttempts the maximum number of times an instance is sent
+   * @return the state of the upload with the instances which have not been stored
+   */
+  DicomState upload(
+      List<File> files,
+      AuthMethod authMethod,
+      DicomProgress progress,
+      long batchSize,
+      int concurrentRequests,
+      int maxAttempts) {
+    DicomState state = new DicomState(progress);
     boolean auth = authMethod != null && !OAuth2ServiceFactory.noAuth.equals(authMethod);
+    List<List<File>> batches = getBatches(files, batchSize);
+    Upload upload =
+        new Upload(progress, batches.stream().mapToInt(List::size).sum(), Math.max(1, maxAttempts));
 
-    String url = getRequestURL();
-    OAuthRequest authRequest = null;
-    if (auth) {
-      authRequest = prepareAuthConnection(filesOrFolders, recursive);
-      nbFile = authRequest.getMultipartPayload().getBodyParts().size();
-    }
-
-    try (HttpResponse httpCon =
-        NetworkUtil.getHttpResponse(
-            url, new URLParameters(getHeaders(), true), authMethod, authRequest)) {
-      if (auth) {
-        int code = httpCon.getResponseCode();
-        if (code >= HttpURLConnection.HTTP_OK && code < HttpURLConnection.HTTP_BAD_REQUEST) {
-          error = getResponseOutput(httpCon);
-        } else if (code == HttpURLConnection.HTTP_UNAUTHORIZED) {
-          authMethod.resetToken();
-          authMethod.getToken();
+    int nbThreads = Math.min(batches.size(), concurrentRequests);
+    ExecutorService executor =
+        ThreadUtil.newFixedDaemonThreadPool(Math.max(1, nbThreads), "STOW-RS"); // NON-NLS
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (List<File> batch : batches) {
+        tasks.add(executor.submit(() -> sendBatch(batch, auth ? authMethod : null, upload)));
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      progress.cancel();
+    } catch (ExecutionException e) {
+      LOGGER.error("STOW-RS: error when posting data", e.getCause());
+      return DicomState.buildMessage(state, e.getCause().getMessage(), null);
+    } finally {
+      executor.shutdownNow();
+    }
+    return buildErrorMessage(state, upload);
+  }
+
+  private void sendBatch(List<File> files, AuthMethod authMethod, Upload upload) {
+    List<File> pending = files;
+    for (int attempt = 1; !pending.isEmpty(); attempt++) {
+      if (upload.isCancelled()) {
+        return;
+      }
+      boolean lastAttempt = attempt >= upload.maxAttempts;
+      try {
+        Attributes response = post(pending, authMethod);
+        pending = handleResponse(pending, response, upload, lastAttempt);
+      } catch (HttpServerErrorException e) {
+        int code = e.getStatusCode();
+        if (code == HttpURLConnection.HTTP_ENTITY_TOO_LARGE && pending.size() > 1) {
+          // Send each half in a smaller request
+          int half = pending.size() / 2;
+          sendBatch(new ArrayList<>(pending.subList(0, half)), authMethod, upload);
+          sendBatch(new ArrayList<>(pending.subList(half, pending.size())), authMethod, upload);
+          return;
+        }
+        if (lastAttempt || !isRetryableStatusCode(code)) {
+          upload.fail(pending, e.getMessage());
+          return;
+        }
+        LOGGER.warn("STOW-RS: attempt {} failed, {}", attempt, e.getMessage());
+      } catch (Exception e) {
+        if (lastAttempt) {
+          upload.fail(pending, e.getMessage());
+          return;
         }
-      } else if (httpCon instanceof ClosableURLConnection urlConnection
-          && urlConnection.getUrlConnection() instanceof HttpURLConnection http) {
-        MultipartPayload multipartPayload = getMultipartPayload(filesOrFolders, recursive);
-        nbFile = multipartPayload.getBodyParts().size();
-        BasicHttpClient.addBody(http, multipartPayload, true);
-        int code = httpCon.getResponseCode();
-        if (code >= HttpURLConnection.HTTP_OK && code < HttpURLConnection.HTTP_BAD_REQUEST) {
-          error = getResponseOutput(httpCon);
+        LOGGER.warn("STOW-RS: attempt {} failed, {}", attempt, e.getMessage());
+      }
+
+      if (!pending.isEmpty()) {
+        try {
+          Thread.sleep(RETRY_DELAY * attempt);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
         }
+      }
+    }
+  }
+
+  private Attributes post(List<File> files, AuthMethod authMethod) throws Exception {
+    String url = getRequestURL();
+    MultipartPayload multipartPayload = getMultipartPayload(files);
+    URLParameters urlParameters = new URLParameters(getHeaders(), true);
+    HttpResponse response;
+    OAuth2AccessToken token = null;
+    if (authMethod == null) {
+      response =
+          HttpTransport.getInstance()
+              .post(url, NetworkUtil.withAppHeaders(urlParameters), multipartPayload);
+    } else {
+      token = authMethod.getToken();
+      OAuthRequest authRequest = new OAuthRequest(Verb.POST, url);
+      authRequest.setMultipartPayload(multipartPayload);
+      response = NetworkUtil.getHttpResponse(url, urlParameters, authMethod, authRequest);
+    }
+    try (response) {
+      if (authMethod != null
+          && response.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED) {
+        refreshToken(authMethod, token);
+      }
+      return getResponseOutput(response);
+    }
+  }
+
+  /**
+   * Refreshes the token rejected by the server. When the concurrent requests are rejected with the
+   * same token, only the first one gets a new token and the others use it.
+   */
+  static void refreshToken(AuthMethod authMethod, OAuth2AccessToken rejected) {
+    synchronized (authMethod) {
+      if (Objects.equals(rejected, authMethod.getToken())) {
+        authMethod.resetToken();
+        authMethod.getToken();
+      }
+    }
+  }
+
+  /**
+   * @return the files to send again
+   */
+  private List<File> handleResponse(
+      List<File> files, Attributes response, Upload upload, boolean lastAttempt) {
+    Sequence seq = response == null ? null : response.getSequence(Tag.FailedSOPSequence);
+    if (seq == null || seq.isEmpty()) {
+      upload.complete(files.size());
+      return List.of();
+    }
+
+    Map<String, File> filesByUID = getFilesBySopInstanceUID(files);
+    List<File> retry = new ArrayList<>();
+    int failed = 0;
+    for (Attributes item : seq) {
+      File file = filesByUID.get(item.getString(Tag.ReferencedSOPInstanceUID));
+      if (file != null && !lastAttempt && isRetryable(item.getInt(Tag.FailureReason, 0))) {
+        retry.add(file);
       } else {
-        throw new IllegalStateException("HttpResponse type: not implemented");
+        upload.addFailure(new Attributes(item));
+        failed++;
+      }
+    }
+    upload.complete(Math.max(0, files.size() - retry.size() - failed));
+    if (!retry.isEmpty()) {
+      LOGGER.warn("STOW-RS: {} instance(s) will be sent again", retry.size());
+    }
+    return retry;
+  }
+
+  private static Map<String, File> getFilesBySopInstanceUID(List<File> files) {
+    Map<String, File> map = new HashMap<>();
+    for (File file : files) {
+      String uid = getSopInstanceUID(file);
+      if (uid != null) {
+        map.put(uid, file);
+      }
+    }
+    return map;
+  }
+
+  private static String getSopInstanceUID(File file) {
+    try (DicomInputStream dis = new DicomInputStream(file)) {
+      Attributes fmi = dis.readFileMetaInformation();
+      if (fmi != null) {
+        return fmi.getString(Tag.MediaStorageSOPInstanceUID);
       }
-      return buildErrorMessage(error, state, nbFile);
-    } catch (Exception e) {
-      LOGGER.error("STOW-RS: error when posting data", e);
-      return DicomState.buildMessage(state, e.getMessage(), null);
+    } catch (IOException e) {
+      LOGGER.warn("Cannot read the SOP Instance UID of {}", file, e);
     }
+    return null;
   }
 
-  private DicomState buildErrorMessage(Attributes error, DicomState state, int nbFile) {
+  private static boolean isRetryable(int failureReason) {
+    return !PERMANENT_FAILURES.contains(failureReason);
+  }
+
+  private static boolean isRetryableStatusCode(int code) {
+    return code == 0
+        || code == HttpURLConnection.HTTP_UNAUTHORIZED
+        || code == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+        || code == 429 // Too Many Requests
+        || code >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+  }
+
+  private DicomState buildErrorMessage(DicomState state, Upload upload) {
     String message;
-    if (error == null) {
+    List<Attributes> failures = upload.getFailures();
+    if (upload.isCancelled()) {
+      state.setStatus(Status.Cancel);
+      message = "the transfer has been cancelled"; // NON-NLS
+    } else if (failures.isEmpty()) {
       state.setStatus(Status.Success);
       message = "all the files has been transferred"; // NON-NLS
     } else {
-      message = "one or more files has not been transferred"; // NON-NLS
       state.setStatus(Status.OneOrMoreFailures);
-      DicomProgress p = state.getProgress();
-      if (p != null) {
-        Sequence seq = error.getSequence(Tag.FailedSOPSequence);
-        if (seq != null && !seq.isEmpty()) {
-          Attributes cmd = Optional.ofNullable(p.getAttributes()).orElseGet(Attributes::new);
-          cmd.setInt(Tag.Status, VR.US, Status.OneOrMoreFailures);
-          cmd.setInt(Tag.NumberOfCompletedSuboperations, VR.US, nbFile);
-          cmd.setInt(Tag.NumberOfFailedSuboperations, VR.US, seq.size());
-          cmd.setInt(Tag.NumberOfWarningSuboperations, VR.US, 0);
-          cmd.setInt(Tag.NumberOfRemainingSuboperations, VR.US, 0);
-          p.setAttributes(cmd);
-          message =
-              seq.stream()
-                  .map(
-                      s ->
-                          s.getString(Tag.ReferencedSOPInstanceUID, "Unknown SopUID") // NON-NLS
-                              + " -> "
-                              + s.getString(Tag.FailureReason))
-                  .collect(Collectors.joining(", "));
-          LOGGER.error("STOW-RS error: {}", message);
-          return DicomState.buildMessage(
-              state, null, new RuntimeException("Failed instances: " + message));
-        }
-      }
+      upload.update(Status.OneOrMoreFailures);
+      message =
+          failures.stream()
+              .map(
+                  s ->
+                      s.getString(Tag.ReferencedSOPInstanceUID, "Unknown SopUID") // NON-NLS
+                          + " -> "
+                          + s.getString(Tag.FailureReason))
+              .collect(Collectors.joining(", "));
       LOGGER.error("STOW-RS error: {}", message);
+      return DicomState.buildMessage(
+          state, null, new RuntimeException("Failed instances: " + message));
     }
+    upload.update(state.getStatus());
     return DicomState.buildMessage(state, message, null);
   }
 
@@ -214,8 +436,75 @@ private Attributes getResponseOutput(HttpResponse httpPost)
       throw new HttpServerErrorException(
           String.format(
               "STOW-RS server response message: HTTP Status-Code %d: %s",
-              code, httpPost.getResponseMessage()));
+              code, httpPost.getResponseMessage()),
+          code);
     }
     return null;
   }
+
+  // Counts the instances sent by all the batches and updates the progress
+  private static final class Upload {
+    private final DicomProgress progress;
+    private final int total;
+    private final int maxAttempts;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final List<Attributes> failures = new ArrayList<>();
+
+    Upload(DicomProgress progress, int total, int maxAttempts) {
+      this.progress = progress;
+      this.total = total;
+      this.maxAttempts = maxAttempts;
+    }
+
+    boolean isCancelled() {
+      return progress != null && progress.isCancel();
+    }
+
+    void complete(int nbInstances) {
+      completed.addAndGet(nbInstances);
+      update(Status.Pending);
+    }
+
+    void addFailure(Attributes item) {
+      synchronized (failures) {
+        failures.add(item);
+      }
+      update(Status.Pending);
+    }
+
+    void fail(List<File> files, String reason) {
+      LOGGER.error("STOW-RS: {} instance(s) not sent, {}", files.size(), reason);
+      for (File file : files) {
+        Attributes item = new Attributes(2);
+        String uid = getSopInstanceUID(file);
+        item.setString(Tag.ReferencedSOPInstanceUID, VR.UI, uid == null ? file.getName() : uid);
+        item.setInt(Tag.FailureReason, VR.US, Status.ProcessingFailure);
+        addFailure(item);
+      }
+    }
+
+    List<Attributes> getFailures() {
+      synchronized (failures) {
+        return new ArrayList<>(failures);
+      }
+    }
+
+    synchronized void update(int status) {
+      if (progress == null) {
+        return;
+      }
+      int nbCompleted = completed.get();
+      int nbFailed = getFailures().size();
+      Attributes cmd = Optional.ofNullable(progress.getAttributes()).orElseGet(Attributes::new);
+      cmd.setInt(Tag.Status, VR.US, status);
+      cmd.setInt(Tag.NumberOfCompletedSuboperations, VR.US, nbCompleted);
+      cmd.setInt(Tag.NumberOfFailedSuboperations, VR.US, nbFailed);
+      cmd.setInt(Tag.NumberOfWarningSuboperations, VR.US, 0);
+      cmd.setInt(
+          Tag.NumberOfRemainingSuboperations,
+          VR.US,
+          Math.max(0, total - nbCompleted - nbFailed));
+      progress.setAttributes(cmd);
+    }
+  }
 }
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.send;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.scribejava.core.model.OAuth2AccessToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.Status;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.weasis.core.api.auth.AuthMethod;
+import org.weasis.dicom.param.DicomProgress;
+import org.weasis.dicom.param.DicomState;
+import org.weasis.dicom.web.ContentType;
+
+/** Uploads to a local server standing in for a STOW-RS service. */
+class StowRSTest {
+  private static final String UID_PREFIX = "1.2.826.0.1.3680043.2.1125.9."; // NON-NLS
+
+  // Returns the status code and the XML response of a request containing the given instances
+  private interface Stow {
+    Response reply(Set<String> uids, int request);
+  }
+
+  private record Response(int code, String xml) {}
+
+  private static final AtomicReference<Stow> STOW = new AtomicReference<>();
+  private static final List<Set<String>> REQUESTS = new ArrayList<>();
+
+  private static HttpServer server;
+  private static String url;
+
+  @TempDir Path dir;
+
+  @BeforeAll
+  static void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0); // NON-NLS
+    server.createContext(
+        "/studies", // NON-NLS
+        exchange -> {
+          String body;
+          try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+          }
+          Set<String> uids = new LinkedHashSet<>();
+          for (int i = 1; i <= 9; i++) {
+            if (body.contains(UID_PREFIX + i)) {
+              uids.add(UID_PREFIX + i);
+            }
+          }
+          int request;
+          synchronized (REQUESTS) {
+            REQUESTS.add(uids);
+            request = REQUESTS.size();
+          }
+          reply(exchange, STOW.get().reply(uids, request));
+        });
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/studies"; // NON-NLS
+  }
+
+  @AfterAll
+  static void stopServer() {
+    server.stop(0);
+  }
+
+  @BeforeEach
+  void clearRequests() {
+    synchronized (REQUESTS) {
+      REQUESTS.clear();
+    }
+  }
+
+  private static void reply(HttpExchange exchange, Response response) throws IOException {
+    byte[] body =
+        response.xml() == null ? new byte[0] : response.xml().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/dicom+xml"); // NON-NLS
+    exchange.sendResponseHeaders(response.code(), body.length == 0 ? -1 : body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static String failedSOPs(String uid, int failureReason) {
+    return """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <NativeDicomModel>
+        <DicomAttribute tag="00081198" vr="SQ" keyword="FailedSOPSequence">
+        <Item number="1">
+        <DicomAttribute tag="00081155" vr="UI" keyword="ReferencedSOPInstanceUID">
+        <Value number="1">%s</Value></DicomAttribute>
+        <DicomAttribute tag="00081197" vr="US" keyword="FailureReason">
+        <Value number="1">%d</Value></DicomAttribute>
+        </Item>
+        </DicomAttribute>
+        </NativeDicomModel>
+        """
+        .formatted(uid, failureReason);
+  }
+
+  private List<File> createFiles(int nb) throws IOException {
+    List<File> files = new ArrayList<>();
+    for (int i = 1; i <= nb; i++) {
+      String uid = UID_PREFIX + i;
+      Attributes dataset = new Attributes();
+      dataset.setString(Tag.SOPClassUID, VR.UI, UID.SecondaryCaptureImageStorage);
+      dataset.setString(Tag.SOPInstanceUID, VR.UI, uid);
+      dataset.setBytes(Tag.PixelData, VR.OB, new byte[1000]);
+      File file = dir.resolve(i + ".dcm").toFile(); // NON-NLS
+      try (DicomOutputStream out = new DicomOutputStream(file)) {
+        out.writeDataset(
+            dataset.createFileMetaInformation(UID.ExplicitVRLittleEndian), dataset);
+      }
+      files.add(file);
+    }
+    return files;
+  }
+
+  private static List<Set<String>> getRequests() {
+    synchronized (REQUESTS) {
+      return new ArrayList<>(REQUESTS);
+    }
+  }
+
+  private static DicomState upload(List<File> files, long batchSize, int maxAttempts) {
+    return upload(files, batchSize, maxAttempts, new DicomProgress());
+  }
+
+  private static DicomState upload(
+      List<File> files, long batchSize, int maxAttempts, DicomProgress progress) {
+    try (StowRS stowRS =
+        new StowRS(url, ContentType.APPLICATION_DICOM, "test", new HashMap<>())) { // NON-NLS
+      return stowRS.upload(files, null, progress, batchSize, 2, maxAttempts);
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Test
+  void test_batches_of_bounded_size() throws IOException {
+    List<File> files = createFiles(5);
+    STOW.set((_, _) -> new Response(200, null));
+
+    long twoFiles = files.get(0).length() + files.get(1).length();
+    DicomProgress progress = new DicomProgress();
+    DicomState state = upload(files, twoFiles, 3, progress);
+
+    assertEquals(Status.Success, state.getStatus());
+    List<Set<String>> requests = getRequests();
+    assertEquals(3, requests.size());
+    assertTrue(requests.stream().allMatch(r -> r.size() <= 2));
+    assertEquals(5, requests.stream().mapToInt(Set::size).sum());
+    Attributes cmd = progress.getAttributes();
+    assertEquals(5, cmd.getInt(Tag.NumberOfCompletedSuboperations, -1));
+    assertEquals(0, cmd.getInt(Tag.NumberOfFailedSuboperations, -1));
+  }
+
+  @Test
+  void test_partial_failure_sends_again_the_failed_instance() throws IOException {
+    List<File> files = createFiles(3);
+    String failed = UID_PREFIX + 2;
+    STOW.set(
+        (_, request) ->
+            request == 1
+                ? new Response(202, failedSOPs(failed, Status.OutOfResources))
+                : new Response(200, null));
+
+    DicomState state = upload(files, Long.MAX_VALUE, 3);
+
+    assertEquals(Status.Success, state.getStatus());
+    List<Set<String>> requests = getRequests();
+    assertEquals(2, requests.size());
+    assertEquals(3, requests.get(0).size());
+    assertEquals(Set.of(failed), requests.get(1));
+  }
+
+  @Test
+  void test_permanent_failure_is_not_sent_again() throws IOException {
+    List<File> files = createFiles(2);
+    String failed = UID_PREFIX + 1;
+    STOW.set((_, _) -> new Response(202, failedSOPs(failed, Status.SOPclassNotSupported)));
+
+    DicomProgress progress = new DicomProgress();
+    DicomState state = upload(files, Long.MAX_VALUE, 3, progress);
+
+    assertEquals(Status.OneOrMoreFailures, state.getStatus());
+    assertEquals(1, getRequests().size());
+    Attributes cmd = progress.getAttributes();
+    assertEquals(1, cmd.getInt(Tag.NumberOfCompletedSuboperations, -1));
+    assertEquals(1, cmd.getInt(Tag.NumberOfFailedSuboperations, -1));
+  }
+
+  @Test
+  void test_entity_too_large_splits_the_batch() throws IOException {
+    List<File> files = createFiles(4);
+    STOW.set((uids, _) -> new Response(uids.size() > 1 ? 413 : 200, null));
+
+    DicomState state = upload(files, Long.MAX_VALUE, 3);
+
+    assertEquals(Status.Success, state.getStatus());
+    List<Set<String>> requests = getRequests();
+    // One request of 4 instances, 2 of 2 and 4 of 1
+    assertEquals(7, requests.size());
+    assertEquals(4, requests.stream().filter(r -> r.size() == 1).count());
+  }
+
+  @Test
+  void test_server_error_is_retried() throws IOException {
+    List<File> files = createFiles(2);
+    STOW.set((_, request) -> new Response(request == 1 ? 503 : 200, null));
+    assertEquals(Status.Success, upload(files, Long.MAX_VALUE, 3).getStatus());
+    assertEquals(2, getRequests().size());
+
+    clearRequests();
+    STOW.set((_, _) -> new Response(503, null));
+    DicomState state = upload(files, Long.MAX_VALUE, 2);
+    assertEquals(Status.OneOrMoreFailures, state.getStatus());
+    assertEquals(2, getRequests().size());
+  }
+
+  @Test
+  void test_rejected_token_refreshed_once() {
+    AuthMethod authMethod = mock(AuthMethod.class);
+    OAuth2AccessToken rejected = new OAuth2AccessToken("expired"); // NON-NLS
+    AtomicReference<OAuth2AccessToken> token = new AtomicReference<>(rejected);
+    when(authMethod.getToken()).thenAnswer(_ -> token.get());
+    doAnswer(_ -> {
+          token.set(new OAuth2AccessToken("new")); // NON-NLS
+          return null;
+        })
+        .when(authMethod)
+        .resetToken();
+
+    // Two batches rejected with the same token
+    StowRS.refreshToken(authMethod, rejected);
+    StowRS.refreshToken(authMethod, rejected);
+
+    verify(authMethod, times(1)).resetToken();
+    assertEquals("new", token.get().getAccessToken()); // NON-NLS
+  }
+}
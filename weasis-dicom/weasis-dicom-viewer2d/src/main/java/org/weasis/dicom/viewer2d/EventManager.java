@@ -481,6 +481,16 @@ public void mouseWheelMoved(MouseWheelEvent e) {
           setSliderValue(getSliderValue() + e.getWheelRotation());
         }
       }
+
+      @Override
+      protected CineFrameLoader getCineFrameLoader() {
+        if (selectedView2dContainer != null
+            && selectedView2dContainer.getSelectedImagePane() instanceof MprView) {
+          // The MPR images are computed from the volume
+          return null;
+        }
+        return buildCineFrameLoader();
+      }
     };
   }
 
@@ -25,6 +25,7 @@
 import org.weasis.core.api.gui.util.WinUtil;
 import org.weasis.core.api.media.data.MediaElement;
 import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.core.api.media.data.Series;
 import org.weasis.core.api.media.data.SeriesEvent;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.ui.editor.image.ViewCanvas;
@@ -317,6 +318,7 @@ public static boolean setKeyObjectReference(
           validKOSelection.setKeyObjectReference(selectedState, currentImage);
 
       if (hasKeyObjectReferenceChanged) {
+        invalidateMediaIndexes(view2d);
         DicomModel dicomModel = (DicomModel) view2d.getSeries().getTagValue(TagW.ExplorerModel);
         // Fire an event since any view in any View2dContainer may have its KO selected state
         // changed
@@ -372,6 +374,7 @@ public static boolean setKeyObjectReferenceAllSeries(
           validKOSelection.setKeyObjectReference(selectedState, view2d.getSeries());
 
       if (hasKeyObjectReferenceChanged) {
+        invalidateMediaIndexes(view2d);
         DicomModel dicomModel = (DicomModel) view2d.getSeries().getTagValue(TagW.ExplorerModel);
         // Fire an event since any view in any View2dContainer may have its KO selected state
         // changed
@@ -389,6 +392,13 @@ public static boolean setKeyObjectReferenceAllSeries(
     return hasKeyObjectReferenceChanged;
   }
 
+  private static void invalidateMediaIndexes(ViewCanvas<DicomImageElement> view2d) {
+    // The KO filter accepts other images
+    if (view2d.getSeries() instanceof Series<DicomImageElement> series) {
+      series.invalidateMediaIndexes();
+    }
+  }
+
   // /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
   public static void updateKOFilter(
@@ -61,6 +61,8 @@
 import org.weasis.core.api.image.WindowOp;
 import org.weasis.core.api.image.util.ImageLayer;
 import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.core.api.media.data.Series;
+import org.weasis.core.api.media.data.SlicePositionIndex;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.service.AuditLog;
 import org.weasis.core.ui.dialog.MeasureDialog;
@@ -96,11 +98,13 @@
 import org.weasis.core.util.LangUtil;
 import org.weasis.core.util.MathUtil;
 import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.dicom.codec.DicomSeries;
 import org.weasis.dicom.codec.HiddenSeriesManager;
 import org.weasis.dicom.codec.KOSpecialElement;
 import org.weasis.dicom.codec.LazyContourLoader;
 import org.weasis.dicom.codec.PRSpecialElement;
 import org.weasis.dicom.codec.PresentationStateReader;
+import org.weasis.dicom.codec.SeriesPreloader;
 import org.weasis.dicom.codec.SortSeriesStack;
 import org.weasis.dicom.codec.SpecialElementRegion;
 import org.weasis.dicom.codec.TagD;
@@ -639,6 +643,9 @@ protected void setImage(DicomImageElement img) {
       updateSegmentation(img);
       updatePrButtonState(img);
       updateKOSelectedState(img);
+      if (series instanceof DicomSeries dicomSeries) {
+        SeriesPreloader.getInstance().setCurrentImage(dicomSeries, img);
+      }
     }
   }
 
@@ -751,31 +758,16 @@ protected void computeCrosslines(double location) {
           // Get the current image of the selected Series
           DicomImageElement selImage = view2DPane.getImage();
           // Get the first and the last image of the selected Series according to Slice Location
-
           DicomImageElement firstImage = null;
           DicomImageElement lastImage = null;
-          double min = Double.MAX_VALUE;
-          double max = -Double.MAX_VALUE;
-          final Iterable<DicomImageElement> list =
-              selSeries.getMedias(
-                  (Filter<DicomImageElement>)
-                      view2DPane.getActionValue(ActionW.FILTERED_SERIES.cmd()),
-                  getCurrentSortComparator());
-          synchronized (selSeries) {
-            for (DicomImageElement dcm : list) {
-              double[] loc = (double[]) dcm.getTagValue(TagW.SlicePosition);
-              if (loc != null) {
-                double position = loc[0] + loc[1] + loc[2];
-                if (min > position) {
-                  min = position;
-                  firstImage = dcm;
-                }
-                if (max < position) {
-                  max = position;
-                  lastImage = dcm;
-                }
-              }
-            }
+          if (selSeries instanceof Series<DicomImageElement> selectedSeries) {
+            SlicePositionIndex<DicomImageElement> index =
+                selectedSeries.getSlicePositionIndex(
+                    (Filter<DicomImageElement>)
+                        view2DPane.getActionValue(ActionW.FILTERED_SERIES.cmd()),
+                    getCurrentSortComparator());
+            firstImage = index.getFirstMedia();
+            lastImage = index.getLastMedia();
           }
 
           GraphicLayer layer = AbstractGraphicModel.getOrBuildLayer(this, LayerType.CROSSLINES);
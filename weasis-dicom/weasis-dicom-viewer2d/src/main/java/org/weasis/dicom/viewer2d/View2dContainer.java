@@ -87,6 +87,7 @@
 import org.weasis.dicom.codec.KOSpecialElement;
 import org.weasis.dicom.codec.PRSpecialElement;
 import org.weasis.dicom.codec.PresentationStateReader;
+import org.weasis.dicom.codec.SeriesPreloader;
 import org.weasis.dicom.codec.SpecialElementRegion;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.TagD.Level;
@@ -382,13 +383,21 @@ public SliderChangeListener[] getActions() {
   @Override
   public void setSelectedImagePaneFromFocus(ViewCanvas<DicomImageElement> viewCanvas) {
     setSelectedImagePane(viewCanvas);
-    if (viewCanvas != null && viewCanvas.getSeries() instanceof DicomSeries series) {
-      DicomSeries.startPreloading(
-          series,
-          series.copyOfMedias(
-              (Filter<DicomImageElement>) viewCanvas.getActionValue(ActionW.FILTERED_SERIES.cmd()),
-              viewCanvas.getCurrentSortComparator()),
-          viewCanvas.getFrameIndex());
+    if (viewCanvas != null) {
+      // Preload the series of all the visible views
+      List<DicomSeries> visibleSeries = new ArrayList<>();
+      for (ViewCanvas<DicomImageElement> v : view2ds) {
+        if (v.getSeries() instanceof DicomSeries series) {
+          visibleSeries.add(series);
+          DicomSeries.startPreloading(
+              series,
+              series.copyOfMedias(
+                  (Filter<DicomImageElement>) v.getActionValue(ActionW.FILTERED_SERIES.cmd()),
+                  v.getCurrentSortComparator()),
+              v.getFrameIndex());
+        }
+      }
+      SeriesPreloader.getInstance().retain(this, visibleSeries);
     }
   }
 
@@ -464,6 +473,7 @@ public SeriesViewerUI getSeriesViewer() {
 
   @Override
   public void close() {
+    SeriesPreloader.getInstance().retain(this, List.of());
     View2dFactory.closeSeriesViewer(this);
     super.close();
   }
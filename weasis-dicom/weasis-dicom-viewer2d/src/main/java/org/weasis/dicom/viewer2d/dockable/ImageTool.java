@@ -144,6 +144,8 @@ public static JPanel getSlicePanel(Border hspace) {
                       });
 
               framePanel.add(cinePanel);
+              framePanel.add(
+                  GuiUtils.getFlowLayoutPanel(3, 3, sliderItem.createFramePolicyCheckBox()));
             });
     return framePanel;
   }
@@ -13,29 +13,32 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.VR;
 import org.dcm4che3.img.lut.PresetWindowLevel;
 import org.dcm4che3.util.UIDUtils;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.task.TaskInterruptionException;
 import org.weasis.core.api.gui.util.ActionW;
 import org.weasis.core.api.gui.util.AppProperties;
 import org.weasis.core.api.gui.util.ComboItemListener;
 import org.weasis.core.api.gui.util.Filter;
 import org.weasis.core.api.gui.util.SliderChangeListener;
 import org.weasis.core.api.gui.util.SliderCineListener;
-import org.weasis.core.api.image.op.MaxCollectionZprojection;
-import org.weasis.core.api.image.op.MeanCollectionZprojection;
-import org.weasis.core.api.image.op.MinCollectionZprojection;
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.media.data.MediaSeries;
 import org.weasis.core.api.media.data.SeriesComparator;
 import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.editor.image.ImageViewerEventManager;
 import org.weasis.core.util.FileUtil;
 import org.weasis.dicom.codec.DicomImageElement;
@@ -45,7 +48,9 @@
 import org.weasis.dicom.viewer2d.mip.MipView.Type;
 import org.weasis.dicom.viewer2d.mpr.DerivedStack;
 import org.weasis.dicom.viewer2d.mpr.RawImageIO;
+import org.weasis.dicom.viewer2d.mpr.VolumeCache;
 import org.weasis.opencv.data.FileRawImage;
+import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 
 public class SeriesBuilder {
@@ -54,6 +59,9 @@ public class SeriesBuilder {
       AppProperties.buildAccessibleTempDirectory(
           AppProperties.FILE_CACHE_DIR.getName(), "mip"); // NON-NLS
 
+  private static final ExecutorService MIP_BUILDER =
+      ThreadUtil.newManagedImageProcessingThreadPool("MIP Builder"); // NON-NLS
+
   private SeriesBuilder() {}
 
   public static void applyMipParameters(
@@ -64,13 +72,13 @@ public static void applyMipParameters(
       Integer extend,
       boolean fullSeries) {
 
-    PlanarImage curImage;
     if (series != null) {
       SeriesComparator sort = (SeriesComparator) view.getActionValue(ActionW.SORT_STACK.cmd());
       Boolean reverse = (Boolean) view.getActionValue(ActionW.INVERSE_STACK.cmd());
       Comparator sortFilter = (reverse != null && reverse) ? sort.getReversOrderComparator() : sort;
       Filter filter = (Filter) view.getActionValue(ActionW.FILTERED_SERIES.cmd());
-      Iterable<DicomImageElement> medias = series.copyOfMedias(filter, sortFilter);
+      List<DicomImageElement> medias = new ArrayList<>();
+      series.copyOfMedias(filter, sortFilter).forEach(medias::add);
 
       int curImg = extend - 1;
       Optional<SliderCineListener> sequence =
@@ -80,7 +88,7 @@ public static void applyMipParameters(
       }
 
       int minImg = fullSeries ? extend : curImg;
-      int maxImg = fullSeries ? series.size(filter) - extend : curImg;
+      int maxImg = fullSeries ? medias.size() - extend : curImg;
 
       DicomImageElement img =
           series.getMedia(MediaSeries.MEDIA_POSITION.MIDDLE, filter, sortFilter);
@@ -88,106 +96,207 @@ public static void applyMipParameters(
       final Attributes cpTags = getBaseAttributes(attributes);
       adaptWindowLevel(view, cpTags);
       String seriesUID = UIDUtils.createUID();
+      File dir = MIP_CACHE_DIR;
+      if (fullSeries) {
+        dir = new File(MIP_CACHE_DIR, seriesUID);
+        dir.mkdirs();
+      }
+      SlabContext context = new SlabContext(medias, img, cpTags, seriesUID, dir, mipType, extend);
 
-      for (int index = minImg; index <= maxImg; index++) {
-        Iterator<DicomImageElement> iter = medias.iterator();
-        final List<ImageElement> sources = new ArrayList<>();
-        int startIndex = index - extend;
-        if (startIndex < 0) {
-          startIndex = 0;
-        }
-        int stopIndex = index + extend;
-        int k = 0;
-        while (iter.hasNext()) {
-          DicomImageElement dcm = iter.next();
-          if (k >= startIndex) {
-            sources.add(dcm);
-          }
+      int nbParts = getNumberOfParts(maxImg - minImg + 1, 2 * extend + 1);
+      if (nbParts <= 1) {
+        buildSlabs(context, minImg, maxImg, dicoms);
+      } else {
+        buildSlabsInParallel(context, minImg, maxImg, nbParts, dicoms);
+      }
+    }
+  }
 
-          if (k >= stopIndex) {
-            break;
-          }
-          k++;
+  private record SlabContext(
+      List<DicomImageElement> medias,
+      DicomImageElement img,
+      Attributes cpTags,
+      String seriesUID,
+      File dir,
+      Type mipType,
+      int extend) {}
+
+  /**
+   * Each part streams its own window, so the slices at the boundaries are read by two parts. A part
+   * must be long enough compared to the thickness of the slab to keep this overhead low.
+   */
+  private static int getNumberOfParts(int nbImages, int slabSize) {
+    int parts = nbImages / (2 * slabSize);
+    return Math.max(1, Math.min(parts, Runtime.getRuntime().availableProcessors()));
+  }
+
+  private static void buildSlabsInParallel(
+      SlabContext context, int minImg, int maxImg, int nbParts, List<DicomImageElement> dicoms) {
+    int step = (maxImg - minImg + nbParts) / nbParts;
+    List<List<DicomImageElement>> results = new ArrayList<>(nbParts);
+    List<Future<Boolean>> futures = new ArrayList<>(nbParts);
+    for (int first = minImg; first <= maxImg; first += step) {
+      int start = first;
+      int end = Math.min(maxImg, first + step - 1);
+      List<DicomImageElement> list = new ArrayList<>(end - start + 1);
+      results.add(list);
+      futures.add(MIP_BUILDER.submit(() -> buildSlabs(context, start, end, list)));
+    }
+
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        boolean complete = futures.get(i).get();
+        dicoms.addAll(results.get(i));
+        if (!complete) {
+          // Keep the series without gap, as the sequential building stops at the first error
+          break;
         }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TaskInterruptionException("MIP building has been interrupted"); // NON-NLS
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
 
-        if (sources.size() > 1) {
-          curImage = addCollectionOperation(mipType, sources);
-        } else {
-          curImage = null;
+  /**
+   * Builds the projections from the index first to the index last (inclusive) by sliding the window
+   * of slices along the series: each slice is read only once.
+   *
+   * @return false if the building stopped because of a writing error
+   */
+  private static boolean buildSlabs(
+      SlabContext context, int first, int last, List<DicomImageElement> dicoms) {
+    List<DicomImageElement> medias = context.medias();
+    int extend = context.extend();
+    int lastSlice = medias.size() - 1;
+    int start = Math.max(0, first - extend);
+    int next = start;
+    // Type and size of the first slice
+    int type = -1;
+    Size size = null;
+
+    try (SlabWindow window = SlabWindow.create(context.mipType())) {
+      for (int index = first; index <= last; index++) {
+        int startIndex = Math.max(0, index - extend);
+        int stopIndex = Math.min(lastSlice, index + extend);
+        for (; start < startIndex; start++) {
+          window.removeFirst();
+        }
+        for (next = Math.max(next, start); next <= stopIndex; next++) {
+          Mat slice = readSlice(medias.get(next));
+          if (slice != null && size == null) {
+            type = slice.type();
+            size = slice.size();
+          } else if (slice != null && (slice.type() != type || !slice.size().equals(size))) {
+            slice.release();
+            slice = null;
+          }
+          window.add(slice);
         }
 
+        PlanarImage curImage = window.size() > 1 ? window.compute() : null;
         if (curImage != null) {
-          DicomImageElement imgRef = (DicomImageElement) sources.get(sources.size() / 2);
-          FileRawImage raw = null;
-          try {
-            File dir = MIP_CACHE_DIR;
-            if (fullSeries) {
-              dir = new File(MIP_CACHE_DIR, seriesUID);
-              dir.mkdirs();
-            }
-            raw = new FileRawImage(File.createTempFile("mip_", ".wcv", dir)); // NON-NLS
-            if (!raw.write(curImage)) {
-              raw = null;
-            }
-          } catch (Exception e) {
-            if (raw != null) {
-              FileUtil.delete(raw.file());
-              raw = null;
-            }
-            LOGGER.error("Writing MIP", e);
-          }
-          if (raw == null) {
-            return;
+          DicomImageElement dcm = buildImage(context, curImage, startIndex, stopIndex, index);
+          curImage.release();
+          if (dcm == null) {
+            return false;
           }
-          RawImageIO rawIO = new RawImageIO(raw, null);
-          rawIO.getFileCache().setOriginalTempFile(raw.file());
-          rawIO.setBaseAttributes(cpTags);
+          dicoms.add(dcm);
+        }
+      }
+    }
+    return true;
+  }
 
-          // Tags with same values for all the Series
-          rawIO.setTag(TagD.get(Tag.Columns), curImage.width());
-          rawIO.setTag(TagD.get(Tag.Rows), curImage.height());
-          rawIO.setTag(TagD.get(Tag.BitsAllocated), imgRef.getBitsAllocated());
-          rawIO.setTag(TagD.get(Tag.BitsStored), imgRef.getBitsStored());
+  private static Mat readSlice(DicomImageElement dcm) {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new TaskInterruptionException("MIP building has been interrupted"); // NON-NLS
+    }
+    // Read the image from an MPR volume of the series instead of decoding it again
+    ImageCV shared = VolumeCache.getInstance().getSourceImage(dcm);
+    if (shared != null) {
+      return shared;
+    }
+    PlanarImage image = dcm.getImage(null, false);
+    if (image == null) {
+      return null;
+    }
+    // Copy the image as the window owns its slices and the cache can release them
+    ImageCV slice = new ImageCV();
+    image.toMat().copyTo(slice);
+    return slice;
+  }
 
-          int lastIndex = sources.size() - 1;
-          double thickness =
-              DicomMediaUtils.getThickness(sources.getFirst(), sources.get(lastIndex));
-          if (thickness <= 0.0) {
-            thickness = sources.size();
-          }
-          rawIO.setTag(TagD.get(Tag.SliceThickness), thickness);
-          double[] loc = (double[]) imgRef.getTagValue(TagW.SlicePosition);
-          if (loc != null) {
-            rawIO.setTag(TagW.SlicePosition, loc);
-            rawIO.setTag(TagD.get(Tag.SliceLocation), loc[0] + loc[1] + loc[2]);
-          }
+  private static DicomImageElement buildImage(
+      SlabContext context, PlanarImage curImage, int startIndex, int stopIndex, int index) {
+    List<DicomImageElement> medias = context.medias();
+    DicomImageElement imgRef = medias.get(startIndex + (stopIndex - startIndex + 1) / 2);
+    FileRawImage raw = null;
+    try {
+      raw = new FileRawImage(File.createTempFile("mip_", ".wcv", context.dir())); // NON-NLS
+      if (!raw.write(curImage)) {
+        FileUtil.delete(raw.file());
+        raw = null;
+      }
+    } catch (Exception e) {
+      if (raw != null) {
+        FileUtil.delete(raw.file());
+        raw = null;
+      }
+      LOGGER.error("Writing MIP", e);
+    }
+    if (raw == null) {
+      return null;
+    }
+    RawImageIO rawIO = new RawImageIO(raw, null);
+    rawIO.getFileCache().setOriginalTempFile(raw.file());
+    rawIO.setBaseAttributes(context.cpTags());
 
-          rawIO.setTag(TagD.get(Tag.SeriesInstanceUID), seriesUID);
+    // Tags with same values for all the Series
+    rawIO.setTag(TagD.get(Tag.Columns), curImage.width());
+    rawIO.setTag(TagD.get(Tag.Rows), curImage.height());
+    rawIO.setTag(TagD.get(Tag.BitsAllocated), imgRef.getBitsAllocated());
+    rawIO.setTag(TagD.get(Tag.BitsStored), imgRef.getBitsStored());
 
-          // Mandatory tags
-          DerivedStack.copyMandatoryTags(img, rawIO);
-          TagW[] tagList2;
+    double thickness = DicomMediaUtils.getThickness(medias.get(startIndex), medias.get(stopIndex));
+    if (thickness <= 0.0) {
+      thickness = stopIndex - startIndex + 1.0;
+    }
+    rawIO.setTag(TagD.get(Tag.SliceThickness), thickness);
+    double[] loc = (double[]) imgRef.getTagValue(TagW.SlicePosition);
+    if (loc != null) {
+      rawIO.setTag(TagW.SlicePosition, loc);
+      rawIO.setTag(TagD.get(Tag.SliceLocation), loc[0] + loc[1] + loc[2]);
+    }
 
-          tagList2 =
-              TagD.getTagFromIDs(
-                  Tag.ImageOrientationPatient,
-                  Tag.ImagePositionPatient,
-                  Tag.PixelPaddingValue,
-                  Tag.PixelPaddingRangeLimit,
-                  Tag.PixelSpacing,
-                  Tag.ImagerPixelSpacing,
-                  Tag.NominalScannedPixelSpacing,
-                  Tag.PixelSpacingCalibrationDescription,
-                  Tag.PixelAspectRatio);
-          rawIO.copyTags(tagList2, imgRef, false);
+    rawIO.setTag(TagD.get(Tag.SeriesInstanceUID), context.seriesUID());
 
-          // Image specific tags
-          rawIO.setTag(TagD.get(Tag.SOPInstanceUID), UIDUtils.createUID());
-          rawIO.setTag(TagD.get(Tag.InstanceNumber), index + 1);
-          dicoms.add(DerivedStack.buildDicomImageElement(rawIO));
-        }
-      }
-    }
+    // Mandatory tags
+    DerivedStack.copyMandatoryTags(context.img(), rawIO);
+    TagW[] tagList2 =
+        TagD.getTagFromIDs(
+            Tag.ImageOrientationPatient,
+            Tag.ImagePositionPatient,
+            Tag.PixelPaddingValue,
+            Tag.PixelPaddingRangeLimit,
+            Tag.PixelSpacing,
+            Tag.ImagerPixelSpacing,
+            Tag.NominalScannedPixelSpacing,
+            Tag.PixelSpacingCalibrationDescription,
+            Tag.PixelAspectRatio);
+    rawIO.copyTags(tagList2, imgRef, false);
+
+    // Image specific tags
+    rawIO.setTag(TagD.get(Tag.SOPInstanceUID), UIDUtils.createUID());
+    rawIO.setTag(TagD.get(Tag.InstanceNumber), index + 1);
+    return DerivedStack.buildDicomImageElement(rawIO);
   }
 
   private static Attributes getBaseAttributes(Attributes attributes) {
@@ -285,17 +394,4 @@ public static double[] insertAtFirst(double[] originalArray, double newItem) {
     System.arraycopy(originalArray, 0, newArray, 1, originalArray.length);
     return newArray;
   }
-
-  public static PlanarImage addCollectionOperation(Type mipType, List<ImageElement> sources) {
-    if (Type.MIN.equals(mipType)) {
-      MinCollectionZprojection op = new MinCollectionZprojection(sources);
-      return op.computeMinCollectionOpImage();
-    }
-    if (Type.MEAN.equals(mipType)) {
-      MeanCollectionZprojection op = new MeanCollectionZprojection(sources);
-      return op.computeMeanCollectionOpImage();
-    }
-    MaxCollectionZprojection op = new MaxCollectionZprojection(sources);
-    return op.computeMaxCollectionOpImage();
-  }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.viewer2d.mip;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.weasis.dicom.viewer2d.mip.MipView.Type;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.data.PlanarImage;
+
+/**
+ * Projection of a window of slices sliding along a series. Each slice is added and removed only
+ * once, so the cost of a projection does not depend on the thickness of the slab.
+ *
+ * <p>The mean is a running sum. The minimum and the maximum use a queue made of two stacks: the
+ * back stack keeps the aggregate of its slices and the front stack keeps, for each slice, the
+ * aggregate of the slice and of the newer slices of the stack.
+ *
+ * <p>The window owns the slices (the images of the cache can be released at any time) and a null
+ * slice is a position without image (e.g. a slice with a different size).
+ */
+abstract class SlabWindow implements AutoCloseable {
+
+  protected int size;
+  protected int type = -1;
+
+  static SlabWindow create(Type mipType) {
+    return switch (mipType) {
+      case MEAN -> new Mean();
+      case MIN -> new MinMax(false);
+      default -> new MinMax(true);
+    };
+  }
+
+  /** Adds a slice at the end of the window. */
+  void add(Mat slice) {
+    if (slice != null && type < 0) {
+      type = slice.type();
+    }
+    size++;
+    push(slice);
+  }
+
+  /** Removes the first slice of the window. */
+  void removeFirst() {
+    if (size > 0) {
+      size--;
+      pop();
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the projection of the slices of the window or null if there is no image
+   */
+  abstract PlanarImage compute();
+
+  protected abstract void push(Mat slice);
+
+  protected abstract void pop();
+
+  @Override
+  public abstract void close();
+
+  private static final class Mean extends SlabWindow {
+    private final List<Mat> slices = new ArrayList<>();
+    private Mat sum;
+    private int count;
+
+    @Override
+    protected void push(Mat slice) {
+      slices.add(slice);
+      if (slice != null) {
+        if (sum == null) {
+          sum = Mat.zeros(slice.size(), CvType.makeType(CvType.CV_64F, slice.channels()));
+        }
+        accumulate(slice, false);
+        count++;
+      }
+    }
+
+    @Override
+    protected void pop() {
+      Mat slice = slices.removeFirst();
+      if (slice != null) {
+        accumulate(slice, true);
+        count--;
+        slice.release();
+      }
+    }
+
+    private void accumulate(Mat slice, boolean subtract) {
+      Mat val = new Mat();
+      slice.convertTo(val, sum.type());
+      if (subtract) {
+        Core.subtract(sum, val, sum);
+      } else {
+        Core.add(sum, val, sum);
+      }
+      val.release();
+    }
+
+    @Override
+    PlanarImage compute() {
+      if (count == 0) {
+        return null;
+      }
+      ImageCV dstImg = new ImageCV();
+      sum.convertTo(dstImg, type, 1.0 / count);
+      return dstImg;
+    }
+
+    @Override
+    public void close() {
+      slices.forEach(SlabWindow::release);
+      slices.clear();
+      release(sum);
+      sum = null;
+    }
+  }
+
+  private static final class MinMax extends SlabWindow {
+    private final boolean max;
+    private final List<Mat> back = new ArrayList<>();
+    // Stack with the oldest slice at the end
+    private final List<Mat> front = new ArrayList<>();
+    private Mat backAggregate;
+
+    MinMax(boolean max) {
+      this.max = max;
+    }
+
+    @Override
+    protected void push(Mat slice) {
+      back.add(slice);
+      if (slice != null) {
+        if (backAggregate == null) {
+          backAggregate = slice.clone();
+        } else {
+          apply(backAggregate, slice);
+        }
+      }
+    }
+
+    @Override
+    protected void pop() {
+      if (front.isEmpty()) {
+        transfer();
+      }
+      release(front.removeLast());
+    }
+
+    /** Moves the slices of the back stack into the front stack, the newest first. */
+    private void transfer() {
+      Mat aggregate = null;
+      for (int i = back.size() - 1; i >= 0; i--) {
+        Mat slice = back.get(i);
+        if (slice != null) {
+          if (aggregate != null) {
+            // The slice becomes the aggregate of itself and of the newer slices
+            apply(slice, aggregate);
+          }
+          aggregate = slice;
+        }
+        front.add(aggregate == null ? null : aggregate == slice ? slice : aggregate.clone());
+      }
+      back.clear();
+      release(backAggregate);
+      backAggregate = null;
+    }
+
+    private void apply(Mat dst, Mat src) {
+      if (max) {
+        Core.max(dst, src, dst);
+      } else {
+        Core.min(dst, src, dst);
+      }
+    }
+
+    @Override
+    PlanarImage compute() {
+      Mat frontAggregate = front.isEmpty() ? null : front.getLast();
+      if (frontAggregate == null && backAggregate == null) {
+        return null;
+      }
+      ImageCV dstImg = new ImageCV();
+      if (frontAggregate == null) {
+        backAggregate.copyTo(dstImg);
+      } else {
+        frontAggregate.copyTo(dstImg);
+        if (backAggregate != null) {
+          apply(dstImg, backAggregate);
+        }
+      }
+      return dstImg;
+    }
+
+    @Override
+    public void close() {
+      back.forEach(SlabWindow::release);
+      back.clear();
+      front.forEach(SlabWindow::release);
+      front.clear();
+      release(backAggregate);
+      backAggregate = null;
+    }
+  }
+
+  static void release(Mat mat) {
+    if (mat != null) {
+      mat.release();
+    }
+  }
+}
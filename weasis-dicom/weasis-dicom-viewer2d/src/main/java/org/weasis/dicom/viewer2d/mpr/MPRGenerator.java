@@ -23,10 +23,12 @@ public static void createMissingSeries(
     Plane plane = view.getPlane();
     if (plane == null) throw new IllegalStateException("No slice orientation");
 
-    OriginalStack stack = new ObliqueMpr(plane, series, view, null);
+    ObliqueMpr stack = new ObliqueMpr(plane, series, view, null);
 
-    if (stack.getWidth() == 0 || stack.getHeight() == 0)
+    if (stack.getWidth() == 0 || stack.getHeight() == 0) {
+      VolumeCache.getInstance().release(stack.getVolume());
       throw new IllegalStateException("No image");
+    }
 
     BuildContext context = new BuildContext(thread, mprContainer, view);
     stack.generate(context);
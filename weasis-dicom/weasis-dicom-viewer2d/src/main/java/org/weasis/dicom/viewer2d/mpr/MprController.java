@@ -143,8 +143,15 @@ public Volume<?> getVolume() {
     return volume;
   }
 
+  /**
+   * @param volume the volume acquired from the {@link VolumeCache}, the previous volume is released
+   */
   public void setVolume(Volume<?> volume) {
+    Volume<?> old = this.volume;
     this.volume = volume;
+    if (old != null) {
+      VolumeCache.getInstance().release(old);
+    }
   }
 
   public Quaterniond getRotation(Plane plane) {
@@ -676,8 +683,9 @@ public void dispose() {
     axial.dispose();
     coronal.dispose();
     sagittal.dispose();
-    if (volume != null && !volume.isSharedVolume()) {
-      volume.removeData();
+    if (volume != null) {
+      VolumeCache.getInstance().release(volume);
+      volume = null;
     }
   }
 
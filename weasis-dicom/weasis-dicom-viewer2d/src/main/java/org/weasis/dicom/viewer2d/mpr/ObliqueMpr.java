@@ -55,16 +55,21 @@ public ObliqueMpr(
           }
           view.repaint();
         });
+    volume = VolumeCache.getInstance().acquire(this, () -> buildVolume(bar));
+    // Completes the progress when the volume is shared with another viewer
+    GuiExecutor.execute(() -> bar.setValue(bar.getMaximum()));
+  }
+
+  private Volume<?> buildVolume(JProgressBar bar) {
     Volume<?> v = Volume.createVolume(this, bar);
-    if (v.isTransformed()) {
-      volume = v;
-    } else {
-      Volume<?> transformVolume = v.transformVolume();
-      if (transformVolume != v) {
-        v.removeData();
-      }
-      volume = transformVolume;
+    if (v == null || v.isTransformed()) {
+      return v;
+    }
+    Volume<?> transformVolume = v.transformVolume();
+    if (transformVolume != v) {
+      v.removeData();
     }
+    return transformVolume;
   }
 
   public static JProgressBar createProgressBar(MprView view, int maxSize) {
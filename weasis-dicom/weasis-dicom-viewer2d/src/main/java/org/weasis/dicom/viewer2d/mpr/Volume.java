@@ -11,12 +11,16 @@
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
@@ -27,26 +31,28 @@
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiConsumer;
 import javax.swing.JProgressBar;
+import org.dcm4che3.data.Tag;
 import org.joml.Matrix4d;
 import org.joml.Quaterniond;
 import org.joml.Vector3d;
 import org.joml.Vector3i;
 import org.joml.Vector4d;
+import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.gui.util.AppProperties;
 import org.weasis.core.api.gui.util.GuiExecutor;
-import org.weasis.core.api.gui.util.GuiUtils;
 import org.weasis.core.api.image.cv.CvUtil;
 import org.weasis.core.api.util.ThreadUtil;
-import org.weasis.core.ui.editor.image.ViewerPlugin;
 import org.weasis.core.util.FileUtil;
 import org.weasis.core.util.Pair;
 import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.geometry.GeometryOfSlice;
+import org.weasis.dicom.viewer2d.mpr.MprView.Plane;
+import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 import org.weasis.opencv.op.ImageProcessor;
 
@@ -56,6 +62,17 @@
   private static final java.util.concurrent.ExecutorService VOLUME_BUILD_POOL =
       ThreadUtil.newManagedImageProcessingThreadPool("mpr-volume-build");
 
+  // Shared by all the volumes for copying pixels and computing the slices
+  protected static final ForkJoinPool VOLUME_POOL =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  // Largest length of a Java array
+  protected static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8L;
+
+  // The memory-mapped volumes are stored in bricks of 32x32x32 voxels
+  private static final int BRICK_SHIFT = 5;
+  private static final int BRICK_MASK = (1 << BRICK_SHIFT) - 1;
+
   protected final Vector3d translation;
   protected final Quaterniond rotation;
   protected final Vector3i size;
@@ -67,11 +84,16 @@
   protected OriginalStack stack;
   protected int cvType;
   protected int byteDepth = 1;
-  protected MappedByteBuffer mappedBuffer;
+  protected MemorySegment mappedData;
   protected File dataFile;
+  private Arena mappedArena;
+  private int bricksX;
+  private int bricksY;
   protected final JProgressBar progressBar;
   protected final boolean isSigned;
   protected boolean isTransformed = false;
+  // Index in the volume of the images of the source stack
+  private volatile Map<DicomImageElement, Integer> sourceIndexes;
 
   Volume(Volume<?> volume, int sizeX, int sizeY, int sizeZ, Vector3d originalPixelRatio) {
     this.progressBar = volume.progressBar;
@@ -150,6 +172,10 @@ private int initCVType(boolean isSigned) {
   }
 
   private void createData(int sizeX, int sizeY, int sizeZ) {
+    if ((long) sizeX * sizeY * sizeZ > MAX_ARRAY_LENGTH) {
+      createDataFile(sizeX, sizeY, sizeZ);
+      return;
+    }
     try {
       createDataArray(sizeX, sizeY, sizeZ);
     } catch (OutOfMemoryError e) {
@@ -162,17 +188,29 @@ private void createData(int sizeX, int sizeY, int sizeZ) {
     }
   }
 
+  /**
+   * Creates a memory-mapped file when the volume is too large for the heap. The voxels are
+   * addressed with long offsets and stored in bricks, so that a slice in any orientation reads
+   * contiguous blocks of the file.
+   */
   private void createDataFile(int sizeX, int sizeY, int sizeZ) {
     try {
       removeData();
+      bricksX = (sizeX + BRICK_MASK) >> BRICK_SHIFT;
+      bricksY = (sizeY + BRICK_MASK) >> BRICK_SHIFT;
+      int bricksZ = (sizeZ + BRICK_MASK) >> BRICK_SHIFT;
+      long fileSize =
+          ((long) bricksX * bricksY * bricksZ << (3 * BRICK_SHIFT)) * CvType.ELEM_SIZE(cvType);
       dataFile = File.createTempFile("volume_data", ".tmp", AppProperties.FILE_CACHE_DIR);
-      long fileSize;
-      FileChannel fileChannel;
-      try (RandomAccessFile raf = new RandomAccessFile(dataFile, "rw")) {
-        fileSize = (long) sizeX * sizeY * sizeZ * byteDepth;
-        raf.setLength(fileSize);
-        fileChannel = raf.getChannel();
-        this.mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+      Arena arena = Arena.ofShared();
+      try (FileChannel fileChannel =
+          FileChannel.open(
+              dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        this.mappedData = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize, arena);
+        this.mappedArena = arena;
+      } catch (IOException | RuntimeException e) {
+        arena.close();
+        throw e;
       }
     } catch (IOException ioException) {
       throw new RuntimeException("Failed to create a 3D volume file!", ioException);
@@ -323,34 +361,66 @@ private Matrix4d getAffineTransform(DicomImageElement dcm) {
     };
   }
 
-  protected Vector3i transformPoint(int x, int y, int z, Matrix4d transform) {
-    Vector4d p = new Vector4d(x, y, z, 1.0);
-    transform.transform(p);
-    switch (stack.getPlane()) {
-      case AXIAL -> {
-        x = (int) Math.round(p.x);
-        y = (int) Math.round(p.y);
+  /**
+   * Computes the position in the volume of the pixels of a row of a source image. The
+   * coefficients of the transform are taken out of the loop over the pixels of the row.
+   *
+   * @param y the row in the source image
+   * @param z the index of the source image
+   * @param transform the transformation of the source image or null
+   * @param indexes the position of each pixel (see {@link #index(int, int, int)}), or -1 when the
+   *     pixel is outside the volume
+   */
+  protected void getRowIndexes(int y, int z, Matrix4d transform, long[] indexes) {
+    if (transform == null) {
+      for (int x = 0; x < indexes.length; x++) {
+        indexes[x] = isOutside(x, y, z) ? -1 : index(x, y, z);
       }
-      case CORONAL -> {
-        x = (int) Math.round(p.x);
-        y = z;
-        z = -(int) Math.round(p.y);
-      }
-      case SAGITTAL -> {
-        x = z;
-        y = -(int) Math.round(p.y);
-        z = -(int) Math.round(p.z);
+      return;
+    }
+    // Position of the first pixel of the row and increment along the row
+    double px = transform.m10() * y + transform.m20() * z + transform.m30();
+    double py = transform.m11() * y + transform.m21() * z + transform.m31();
+    double pz = transform.m12() * y + transform.m22() * z + transform.m32();
+    double dx = transform.m00();
+    double dy = transform.m01();
+    double dz = transform.m02();
+    Plane plane = stack.getPlane();
+    for (int x = 0; x < indexes.length; x++) {
+      int vx;
+      int vy;
+      int vz;
+      switch (plane) {
+        case CORONAL -> {
+          vx = (int) Math.round(px + dx * x);
+          vy = z;
+          vz = -(int) Math.round(py + dy * x);
+        }
+        case SAGITTAL -> {
+          vx = z;
+          vy = -(int) Math.round(py + dy * x);
+          vz = -(int) Math.round(pz + dz * x);
+        }
+        default -> {
+          vx = (int) Math.round(px + dx * x);
+          vy = (int) Math.round(py + dy * x);
+          vz = z;
+        }
       }
+      indexes[x] = isOutside(vx, vy, vz) ? -1 : index(vx, vy, vz);
     }
-    return new Vector3i(x, y, z);
   }
 
   public void removeData() {
-    if (mappedBuffer != null) {
-      mappedBuffer.clear();
+    if (mappedArena != null) {
+      // Unmap the file before deleting it
+      mappedArena.close();
+      mappedArena = null;
     }
+    mappedData = null;
     if (dataFile != null) {
       FileUtil.delete(dataFile);
+      dataFile = null;
     }
   }
 
@@ -415,44 +485,7 @@ public void resetRotation() {
 
   protected abstract void createDataArray(int sizeX, int sizeY, int sizeZ);
 
-  protected abstract void setValue(int x, int y, int z, T value, Matrix4d transform);
-
-  protected void copyPixels(int width, int height, BiConsumer<Integer, Integer> setPixel) {
-    try (ForkJoinPool pool = new ForkJoinPool()) {
-      pool.invoke(new CopyPixelsTask(0, width * height, width, setPixel));
-    }
-  }
-
-  private static class CopyPixelsTask extends RecursiveAction {
-    private static final int THRESHOLD = 1000;
-    private final int start;
-    private final int end;
-    private final int width;
-    private final BiConsumer<Integer, Integer> setPixel;
-
-    CopyPixelsTask(int start, int end, int width, BiConsumer<Integer, Integer> setPixel) {
-      this.start = start;
-      this.end = end;
-      this.width = width;
-      this.setPixel = setPixel;
-    }
-
-    @Override
-    protected void compute() {
-      if (end - start <= THRESHOLD) {
-        for (int i = start; i < end; i++) {
-          int x = i % width;
-          int y = i / width;
-          setPixel.accept(x, y);
-        }
-      } else {
-        int mid = (start + end) / 2;
-        CopyPixelsTask leftTask = new CopyPixelsTask(start, mid, width, setPixel);
-        CopyPixelsTask rightTask = new CopyPixelsTask(mid, end, width, setPixel);
-        invokeAll(leftTask, rightTask);
-      }
-    }
-  }
+  protected abstract void setValue(int x, int y, int z, T value);
 
   public int getSizeX() {
     return size.x;
@@ -496,8 +529,37 @@ protected boolean isOutside(int x, int y, int z) {
     return x < 0 || x >= size.x || y < 0 || y >= size.y || z < 0 || z >= size.z;
   }
 
+  /**
+   * Returns the position of a voxel in the data. In memory, the voxels are stored slice by slice (x
+   * varies fastest), so that the neighbors in a row are contiguous. In a memory-mapped file, the
+   * voxels are stored in bricks to limit the number of pages read by a slice.
+   */
+  protected final long index(int x, int y, int z) {
+    if (mappedData == null) {
+      return ((long) z * size.y + y) * size.x + x;
+    }
+    long brick =
+        ((long) (z >> BRICK_SHIFT) * bricksY + (y >> BRICK_SHIFT)) * bricksX + (x >> BRICK_SHIFT);
+    int voxel =
+        ((((z & BRICK_MASK) << BRICK_SHIFT) + (y & BRICK_MASK)) << BRICK_SHIFT)
+            + (x & BRICK_MASK);
+    return (brick << (3 * BRICK_SHIFT)) + voxel;
+  }
+
   public abstract T getValue(int x, int y, int z);
 
+  /**
+   * @param index the position of the voxel (see {@link #index(int, int, int)})
+   * @return the value of the voxel, unsigned values are converted to positive values
+   */
+  protected abstract double getDouble(long index);
+
+  /**
+   * @param index the position of the voxel (see {@link #index(int, int, int)})
+   * @param value the value to set, rounded to the nearest value for the integer types
+   */
+  protected abstract void setDouble(long index, double value);
+
   public double getDiagonalLength() {
     return size.length();
   }
@@ -544,72 +606,184 @@ public static Volume<?> createVolume(OriginalStack stack, JProgressBar progressB
       return null;
     }
 
-    Volume<?> volume = getSharedVolume(stack);
-    if (volume == null) {
-      int type = CvType.depth(stack.getMiddleImage().getImage().type());
-      if (type == CvType.CV_8U) {
-        volume = new VolumeByte(stack, false, progressBar);
-      } else if (type == CvType.CV_8S) {
-        volume = new VolumeByte(stack, true, progressBar);
-      } else if (type == CvType.CV_16U) {
-        volume = new VolumeShort(stack, false, progressBar);
-      } else if (type == CvType.CV_16S) {
-        volume = new VolumeShort(stack, true, progressBar);
-      } else if (type == CvType.CV_32S) {
-        volume = new VolumeInt(stack, progressBar);
-      } else if (type == CvType.CV_32F) {
-        volume = new VolumeFloat(stack, progressBar);
-      } else if (type == CvType.CV_64F) {
-        volume = new VolumeDouble(stack, progressBar);
-      } else {
-        throw new IllegalArgumentException("Unsupported data type");
+    int type = CvType.depth(stack.getMiddleImage().getImage().type());
+    if (type == CvType.CV_8U) {
+      return new VolumeByte(stack, false, progressBar);
+    } else if (type == CvType.CV_8S) {
+      return new VolumeByte(stack, true, progressBar);
+    } else if (type == CvType.CV_16U) {
+      return new VolumeShort(stack, false, progressBar);
+    } else if (type == CvType.CV_16S) {
+      return new VolumeShort(stack, true, progressBar);
+    } else if (type == CvType.CV_32S) {
+      return new VolumeInt(stack, progressBar);
+    } else if (type == CvType.CV_32F) {
+      return new VolumeFloat(stack, progressBar);
+    } else if (type == CvType.CV_64F) {
+      return new VolumeDouble(stack, progressBar);
+    }
+    throw new IllegalArgumentException("Unsupported data type");
+  }
+
+  public OriginalStack getStack() {
+    return stack;
+  }
+
+  /**
+   * @return the size of the voxels in bytes
+   */
+  public long getDataSize() {
+    return (long) size.x * size.y * size.z * CvType.ELEM_SIZE(cvType);
+  }
+
+  /**
+   * Reads back a source image from the voxels, without decoding the image again. This is only
+   * possible when the images have been copied without resampling, i.e. an axial stack not
+   * rectified by {@link #transformVolume()}.
+   *
+   * @param dcm an image of the source stack
+   * @return a new image equal to the decoded image, or null if the volume cannot provide it
+   */
+  public ImageCV getSourceImage(DicomImageElement dcm) {
+    int z = getSourceIndex(dcm);
+    if (z < 0) {
+      return null;
+    }
+    ImageCV slice = new ImageCV(size.y, size.x, cvType);
+    copyAxialSlice(z, slice);
+    if (negativeDirRow || negativeDirCol) {
+      // Flip back the image, the flip is its own inverse
+      int flipType = (negativeDirRow && negativeDirCol) ? -1 : (negativeDirCol ? 0 : 1);
+      ImageCV flipped = new ImageCV();
+      Core.flip(slice, flipped, flipType);
+      slice.release();
+      return flipped;
+    }
+    return slice;
+  }
+
+  boolean containsSourceImage(DicomImageElement dcm) {
+    return getSourceIndex(dcm) >= 0;
+  }
+
+  private int getSourceIndex(DicomImageElement dcm) {
+    if (isTransformed || stack == null || stack.getPlane() != MprView.Plane.AXIAL) {
+      return -1;
+    }
+    Map<DicomImageElement, Integer> indexes = sourceIndexes;
+    if (indexes == null) {
+      // The images are copied in the reverse order of the source stack
+      List<DicomImageElement> medias = stack.getSourceStack();
+      indexes = new IdentityHashMap<>(medias.size());
+      for (int i = 0; i < medias.size(); i++) {
+        indexes.put(medias.get(i), medias.size() - 1 - i);
       }
-    } else {
-      progressBar.setValue((int) Math.round(volume.size.z * 1.2));
+      sourceIndexes = indexes;
     }
+    Integer z = indexes.get(dcm);
+    if (z == null || z >= size.z) {
+      return -1;
+    }
+    // The images of a different size have been cropped or padded in the volume
+    Integer columns = TagD.getTagValue(dcm, Tag.Columns, Integer.class);
+    Integer rows = TagD.getTagValue(dcm, Tag.Rows, Integer.class);
+    return Objects.equals(columns, size.x) && Objects.equals(rows, size.y) ? z : -1;
+  }
 
-    return volume;
+  /** Copies the voxels of an axial slice into an image of the size and the type of the slice. */
+  protected abstract void copyAxialSlice(int z, ImageCV dst);
+
+  /** Writes the value of a pixel of a slice. */
+  @FunctionalInterface
+  protected interface SliceRaster {
+    void set(int index, double value);
   }
 
-  public boolean isSharedVolume() {
-    return getSharedVolume(stack) != null;
+  /**
+   * Computes a square slice by sampling the volume in parallel. The pixels outside the volume are
+   * not written in the raster.
+   *
+   * @param transform the transformation from the slice coordinates to the volume coordinates
+   * @param voxelRatio the voxel ratio of the volume
+   * @param width the width and the height of the slice
+   * @param raster the raster of the slice
+   */
+  protected void computeSlice(
+      Matrix4d transform, Vector3d voxelRatio, int width, SliceRaster raster) {
+    VOLUME_POOL.invoke(new VolumeSliceTask(0, width, width, transform, voxelRatio, raster));
   }
 
-  protected static Volume<?> getSharedVolume(OriginalStack currentStack) {
-    List<ViewerPlugin<?>> viewerPlugins = GuiUtils.getUICore().getViewerPlugins();
-    synchronized (viewerPlugins) {
-      for (int i = viewerPlugins.size() - 1; i >= 0; i--) {
-        ViewerPlugin<?> p = viewerPlugins.get(i);
-        if (p instanceof MprContainer mprContainer) {
-          MprController controller = mprContainer.getMprController();
-          if (controller != null) {
-            Volume<?> volume = controller.getVolume();
-            if (volume != null && volume.stack.equals(currentStack)) {
-              return volume;
+  private class VolumeSliceTask extends RecursiveAction {
+    private static final int ROW_THRESHOLD = 8;
+    private final int startRow;
+    private final int endRow;
+    private final int width;
+    private final Matrix4d transform;
+    private final Vector3d voxelRatio;
+    private final SliceRaster raster;
+
+    VolumeSliceTask(
+        int startRow,
+        int endRow,
+        int width,
+        Matrix4d transform,
+        Vector3d voxelRatio,
+        SliceRaster raster) {
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.width = width;
+      this.transform = transform;
+      this.voxelRatio = voxelRatio;
+      this.raster = raster;
+    }
+
+    @Override
+    protected void compute() {
+      if (endRow - startRow <= ROW_THRESHOLD) {
+        // Voxel coordinates of the slice origin and of the row and column steps
+        double dxx = transform.m00() / voxelRatio.x;
+        double dxy = transform.m01() / voxelRatio.y;
+        double dxz = transform.m02() / voxelRatio.z;
+        double dyx = transform.m10() / voxelRatio.x;
+        double dyy = transform.m11() / voxelRatio.y;
+        double dyz = transform.m12() / voxelRatio.z;
+        double ox = transform.m30() / voxelRatio.x;
+        double oy = transform.m31() / voxelRatio.y;
+        double oz = transform.m32() / voxelRatio.z;
+        for (int y = startRow; y < endRow; y++) {
+          double px = ox + y * dyx;
+          double py = oy + y * dyy;
+          double pz = oz + y * dyz;
+          int offset = y * width;
+          for (int x = 0; x < width; x++) {
+            double val = interpolateVolume(px + x * dxx, py + x * dxy, pz + x * dxz);
+            if (!Double.isNaN(val)) {
+              raster.set(offset + x, val);
             }
           }
         }
+      } else {
+        int mid = (startRow + endRow) >>> 1;
+        invokeAll(
+            new VolumeSliceTask(startRow, mid, width, transform, voxelRatio, raster),
+            new VolumeSliceTask(mid, endRow, width, transform, voxelRatio, raster));
       }
     }
-    return null;
   }
 
-  protected Double interpolateVolume(Vector3d point, Vector3d voxelRatio) {
-    // Convert from world coordinates to voxel indices
-    double xIndex = point.x / voxelRatio.x;
-    double yIndex = point.y / voxelRatio.y;
-    double zIndex = point.z / voxelRatio.z;
-
+  /**
+   * Computes the trilinear interpolation of the volume.
+   *
+   * @return the interpolated value or NaN if the point is outside the volume
+   */
+  protected double interpolateVolume(double xIndex, double yIndex, double zIndex) {
     int x0 = (int) Math.floor(xIndex);
     int y0 = (int) Math.floor(yIndex);
     int z0 = (int) Math.floor(zIndex);
-    int x1 = x0 + 1;
-    int y1 = y0 + 1;
-    int z1 = z0 + 1;
 
     // Check if the point is outside the volume
-    if (x0 < 0 || x1 >= size.x || y0 < 0 || y1 >= size.y || z0 < 0 || z1 >= size.z) {
-      return null;
+    if (x0 < 0 || x0 + 1 >= size.x || y0 < 0 || y0 + 1 >= size.y || z0 < 0 || z0 + 1 >= size.z) {
+      return Double.NaN;
     }
 
     double xd = xIndex - x0;
@@ -617,30 +791,49 @@ protected Double interpolateVolume(Vector3d point, Vector3d voxelRatio) {
     double zd = zIndex - z0;
 
     // Retrieve the values at the eight surrounding voxel points
-    T v000 = getValue(x0, y0, z0);
-    T v100 = getValue(x1, y0, z0);
-    T v010 = getValue(x0, y1, z0);
-    T v110 = getValue(x1, y1, z0);
-    T v001 = getValue(x0, y0, z1);
-    T v101 = getValue(x1, y0, z1);
-    T v011 = getValue(x0, y1, z1);
-    T v111 = getValue(x1, y1, z1);
+    double v000;
+    double v100;
+    double v010;
+    double v110;
+    double v001;
+    double v101;
+    double v011;
+    double v111;
+    if (mappedData == null) {
+      long strideY = size.x;
+      long strideZ = (long) size.x * size.y;
+      long i000 = index(x0, y0, z0);
+      long i001 = i000 + strideZ;
+      v000 = getDouble(i000);
+      v100 = getDouble(i000 + 1);
+      v010 = getDouble(i000 + strideY);
+      v110 = getDouble(i000 + strideY + 1);
+      v001 = getDouble(i001);
+      v101 = getDouble(i001 + 1);
+      v011 = getDouble(i001 + strideY);
+      v111 = getDouble(i001 + strideY + 1);
+    } else {
+      // The neighbors can be in different bricks
+      v000 = getDouble(index(x0, y0, z0));
+      v100 = getDouble(index(x0 + 1, y0, z0));
+      v010 = getDouble(index(x0, y0 + 1, z0));
+      v110 = getDouble(index(x0 + 1, y0 + 1, z0));
+      v001 = getDouble(index(x0, y0, z0 + 1));
+      v101 = getDouble(index(x0 + 1, y0, z0 + 1));
+      v011 = getDouble(index(x0, y0 + 1, z0 + 1));
+      v111 = getDouble(index(x0 + 1, y0 + 1, z0 + 1));
+    }
 
     // Trilinear interpolation
-    double c00 = interpolate(v000, v100, xd);
-    double c01 = interpolate(v001, v101, xd);
-    double c10 = interpolate(v010, v110, xd);
-    double c11 = interpolate(v011, v111, xd);
+    double c00 = v000 + (v100 - v000) * xd;
+    double c01 = v001 + (v101 - v001) * xd;
+    double c10 = v010 + (v110 - v010) * xd;
+    double c11 = v011 + (v111 - v011) * xd;
 
-    double c0 = c00 * (1 - yd) + c10 * yd;
-    double c1 = c01 * (1 - yd) + c11 * yd;
+    double c0 = c00 + (c10 - c00) * yd;
+    double c1 = c01 + (c11 - c01) * yd;
 
-    return (c0 * (1 - zd) + c1 * zd);
-  }
-
-  protected double interpolate(T v0, T v1, double factor) {
-    return (v0 == null ? 0 : v0.doubleValue()) * (1 - factor)
-        + (v1 == null ? 0 : v1.doubleValue()) * factor;
+    return c0 + (c1 - c0) * zd;
   }
 
   // value is supposed to be a cosine value, if the difference is greater than 10e-2 from 1 or 0,
@@ -713,62 +906,6 @@ private Vector3i[] calculateTransformedBounds(Matrix4d transform) {
     return new Vector3i[] {min, max};
   }
 
-  protected T getInterpolatedValueFromSource(double x, double y, double z) {
-    // Check bounds in the ORIGINAL volume (this)
-    if (x < 0
-        || x >= this.size.x - 1
-        || y < 0
-        || y >= this.size.y - 1
-        || z < 0
-        || z >= this.size.z - 1) {
-      return null;
-    }
-
-    // Get integer coordinates (floor)
-    int x0 = (int) Math.floor(x);
-    int y0 = (int) Math.floor(y);
-    int z0 = (int) Math.floor(z);
-
-    // Get upper bounds
-    int x1 = Math.min(x0 + 1, this.size.x - 1);
-    int y1 = Math.min(y0 + 1, this.size.y - 1);
-    int z1 = Math.min(z0 + 1, this.size.z - 1);
-
-    // Get fractional parts
-    double fx = x - x0;
-    double fy = y - y0;
-    double fz = z - z0;
-
-    // Get values from ORIGINAL volume (this)
-    T v000 = this.getValue(x0, y0, z0);
-    T v001 = this.getValue(x0, y0, z1);
-    T v010 = this.getValue(x0, y1, z0);
-    T v011 = this.getValue(x0, y1, z1);
-    T v100 = this.getValue(x1, y0, z0);
-    T v101 = this.getValue(x1, y0, z1);
-    T v110 = this.getValue(x1, y1, z0);
-    T v111 = this.getValue(x1, y1, z1);
-
-    // Trilinear interpolation
-    double v00 = interpolate(v000, v100, fx);
-    double v01 = interpolate(v001, v101, fx);
-    double v10 = interpolate(v010, v110, fx);
-    double v11 = interpolate(v011, v111, fx);
-
-    double v0 = v00 * (1 - fy) + v10 * fy;
-    double v1 = v01 * (1 - fy) + v11 * fy;
-
-    double result = v0 * (1 - fz) + v1 * fz;
-
-    return switch (this) {
-      case VolumeByte _ -> (T) Byte.valueOf((byte) Math.round(result));
-      case VolumeShort _ -> (T) Short.valueOf((short) Math.round(result));
-      case VolumeInt _ -> (T) Integer.valueOf((int) Math.round(result));
-      case VolumeFloat _ -> (T) Float.valueOf((float) result);
-      default -> (T) Double.valueOf(result);
-    };
-  }
-
   public Volume<?> transformVolume() {
 
     if (this.isTransformed() || !this.stack.plane.equals(MprView.Plane.AXIAL)) {
@@ -975,18 +1112,19 @@ private void transformVolumeParallel(
 
   private void processVolumeChunk(
       Volume<T> transformedVolume, Matrix4d inv, int fromX, int toX, int sizeY, int sizeZ) {
+    Vector3d sourceCoord = new Vector3d();
     for (int targetX = fromX; targetX < toX; targetX++) {
       for (int targetY = 0; targetY < sizeY; targetY++) {
         for (int targetZ = 0; targetZ < sizeZ; targetZ++) {
           // Transform target coordinates back to source coordinates
-          Vector4d sourceCoord = new Vector4d(targetX, targetY, targetZ, 1.0);
-          inv.transform(sourceCoord);
+          inv.transformPosition(sourceCoord.set(targetX, targetY, targetZ));
 
           // Interpolate from the ORIGINAL volume at these fractional coordinates
-          T interpolatedValue =
-              getInterpolatedValueFromSource(sourceCoord.x, sourceCoord.y, sourceCoord.z);
-          if (interpolatedValue != null) {
-            transformedVolume.setValue(targetX, targetY, targetZ, interpolatedValue, null);
+          double interpolatedValue =
+              interpolateVolume(sourceCoord.x, sourceCoord.y, sourceCoord.z);
+          if (!Double.isNaN(interpolatedValue)) {
+            transformedVolume.setDouble(
+                transformedVolume.index(targetX, targetY, targetZ), interpolatedValue);
           }
         }
       }
@@ -9,21 +9,19 @@
  */
 package org.weasis.dicom.viewer2d.mpr;
 
+import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
 import javax.swing.JProgressBar;
 import org.joml.Matrix4d;
 import org.joml.Quaterniond;
 import org.joml.Vector3d;
-import org.joml.Vector3i;
 import org.weasis.core.util.MathUtil;
 import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 
 public class VolumeByte extends Volume<Byte> {
   private final boolean signed;
-  private byte[][][] data;
+  private byte[] data;
 
   public VolumeByte(int sizeX, int sizeY, int sizeZ, boolean signed, JProgressBar progressBar) {
     super(sizeX, sizeY, sizeZ, progressBar);
@@ -47,7 +45,7 @@ public VolumeByte(
 
   @Override
   protected void createDataArray(int sizeX, int sizeY, int sizeZ) {
-    this.data = new byte[sizeX][sizeY][sizeZ];
+    this.data = new byte[sizeX * sizeY * sizeZ];
   }
 
   @Override
@@ -60,30 +58,34 @@ public void removeData() {
   protected void copyFrom(PlanarImage image, int sliceIndex, Matrix4d transform) {
     int width = image.width();
     int height = image.height();
-
-    byte[] pixelData = new byte[width * height];
-    image.get(0, 0, pixelData);
-
-    copyPixels(
-        width, height, (x, y) -> setValue(x, y, sliceIndex, pixelData[y * width + x], transform));
+    byte[] row = new byte[width];
+    long[] indexes = new long[width];
+    for (int y = 0; y < height; y++) {
+      image.get(y, 0, row);
+      getRowIndexes(y, sliceIndex, transform, indexes);
+      for (int x = 0; x < width; x++) {
+        long index = indexes[x];
+        if (index >= 0) {
+          if (data == null) {
+            mappedData.setAtIndex(ValueLayout.JAVA_BYTE, index, row[x]);
+          } else {
+            data[(int) index] = row[x];
+          }
+        }
+      }
+    }
   }
 
   @Override
-  protected void setValue(int x, int y, int z, Byte value, Matrix4d transform) {
-    if (transform != null) {
-      Vector3i sliceCoord = transformPoint(x, y, z, transform);
-      x = sliceCoord.x;
-      y = sliceCoord.y;
-      z = sliceCoord.z;
-    }
+  protected void setValue(int x, int y, int z, Byte value) {
     if (isOutside(x, y, z)) {
       return;
     }
+    long index = index(x, y, z);
     if (data == null) {
-      int index = x * size.y * size.z + y * size.z + z;
-      mappedBuffer.put(index, value);
+      mappedData.setAtIndex(ValueLayout.JAVA_BYTE, index, value);
     } else {
-      data[x][y][z] = value;
+      data[(int) index] = value;
     }
   }
 
@@ -93,21 +95,47 @@ public Byte getValue(int x, int y, int z) {
       return null;
     }
 
+    long index = index(x, y, z);
     if (data == null) {
-      int index = x * size.y * size.z + y * size.z + z;
-      return mappedBuffer.get(index);
+      return mappedData.getAtIndex(ValueLayout.JAVA_BYTE, index);
     } else {
-      return data[x][y][z];
+      return data[(int) index];
     }
   }
 
   @Override
-  protected double interpolate(Byte v0, Byte v1, double factor) {
-    if (signed) {
-      return super.interpolate(v0, v1, factor);
+  protected double getDouble(long index) {
+    byte val =
+        data == null ? mappedData.getAtIndex(ValueLayout.JAVA_BYTE, index) : data[(int) index];
+    return signed ? val : val & 0xFF;
+  }
+
+  @Override
+  protected void setDouble(long index, double value) {
+    byte val = (byte) Math.round(value);
+    if (data == null) {
+      mappedData.setAtIndex(ValueLayout.JAVA_BYTE, index, val);
+    } else {
+      data[(int) index] = val;
     }
-    return (v0 == null ? 0 : Byte.toUnsignedInt(v0)) * (1 - factor)
-        + (v1 == null ? 0 : Byte.toUnsignedInt(v1)) * factor;
+  }
+
+  @Override
+  protected void copyAxialSlice(int z, ImageCV dst) {
+    int length = size.x * size.y;
+    byte[] slice;
+    if (data == null) {
+      slice = new byte[length];
+      for (int y = 0; y < size.y; y++) {
+        for (int x = 0; x < size.x; x++) {
+          slice[y * size.x + x] = mappedData.getAtIndex(ValueLayout.JAVA_BYTE, index(x, y, z));
+        }
+      }
+    } else {
+      int offset = z * length;
+      slice = Arrays.copyOfRange(data, offset, offset + length);
+    }
+    dst.put(0, 0, slice);
   }
 
   public PlanarImage getVolumeSlice(MprAxis mprAxis, Vector3d volumeCenter) {
@@ -126,62 +154,10 @@ public PlanarImage getVolumeSlice(MprAxis mprAxis, Vector3d volumeCenter) {
       Arrays.fill(raster, (byte) value);
     }
 
-    try (ForkJoinPool pool = new ForkJoinPool()) {
-      pool.invoke(
-          new VolumeSliceTask(
-              0, raster.length, sliceImageSize, combinedTransform, voxelRatio, raster));
-    }
+    computeSlice(combinedTransform, voxelRatio, sliceImageSize, (i, v) -> raster[i] = (byte) v);
 
     ImageCV imageCV = new ImageCV(sliceImageSize, sliceImageSize, getCVType());
     imageCV.put(0, 0, raster);
     return imageCV;
   }
-
-  private class VolumeSliceTask extends RecursiveAction {
-    private final int start;
-    private final int end;
-    private final int width;
-    private final Matrix4d combinedTransform;
-    private final Vector3d voxelRatio;
-    private final byte[] raster;
-
-    VolumeSliceTask(
-        int start,
-        int end,
-        int width,
-        Matrix4d combinedTransform,
-        Vector3d voxelRatio,
-        byte[] raster) {
-      this.start = start;
-      this.end = end;
-      this.width = width;
-      this.combinedTransform = combinedTransform;
-      this.voxelRatio = voxelRatio;
-      this.raster = raster;
-    }
-
-    @Override
-    protected void compute() {
-      if (end - start <= width) {
-        for (int i = start; i < end; i++) {
-          int x = i % width;
-          int y = i / width;
-          Vector3d sliceCoord = new Vector3d(x, y, 0);
-          combinedTransform.transformPosition(sliceCoord);
-
-          Double val = interpolateVolume(sliceCoord, voxelRatio);
-          if (val != null) {
-            raster[y * width + x] = val.byteValue();
-          }
-        }
-      } else {
-        int mid = (start + end) / 2;
-        VolumeSliceTask leftTask =
-            new VolumeSliceTask(start, mid, width, combinedTransform, voxelRatio, raster);
-        VolumeSliceTask rightTask =
-            new VolumeSliceTask(mid, end, width, combinedTransform, voxelRatio, raster);
-        invokeAll(leftTask, rightTask);
-      }
-    }
-  }
 }
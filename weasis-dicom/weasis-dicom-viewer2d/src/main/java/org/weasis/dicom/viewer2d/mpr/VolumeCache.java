@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.viewer2d.mpr;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.opencv.core.CvType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.dicom.viewer2d.mpr.MprView.Plane;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.data.PlanarImage;
+
+/**
+ * Volumes shared by the viewers, keyed by series, orientation and data type. A volume is built
+ * only once even when several viewers request it at the same time, and it is counted by
+ * reference: {@link #acquire(OriginalStack, Supplier)} and {@link #release(Volume)} must be
+ * called in pairs.
+ *
+ * <p>The volumes no longer used are kept for being opened again, until their size exceeds the
+ * limit or the heap is running low. The other viewers (MIP, 3D) can read the source images from a
+ * volume in memory with {@link #getSourceImage(DicomImageElement)} instead of decoding them again.
+ */
+public final class VolumeCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VolumeCache.class);
+
+  public static final String PREF_MAX_IDLE_SIZE = "weasis.mpr.volume.cache.max.mb"; // NON-NLS
+
+  // Ratio of the maximum heap above which the volumes not used are released
+  private static final double MEMORY_PRESSURE_RATIO = 0.8;
+
+  private static final VolumeCache INSTANCE = new VolumeCache();
+
+  record Key(String seriesUID, Plane plane, int type, OriginalStack stack) {
+
+    static Key of(OriginalStack stack) {
+      Object uid = stack.getSeries().getTagValue(stack.getSeries().getTagID());
+      PlanarImage img = stack.getMiddleImage().getImage();
+      int type = img == null ? -1 : CvType.depth(img.type());
+      return new Key(uid == null ? null : uid.toString(), stack.getPlane(), type, stack);
+    }
+  }
+
+  private static final class Entry {
+    private final Key key;
+    private final CompletableFuture<Volume<?>> future = new CompletableFuture<>();
+    private int refCount;
+
+    Entry(Key key) {
+      this.key = key;
+    }
+
+    Volume<?> getVolume() {
+      return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+  }
+
+  // In access order, the least recently used first. Guarded by this
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongSupplier maxIdleSize;
+  private final LongPredicate lowMemory;
+
+  private VolumeCache() {
+    this(VolumeCache::getPreferredMaxIdleSize, VolumeCache::isLowMemory);
+  }
+
+  /**
+   * @param maxIdleSize the maximum size in bytes of the volumes not used
+   * @param lowMemory tests whether the heap has not enough free memory for a required size
+   */
+  VolumeCache(LongSupplier maxIdleSize, LongPredicate lowMemory) {
+    this.maxIdleSize = maxIdleSize;
+    this.lowMemory = lowMemory;
+  }
+
+  public static VolumeCache getInstance() {
+    return INSTANCE;
+  }
+
+  public long getMaxIdleSize() {
+    return maxIdleSize.getAsLong();
+  }
+
+  private static long getPreferredMaxIdleSize() {
+    long defaultSize = Runtime.getRuntime().maxMemory() / 4 / (1024 * 1024);
+    long max =
+        GuiUtils.getUICore()
+            .getSystemPreferences()
+            .getLongProperty(PREF_MAX_IDLE_SIZE, defaultSize);
+    return Math.max(0, max) * 1024 * 1024;
+  }
+
+  private static boolean isLowMemory(long required) {
+    Runtime runtime = Runtime.getRuntime();
+    long used = runtime.totalMemory() - runtime.freeMemory();
+    return used + Math.min(required, runtime.maxMemory())
+        > runtime.maxMemory() * MEMORY_PRESSURE_RATIO;
+  }
+
+  /**
+   * Gets the volume of a stack, or builds it if it is not in the cache. When the volume is being
+   * built by another thread, this method waits for the end of the building.
+   *
+   * @param stack the source stack of the volume
+   * @param builder builds the volume, called only when the volume is not in the cache
+   * @return the volume, which must be released with {@link #release(Volume)}, or null
+   */
+  public Volume<?> acquire(OriginalStack stack, Supplier<Volume<?>> builder) {
+    Key key = Key.of(stack);
+    Entry entry;
+    boolean owner = false;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry(key);
+        entries.put(key, entry);
+        owner = true;
+      }
+      entry.refCount++;
+    }
+
+    if (owner) {
+      trim(estimateSize(stack));
+      try {
+        Volume<?> volume = builder.get();
+        entry.future.complete(volume);
+        if (volume == null) {
+          remove(entry);
+        }
+        return volume;
+      } catch (RuntimeException | Error e) {
+        remove(entry);
+        entry.future.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    try {
+      Volume<?> volume = entry.future.join();
+      if (volume == null) {
+        release(entry);
+      }
+      return volume;
+    } catch (CompletionException e) {
+      release(entry);
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Releases a volume acquired with {@link #acquire(OriginalStack, Supplier)}. A volume which is
+   * not in the cache is freed.
+   */
+  public void release(Volume<?> volume) {
+    if (volume == null) {
+      return;
+    }
+    Entry entry = findEntry(volume);
+    if (entry == null) {
+      volume.removeData();
+    } else {
+      release(entry);
+    }
+  }
+
+  /**
+   * @return true if the volume is used by several viewers
+   */
+  public synchronized boolean isShared(Volume<?> volume) {
+    Entry entry = findEntry(volume);
+    return entry != null && entry.refCount > 1;
+  }
+
+  /**
+   * Reads a source image from a volume in memory, without decoding the image.
+   *
+   * @param dcm the image
+   * @return a new image, owned by the caller, or null if no volume contains this image
+   */
+  public ImageCV getSourceImage(DicomImageElement dcm) {
+    if (dcm == null) {
+      return null;
+    }
+    Entry entry = null;
+    synchronized (this) {
+      for (Entry e : entries.values()) {
+        Volume<?> volume = e.getVolume();
+        if (volume != null && volume.containsSourceImage(dcm)) {
+          // Keep the volume during the copy
+          e.refCount++;
+          entry = e;
+          break;
+        }
+      }
+    }
+    if (entry == null) {
+      return null;
+    }
+    try {
+      return entry.getVolume().getSourceImage(dcm);
+    } catch (Exception e) {
+      LOGGER.warn("Cannot read the image from the volume", e);
+      return null;
+    } finally {
+      release(entry);
+    }
+  }
+
+  /** Frees the volumes which are not used. */
+  public void clearUnused() {
+    trim(Long.MAX_VALUE);
+  }
+
+  private void release(Entry entry) {
+    synchronized (this) {
+      entry.refCount--;
+    }
+    trim(0);
+  }
+
+  private synchronized void remove(Entry entry) {
+    entries.remove(entry.key, entry);
+  }
+
+  private synchronized Entry findEntry(Volume<?> volume) {
+    for (Entry e : entries.values()) {
+      if (e.getVolume() == volume) {
+        return e;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Frees the least recently used volumes which are not used, while their size exceeds the limit
+   * or while the heap has not enough free memory.
+   *
+   * @param required the size of the memory which will be allocated
+   */
+  private void trim(long required) {
+    long maxIdle = getMaxIdleSize();
+    while (true) {
+      Volume<?> evicted = null;
+      synchronized (this) {
+        long idleSize = 0;
+        for (Entry e : entries.values()) {
+          Volume<?> volume = e.getVolume();
+          if (e.refCount <= 0 && volume != null) {
+            idleSize += volume.getDataSize();
+          }
+        }
+        if (idleSize > 0 && (idleSize > maxIdle || lowMemory.test(required))) {
+          Iterator<Entry> it = entries.values().iterator();
+          while (it.hasNext()) {
+            Entry e = it.next();
+            Volume<?> volume = e.getVolume();
+            if (e.refCount <= 0 && volume != null) {
+              it.remove();
+              evicted = volume;
+              break;
+            }
+          }
+        }
+      }
+      if (evicted == null) {
+        return;
+      }
+      LOGGER.debug("Release the volume of {}", evicted.getStack().getSeries());
+      evicted.removeData();
+    }
+  }
+
+  private static long estimateSize(OriginalStack stack) {
+    PlanarImage img = stack.getMiddleImage().getImage();
+    if (img == null) {
+      return 0;
+    }
+    return (long) stack.getWidth()
+        * stack.getHeight()
+        * stack.getSourceStack().size()
+        * CvType.ELEM_SIZE(img.type());
+  }
+}
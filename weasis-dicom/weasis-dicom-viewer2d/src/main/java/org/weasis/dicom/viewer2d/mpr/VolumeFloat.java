@@ -9,20 +9,18 @@
  */
 package org.weasis.dicom.viewer2d.mpr;
 
+import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
 import javax.swing.JProgressBar;
 import org.joml.Matrix4d;
 import org.joml.Quaterniond;
 import org.joml.Vector3d;
-import org.joml.Vector3i;
 import org.weasis.core.util.MathUtil;
 import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 
 public class VolumeFloat extends Volume<Float> {
-  private float[][][] data;
+  private float[] data;
 
   public VolumeFloat(int sizeX, int sizeY, int sizeZ, JProgressBar progressBar) {
     super(sizeX, sizeY, sizeZ, progressBar);
@@ -43,7 +41,7 @@ public VolumeFloat(OriginalStack stack, JProgressBar progressBar) {
 
   @Override
   protected void createDataArray(int sizeX, int sizeY, int sizeZ) {
-    this.data = new float[sizeX][sizeY][sizeZ];
+    this.data = new float[sizeX * sizeY * sizeZ];
   }
 
   @Override
@@ -56,30 +54,34 @@ public void removeData() {
   protected void copyFrom(PlanarImage image, int sliceIndex, Matrix4d transform) {
     int width = image.width();
     int height = image.height();
-
-    float[] pixelData = new float[width * height];
-    image.get(0, 0, pixelData);
-
-    copyPixels(
-        width, height, (x, y) -> setValue(x, y, sliceIndex, pixelData[y * width + x], transform));
+    float[] row = new float[width];
+    long[] indexes = new long[width];
+    for (int y = 0; y < height; y++) {
+      image.get(y, 0, row);
+      getRowIndexes(y, sliceIndex, transform, indexes);
+      for (int x = 0; x < width; x++) {
+        long index = indexes[x];
+        if (index >= 0) {
+          if (data == null) {
+            mappedData.setAtIndex(ValueLayout.JAVA_FLOAT, index, row[x]);
+          } else {
+            data[(int) index] = row[x];
+          }
+        }
+      }
+    }
   }
 
   @Override
-  protected void setValue(int x, int y, int z, Float value, Matrix4d transform) {
-    if (transform != null) {
-      Vector3i sliceCoord = transformPoint(x, y, z, transform);
-      x = sliceCoord.x;
-      y = sliceCoord.y;
-      z = sliceCoord.z;
-    }
+  protected void setValue(int x, int y, int z, Float value) {
     if (isOutside(x, y, z)) {
       return;
     }
+    long index = index(x, y, z);
     if (data == null) {
-      int index = (x * size.y * size.z + y * size.z + z) * byteDepth;
-      mappedBuffer.putFloat(index, value);
+      mappedData.setAtIndex(ValueLayout.JAVA_FLOAT, index, value);
     } else {
-      data[x][y][z] = value;
+      data[(int) index] = value;
     }
   }
 
@@ -89,14 +91,47 @@ public Float getValue(int x, int y, int z) {
       return null;
     }
 
+    long index = index(x, y, z);
     if (data == null) {
-      int index = (x * size.y * size.z + y * size.z + z) * byteDepth;
-      return mappedBuffer.getFloat(index);
+      return mappedData.getAtIndex(ValueLayout.JAVA_FLOAT, index);
     } else {
-      return data[x][y][z];
+      return data[(int) index];
     }
   }
 
+  @Override
+  protected double getDouble(long index) {
+    return data == null ? mappedData.getAtIndex(ValueLayout.JAVA_FLOAT, index) : data[(int) index];
+  }
+
+  @Override
+  protected void setDouble(long index, double value) {
+    float val = (float) value;
+    if (data == null) {
+      mappedData.setAtIndex(ValueLayout.JAVA_FLOAT, index, val);
+    } else {
+      data[(int) index] = val;
+    }
+  }
+
+  @Override
+  protected void copyAxialSlice(int z, ImageCV dst) {
+    int length = size.x * size.y;
+    float[] slice;
+    if (data == null) {
+      slice = new float[length];
+      for (int y = 0; y < size.y; y++) {
+        for (int x = 0; x < size.x; x++) {
+          slice[y * size.x + x] = mappedData.getAtIndex(ValueLayout.JAVA_FLOAT, index(x, y, z));
+        }
+      }
+    } else {
+      int offset = z * length;
+      slice = Arrays.copyOfRange(data, offset, offset + length);
+    }
+    dst.put(0, 0, slice);
+  }
+
   public PlanarImage getVolumeSlice(MprAxis mprAxis, Vector3d volumeCenter) {
     if (mprAxis == null) {
       return null;
@@ -107,68 +142,16 @@ public PlanarImage getVolumeSlice(MprAxis mprAxis, Vector3d volumeCenter) {
     Matrix4d combinedTransform = mprAxis.getRealVolumeTransformation(mprRotation, volumeCenter);
     mprAxis.getTransformation().set(combinedTransform);
 
-    double[] raster = new double[sliceImageSize * sliceImageSize];
+    float[] raster = new float[sliceImageSize * sliceImageSize];
     double value = getPhotometricMinValue();
     if (MathUtil.isDifferentFromZero(value)) {
       Arrays.fill(raster, (float) value);
     }
 
-    try (ForkJoinPool pool = new ForkJoinPool()) {
-      pool.invoke(
-          new VolumeSliceTask(
-              0, raster.length, sliceImageSize, combinedTransform, voxelRatio, raster));
-    }
+    computeSlice(combinedTransform, voxelRatio, sliceImageSize, (i, v) -> raster[i] = (float) v);
 
     ImageCV imageCV = new ImageCV(sliceImageSize, sliceImageSize, getCVType());
     imageCV.put(0, 0, raster);
     return imageCV;
   }
-
-  private class VolumeSliceTask extends RecursiveAction {
-    private final int start;
-    private final int end;
-    private final int width;
-    private final Matrix4d combinedTransform;
-    private final Vector3d voxelRatio;
-    private final double[] raster;
-
-    VolumeSliceTask(
-        int start,
-        int end,
-        int width,
-        Matrix4d combinedTransform,
-        Vector3d voxelRatio,
-        double[] raster) {
-      this.start = start;
-      this.end = end;
-      this.width = width;
-      this.combinedTransform = combinedTransform;
-      this.voxelRatio = voxelRatio;
-      this.raster = raster;
-    }
-
-    @Override
-    protected void compute() {
-      if (end - start <= width) {
-        for (int i = start; i < end; i++) {
-          int x = i % width;
-          int y = i / width;
-          Vector3d sliceCoord = new Vector3d(x, y, 0);
-          combinedTransform.transformPosition(sliceCoord);
-
-          Double val = interpolateVolume(sliceCoord, voxelRatio);
-          if (val != null) {
-            raster[y * width + x] = val.floatValue();
-          }
-        }
-      } else {
-        int mid = (start + end) / 2;
-        VolumeSliceTask leftTask =
-            new VolumeSliceTask(start, mid, width, combinedTransform, voxelRatio, raster);
-        VolumeSliceTask rightTask =
-            new VolumeSliceTask(mid, end, width, combinedTransform, voxelRatio, raster);
-        invokeAll(leftTask, rightTask);
-      }
-    }
-  }
 }
@@ -17,14 +17,12 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
 import javax.swing.JProgressBar;
 import org.joml.Matrix4d;
 import org.joml.Quaterniond;
 import org.joml.Vector3d;
-import org.joml.Vector3i;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.util.MathUtil;
@@ -35,7 +33,7 @@ public class VolumeShort extends Volume<Short> {
   private static final Logger LOGGER = LoggerFactory.getLogger(VolumeShort.class);
   private final boolean signed;
 
-  private short[][][] data;
+  private short[] data;
 
   public VolumeShort(int sizeX, int sizeY, int sizeZ, boolean signed, JProgressBar progressBar) {
     super(sizeX, sizeY, sizeZ, progressBar);
@@ -59,7 +57,7 @@ public VolumeShort(OriginalStack stack, boolean signed, JProgressBar progressBar
 
   @Override
   protected void createDataArray(int sizeX, int sizeY, int sizeZ) {
-    this.data = new short[sizeX][sizeY][sizeZ];
+    this.data = new short[sizeX * sizeY * sizeZ];
   }
 
   @Override
@@ -72,30 +70,34 @@ public void removeData() {
   protected void copyFrom(PlanarImage image, int sliceIndex, Matrix4d transform) {
     int width = image.width();
     int height = image.height();
-
-    short[] pixelData = new short[width * height];
-    image.get(0, 0, pixelData);
-
-    copyPixels(
-        width, height, (x, y) -> setValue(x, y, sliceIndex, pixelData[y * width + x], transform));
+    short[] row = new short[width];
+    long[] indexes = new long[width];
+    for (int y = 0; y < height; y++) {
+      image.get(y, 0, row);
+      getRowIndexes(y, sliceIndex, transform, indexes);
+      for (int x = 0; x < width; x++) {
+        long index = indexes[x];
+        if (index >= 0) {
+          if (data == null) {
+            mappedData.setAtIndex(ValueLayout.JAVA_SHORT, index, row[x]);
+          } else {
+            data[(int) index] = row[x];
+          }
+        }
+      }
+    }
   }
 
   @Override
-  protected void setValue(int x, int y, int z, Short value, Matrix4d transform) {
-    if (transform != null) {
-      Vector3i sliceCoord = transformPoint(x, y, z, transform);
-      x = sliceCoord.x;
-      y = sliceCoord.y;
-      z = sliceCoord.z;
-    }
+  protected void setValue(int x, int y, int z, Short value) {
     if (isOutside(x, y, z)) {
       return;
     }
+    long index = index(x, y, z);
     if (data == null) {
-      int index = (x * size.y * size.z + y * size.z + z) * byteDepth;
-      mappedBuffer.putShort(index, value);
+      mappedData.setAtIndex(ValueLayout.JAVA_SHORT, index, value);
     } else {
-      data[x][y][z] = value;
+      data[(int) index] = value;
     }
   }
 
@@ -105,21 +107,47 @@ public Short getValue(int x, int y, int z) {
       return null;
     }
 
+    long index = index(x, y, z);
     if (data == null) {
-      int index = (x * size.y * size.z + y * size.z + z) * byteDepth;
-      return mappedBuffer.getShort(index);
+      return mappedData.getAtIndex(ValueLayout.JAVA_SHORT, index);
     } else {
-      return data[x][y][z];
+      return data[(int) index];
     }
   }
 
   @Override
-  protected double interpolate(Short v0, Short v1, double factor) {
-    if (signed) {
-      return super.interpolate(v0, v1, factor);
+  protected double getDouble(long index) {
+    short val =
+        data == null ? mappedData.getAtIndex(ValueLayout.JAVA_SHORT, index) : data[(int) index];
+    return signed ? val : val & 0xFFFF;
+  }
+
+  @Override
+  protected void setDouble(long index, double value) {
+    short val = (short) Math.round(value);
+    if (data == null) {
+      mappedData.setAtIndex(ValueLayout.JAVA_SHORT, index, val);
+    } else {
+      data[(int) index] = val;
     }
-    return (v0 == null ? 0 : Short.toUnsignedInt(v0)) * (1 - factor)
-        + (v1 == null ? 0 : Short.toUnsignedInt(v1)) * factor;
+  }
+
+  @Override
+  protected void copyAxialSlice(int z, ImageCV dst) {
+    int length = size.x * size.y;
+    short[] slice;
+    if (data == null) {
+      slice = new short[length];
+      for (int y = 0; y < size.y; y++) {
+        for (int x = 0; x < size.x; x++) {
+          slice[y * size.x + x] = mappedData.getAtIndex(ValueLayout.JAVA_SHORT, index(x, y, z));
+        }
+      }
+    } else {
+      int offset = z * length;
+      slice = Arrays.copyOfRange(data, offset, offset + length);
+    }
+    dst.put(0, 0, slice);
   }
 
   public PlanarImage getVolumeSlice(MprAxis mprAxis, Vector3d volumeCenter) {
@@ -139,65 +167,13 @@ public PlanarImage getVolumeSlice(MprAxis mprAxis, Vector3d volumeCenter) {
       Arrays.fill(raster, (short) value);
     }
 
-    try (ForkJoinPool pool = new ForkJoinPool()) {
-      pool.invoke(
-          new VolumeSliceTask(
-              0, raster.length, sliceImageSize, combinedTransform, voxelRatio, raster));
-    }
+    computeSlice(combinedTransform, voxelRatio, sliceImageSize, (i, v) -> raster[i] = (short) v);
 
     ImageCV imageCV = new ImageCV(sliceImageSize, sliceImageSize, getCVType());
     imageCV.put(0, 0, raster);
     return imageCV;
   }
 
-  private class VolumeSliceTask extends RecursiveAction {
-    private final int start;
-    private final int end;
-    private final int width;
-    private final Matrix4d combinedTransform;
-    private final Vector3d voxelRatio;
-    private final short[] raster;
-
-    VolumeSliceTask(
-        int start,
-        int end,
-        int width,
-        Matrix4d combinedTransform,
-        Vector3d voxelRatio,
-        short[] raster) {
-      this.start = start;
-      this.end = end;
-      this.width = width;
-      this.combinedTransform = combinedTransform;
-      this.voxelRatio = voxelRatio;
-      this.raster = raster;
-    }
-
-    @Override
-    protected void compute() {
-      if (end - start <= width) {
-        for (int i = start; i < end; i++) {
-          int x = i % width;
-          int y = i / width;
-          Vector3d sliceCoord = new Vector3d(x, y, 0);
-          combinedTransform.transformPosition(sliceCoord);
-
-          Double val = interpolateVolume(sliceCoord, voxelRatio);
-          if (val != null) {
-            raster[y * width + x] = val.shortValue();
-          }
-        }
-      } else {
-        int mid = (start + end) / 2;
-        VolumeSliceTask leftTask =
-            new VolumeSliceTask(start, mid, width, combinedTransform, voxelRatio, raster);
-        VolumeSliceTask rightTask =
-            new VolumeSliceTask(mid, end, width, combinedTransform, voxelRatio, raster);
-        invokeAll(leftTask, rightTask);
-      }
-    }
-  }
-
   public void saveVolumeInFile(File file) {
     try (DataOutputStream dos =
         new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
@@ -242,7 +218,7 @@ public static Volume<?> readVolumeFromFile(File file) {
       for (int x = 0; x < sizeX; x++) {
         for (int y = 0; y < sizeY; y++) {
           for (int z = 0; z < sizeZ; z++) {
-            volume.setValue(x, y, z, dis.readShort(), null);
+            volume.setValue(x, y, z, dis.readShort());
           }
         }
       }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.viewer2d.mpr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.dicom.codec.DicomImageElement;
+
+class VolumeCacheTest {
+
+  @SuppressWarnings("unchecked")
+  private static OriginalStack stack() {
+    OriginalStack stack = Mockito.mock(OriginalStack.class);
+    MediaSeries<DicomImageElement> series = Mockito.mock(MediaSeries.class);
+    Mockito.when(stack.getSeries()).thenReturn(series);
+    Mockito.when(stack.getMiddleImage()).thenReturn(Mockito.mock(DicomImageElement.class));
+    return stack;
+  }
+
+  private static Volume<?> volume(OriginalStack stack, long size) {
+    Volume<?> volume = Mockito.mock(Volume.class);
+    Mockito.when(volume.getDataSize()).thenReturn(size);
+    Mockito.when(volume.getStack()).thenReturn(stack);
+    return volume;
+  }
+
+  @Test
+  void test_released_volume_is_kept_then_evicted() {
+    VolumeCache cache = new VolumeCache(() -> 150, _ -> false);
+    OriginalStack s1 = stack();
+    OriginalStack s2 = stack();
+    Volume<?> vol1 = volume(s1, 100);
+    Volume<?> vol2 = volume(s2, 100);
+
+    assertSame(vol1, cache.acquire(s1, () -> vol1));
+    cache.release(vol1);
+    Mockito.verify(vol1, Mockito.never()).removeData();
+
+    // The idle volume is opened again without building it
+    assertSame(vol1, cache.acquire(s1, () -> fail("The volume is built again")));
+    cache.release(vol1);
+
+    // Both volumes exceed the limit when not used, the least recently used is freed
+    assertSame(vol2, cache.acquire(s2, () -> vol2));
+    cache.release(vol2);
+    Mockito.verify(vol1).removeData();
+    Mockito.verify(vol2, Mockito.never()).removeData();
+
+    Volume<?> vol3 = volume(s1, 100);
+    assertSame(vol3, cache.acquire(s1, () -> vol3));
+  }
+
+  @Test
+  void test_concurrent_acquire_builds_once() throws InterruptedException {
+    VolumeCache cache = new VolumeCache(() -> 0, _ -> false);
+    OriginalStack stack = stack();
+    Volume<?> vol = volume(stack, 100);
+    AtomicInteger builds = new AtomicInteger();
+    CountDownLatch building = new CountDownLatch(1);
+    CountDownLatch built = new CountDownLatch(1);
+    Supplier<Volume<?>> builder =
+        () -> {
+          builds.incrementAndGet();
+          building.countDown();
+          try {
+            built.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return vol;
+        };
+
+    AtomicReference<Volume<?>> first = new AtomicReference<>();
+    AtomicReference<Volume<?>> second = new AtomicReference<>();
+    Thread owner = new Thread(() -> first.set(cache.acquire(stack, builder)));
+    owner.start();
+    assertTrue(building.await(5, TimeUnit.SECONDS));
+    Thread waiter = new Thread(() -> second.set(cache.acquire(stack, builder)));
+    waiter.start();
+    // The second viewer waits for the volume being built by the first one
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (waiter.getState() != Thread.State.WAITING && System.nanoTime() < end) {
+      Thread.sleep(5);
+    }
+    assertEquals(Thread.State.WAITING, waiter.getState());
+    built.countDown();
+    owner.join(5000);
+    waiter.join(5000);
+
+    assertEquals(1, builds.get());
+    assertSame(vol, first.get());
+    assertSame(vol, second.get());
+    assertTrue(cache.isShared(vol));
+
+    cache.release(vol);
+    assertFalse(cache.isShared(vol));
+    Mockito.verify(vol, Mockito.never()).removeData();
+    cache.release(vol);
+    Mockito.verify(vol).removeData();
+  }
+
+  @Test
+  void test_trim_leaves_referenced_volumes() {
+    VolumeCache cache = new VolumeCache(() -> 0, _ -> false);
+    OriginalStack s1 = stack();
+    OriginalStack s2 = stack();
+    Volume<?> vol1 = volume(s1, 100);
+    Volume<?> vol2 = volume(s2, 100);
+
+    cache.acquire(s1, () -> vol1);
+    cache.acquire(s2, () -> vol2);
+    cache.release(vol2);
+    Mockito.verify(vol2).removeData();
+
+    cache.clearUnused();
+    Mockito.verify(vol1, Mockito.never()).removeData();
+    cache.release(vol1);
+    Mockito.verify(vol1).removeData();
+  }
+
+  @Test
+  void test_low_memory_leaves_referenced_volumes() {
+    VolumeCache cache = new VolumeCache(() -> Long.MAX_VALUE, _ -> true);
+    OriginalStack s1 = stack();
+    OriginalStack s2 = stack();
+    Volume<?> vol1 = volume(s1, 100);
+    Volume<?> vol2 = volume(s2, 100);
+
+    cache.acquire(s1, () -> vol1);
+    cache.acquire(s2, () -> vol2);
+    Mockito.verify(vol1, Mockito.never()).removeData();
+    Mockito.verify(vol2, Mockito.never()).removeData();
+
+    cache.release(vol1);
+    Mockito.verify(vol1).removeData();
+    Mockito.verify(vol2, Mockito.never()).removeData();
+
+    // A volume which is not in the cache is freed
+    Volume<?> other = volume(s1, 100);
+    cache.release(other);
+    Mockito.verify(other).removeData();
+  }
+}
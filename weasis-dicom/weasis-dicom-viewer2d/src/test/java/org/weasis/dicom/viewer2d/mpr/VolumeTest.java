@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2025 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse
+ * Public License 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache
+ * License, Version 2.0 which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package org.weasis.dicom.viewer2d.mpr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+import org.joml.Vector4d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.dicom.viewer2d.mpr.MprView.Plane;
+import org.weasis.opencv.data.PlanarImage;
+
+class VolumeTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VolumeTest.class);
+
+  private static VolumeShort buildLinearVolume(int sizeX, int sizeY, int sizeZ) {
+    VolumeShort volume = new VolumeShort(sizeX, sizeY, sizeZ, false, null);
+    for (int z = 0; z < sizeZ; z++) {
+      for (int y = 0; y < sizeY; y++) {
+        for (int x = 0; x < sizeX; x++) {
+          volume.setDouble(volume.index(x, y, z), x + 2.0 * y + 3.0 * z);
+        }
+      }
+    }
+    return volume;
+  }
+
+  @Test
+  void test_unsigned_values() {
+    VolumeShort volume = new VolumeShort(2, 2, 2, false, null);
+    volume.setDouble(volume.index(1, 1, 1), 40000);
+    assertEquals(40000.0, volume.getDouble(volume.index(1, 1, 1)));
+    assertEquals((short) 40000, volume.getValue(1, 1, 1));
+    assertNull(volume.getValue(2, 0, 0));
+  }
+
+  @Test
+  void test_trilinear_interpolation() {
+    VolumeShort volume = buildLinearVolume(8, 8, 8);
+    // The interpolation of a linear function is exact
+    assertEquals(1.5 + 2 * 2.25 + 3 * 3.75, volume.interpolateVolume(1.5, 2.25, 3.75), 1e-9);
+    assertTrue(Double.isNaN(volume.interpolateVolume(-0.5, 1, 1)));
+    assertTrue(Double.isNaN(volume.interpolateVolume(1, 1, 7)));
+  }
+
+  @Test
+  void test_oblique_slice() {
+    int width = 10;
+    VolumeShort volume = buildLinearVolume(16, 16, 16);
+    Matrix4d transform = new Matrix4d().translate(2, 3, 4).rotateXYZ(0.3, 0.2, 0.1);
+    Vector3d voxelRatio = new Vector3d(1, 1, 1);
+    double[] raster = new double[width * width];
+    volume.computeSlice(transform, voxelRatio, width, (i, v) -> raster[i] = v);
+
+    Vector3d p = new Vector3d();
+    for (int y = 0; y < width; y++) {
+      for (int x = 0; x < width; x++) {
+        transform.transformPosition(p.set(x, y, 0));
+        double expected = volume.interpolateVolume(p.x, p.y, p.z);
+        assertEquals(Double.isNaN(expected) ? 0.0 : expected, raster[y * width + x], 1e-9);
+      }
+    }
+  }
+
+  @Test
+  void test_copy_coronal_image() {
+    int width = 8;
+    int height = 6;
+    PlanarImage image = Mockito.mock(PlanarImage.class);
+    Mockito.when(image.width()).thenReturn(width);
+    Mockito.when(image.height()).thenReturn(height);
+    Mockito.doAnswer(
+            invocation -> {
+              int y = invocation.getArgument(0);
+              short[] row = invocation.getArgument(2);
+              for (int x = 0; x < row.length; x++) {
+                row[x] = (short) (10 * y + x + 1);
+              }
+              return 0;
+            })
+        .when(image)
+        .get(
+            ArgumentMatchers.anyInt(),
+            ArgumentMatchers.anyInt(),
+            ArgumentMatchers.any(short[].class));
+
+    VolumeShort volume = new VolumeShort(8, 4, 8, false, null);
+    volume.stack = Mockito.mock(OriginalStack.class);
+    Mockito.when(volume.stack.getPlane()).thenReturn(Plane.CORONAL);
+    Matrix4d transform = new Matrix4d().translate(1, -5, 0);
+    int z = 2;
+    volume.copyFrom(image, z, transform);
+
+    int copied = 0;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        // Same position as transforming each pixel
+        Vector4d p = transform.transform(new Vector4d(x, y, z, 1.0));
+        int vx = (int) Math.round(p.x);
+        int vz = -(int) Math.round(p.y);
+        if (vx < 8) {
+          assertEquals((short) (10 * y + x + 1), volume.getValue(vx, z, vz));
+          copied++;
+        }
+      }
+    }
+    // The last column is outside the volume
+    assertEquals((width - 1) * height, copied);
+    assertEquals((short) 0, volume.getValue(0, z, 0));
+  }
+
+  /** Measures the oblique reslicing of a large volume. Run with -Dweasis.benchmark=true. */
+  @Test
+  @EnabledIfSystemProperty(named = "weasis.benchmark", matches = "true")
+  void benchmark_oblique_slice() {
+    VolumeShort volume = buildLinearVolume(512, 512, 1000);
+    int width = volume.getSliceSize();
+    double[] raster = new double[width * width];
+    Vector3d voxelRatio = volume.getVoxelRatio();
+    int iterations = 50;
+    long start = 0;
+    Matrix4d transform = new Matrix4d();
+    for (int i = 0; i < iterations * 2; i++) {
+      if (i == iterations) {
+        // The first iterations are for the JIT warm-up
+        start = System.nanoTime();
+      }
+      transform
+          .identity()
+          .translate(256, 256, 500)
+          .rotateXYZ(0.4 + i * 0.01, 0.3, 0.2)
+          .translate(-width / 2.0, -width / 2.0, 0);
+      volume.computeSlice(transform, voxelRatio, width, (k, v) -> raster[k] = v);
+    }
+    long time = System.nanoTime() - start;
+    LOGGER.info(
+        "Oblique slice {}x{} of a 512x512x1000 volume: {} ms", // NON-NLS
+        width,
+        width,
+        String.format("%.1f", time / 1e6 / iterations)); // NON-NLS
+
+    // The center of the last slice is the center of the volume
+    Vector3d p = transform.transformPosition(new Vector3d(width / 2, width / 2, 0));
+    int center = (width / 2) * width + width / 2;
+    assertEquals(volume.interpolateVolume(p.x, p.y, p.z), raster[center], 1e-6);
+  }
+}